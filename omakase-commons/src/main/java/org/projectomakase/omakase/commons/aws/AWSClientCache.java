@@ -0,0 +1,170 @@
+/*
+ * #%L
+ * omakase-commons
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.commons.aws;
+
+import com.amazonaws.AmazonWebServiceClient;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jboss.logging.Logger;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * A bounded cache of AWS SDK clients keyed by region and credentials.
+ * <p>
+ * Each client is created with its own {@link RuntimeCredentialsProvider} and region which are set once before the client is published to the cache and never
+ * changed afterwards, this allows the clients to be shared by concurrent callers. When the cache is full the least recently used client is evicted from
+ * the cache but it is not shut down, a caller may still be using it and shutting it down would close the connections of the requests, or the object streams,
+ * that are in progress. Evicted clients are retired instead and reused if a client for the same region and credentials is requested again, so the number of
+ * clients is bounded by the number of distinct regions and credentials in use. All of the clients, cached or retired, are shut down by
+ * {@link #invalidateAll()} when the cache is closed.
+ * </p>
+ *
+ * @param <T>
+ *         the AWS SDK client type
+ * @author Richard Lucas
+ */
+public class AWSClientCache<T extends AmazonWebServiceClient> {
+
+    private static final Logger LOGGER = Logger.getLogger(AWSClientCache.class);
+
+    private final Cache<ClientKey, T> clients;
+    private final ConcurrentMap<ClientKey, T> retiredClients = new ConcurrentHashMap<>();
+    private final BiFunction<RuntimeCredentialsProvider, Region, T> clientFactory;
+
+    /**
+     * Creates a new AWS client cache.
+     *
+     * @param maximumSize
+     *         the maximum number of clients held by the cache
+     * @param clientFactory
+     *         a function that creates a new client using the given credentials provider and region
+     */
+    public AWSClientCache(long maximumSize, BiFunction<RuntimeCredentialsProvider, Region, T> clientFactory) {
+        this.clients = CacheBuilder.newBuilder().maximumSize(maximumSize).<ClientKey, T>removalListener(this::onRemoval).build();
+        this.clientFactory = clientFactory;
+    }
+
+    /**
+     * Returns the client for the given credentials and region, creating it if it does not exist.
+     *
+     * @param awsCredentials
+     *         the AWS credentials
+     * @param region
+     *         the AWS region name e.g. us-west-1
+     * @return the client for the given credentials and region.
+     */
+    public T getClient(AWSCredentials awsCredentials, String region) {
+        try {
+            ClientKey clientKey = new ClientKey(awsCredentials, region);
+            return clients.get(clientKey, () -> {
+                T retiredClient = retiredClients.remove(clientKey);
+                return retiredClient != null ? retiredClient : newClient(awsCredentials, region);
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new OmakaseRuntimeException("Failed to create AWS client for region " + region, e.getCause());
+        }
+    }
+
+    /**
+     * Returns the number of clients held by the cache.
+     *
+     * @return the number of clients held by the cache.
+     */
+    public long size() {
+        return clients.size();
+    }
+
+    /**
+     * Removes and shuts down all of the clients held by the cache, including the clients that have been evicted. This should only be called when the cache
+     * is closed and the clients are no longer in use.
+     */
+    public void invalidateAll() {
+        clients.invalidateAll();
+        retiredClients.forEach((clientKey, client) -> {
+            if (retiredClients.remove(clientKey, client)) {
+                shutdown(clientKey, client);
+            }
+        });
+    }
+
+    private void onRemoval(RemovalNotification<ClientKey, T> notification) {
+        if (notification.getCause() == RemovalCause.SIZE) {
+            retiredClients.put(notification.getKey(), notification.getValue());
+        } else {
+            shutdown(notification.getKey(), notification.getValue());
+        }
+    }
+
+    private static void shutdown(ClientKey clientKey, AmazonWebServiceClient client) {
+        try {
+            client.shutdown();
+        } catch (Exception e) {
+            LOGGER.warn("Failed to shutdown AWS client for region " + clientKey.region, e);
+        }
+    }
+
+    private T newClient(AWSCredentials awsCredentials, String region) {
+        RuntimeCredentialsProvider runtimeCredentialsProvider = new RuntimeCredentialsProvider();
+        runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
+        return clientFactory.apply(runtimeCredentialsProvider, Region.getRegion(Regions.fromName(region)));
+    }
+
+    private static final class ClientKey {
+
+        private final String region;
+        private final String accessKey;
+        private final String secretKey;
+
+        ClientKey(AWSCredentials awsCredentials, String region) {
+            this.region = region;
+            this.accessKey = awsCredentials.getAWSAccessKeyId();
+            this.secretKey = awsCredentials.getAWSSecretKey();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClientKey clientKey = (ClientKey) o;
+            return Objects.equals(region, clientKey.region) && Objects.equals(accessKey, clientKey.accessKey) && Objects.equals(secretKey, clientKey.secretKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(region, accessKey, secretKey);
+        }
+    }
+}
@@ -21,8 +21,6 @@ package org.projectomakase.omakase.commons.aws.glacier;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.glacier.AmazonGlacier;
 import com.amazonaws.services.glacier.AmazonGlacierClient;
 import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
@@ -43,10 +41,10 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.util.EntityUtils;
 import org.jboss.logging.Logger;
+import org.projectomakase.omakase.commons.aws.AWSClientCache;
 import org.projectomakase.omakase.commons.aws.AWSClients;
 import org.projectomakase.omakase.commons.aws.AWSRequestSignerV4;
 import org.projectomakase.omakase.commons.aws.AWSUploadPart;
-import org.projectomakase.omakase.commons.aws.RuntimeCredentialsProvider;
 import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.commons.http.HttpClientFactory;
@@ -64,6 +62,10 @@ import java.util.Optional;
  * The current implementation currently uses the AWS SDK for some calls and directly invokes the REST API for other calls which is why it requires both a {@link HttpClient} and a {@link
  * AmazonGlacier} client. In the future the dependency on the AWS SDK will be removed which will simplify this class.
  * </p>
+ * <p>
+ * The {@link AmazonGlacier} clients are cached per region and set of credentials and are never mutated once created, which allows a single instance of this class
+ * to be used concurrently.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -73,19 +75,17 @@ public class GlacierClient {
 
     private static final String ARCHIVE_RETRIEVAL = "archive-retrieval";
     private static final String SERVICE = "glacier";
+    private static final long DEFAULT_MAX_CACHED_CLIENTS = 50;
 
     private final HttpClient httpClient;
     private final AWSRequestSignerV4 awsRequestSignerV4 = new AWSRequestSignerV4();
-    private final RuntimeCredentialsProvider runtimeCredentialsProvider;
-    private final AmazonGlacier amazonGlacier;
+    private final AWSClientCache<AmazonGlacierClient> amazonGlacierClients;
 
     /**
      * Creates a new Glacier Client configured with it's own pooled Http Client.
      */
     public GlacierClient() {
-        this.httpClient = HttpClientFactory.pooledConnectionHttpClient(100, 30000, 600000);
-        this.runtimeCredentialsProvider = new RuntimeCredentialsProvider();
-        this.amazonGlacier = new AmazonGlacierClient(runtimeCredentialsProvider);
+        this(HttpClientFactory.pooledConnectionHttpClient(100, 30000, 600000), DEFAULT_MAX_CACHED_CLIENTS);
     }
 
     /**
@@ -93,22 +93,28 @@ public class GlacierClient {
      *
      * @param httpClient
      *         the underlying http client used by the Glacier client.
-     * @param runtimeCredentialsProvider
-     *         the {@link RuntimeCredentialsProvider} used when creating the {@link AmazonGlacier} client.
-     * @param amazonGlacier
-     *         a {@link AmazonGlacier} client instance that has been created using the runtime credential provider above.
+     * @param maxCachedClients
+     *         the maximum number of {@link AmazonGlacier} clients, one per region and set of credentials, cached by the Glacier client.
      */
-    public GlacierClient(HttpClient httpClient, RuntimeCredentialsProvider runtimeCredentialsProvider, AmazonGlacier amazonGlacier) {
+    public GlacierClient(HttpClient httpClient, long maxCachedClients) {
         this.httpClient = httpClient;
-        this.runtimeCredentialsProvider = runtimeCredentialsProvider;
-        this.amazonGlacier = amazonGlacier;
+        this.amazonGlacierClients = new AWSClientCache<>(maxCachedClients, (credentialsProvider, region) -> {
+            AmazonGlacierClient amazonGlacier = new AmazonGlacierClient(credentialsProvider);
+            amazonGlacier.setRegion(region);
+            return amazonGlacier;
+        });
     }
 
+    /**
+     * Shuts down all of the cached {@link AmazonGlacier} clients releasing their connection pools. The underlying http client is not shut down as it may be shared.
+     */
+    public void shutdown() {
+        amazonGlacierClients.invalidateAll();
+    }
 
     public String initiateMultipartUpload(AWSCredentials awsCredentials, String region, String vault, String archiveDescription, long partSize) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonGlacier.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonGlacier amazonGlacier = amazonGlacierClients.getClient(awsCredentials, region);
 
             InitiateMultipartUploadResult result = amazonGlacier.initiateMultipartUpload(new InitiateMultipartUploadRequest(vault, archiveDescription, Long.toString(partSize)));
             return result.getUploadId();
@@ -168,8 +174,7 @@ public class GlacierClient {
 
     public String completeMultipartUpload(AWSCredentials awsCredentials, String region, String vault, String uploadId, long archiveSize, String archiveHash) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonGlacier.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonGlacier amazonGlacier = amazonGlacierClients.getClient(awsCredentials, region);
 
             CompleteMultipartUploadResult result = amazonGlacier.completeMultipartUpload(new CompleteMultipartUploadRequest(vault, uploadId, Long.toString(archiveSize), archiveHash));
             return result.getArchiveId();
@@ -180,8 +185,7 @@ public class GlacierClient {
 
     public void abortMultipartUpload(AWSCredentials awsCredentials, String region, String vault, String uploadId) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonGlacier.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonGlacier amazonGlacier = amazonGlacierClients.getClient(awsCredentials, region);
 
             amazonGlacier.abortMultipartUpload(new AbortMultipartUploadRequest(vault, uploadId));
         } catch (AmazonClientException e) {
@@ -191,8 +195,7 @@ public class GlacierClient {
 
     public void restore(AWSCredentials awsCredentials, String region, String vault, String archiveId, String snsTopic, String correlationId) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonGlacier.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonGlacier amazonGlacier = amazonGlacierClients.getClient(awsCredentials, region);
 
             JobParameters jobParameters = new JobParameters();
             jobParameters.setType(ARCHIVE_RETRIEVAL);
@@ -211,8 +214,7 @@ public class GlacierClient {
 
     public InputStream getArchiveRetrievalJobOutput(AWSCredentials credentials, String region, String vault, String jobId) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(credentials);
-            amazonGlacier.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonGlacier amazonGlacier = amazonGlacierClients.getClient(credentials, region);
 
             GetJobOutputRequest request = new GetJobOutputRequest();
             request.setVaultName(vault);
@@ -226,8 +228,7 @@ public class GlacierClient {
 
     public void deleteArchive(AWSCredentials awsCredentials, String region, String vault, String archiveId) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonGlacier.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonGlacier amazonGlacier = amazonGlacierClients.getClient(awsCredentials, region);
             amazonGlacier.deleteArchive(new DeleteArchiveRequest(vault, archiveId));
         } catch (AmazonClientException e) {
             throw new OmakaseRuntimeException(e);
@@ -22,15 +22,16 @@ package org.projectomakase.omakase.commons.aws.s3;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3Client;
 import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
 import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PartETag;
 import com.google.common.io.ByteStreams;
@@ -41,10 +42,10 @@ import org.apache.http.client.methods.HttpPut;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.util.EntityUtils;
 import org.jboss.logging.Logger;
+import org.projectomakase.omakase.commons.aws.AWSClientCache;
 import org.projectomakase.omakase.commons.aws.AWSClients;
 import org.projectomakase.omakase.commons.aws.AWSRequestSignerV4;
 import org.projectomakase.omakase.commons.aws.AWSUploadPart;
-import org.projectomakase.omakase.commons.aws.RuntimeCredentialsProvider;
 import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.commons.http.HttpClientFactory;
@@ -54,7 +55,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.time.ZonedDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -64,6 +67,10 @@ import java.util.stream.Collectors;
  * The current implementation currently uses the AWS SDK for some calls and directly invokes the REST API for other calls which is why it requires both a {@link HttpClient} and a {@link
  * AmazonS3} client. In the future the dependency on the AWS SDK will be removed which will simplify this class.
  * </p>
+ * <p>
+ * The {@link AmazonS3} clients are cached per region and set of credentials and are never mutated once created, which allows a single instance of this class
+ * to be used concurrently.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -72,22 +79,43 @@ public class S3Client {
     private static final Logger LOGGER = Logger.getLogger(S3Client.class);
 
     private static final String SERVICE = "s3";
+    private static final long DEFAULT_MAX_CACHED_CLIENTS = 50;
 
     private final HttpClient httpClient;
     private final AWSRequestSignerV4 awsRequestSignerV4 = new AWSRequestSignerV4();
-    private final RuntimeCredentialsProvider runtimeCredentialsProvider;
-    private final AmazonS3 amazonS3;
+    private final AWSClientCache<AmazonS3Client> amazonS3Clients;
 
+    /**
+     * Creates a new S3 Client configured with it's own pooled Http Client.
+     */
     public S3Client() {
-        this.httpClient = HttpClientFactory.pooledConnectionHttpClient(100, 30000, 600000);
-        this.runtimeCredentialsProvider = new RuntimeCredentialsProvider();
-        this.amazonS3 = new AmazonS3Client(runtimeCredentialsProvider, new ClientConfiguration().withSignerOverride("AWSS3V4SignerType"));
+        this(HttpClientFactory.pooledConnectionHttpClient(100, 30000, 600000), new ClientConfiguration().withSignerOverride("AWSS3V4SignerType"), DEFAULT_MAX_CACHED_CLIENTS);
     }
 
-    public S3Client(HttpClient httpClient, RuntimeCredentialsProvider runtimeCredentialsProvider, AmazonS3 amazonS3) {
+    /**
+     * Creates a new S3 Client.
+     *
+     * @param httpClient
+     *         the underlying http client used by the S3 client.
+     * @param clientConfiguration
+     *         the {@link ClientConfiguration} used when creating {@link AmazonS3} clients.
+     * @param maxCachedClients
+     *         the maximum number of {@link AmazonS3} clients, one per region and set of credentials, cached by the S3 client.
+     */
+    public S3Client(HttpClient httpClient, ClientConfiguration clientConfiguration, long maxCachedClients) {
         this.httpClient = httpClient;
-        this.runtimeCredentialsProvider = runtimeCredentialsProvider;
-        this.amazonS3 = amazonS3;
+        this.amazonS3Clients = new AWSClientCache<>(maxCachedClients, (credentialsProvider, region) -> {
+            AmazonS3Client amazonS3 = new AmazonS3Client(credentialsProvider, clientConfiguration);
+            amazonS3.setRegion(region);
+            return amazonS3;
+        });
+    }
+
+    /**
+     * Shuts down all of the cached {@link AmazonS3} clients releasing their connection pools. The underlying http client is not shut down as it may be shared.
+     */
+    public void shutdown() {
+        amazonS3Clients.invalidateAll();
     }
 
     public void uploadObject(S3Upload upload, String originalFileName, String signingHash, String contentHash, long contentLength, InputStream inputStream) {
@@ -139,10 +167,11 @@ public class S3Client {
 
     public String initiateMultipartUpload(S3Upload upload, String originalFilename) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(upload.getAwsCredentials());
-            amazonS3.setRegion(Region.getRegion(Regions.fromName(upload.getRegion())));
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(upload.getAwsCredentials(), upload.getRegion());
             ObjectMetadata objectMetadata = new ObjectMetadata();
-            objectMetadata.addUserMetadata("original-filename", originalFilename);
+            if (originalFilename != null) {
+                objectMetadata.addUserMetadata("original-filename", originalFilename);
+            }
             InitiateMultipartUploadResult result = amazonS3.initiateMultipartUpload(new InitiateMultipartUploadRequest(upload.getBucket(), upload.getKey(), objectMetadata));
             return result.getUploadId();
         } catch (AmazonClientException e) {
@@ -199,8 +228,7 @@ public class S3Client {
 
     public void completeMultipartUpload(S3Upload upload, List<S3Part> parts) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(upload.getAwsCredentials());
-            amazonS3.setRegion(Region.getRegion(Regions.fromName(upload.getRegion())));
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(upload.getAwsCredentials(), upload.getRegion());
             amazonS3.completeMultipartUpload(new CompleteMultipartUploadRequest(upload.getBucket(), upload.getKey(), upload.getUploadId(),
                                                                                 parts.stream().map(s3Part -> new PartETag(s3Part.getNumber(), s3Part.getEtag())).collect(Collectors.toList())));
         } catch (AmazonClientException e) {
@@ -210,8 +238,7 @@ public class S3Client {
 
     public void abortMultipartUpload(S3Upload upload) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(upload.getAwsCredentials());
-            amazonS3.setRegion(Region.getRegion(Regions.fromName(upload.getRegion())));
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(upload.getAwsCredentials(), upload.getRegion());
             amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(upload.getBucket(), upload.getKey(), upload.getUploadId()));
         } catch (AmazonClientException e) {
             throw new OmakaseRuntimeException(e);
@@ -223,28 +250,72 @@ public class S3Client {
             LOGGER.debug("Getting object [region: " + region + ", bucket: " + bucket + ", key: " + key);
         }
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonS3.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(awsCredentials, region);
             return amazonS3.getObject(bucket, key).getObjectContent();
         } catch (AmazonClientException e) {
             throw new OmakaseRuntimeException(e);
         }
     }
 
+    public InputStream getObject(AWSCredentials awsCredentials, String region, String bucket, String key, long offset, long length) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Getting object range [region: " + region + ", bucket: " + bucket + ", key: " + key + ", offset: " + offset + ", length: " + length);
+        }
+        try {
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(awsCredentials, region);
+            return amazonS3.getObject(new GetObjectRequest(bucket, key).withRange(offset, offset + length - 1)).getObjectContent();
+        } catch (AmazonClientException e) {
+            throw new OmakaseRuntimeException(e);
+        }
+    }
+
     public long getObjectLength(AWSCredentials awsCredentials, String region, String bucket, String key) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonS3.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(awsCredentials, region);
             return amazonS3.getObjectMetadata(bucket, key).getContentLength();
         } catch (AmazonClientException e) {
             throw new OmakaseRuntimeException(e);
         }
     }
 
+    /**
+     * Lists the lengths of the objects whose keys start with the given prefix. S3 returns up to 1,000 objects per request so this is considerably cheaper
+     * than requesting the metadata of each object when the lengths of many objects under the same prefix are required.
+     *
+     * @param awsCredentials
+     *         the AWS credentials
+     * @param region
+     *         the region
+     * @param bucket
+     *         the bucket
+     * @param prefix
+     *         the key prefix
+     * @param maxObjects
+     *         the listing stops once at least this many objects have been listed, the result may therefore not include every object under the prefix.
+     * @return a map of object key to object length.
+     */
+    public Map<String, Long> listObjectLengths(AWSCredentials awsCredentials, String region, String bucket, String prefix, int maxObjects) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Listing object lengths [region: " + region + ", bucket: " + bucket + ", prefix: " + prefix + ", maxObjects: " + maxObjects);
+        }
+        try {
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(awsCredentials, region);
+            Map<String, Long> objectLengths = new HashMap<>();
+            ObjectListing objectListing = amazonS3.listObjects(new ListObjectsRequest().withBucketName(bucket).withPrefix(prefix));
+            objectListing.getObjectSummaries().forEach(summary -> objectLengths.put(summary.getKey(), summary.getSize()));
+            while (objectListing.isTruncated() && objectLengths.size() < maxObjects) {
+                objectListing = amazonS3.listNextBatchOfObjects(objectListing);
+                objectListing.getObjectSummaries().forEach(summary -> objectLengths.put(summary.getKey(), summary.getSize()));
+            }
+            return objectLengths;
+        } catch (AmazonClientException e) {
+            throw new OmakaseRuntimeException(e);
+        }
+    }
+
     public void deleteObject(AWSCredentials awsCredentials, String region, String bucket, String key) {
         try {
-            runtimeCredentialsProvider.setAwsCredentials(awsCredentials);
-            amazonS3.setRegion(Region.getRegion(Regions.fromName(region)));
+            AmazonS3 amazonS3 = amazonS3Clients.getClient(awsCredentials, region);
             amazonS3.deleteObject(new DeleteObjectRequest(bucket, key));
         } catch (AmazonClientException e) {
             throw new OmakaseRuntimeException(e);
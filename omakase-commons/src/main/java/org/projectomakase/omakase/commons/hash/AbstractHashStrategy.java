@@ -80,5 +80,35 @@ public abstract class AbstractHashStrategy implements HashStrategy {
         return this;
     }
 
+    /**
+     * Reads an array of bytes that starts at the specified position of the content. Allows callers to skip the bytes that are outside of the strategy's
+     * byte range rather than reading them.
+     *
+     * @param position
+     *         the position of the first byte in the array
+     * @param bytes
+     *         the byte array to read
+     * @param length
+     *         the number of bytes to read
+     * @return this instance.
+     */
+    public HashStrategy readBytes(long position, byte[] bytes, int length) {
+        bytesRead = position;
+        return readBytes(bytes, length);
+    }
+
+    /**
+     * Returns true if the specified range of bytes overlaps the strategy's byte range, otherwise false.
+     *
+     * @param position
+     *         the position of the first byte
+     * @param length
+     *         the number of bytes
+     * @return true if the specified range of bytes overlaps the strategy's byte range, otherwise false.
+     */
+    public boolean overlaps(long position, long length) {
+        return length > 0 && position <= byteRange.getTo() && position + length - 1 >= byteRange.getFrom();
+    }
+
     abstract void hashBytes(byte[] bytes, long offset, long length);
 }
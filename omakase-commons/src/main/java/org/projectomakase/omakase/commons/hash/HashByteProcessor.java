@@ -32,18 +32,48 @@ import java.util.List;
 public class HashByteProcessor implements ByteProcessor<ImmutableList<Hash>> {
 
     private final List<HashStrategy> hashStrategies;
+    private final long startPosition;
+    private long position;
 
     public HashByteProcessor(List<HashStrategy> hashStrategies) {
+        this(hashStrategies, 0);
+    }
+
+    /**
+     * Creates a new hash byte processor for bytes that are read from the specified position of the content rather than the start, e.g. from a ranged
+     * read.
+     *
+     * @param hashStrategies
+     *         the hash strategies
+     * @param startPosition
+     *         the position of the first byte that will be processed
+     */
+    public HashByteProcessor(List<HashStrategy> hashStrategies, long startPosition) {
         this.hashStrategies = hashStrategies;
+        this.startPosition = startPosition;
+        this.position = startPosition;
     }
 
     @SuppressWarnings("NullableProblems")
     @Override
     public boolean processBytes(byte[] buf, int off, int len) throws IOException {
-        hashStrategies.forEach(hashStrategy -> hashStrategy.readBytes(buf, len));
+        if (startPosition == 0) {
+            hashStrategies.forEach(hashStrategy -> hashStrategy.readBytes(buf, len));
+        } else {
+            hashStrategies.forEach(hashStrategy -> readBytes(hashStrategy, buf, len));
+        }
+        position += len;
         return true;
     }
 
+    private void readBytes(HashStrategy hashStrategy, byte[] buf, int len) {
+        if (hashStrategy instanceof AbstractHashStrategy) {
+            ((AbstractHashStrategy) hashStrategy).readBytes(position, buf, len);
+        } else {
+            throw new IllegalStateException(hashStrategy.getClass().getSimpleName() + " does not support reading bytes from a position other than the start");
+        }
+    }
+
     @Override
     public ImmutableList<Hash> getResult() {
         return hashStrategies.stream().map(HashStrategy::finisher).collect(ImmutableListCollector.toImmutableList());
@@ -0,0 +1,310 @@
+/*
+ * #%L
+ * omakase-commons
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.commons.hash;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Calculates multiple hashes in a single pass of an {@link InputStream} using multiple threads.
+ * <p>
+ * The calling thread reads the stream into a ring of reusable 1MB buffers. Each buffer is handed to a number of hashing lanes, each lane runs on its own
+ * thread and feeds the buffers, in order, to the hash strategies assigned to it. Strategies are assigned to the lanes round robin in byte range order so that
+ * strategies reading the same bytes, e.g. several algorithms over the whole input, are hashed on different lanes. Tree hashes whose byte range starts on a 1MB boundary are not assigned to a lane, instead each 1MB
+ * leaf hash is calculated independently by the shared worker threads.
+ * </p>
+ * <p>
+ * A buffer is returned to the ring once every lane and leaf hash using it has finished, bounding the memory used to the number of buffers.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class HashEngine {
+
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final int threads;
+    private final int bufferCount;
+
+    /**
+     * Creates a new hash engine.
+     *
+     * @param threads
+     *         the maximum number of threads used to calculate the hashes
+     * @param bufferCount
+     *         the number of buffers in the ring, i.e. how far reading can get ahead of hashing
+     */
+    public HashEngine(int threads, int bufferCount) {
+        checkArgument(threads > 0, "threads must be greater than 0");
+        checkArgument(bufferCount > 0, "bufferCount must be greater than 0");
+        this.threads = threads;
+        this.bufferCount = bufferCount;
+    }
+
+    /**
+     * Reads the input stream and returns the hashes calculated by the hash strategies. The hashes are returned in the same order as the strategies.
+     *
+     * @param inputStream
+     *         the input stream to hash, the caller is responsible for closing it
+     * @param hashStrategies
+     *         the hash strategies
+     * @return the hashes calculated by the hash strategies.
+     * @throws IOException
+     *         if an I/O error occurs reading the input stream
+     */
+    public ImmutableList<Hash> hash(InputStream inputStream, List<HashStrategy> hashStrategies) throws IOException {
+        List<TreeHashStrategy> leafStrategies = new ArrayList<>();
+        List<HashStrategy> laneStrategies = new ArrayList<>();
+        hashStrategies.forEach(hashStrategy -> {
+            if (hashStrategy instanceof TreeHashStrategy && ((TreeHashStrategy) hashStrategy).isLeafAligned()) {
+                leafStrategies.add((TreeHashStrategy) hashStrategy);
+            } else {
+                laneStrategies.add(hashStrategy);
+            }
+        });
+
+        // leaf strategies are sorted by range so that only the strategies overlapping each chunk need to be checked
+        leafStrategies.sort(Comparator.comparingLong(treeHashStrategy -> treeHashStrategy.getByteRange().getFrom()));
+        List<Lane> lanes = createLanes(laneStrategies);
+        ExecutorService executorService = Executors.newFixedThreadPool(lanes.size() + (leafStrategies.isEmpty() ? 0 : threads));
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(bufferCount);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        // the reading thread is registered with the phaser along with each running lane and leaf hash
+        Phaser phaser = new Phaser(1);
+        try {
+            lanes.forEach(lane -> {
+                phaser.register();
+                executorService.execute(() -> {
+                    try {
+                        lane.run(failure);
+                    } finally {
+                        phaser.arriveAndDeregister();
+                    }
+                });
+            });
+
+            long position = 0;
+            int firstLeaf = 0;
+            while (failure.get() == null) {
+                byte[] buffer = takeBuffer(buffers, position);
+                int length = ByteStreams.read(inputStream, buffer, 0, buffer.length);
+                if (length == 0) {
+                    break;
+                }
+                Chunk chunk = new Chunk(buffer, length, position, buffers);
+                lanes.forEach(lane -> {
+                    chunk.retain();
+                    lane.chunks.add(chunk);
+                });
+                while (firstLeaf < leafStrategies.size() && leafStrategies.get(firstLeaf).getByteRange().getTo() < position) {
+                    firstLeaf++;
+                }
+                for (int i = firstLeaf; i < leafStrategies.size() && leafStrategies.get(i).getByteRange().getFrom() < position + length; i++) {
+                    TreeHashStrategy leafStrategy = leafStrategies.get(i);
+                    if (leafStrategy.overlaps(position, length)) {
+                        chunk.retain();
+                        phaser.register();
+                        executorService.execute(() -> {
+                            try {
+                                hashLeaf(leafStrategy, chunk, failure);
+                            } finally {
+                                chunk.release();
+                                phaser.arriveAndDeregister();
+                            }
+                        });
+                    }
+                }
+                chunk.release();
+                position += length;
+                if (length < buffer.length) {
+                    break;
+                }
+            }
+        } finally {
+            lanes.forEach(lane -> lane.chunks.add(Chunk.END));
+            phaser.arriveAndAwaitAdvance();
+            executorService.shutdown();
+        }
+
+        if (failure.get() != null) {
+            throw new IOException("Failed to calculate hashes. Reason: " + failure.get().getMessage(), failure.get());
+        }
+        return hashStrategies.stream().map(HashStrategy::finisher).collect(ImmutableListCollector.toImmutableList());
+    }
+
+    private byte[] takeBuffer(BlockingQueue<byte[]> buffers, long position) throws IOException {
+        // the ring is filled lazily so that small inputs only allocate the buffers they need
+        if (position < (long) bufferCount * BUFFER_SIZE) {
+            return new byte[BUFFER_SIZE];
+        }
+        try {
+            return buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a free hash buffer", e);
+        }
+    }
+
+    private List<Lane> createLanes(List<HashStrategy> laneStrategies) {
+        if (laneStrategies.isEmpty()) {
+            return ImmutableList.of();
+        }
+        // strategies are dealt to the lanes in range order, each lane's strategies remain sorted by range and strategies covering the same bytes are spread across lanes
+        List<HashStrategy> sorted = new ArrayList<>(laneStrategies);
+        sorted.sort(Comparator.comparingLong(HashEngine::getFrom));
+        int lanes = Math.min(threads, sorted.size());
+        List<List<HashStrategy>> laneStrategyLists = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            laneStrategyLists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < sorted.size(); i++) {
+            laneStrategyLists.get(i % lanes).add(sorted.get(i));
+        }
+        return laneStrategyLists.stream().map(Lane::new).collect(ImmutableListCollector.toImmutableList());
+    }
+
+    private static long getFrom(HashStrategy hashStrategy) {
+        return hashStrategy instanceof AbstractHashStrategy ? ((AbstractHashStrategy) hashStrategy).getByteRange().getFrom() : 0;
+    }
+
+    private static void hashLeaf(TreeHashStrategy treeHashStrategy, Chunk chunk, AtomicReference<Throwable> failure) {
+        if (failure.get() != null) {
+            return;
+        }
+        try {
+            ByteRange byteRange = treeHashStrategy.getByteRange();
+            long start = Math.max(byteRange.getFrom(), chunk.position);
+            long end = Math.min(byteRange.getTo() + 1, chunk.position + chunk.length);
+            int leafIndex = (int) ((start - byteRange.getFrom()) / BUFFER_SIZE);
+            treeHashStrategy.putLeaf(leafIndex, Hashing.sha256().hashBytes(chunk.buffer, (int) (start - chunk.position), (int) (end - start)));
+        } catch (Exception e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    /**
+     * A buffer of bytes read from the input stream and the number of lanes and leaf hashes still using it.
+     */
+    private static class Chunk {
+
+        static final Chunk END = new Chunk(new byte[0], 0, -1, null);
+
+        final byte[] buffer;
+        final int length;
+        final long position;
+        private final BlockingQueue<byte[]> buffers;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        Chunk(byte[] buffer, int length, long position, BlockingQueue<byte[]> buffers) {
+            this.buffer = buffer;
+            this.length = length;
+            this.position = position;
+            this.buffers = buffers;
+        }
+
+        void retain() {
+            references.incrementAndGet();
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                buffers.offer(buffer);
+            }
+        }
+    }
+
+    /**
+     * Feeds chunks, in order, to a group of hash strategies on a single thread.
+     */
+    private static class Lane {
+
+        final BlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+        private final List<HashStrategy> hashStrategies;
+        private int firstActive = 0;
+
+        Lane(List<HashStrategy> hashStrategies) {
+            this.hashStrategies = hashStrategies;
+        }
+
+        void run(AtomicReference<Throwable> failure) {
+            try {
+                Chunk chunk;
+                while ((chunk = chunks.take()) != Chunk.END) {
+                    try {
+                        if (failure.get() == null) {
+                            hashChunk(chunk);
+                        }
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        chunk.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private void hashChunk(Chunk chunk) {
+            // skip strategies whose byte range ends before this chunk, they have already read all of their bytes
+            while (firstActive < hashStrategies.size() && isBefore(hashStrategies.get(firstActive), chunk)) {
+                firstActive++;
+            }
+            for (int i = firstActive; i < hashStrategies.size(); i++) {
+                HashStrategy hashStrategy = hashStrategies.get(i);
+                if (hashStrategy instanceof AbstractHashStrategy) {
+                    AbstractHashStrategy abstractHashStrategy = (AbstractHashStrategy) hashStrategy;
+                    if (abstractHashStrategy.getByteRange().getFrom() >= chunk.position + chunk.length) {
+                        // strategies are sorted by range so none of the remaining strategies overlap this chunk
+                        break;
+                    }
+                    if (abstractHashStrategy.overlaps(chunk.position, chunk.length)) {
+                        abstractHashStrategy.readBytes(chunk.position, chunk.buffer, chunk.length);
+                    }
+                } else {
+                    hashStrategy.readBytes(chunk.buffer, chunk.length);
+                }
+            }
+        }
+
+        private static boolean isBefore(HashStrategy hashStrategy, Chunk chunk) {
+            return hashStrategy instanceof AbstractHashStrategy && ((AbstractHashStrategy) hashStrategy).getByteRange().getTo() < chunk.position;
+        }
+    }
+}
@@ -26,6 +26,8 @@ import com.google.common.primitives.Ints;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * {@link HashStrategy} implementation that calculates a Tree Hash compatible with AWS Glacier.
@@ -38,6 +40,8 @@ public class TreeHashStrategy extends AbstractHashStrategy {
     private Hasher hasher = Hashing.sha256().newHasher();
     private long bytesHashed = 0;
     private List<HashCode> hashes = new ArrayList<>();
+    // leaf hashes calculated independently of each other, see HashEngine
+    private final ConcurrentNavigableMap<Integer, HashCode> leaves = new ConcurrentSkipListMap<>();
 
     /**
      * Creates a new tree hash strategy that calculates a Tree Hash compatible with AWS Glacier.
@@ -52,20 +56,51 @@ public class TreeHashStrategy extends AbstractHashStrategy {
     @Override
     void hashBytes(byte[] bytes, long offset, long length) {
         // bytes are hashed in one MB chunks before being collapsed into a single hash value
-        if (bytesHashed < ONE_MB) {
-            hasher.putBytes(bytes, 0, Ints.checkedCast(length));
-        } else {
-            hashes.add(hasher.hash());
-            hasher = Hashing.sha256().newHasher();
-            bytesHashed = 0;
-            hasher.putBytes(bytes, 0, Ints.checkedCast(length));
+        long position = offset;
+        long remaining = length;
+        while (remaining > 0) {
+            if (bytesHashed == ONE_MB) {
+                hashes.add(hasher.hash());
+                hasher = Hashing.sha256().newHasher();
+                bytesHashed = 0;
+            }
+            long bytesToHash = Math.min(remaining, ONE_MB - bytesHashed);
+            hasher.putBytes(bytes, Ints.checkedCast(position), Ints.checkedCast(bytesToHash));
+            position += bytesToHash;
+            remaining -= bytesToHash;
+            bytesHashed += bytesToHash;
         }
-        bytesHashed += length;
+    }
+
+    /**
+     * Returns true if the byte range starts on a one MB boundary, allowing each one MB leaf to be hashed independently, otherwise false.
+     *
+     * @return true if the byte range starts on a one MB boundary, otherwise false.
+     */
+    boolean isLeafAligned() {
+        return getByteRange().getFrom() % ONE_MB == 0;
+    }
+
+    /**
+     * Adds a leaf hash that was calculated independently. Leaf hashes can be added in any order and from any thread but must not be mixed with
+     * {@link #readBytes(byte[], int)}.
+     *
+     * @param index
+     *         the index of the one MB leaf within the byte range
+     * @param hashCode
+     *         the leaf hash
+     */
+    void putLeaf(int index, HashCode hashCode) {
+        leaves.put(index, hashCode);
     }
 
     @Override
     public Hash finisher() {
-        hashes.add(hasher.hash());
+        if (!leaves.isEmpty()) {
+            hashes.addAll(leaves.values());
+        } else {
+            hashes.add(hasher.hash());
+        }
         return new Hash(Hashes.TREE_HASH, Hashes.treeHashFromHashCodes(hashes).toString(), getByteRange().getFrom(), getByteRange().getTo() + 1);
     }
 }
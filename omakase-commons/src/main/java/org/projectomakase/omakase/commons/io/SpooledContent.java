@@ -0,0 +1,171 @@
+/*
+ * #%L
+ * omakase-commons
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.commons.io;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.io.Closeables;
+import org.jboss.logging.Logger;
+import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The content of an input stream read once and spooled so that it can be re-read by multiple consumers, e.g. parsed and then copied to a destination,
+ * without reading the source again.
+ * <p>
+ * The content is held in memory up to maxInMemoryBytes after which it is spilled to a temporary file that is deleted when the spooled content is closed.
+ * Any hashes required by the consumers are calculated while the content is being spooled.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public final class SpooledContent implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(SpooledContent.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final byte[] content;
+    private final Path file;
+    private final long length;
+    private final List<HashCode> hashes;
+
+    private SpooledContent(byte[] content, Path file, long length, List<HashCode> hashes) {
+        this.content = content;
+        this.file = file;
+        this.length = length;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Reads the input stream to the end, spooling its content and calculating the hashes of the content. The input stream is not closed.
+     *
+     * @param inputStream
+     *         the input stream
+     * @param maxInMemoryBytes
+     *         the maximum number of bytes held in memory before the content is spilled to a temporary file
+     * @param hashFunctions
+     *         the hash functions used to hash the content
+     * @return the spooled content.
+     * @throws IOException
+     *         if the input stream can not be read or the content can not be spilled to a temporary file.
+     */
+    public static SpooledContent spool(InputStream inputStream, long maxInMemoryBytes, HashFunction... hashFunctions) throws IOException {
+        List<Hasher> hashers = Arrays.stream(hashFunctions).map(HashFunction::newHasher).collect(ImmutableListCollector.toImmutableList());
+        ByteArrayOutputStream memory = new ByteArrayOutputStream(BUFFER_SIZE);
+        OutputStream outputStream = memory;
+        Path file = null;
+        long length = 0;
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                for (Hasher hasher : hashers) {
+                    hasher.putBytes(buffer, 0, read);
+                }
+                if (file == null && length + read > maxInMemoryBytes) {
+                    file = Files.createTempFile("omakase-spool-", ".tmp");
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Spooled content exceeds " + maxInMemoryBytes + " bytes, spilling to " + file);
+                    }
+                    outputStream = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE);
+                    memory.writeTo(outputStream);
+                }
+                outputStream.write(buffer, 0, read);
+                length += read;
+            }
+            outputStream.close();
+        } catch (IOException | RuntimeException e) {
+            Closeables.close(outputStream, true);
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+            throw e;
+        }
+
+        List<HashCode> hashCodes = hashers.stream().map(Hasher::hash).collect(ImmutableListCollector.toImmutableList());
+        if (file == null) {
+            return new SpooledContent(memory.toByteArray(), null, length, hashCodes);
+        } else {
+            return new SpooledContent(null, file, length, hashCodes);
+        }
+    }
+
+    /**
+     * Opens a new input stream over the spooled content, the content can be read any number of times until the spooled content is closed.
+     *
+     * @return a new input stream over the spooled content.
+     * @throws IOException
+     *         if the spilled content can not be opened.
+     */
+    public InputStream openStream() throws IOException {
+        if (file == null) {
+            return new ByteArrayInputStream(content);
+        } else {
+            return Files.newInputStream(file);
+        }
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the hashes of the content in the same order as the hash functions the content was spooled with.
+     *
+     * @return the hashes of the content.
+     */
+    public List<HashCode> getHashes() {
+        return hashes;
+    }
+
+    /**
+     * Returns true if the content is held in memory, or false if it was spilled to a temporary file.
+     *
+     * @return true if the content is held in memory, otherwise false.
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    /**
+     * Deletes the temporary file if the content was spilled to one.
+     */
+    @Override
+    public void close() {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOGGER.warn("Failed to delete spooled content " + file, e);
+            }
+        }
+    }
+}
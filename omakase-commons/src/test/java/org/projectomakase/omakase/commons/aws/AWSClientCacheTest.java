@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * omakase-commons
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.commons.aws;
+
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3Client;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class AWSClientCacheTest {
+
+    private static final AWSCredentials CREDENTIALS = new BasicAWSCredentials("access", "secret");
+    private static final AWSCredentials OTHER_CREDENTIALS = new BasicAWSCredentials("other-access", "other-secret");
+
+    private List<Region> createdRegions;
+
+    @Before
+    public void before() {
+        createdRegions = new ArrayList<>();
+    }
+
+    @Test
+    public void shouldReuseClientForSameRegionAndCredentials() {
+        AWSClientCache<AmazonS3Client> cache = newCache(10);
+        AmazonS3Client client = cache.getClient(CREDENTIALS, "us-west-1");
+        assertThat(cache.getClient(new BasicAWSCredentials("access", "secret"), "us-west-1")).isSameAs(client);
+        assertThat(createdRegions).containsExactly(Region.getRegion(Regions.US_WEST_1));
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCreateClientPerRegionAndCredentials() {
+        AWSClientCache<AmazonS3Client> cache = newCache(10);
+        AmazonS3Client client = cache.getClient(CREDENTIALS, "us-west-1");
+        AmazonS3Client otherRegionClient = cache.getClient(CREDENTIALS, "eu-west-1");
+        AmazonS3Client otherCredentialsClient = cache.getClient(OTHER_CREDENTIALS, "us-west-1");
+        assertThat(otherRegionClient).isNotSameAs(client);
+        assertThat(otherCredentialsClient).isNotSameAs(client).isNotSameAs(otherRegionClient);
+        assertThat(createdRegions).containsExactly(Region.getRegion(Regions.US_WEST_1), Region.getRegion(Regions.EU_WEST_1), Region.getRegion(Regions.US_WEST_1));
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotShutdownEvictedClients() {
+        AWSClientCache<AmazonS3Client> cache = newCache(1);
+        AmazonS3Client evicted = cache.getClient(CREDENTIALS, "us-west-1");
+        AmazonS3Client retained = cache.getClient(CREDENTIALS, "eu-west-1");
+        assertThat(cache.size()).isEqualTo(1);
+        // the evicted client may still be in use by a request that is in progress
+        verify(evicted, never()).shutdown();
+        verify(retained, never()).shutdown();
+
+        // an evicted client is reused the next time it is requested
+        assertThat(cache.getClient(CREDENTIALS, "us-west-1")).isSameAs(evicted);
+        assertThat(cache.getClient(CREDENTIALS, "eu-west-1")).isSameAs(retained);
+        assertThat(createdRegions).containsExactly(Region.getRegion(Regions.US_WEST_1), Region.getRegion(Regions.EU_WEST_1));
+        verify(evicted, never()).shutdown();
+        verify(retained, never()).shutdown();
+    }
+
+    @Test
+    public void shouldShutdownEvictedClientsOnInvalidateAll() {
+        AWSClientCache<AmazonS3Client> cache = newCache(1);
+        AmazonS3Client evicted = cache.getClient(CREDENTIALS, "us-west-1");
+        AmazonS3Client retained = cache.getClient(CREDENTIALS, "eu-west-1");
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+        verify(evicted).shutdown();
+        verify(retained).shutdown();
+
+        // clients are recreated once they have been shut down
+        assertThat(cache.getClient(CREDENTIALS, "us-west-1")).isNotSameAs(evicted);
+    }
+
+    @Test
+    public void shouldShutdownClientsOnInvalidateAll() {
+        AWSClientCache<AmazonS3Client> cache = newCache(10);
+        AmazonS3Client client = cache.getClient(CREDENTIALS, "us-west-1");
+        AmazonS3Client otherClient = cache.getClient(OTHER_CREDENTIALS, "us-west-1");
+        cache.invalidateAll();
+        assertThat(cache.size()).isEqualTo(0);
+        verify(client).shutdown();
+        verify(otherClient).shutdown();
+    }
+
+    private AWSClientCache<AmazonS3Client> newCache(long maximumSize) {
+        return new AWSClientCache<>(maximumSize, (credentialsProvider, region) -> {
+            createdRegions.add(region);
+            return mock(AmazonS3Client.class);
+        });
+    }
+}
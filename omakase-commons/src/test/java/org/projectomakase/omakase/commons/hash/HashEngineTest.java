@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * omakase-commons
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.commons.hash;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
+import org.projectomakase.omakase.commons.file.FileGenerator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * @author Richard Lucas
+ */
+public class HashEngineTest {
+
+    private static final long ONE_MB = 1024 * 1024;
+    private static final long FOUR_MB = ONE_MB * 4;
+    private static final ByteRange BYTE_RANGE = new ByteRange(0, 4195074);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldCreateMultipleHashesForTheWholeFile() throws Exception {
+        File testFile = FileGenerator.generate(temporaryFolder.getRoot(), FOUR_MB);
+        List<Hash> hashes = hash(testFile, new HashEngine(4, 2), () -> ImmutableList.of(Hashes.getHashStrategy(Hashes.SHA256, BYTE_RANGE),
+                                                                                          Hashes.getHashStrategy(Hashes.MD5, BYTE_RANGE),
+                                                                                          Hashes.getHashStrategy(Hashes.TREE_HASH, BYTE_RANGE)));
+        assertThat(hashes).extracting("value").containsExactly("593aae576b3cfc6ad474600343c26f822144087f712572b08fa56c3beabf7f18", "e2325cb8e030bff536aa278ef6b699ef",
+                                                               "aaf178963dba5142d81e6feda72bfaf1c7064df2276672ec9295326367444ce4");
+    }
+
+    @Test
+    public void shouldCreateTheSameHashesAsASingleThreadForEachByteRange() throws Exception {
+        File testFile = FileGenerator.generate(temporaryFolder.getRoot(), FOUR_MB + 12345);
+        Supplier<List<HashStrategy>> hashStrategies = () -> {
+            ImmutableList.Builder<HashStrategy> builder = ImmutableList.builder();
+            Hashes.createByteRanges(ONE_MB + 1000, testFile.length()).forEach(byteRange -> {
+                builder.add(Hashes.getHashStrategy(Hashes.SHA256, byteRange));
+                builder.add(Hashes.getHashStrategy(Hashes.MD5_BASE64, byteRange));
+            });
+            Hashes.createByteRanges(ONE_MB * 2, testFile.length()).forEach(byteRange -> builder.add(Hashes.getHashStrategy(Hashes.TREE_HASH, byteRange)));
+            builder.add(Hashes.getHashStrategy(Hashes.TREE_HASH, new ByteRange(4000, 2500000)));
+            return builder.build();
+        };
+
+        List<Hash> expected = hash(testFile, null, hashStrategies);
+        List<Hash> actual = hash(testFile, new HashEngine(3, 2), hashStrategies);
+        assertThat(actual).extracting("algorithm", "value", "offset", "length").containsExactlyElementsOf(
+                expected.stream().map(hash -> tuple(hash.getAlgorithm(), hash.getValue(), hash.getOffset(), hash.getLength()))
+                        .collect(ImmutableListCollector.toImmutableList()));
+    }
+
+    @Test
+    public void shouldHashStrategiesForTheSameBytesOnDifferentLanes() throws Exception {
+        File testFile = FileGenerator.generate(temporaryFolder.getRoot(), FOUR_MB);
+        ThreadRecordingHashStrategy sha256 = new ThreadRecordingHashStrategy(Hashes.getHashStrategy(Hashes.SHA256, BYTE_RANGE));
+        ThreadRecordingHashStrategy md5 = new ThreadRecordingHashStrategy(Hashes.getHashStrategy(Hashes.MD5, BYTE_RANGE));
+        List<Hash> hashes = hash(testFile, new HashEngine(2, 2), () -> ImmutableList.of(sha256, md5, Hashes.getHashStrategy(Hashes.SHA256, new ByteRange(ONE_MB * 2, ONE_MB * 3 - 1)),
+                                                                                          Hashes.getHashStrategy(Hashes.SHA256, new ByteRange(ONE_MB * 3, FOUR_MB - 1))));
+        assertThat(hashes).extracting("value").startsWith("593aae576b3cfc6ad474600343c26f822144087f712572b08fa56c3beabf7f18", "e2325cb8e030bff536aa278ef6b699ef");
+        // both strategies read every chunk, each on its own lane
+        assertThat(sha256.threads).hasSize(1);
+        assertThat(md5.threads).hasSize(1);
+        assertThat(sha256.threads).doesNotContainAnyElementsOf(md5.threads);
+    }
+
+    private static List<Hash> hash(File file, HashEngine hashEngine, Supplier<List<HashStrategy>> hashStrategies) throws Exception {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            if (hashEngine == null) {
+                return ByteStreams.readBytes(inputStream, new HashByteProcessor(hashStrategies.get()));
+            } else {
+                return hashEngine.hash(inputStream, hashStrategies.get());
+            }
+        }
+    }
+
+    private static class ThreadRecordingHashStrategy implements HashStrategy {
+
+        private final HashStrategy hashStrategy;
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        ThreadRecordingHashStrategy(HashStrategy hashStrategy) {
+            this.hashStrategy = hashStrategy;
+        }
+
+        @Override
+        public HashStrategy readBytes(byte[] bytes, int length) {
+            threads.add(Thread.currentThread());
+            hashStrategy.readBytes(bytes, length);
+            return this;
+        }
+
+        @Override
+        public Hash finisher() {
+            return hashStrategy.finisher();
+        }
+    }
+}
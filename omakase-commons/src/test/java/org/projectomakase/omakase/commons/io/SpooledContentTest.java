@@ -0,0 +1,65 @@
+/*
+ * #%L
+ * omakase-commons
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.commons.io;
+
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Richard Lucas
+ */
+public class SpooledContentTest {
+
+    private static final byte[] CONTENT = "This is a test".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void shouldSpoolContentInMemory() throws Exception {
+        try (SpooledContent spooledContent = SpooledContent.spool(new ByteArrayInputStream(CONTENT), 1024, Hashing.md5(), Hashing.sha256())) {
+            assertThat(spooledContent.isInMemory()).isTrue();
+            assertSpooledContent(spooledContent);
+        }
+    }
+
+    @Test
+    public void shouldSpillContentToFile() throws Exception {
+        try (SpooledContent spooledContent = SpooledContent.spool(new ByteArrayInputStream(CONTENT), 4, Hashing.md5(), Hashing.sha256())) {
+            assertThat(spooledContent.isInMemory()).isFalse();
+            assertSpooledContent(spooledContent);
+        }
+    }
+
+    private static void assertSpooledContent(SpooledContent spooledContent) throws Exception {
+        assertThat(spooledContent.getLength()).isEqualTo(CONTENT.length);
+        assertThat(spooledContent.getHashes()).containsExactly(Hashing.md5().hashBytes(CONTENT), Hashing.sha256().hashBytes(CONTENT));
+        // the content can be read multiple times
+        for (int i = 0; i < 2; i++) {
+            try (InputStream inputStream = spooledContent.openStream()) {
+                assertThat(ByteStreams.toByteArray(inputStream)).isEqualTo(CONTENT);
+            }
+        }
+    }
+}
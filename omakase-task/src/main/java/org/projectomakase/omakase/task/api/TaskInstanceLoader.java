@@ -20,6 +20,7 @@
 package org.projectomakase.omakase.task.api;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.task.spi.TaskConfiguration;
 import org.projectomakase.omakase.task.spi.TaskOutput;
@@ -67,6 +68,15 @@ public final class TaskInstanceLoader {
         // hides default public constructor
     }
 
+    /**
+     * Returns all of the known task types.
+     *
+     * @return all of the known task types.
+     */
+    public static ImmutableSet<String> getTaskTypes() {
+        return TASK_TYPE_TO_CONFIG.keySet();
+    }
+
     public static TaskConfiguration loadTaskConfigurationInstance(String taskType) {
         String className = Optional.ofNullable(TASK_TYPE_TO_CONFIG.get(taskType)).orElseThrow(() -> new IllegalArgumentException(taskType + " does not have a known task configuration instance"));
         return (TaskConfiguration) Throwables.returnableInstance(() -> Class.forName(className).newInstance());
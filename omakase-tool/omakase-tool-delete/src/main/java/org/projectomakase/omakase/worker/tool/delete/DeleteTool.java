@@ -82,7 +82,7 @@ public class DeleteTool implements Tool {
             }
         } catch (Exception e) {
             LOGGER.error("Delete Tool failed. Reason: " + e.getMessage(), e);
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to delete files. Reason: " + e.getMessage(), 0)));
+            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to delete files. Reason: " + e.getMessage(), 0), e));
         }
     }
 
@@ -22,6 +22,7 @@ package org.projectomakase.omakase.worker.tool.glacier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
 import org.projectomakase.omakase.commons.aws.AWSClients;
 import org.projectomakase.omakase.commons.aws.AWSUploadPart;
 import org.projectomakase.omakase.commons.aws.glacier.GlacierClient;
@@ -38,25 +39,42 @@ import org.projectomakase.omakase.worker.tool.ToolCallback;
 import org.projectomakase.omakase.worker.tool.ToolException;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerResolver;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
+ * Uploads the parts of a Glacier multipart upload.
+ * <p>
+ * The source is read once, as a single stream that is also used to calculate the MD5. If the configured upload concurrency is greater than 1 each part is
+ * read into memory and uploaded concurrently with the parts that follow it, at most upload concurrency parts are held in memory at a time. Otherwise the
+ * parts are uploaded sequentially from the stream.
+ * </p>
+ *
  * @author Richard Lucas
  */
 @Named(GlacierUploadTool.NAME)
 public class GlacierUploadTool implements Tool {
 
     private static final Logger LOGGER = Logger.getLogger(GlacierUploadTool.class);
+    // parts are buffered in byte arrays when they are uploaded concurrently
+    private static final long MAX_BUFFERED_PART_SIZE = Integer.MAX_VALUE - 8;
 
     @Inject
     ProtocolHandlerResolver protocolHandlerResolver;
@@ -65,6 +83,9 @@ public class GlacierUploadTool implements Tool {
     GlacierClient glacierClient;
     @Inject
     Event<ToolCallback> event;
+    @Inject
+    @ConfigProperty(name = "glacier.upload.concurrency", defaultValue = "1")
+    int uploadConcurrency;
 
     public static final String NAME = "GLACIER_UPLOAD";
 
@@ -93,7 +114,7 @@ public class GlacierUploadTool implements Tool {
 
         } catch (Exception e) {
             LOGGER.error("GlacierUploadTool failed. Reason: " + e.getMessage(), e);
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to copy file. Reason: " + e.getMessage(), 0)));
+            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to copy file. Reason: " + e.getMessage(), 0), e));
         }
     }
 
@@ -107,17 +128,85 @@ public class GlacierUploadTool implements Tool {
 
         GlacierUpload upload = AWSClients.glacierUploadFromURI(destinationUri);
 
+        String md5;
         try (InputStream inputStream = sourceProtocolHandler.openStream(); HashingInputStream hashingInputStream = new HashingInputStream(Hashing.md5(), inputStream)) {
-            uploadParts.forEach(uploadPart -> uploadPart(hashingInputStream, upload, partSize, uploadPart));
+            if (isParallelUpload(uploadParts, partSize)) {
+                uploadPartsConcurrently(hashingInputStream, upload, partSize, uploadParts);
+            } else {
+                uploadParts.forEach(uploadPart -> uploadPart(hashingInputStream, upload, partSize, uploadPart));
+            }
+            md5 = hashingInputStream.hash().toString();
+        }
+
+        GlacierUploadTaskOutput taskOutput = new GlacierUploadTaskOutput(ImmutableList.of(new Hash("MD5", md5)));
+        String message = "Uploaded " + sourceUri + " to " + upload.getHost() + upload.getEndpoint() + ". Calculated md5: " + md5;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(message);
+        }
+        long bytesUploaded = uploadParts.stream().mapToLong(uploadPart -> uploadPart.getLength() - uploadPart.getOffset()).sum();
+        event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, message, 100, taskOutput), bytesUploaded));
+    }
+
+    private boolean isParallelUpload(List<AWSUploadPart> uploadParts, long partSize) {
+        return uploadConcurrency > 1 && uploadParts.size() > 1 && partSize <= MAX_BUFFERED_PART_SIZE;
+    }
 
-            String md5 = hashingInputStream.hash().toString();
+    private void uploadPartsConcurrently(InputStream source, GlacierUpload upload, long partSize, List<AWSUploadPart> uploadParts) throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(uploadConcurrency, uploadParts.size()));
+        Semaphore bufferedParts = new Semaphore(uploadConcurrency);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            int completed = 0;
+            for (AWSUploadPart uploadPart : uploadParts) {
+                // stop reading the source once a part has failed
+                while (completed < futures.size() && futures.get(completed).isDone()) {
+                    waitForUploadedPart(futures.get(completed++));
+                }
+                acquire(bufferedParts);
+                byte[] part;
+                try {
+                    part = new byte[(int) (uploadPart.getLength() - uploadPart.getOffset())];
+                    ByteStreams.readFully(source, part);
+                } catch (IOException | RuntimeException e) {
+                    bufferedParts.release();
+                    throw e;
+                }
+                futures.add(executorService.submit(() -> {
+                    try {
+                        uploadPart(new ByteArrayInputStream(part), upload, partSize, uploadPart);
+                    } finally {
+                        bufferedParts.release();
+                    }
+                }));
+            }
+            futures.forEach(GlacierUploadTool::waitForUploadedPart);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 
-            GlacierUploadTaskOutput taskOutput = new GlacierUploadTaskOutput(ImmutableList.of(new Hash("MD5", md5)));
-            String message = "Uploaded " + sourceUri + " to " + upload.getHost() + upload.getEndpoint() + ". Calculated md5: " + md5;
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(message);
+    private static void acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ToolException("Upload interrupted", e);
+        }
+    }
+
+    private static void waitForUploadedPart(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ToolException("Upload interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ToolException) {
+                throw (ToolException) e.getCause();
             }
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, message, 100, taskOutput)));
+            String message = "Upload Failed. Reason: " + e.getCause().getMessage();
+            LOGGER.error(message, e.getCause());
+            throw new ToolException(message, e.getCause());
         }
     }
 
@@ -21,9 +21,11 @@ package org.projectomakase.omakase.worker.tool.hash;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteStreams;
+import org.projectomakase.omakase.commons.hash.AbstractHashStrategy;
 import org.projectomakase.omakase.commons.hash.ByteRange;
 import org.projectomakase.omakase.commons.hash.Hash;
 import org.projectomakase.omakase.commons.hash.HashByteProcessor;
+import org.projectomakase.omakase.commons.hash.HashEngine;
 import org.projectomakase.omakase.commons.hash.HashStrategy;
 import org.projectomakase.omakase.commons.hash.Hashes;
 import org.projectomakase.omakase.task.api.Task;
@@ -34,15 +36,29 @@ import org.projectomakase.omakase.task.providers.hash.HashTaskConfiguration;
 import org.projectomakase.omakase.task.providers.hash.HashTaskOutput;
 import org.projectomakase.omakase.worker.tool.Tool;
 import org.projectomakase.omakase.worker.tool.ToolCallback;
+import org.projectomakase.omakase.worker.tool.ToolException;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerResolver;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static org.projectomakase.omakase.commons.collectors.ImmutableListCollector.toImmutableList;
@@ -52,6 +68,15 @@ import static org.projectomakase.omakase.commons.collectors.ImmutableListCollect
  * <p>
  * Responsible for executing hashing tasks.
  * </p>
+ * <p>
+ * If the task requires multiple hashes, e.g. multiple algorithms or byte ranges, and hash.threads is greater than 1 the hashes are calculated
+ * concurrently by a {@link HashEngine} in a single pass of the source, otherwise they are calculated on the calling thread.
+ * </p>
+ * <p>
+ * If the hashes are for multiple disjoint byte ranges, e.g. the parts of a multipart upload, and the source protocol handler supports ranged reads each
+ * range is read and hashed on its own, skipping any bytes that are not required. The ranges are read concurrently unless the protocol handler does not
+ * support concurrent ranged reads, e.g. SFTP.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -66,6 +91,12 @@ public class HashTool implements Tool {
     ProtocolHandlerResolver protocolHandlerResolver;
     @Inject
     Event<ToolCallback> event;
+    @Inject
+    @ConfigProperty(name = "hash.threads", defaultValue = "4")
+    int hashThreads;
+    @Inject
+    @ConfigProperty(name = "hash.buffers", defaultValue = "8")
+    int hashBuffers;
 
     @Override
     public void execute(Task task) {
@@ -84,16 +115,25 @@ public class HashTool implements Tool {
             URI sourceUri = configuration.getSource();
             try (ProtocolHandler protocolHandler = protocolHandlerResolver.getProtocolHandler(sourceUri)) {
                 protocolHandler.init(sourceUri);
-                try (InputStream inputStream = protocolHandler.openStream()) {
-                    long contentLength = protocolHandler.getContentLength();
-                    ImmutableList<HashStrategy> hashStrategies = configuration.getHashes().stream().map(hashInput -> getHashStrategy(hashInput, contentLength)).collect(toImmutableList());
-                    ImmutableList<Hash> hashes = ByteStreams.readBytes(inputStream, new HashByteProcessor(hashStrategies));
-                    event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, "Created requested hash values", 100, new HashTaskOutput(hashes))));
+                long contentLength = protocolHandler.getContentLength();
+                ImmutableList<HashStrategy> hashStrategies = configuration.getHashes().stream().map(hashInput -> getHashStrategy(hashInput, contentLength)).collect(toImmutableList());
+                ImmutableList<Hash> hashes;
+                if (isRangedHash(protocolHandler, hashStrategies)) {
+                    hashes = hashRanges(protocolHandler, hashStrategies, contentLength);
+                } else {
+                    try (InputStream inputStream = protocolHandler.openStream()) {
+                        if (hashStrategies.size() > 1 && hashThreads > 1) {
+                            hashes = new HashEngine(hashThreads, hashBuffers).hash(inputStream, hashStrategies);
+                        } else {
+                            hashes = ByteStreams.readBytes(inputStream, new HashByteProcessor(hashStrategies));
+                        }
+                    }
                 }
+                event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, "Created requested hash values", 100, new HashTaskOutput(hashes))));
             }
         } catch (Exception e) {
             LOGGER.error("Failed to execute task. Reason: " + e.getMessage(), e);
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_CLEAN, "Failed to execute hash tool. Reason: " + e.getMessage(), 0)));
+            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_CLEAN, "Failed to execute hash tool. Reason: " + e.getMessage(), 0), e));
         }
     }
 
@@ -102,6 +142,67 @@ public class HashTool implements Tool {
         return NAME;
     }
 
+    private boolean isRangedHash(ProtocolHandler protocolHandler, List<HashStrategy> hashStrategies) {
+        if (hashThreads <= 1 || !hashStrategies.stream().allMatch(hashStrategy -> hashStrategy instanceof AbstractHashStrategy)) {
+            return false;
+        }
+        List<ByteRange> byteRanges = getByteRanges(hashStrategies).stream().sorted(Comparator.comparingLong(ByteRange::getFrom)).collect(toImmutableList());
+        // overlapping ranges would be read more than once, in which case a single pass of the content is cheaper
+        boolean disjoint = IntStream.range(1, byteRanges.size()).allMatch(idx -> byteRanges.get(idx).getFrom() > byteRanges.get(idx - 1).getTo());
+        return byteRanges.size() > 1 && disjoint && protocolHandler.isRangeSupported();
+    }
+
+    private ImmutableList<Hash> hashRanges(ProtocolHandler protocolHandler, List<HashStrategy> hashStrategies, long contentLength) {
+        Map<String, List<HashStrategy>> strategiesByRange =
+                hashStrategies.stream().collect(Collectors.groupingBy(hashStrategy -> ((AbstractHashStrategy) hashStrategy).getByteRange().toString()));
+        Map<HashStrategy, Hash> hashesByStrategy = new IdentityHashMap<>();
+        // ranges that can not be read concurrently are read one after another, only the bytes in the ranges are read
+        int threads = protocolHandler.isConcurrentRangeSupported() ? Math.min(hashThreads, strategiesByRange.size()) : 1;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            Map<List<HashStrategy>, Future<ImmutableList<Hash>>> futures = new IdentityHashMap<>();
+            strategiesByRange.values().forEach(strategies -> futures.put(strategies, executorService.submit(() -> hashRange(protocolHandler, strategies, contentLength))));
+            futures.forEach((strategies, future) -> {
+                List<Hash> hashes = waitForHashes(future);
+                IntStream.range(0, strategies.size()).forEach(idx -> hashesByStrategy.put(strategies.get(idx), hashes.get(idx)));
+            });
+        } finally {
+            executorService.shutdownNow();
+        }
+        return hashStrategies.stream().map(hashesByStrategy::get).collect(toImmutableList());
+    }
+
+    private static ImmutableList<Hash> hashRange(ProtocolHandler protocolHandler, List<HashStrategy> hashStrategies, long contentLength) throws IOException {
+        // only the bytes in the range are read, the bytes between the ranges are skipped
+        ByteRange byteRange = ((AbstractHashStrategy) hashStrategies.get(0)).getByteRange();
+        long length = Math.max(0, Math.min(byteRange.getTo() + 1, contentLength) - byteRange.getFrom());
+        try (InputStream inputStream = protocolHandler.openStream(byteRange.getFrom(), length)) {
+            return ByteStreams.readBytes(inputStream, new HashByteProcessor(hashStrategies, byteRange.getFrom()));
+        }
+    }
+
+    private static ImmutableList<Hash> waitForHashes(Future<ImmutableList<Hash>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ToolException("Hashing interrupted", e);
+        } catch (ExecutionException e) {
+            String message = "Hashing Failed. Reason: " + e.getCause().getMessage();
+            LOGGER.error(message, e.getCause());
+            throw new ToolException(message, e.getCause());
+        }
+    }
+
+    private static List<ByteRange> getByteRanges(List<HashStrategy> hashStrategies) {
+        Map<String, ByteRange> byteRanges = new LinkedHashMap<>();
+        hashStrategies.forEach(hashStrategy -> {
+            ByteRange byteRange = ((AbstractHashStrategy) hashStrategy).getByteRange();
+            byteRanges.putIfAbsent(byteRange.toString(), byteRange);
+        });
+        return ImmutableList.copyOf(byteRanges.values());
+    }
+
     private static HashStrategy getHashStrategy(HashInput hashInput, long contentSize) {
         long from = hashInput.getOffset().orElse(0L);
         long to = hashInput.getLength().orElse(contentSize) - 1;
@@ -99,6 +99,21 @@ public class HashToolTest {
         validateToolCallback(callbacks.get(0), "a", TaskStatus.COMPLETED, 100, taskOutput);
     }
 
+    @Test
+    public void shouldCreateMultipleHashesForEachInputRange() throws Exception {
+        File source = FileGenerator.generate(temporaryFolder.getRoot(), FOUR_MB);
+        Task task = new Task("a", "HASH", "test", new HashTaskConfiguration(source.toURI(), ImmutableList.of(new HashInput(Hashes.SHA256, 0, 1048576),
+                new HashInput(Hashes.TREE_HASH, 0, 1048576), new HashInput(Hashes.SHA256, 1048576, 2097152), new HashInput(Hashes.TREE_HASH, 1048576, 2097152))));
+        hashTool.execute(task);
+        await().until(() -> assertThat(callbacks).hasSize(1));
+        // the tree hash of a single 1MB leaf is the SHA256 of the leaf
+        HashTaskOutput taskOutput = new HashTaskOutput(ImmutableList.of(new Hash(Hashes.SHA256, "5bfea26ced5ed2670589c3e3549413dbe74e1ca23af296374ea9307ac5e79101", 0, 1048576),
+                new Hash(Hashes.TREE_HASH, "5bfea26ced5ed2670589c3e3549413dbe74e1ca23af296374ea9307ac5e79101", 0, 1048576),
+                new Hash(Hashes.SHA256, "73f4b2725be9db345d9b3aa14345cecf9fd74e469ebc8160c5def7fb6a1140fa", 1048576, 2097152),
+                new Hash(Hashes.TREE_HASH, "73f4b2725be9db345d9b3aa14345cecf9fd74e469ebc8160c5def7fb6a1140fa", 1048576, 2097152)));
+        validateToolCallback(callbacks.get(0), "a", TaskStatus.COMPLETED, 100, taskOutput);
+    }
+
     @Test
     public void shouldCreateSHA256AndMD5AndTreeHash() throws Exception {
         File source = FileGenerator.generate(temporaryFolder.getRoot(), FOUR_MB);
@@ -19,11 +19,17 @@
  */
 package org.projectomakase.omakase.worker.tool.manifest;
 
+import com.google.common.base.Strings;
+import org.projectomakase.omakase.commons.aws.AWSClients;
+import org.projectomakase.omakase.commons.aws.s3.S3Client;
+import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
 import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.task.providers.manifest.ManifestFile;
+import org.projectomakase.omakase.worker.Omakase;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerResolver;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 
 
@@ -31,16 +37,51 @@ import javax.inject.Inject;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 /**
+ * Builds the {@link ManifestFile}s referenced by a manifest, resolving the size of each file relative to the manifest URI.
+ * <p>
+ * When building multiple files the sizes are probed concurrently using up to manifest.size.probe.threads threads, with at most
+ * manifest.size.probe.max.per.host concurrent probes against any one host. If the manifest is stored in S3 the sizes are first listed from the
+ * manifest's prefix, which returns the sizes of up to 1,000 files per request, and only the files missing from the listing are probed individually.
+ * </p>
+ *
  * @author Richard Lucas
  */
 public class ManifestFileBuilder {
 
     private static final Logger LOGGER = Logger.getLogger(ManifestFileBuilder.class);
+    // bounds the S3 listing when the manifest prefix contains many more objects than the manifest references
+    private static final int S3_LIST_OBJECTS_PER_FILE = 4;
+    private static final int S3_LIST_MIN_OBJECTS = 1000;
 
     @Inject
     ProtocolHandlerResolver protocolHandlerResolver;
+    @Inject
+    @Omakase
+    S3Client s3Client;
+    @Inject
+    @ConfigProperty(name = "manifest.size.probe.threads", defaultValue = "8")
+    int sizeProbeThreads;
+    @Inject
+    @ConfigProperty(name = "manifest.size.probe.max.per.host", defaultValue = "4")
+    int maxSizeProbesPerHost;
+    @Inject
+    @ConfigProperty(name = "manifest.size.probe.s3.list", defaultValue = "true")
+    boolean listS3Sizes;
 
     URI rootUri;
 
@@ -49,22 +90,121 @@ public class ManifestFileBuilder {
     }
 
     public ManifestFile build(URI fileUri) {
+        validateInitialized();
+        return new ManifestFile(fileUri, getContentLength(getAbsoluteUri(fileUri)));
+    }
+
+    /**
+     * Builds the {@link ManifestFile}s for the given file URIs, probing their sizes concurrently.
+     *
+     * @param fileUris
+     *         the file URIs relative to the manifest URI
+     * @return the manifest files in the same order as the given file URIs.
+     */
+    public List<ManifestFile> buildAll(List<URI> fileUris) {
+        validateInitialized();
+        Map<URI, Long> sizes = new HashMap<>(listS3Sizes(fileUris));
+        List<URI> unsizedUris = fileUris.stream().distinct().filter(fileUri -> !sizes.containsKey(fileUri)).collect(Collectors.toList());
+        sizes.putAll(probeSizes(unsizedUris));
+        return fileUris.stream().map(fileUri -> new ManifestFile(fileUri, sizes.get(fileUri))).collect(ImmutableListCollector.toImmutableList());
+    }
+
+    private void validateInitialized() {
         if (rootUri == null) {
             throw new OmakaseRuntimeException("ManifestFileBuilder has not been initialized");
         }
+    }
 
-        URI absoluteUri = Throwables.returnableInstance(() -> new java.net.URI(rootUri.toString() + "/" + fileUri.toString()));
+    private URI getAbsoluteUri(URI fileUri) {
+        return Throwables.returnableInstance(() -> new java.net.URI(rootUri.toString() + "/" + fileUri.toString()));
+    }
 
+    private long getContentLength(URI absoluteUri) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Getting file size for " + absoluteUri);
         }
 
         try (ProtocolHandler protocolHandler = protocolHandlerResolver.getProtocolHandler(absoluteUri)) {
             protocolHandler.init(absoluteUri);
-            return new ManifestFile(fileUri, protocolHandler.getContentLength());
+            return protocolHandler.getContentLength();
+        }
+    }
+
+    private Map<URI, Long> probeSizes(List<URI> fileUris) {
+        int threads = Math.min(sizeProbeThreads, fileUris.size());
+        if (threads <= 1) {
+            Map<URI, Long> sizes = new HashMap<>();
+            fileUris.forEach(fileUri -> sizes.put(fileUri, getContentLength(getAbsoluteUri(fileUri))));
+            return sizes;
+        }
+
+        ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        try {
+            Map<URI, Future<Long>> futures = new LinkedHashMap<>();
+            fileUris.forEach(fileUri -> futures.put(fileUri, executorService.submit(() -> getContentLengthWithHostLimit(getAbsoluteUri(fileUri), hostPermits))));
+            Map<URI, Long> sizes = new HashMap<>();
+            futures.forEach((fileUri, future) -> sizes.put(fileUri, getSize(future)));
+            return sizes;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private long getContentLengthWithHostLimit(URI absoluteUri, ConcurrentMap<String, Semaphore> hostPermits) throws InterruptedException {
+        String host = absoluteUri.getScheme() + "://" + Strings.nullToEmpty(absoluteUri.getHost()) + ":" + absoluteUri.getPort();
+        Semaphore permits = hostPermits.computeIfAbsent(host, key -> new Semaphore(Math.max(1, maxSizeProbesPerHost)));
+        permits.acquire();
+        try {
+            return getContentLength(absoluteUri);
+        } finally {
+            permits.release();
         }
     }
 
+    private static long getSize(Future<Long> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OmakaseRuntimeException("Interrupted getting file size", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new OmakaseRuntimeException("Failed to get file size. Reason: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Lists the sizes of the files from the S3 prefix of the manifest, returns an empty map if the manifest is not stored in S3 or the listing fails.
+     */
+    private Map<URI, Long> listS3Sizes(List<URI> fileUris) {
+        if (!listS3Sizes || s3Client == null || fileUris.size() < 2 || !"s3".equalsIgnoreCase(rootUri.getScheme())) {
+            return Collections.emptyMap();
+        }
+        try {
+            String host = rootUri.getHost();
+            String prefix = rootUri.getPath().length() > 1 ? rootUri.getPath().substring(1) + "/" : "";
+            Map<String, Long> objectLengths = s3Client.listObjectLengths(AWSClients.credentialsFromUri(rootUri), AWSClients.s3HostToRegion(host),
+                                                                           host.substring(0, host.indexOf(".")), prefix,
+                                                                           Math.max(S3_LIST_MIN_OBJECTS, fileUris.size() * S3_LIST_OBJECTS_PER_FILE));
+            Map<URI, Long> sizes = new HashMap<>();
+            fileUris.forEach(fileUri -> {
+                Long size = objectLengths.get(getAbsoluteUri(fileUri).getPath().substring(1));
+                if (size != null) {
+                    sizes.put(fileUri, size);
+                }
+            });
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Listed the sizes of " + sizes.size() + " of " + fileUris.size() + " files from " + prefix);
+            }
+            return sizes;
+        } catch (Exception e) {
+            LOGGER.warn("Failed to list file sizes, falling back to getting the size of each file. Reason: " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
 
     private static URI getRootPathFromManifestUri(URI manifestUri) {
         Path manifestPath = Paths.get(manifestUri.getPath());
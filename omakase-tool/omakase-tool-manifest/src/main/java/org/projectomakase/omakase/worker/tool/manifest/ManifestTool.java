@@ -21,9 +21,8 @@ package org.projectomakase.omakase.worker.tool.manifest;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
-import com.google.common.io.CountingInputStream;
 import org.projectomakase.omakase.commons.hash.Hash;
+import org.projectomakase.omakase.commons.io.SpooledContent;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.api.TaskStatus;
 import org.projectomakase.omakase.task.api.TaskStatusUpdate;
@@ -37,6 +36,7 @@ import org.projectomakase.omakase.worker.tool.manifest.hls.HLSManifestParser;
 import org.projectomakase.omakase.worker.tool.manifest.smooth.SmoothManifestParser;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerResolver;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import javax.enterprise.event.Event;
@@ -45,7 +45,6 @@ import javax.inject.Named;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.security.NoSuchAlgorithmException;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -74,6 +73,9 @@ public class ManifestTool implements Tool {
     HLSManifestParser hlsManifestParser;
     @Inject
     SmoothManifestParser smoothManifestParser;
+    @Inject
+    @ConfigProperty(name = "manifest.spool.max.memory.bytes", defaultValue = "8388608")
+    long maxInMemoryBytes;
 
     @Override
     public String getName() {
@@ -100,45 +102,48 @@ public class ManifestTool implements Tool {
             URI sourceUri = configuration.getSource();
             URI destinationUri = configuration.getDestination();
 
-            try (ProtocolHandler destinationProtocolHandler = protocolHandlerResolver.getProtocolHandler(destinationUri);
-                    ProtocolHandler sourceProtocolHandler = protocolHandlerResolver.getProtocolHandler(sourceUri)) {
-
-                sourceProtocolHandler.init(sourceUri);
-                destinationProtocolHandler.init(destinationUri);
-
-                long contentLength = sourceProtocolHandler.getContentLength();
-                ManifestParserResult result = parse(sourceUri, sourceProtocolHandler);
-                String md5 = copy(sourceProtocolHandler, destinationProtocolHandler, contentLength);
-                ManifestTransferTaskOutput taskOutput = getManifestTransferTaskOutput(result, contentLength, md5);
+            // the source is only read once, the parser and the destination both read the spooled manifest. The source handler is closed before parsing
+            // so that its pooled connection is free for the parser to probe the files referenced by the manifest.
+            try (SpooledContent manifest = spool(sourceUri)) {
+                ManifestParserResult result = parse(sourceUri, manifest);
+                copy(manifest, destinationUri);
+                String md5 = manifest.getHashes().get(0).toString();
+                ManifestTransferTaskOutput taskOutput = getManifestTransferTaskOutput(result, manifest.getLength(), md5);
 
                 String message = "Parsed and transferred manifest " + sourceUri + " to " + destinationUri + ". Calculated md5: " + md5;
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug(message);
                 }
 
-                event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, message, 100, taskOutput)));
-
+                event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, message, 100, taskOutput), manifest.getLength()));
             }
 
         } catch (Exception e) {
             LOGGER.error("IOTool failed. Reason: " + e.getMessage(), e);
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to parse and transfer manifest. Reason: " + e.getMessage(), 0)));
+            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to parse and transfer manifest. Reason: " + e.getMessage(), 0), e));
         }
     }
 
-    private ManifestParserResult parse(URI sourceUri, ProtocolHandler sourceProtocolHandler) throws IOException {
-        try (InputStream manifestInputStream = sourceProtocolHandler.openStream()) {
-            return getManifestParser(sourceUri).parse(sourceUri, manifestInputStream);
+    private SpooledContent spool(URI sourceUri) throws IOException {
+        try (ProtocolHandler sourceProtocolHandler = protocolHandlerResolver.getProtocolHandler(sourceUri)) {
+            sourceProtocolHandler.init(sourceUri);
+            try (InputStream inputStream = sourceProtocolHandler.openStream()) {
+                return SpooledContent.spool(inputStream, maxInMemoryBytes, Hashing.md5());
+            }
         }
     }
 
-    private static String copy(ProtocolHandler sourceProtocolHandler, ProtocolHandler destinationProtocolHandler, long contentLength)
-            throws IOException, NoSuchAlgorithmException {
+    private ManifestParserResult parse(URI sourceUri, SpooledContent manifest) throws IOException {
+        try (InputStream manifestInputStream = manifest.openStream()) {
+            return getManifestParser(sourceUri).parse(sourceUri, manifestInputStream);
+        }
+    }
 
-        try (InputStream inputStream = sourceProtocolHandler.openStream(); HashingInputStream hashingInputStream = new HashingInputStream(Hashing.md5(), inputStream);
-                CountingInputStream countingInputStream = new CountingInputStream(hashingInputStream)) {
-            destinationProtocolHandler.copyTo(countingInputStream, contentLength);
-            return hashingInputStream.hash().toString();
+    private void copy(SpooledContent manifest, URI destinationUri) throws IOException {
+        try (ProtocolHandler destinationProtocolHandler = protocolHandlerResolver.getProtocolHandler(destinationUri);
+                InputStream inputStream = manifest.openStream()) {
+            destinationProtocolHandler.init(destinationUri);
+            destinationProtocolHandler.copyTo(inputStream, manifest.getLength());
         }
     }
 
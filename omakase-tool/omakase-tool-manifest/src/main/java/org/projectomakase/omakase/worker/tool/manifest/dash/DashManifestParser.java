@@ -34,8 +34,8 @@ import org.projectomakase.omakase.worker.tool.manifest.dash.model.Representation
 import org.projectomakase.omakase.worker.tool.manifest.dash.model.SegmentBaseType;
 import org.projectomakase.omakase.worker.tool.manifest.dash.model.SegmentListType;
 import org.projectomakase.omakase.worker.tool.manifest.dash.model.SegmentTemplateType;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
-import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
 import org.xml.sax.SAXException;
 
 import javax.inject.Inject;
@@ -45,7 +45,9 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.ValidationEvent;
 import javax.xml.bind.ValidationEventLocator;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import java.io.InputStream;
 import java.net.URI;
@@ -64,6 +66,10 @@ import java.util.stream.Collectors;
  * <li>Xlink URLs are not used</li>
  * <li>No custom XSDs are declared/referenced</li>
  * </ul>
+ * <p>
+ * The MPD is parsed using the {@link DashParseMode} configured by manifest.dash.parse.mode. The JAXB context and compiled DASH MPD schema are created
+ * once, the first time they are needed, and shared by all parsers, each thread uses its own unmarshaller as unmarshallers are not thread-safe.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -71,38 +77,30 @@ public class DashManifestParser implements ManifestParser {
 
     private static final Logger LOGGER = Logger.getLogger(DashManifestParser.class);
 
+    private static final ThreadLocal<Unmarshaller> UNMARSHALLERS = new ThreadLocal<>();
+    private static volatile JAXBContext jaxbContext;
+    private static volatile Schema schema;
+
     @Inject
     ManifestFileBuilder manifestFileBuilder;
+    @Inject
+    @ConfigProperty(name = "manifest.dash.parse.mode", defaultValue = "VALIDATE")
+    String parseMode;
 
     @Override
     public ManifestParserResult parse(URI manifestUri, InputStream inputStream) {
-        StreamSource[] streamSources = new StreamSource[]{new StreamSource(DashManifestParser.class.getResourceAsStream("/xlink.xsd")),
-                new StreamSource(DashManifestParser.class.getResourceAsStream("/DASH-MPD.xsd"))};
-
         try {
-            JAXBContext context = JAXBContext.newInstance(MPD.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            SchemaFactory schemaFactory = SchemaFactory.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            unmarshaller.setSchema(schemaFactory.newSchema(streamSources));
-            ImmutableList.Builder<String> errorListBuilder = ImmutableList.builder();
-            unmarshaller.setEventHandler(validationEvent -> handleValidationEvent(errorListBuilder, validationEvent));
-            JAXBElement<MPD> element = unmarshaller.unmarshal(new StreamSource(inputStream), MPD.class);
-
-            List<String> errors = errorListBuilder.build();
-            if (!errors.isEmpty()) {
-                throw new ToolException("Failed to parse DASH MPD due to validation errors. " + errors.stream().collect(Collectors.joining(", ")));
+            List<URI> fileUris;
+            if (getParseMode() == DashParseMode.STREAM) {
+                fileUris = DashMpdStreamReader.readFileUris(inputStream);
+            } else {
+                fileUris = getFileUris(unmarshal(inputStream, getParseMode() == DashParseMode.VALIDATE));
             }
 
-            MPD mpd = element.getValue();
-
-            ImmutableList.Builder<URI> uriListBuilder = ImmutableList.builder();
-            String rootPath = getRelativePathFromBaseURLsWithPathSeparator(mpd.getBaseURLs());
-            mpd.getPeriods().forEach(period -> parsePeriod(uriListBuilder, rootPath, period));
-
             manifestFileBuilder.init(manifestUri);
-            return new ManifestParserResult(ImmutableList.of(), uriListBuilder.build().stream().map(uri -> manifestFileBuilder.build(uri)).collect(ImmutableListCollector.toImmutableList()));
+            return new ManifestParserResult(ImmutableList.of(), manifestFileBuilder.buildAll(fileUris));
 
-        } catch (JAXBException e) {
+        } catch (JAXBException | XMLStreamException e) {
             LOGGER.error("Failed to parse DASH MPD", e);
             throw new ToolException("Failed to parse DASH MPD", e);
         } catch (SAXException e) {
@@ -111,6 +109,69 @@ public class DashManifestParser implements ManifestParser {
         }
     }
 
+    private DashParseMode getParseMode() {
+        return Strings.isNullOrEmpty(parseMode) ? DashParseMode.VALIDATE : DashParseMode.valueOf(parseMode.toUpperCase());
+    }
+
+    private static MPD unmarshal(InputStream inputStream, boolean validate) throws JAXBException, SAXException {
+        Unmarshaller unmarshaller = getUnmarshaller();
+        unmarshaller.setSchema(validate ? getSchema() : null);
+        ImmutableList.Builder<String> errorListBuilder = ImmutableList.builder();
+        unmarshaller.setEventHandler(validationEvent -> handleValidationEvent(errorListBuilder, validationEvent));
+        JAXBElement<MPD> element = unmarshaller.unmarshal(new StreamSource(inputStream), MPD.class);
+
+        List<String> errors = errorListBuilder.build();
+        if (!errors.isEmpty()) {
+            throw new ToolException("Failed to parse DASH MPD due to validation errors. " + errors.stream().collect(Collectors.joining(", ")));
+        }
+        return element.getValue();
+    }
+
+    private static List<URI> getFileUris(MPD mpd) {
+        ImmutableList.Builder<URI> uriListBuilder = ImmutableList.builder();
+        String rootPath = getRelativePathFromBaseURLsWithPathSeparator(mpd.getBaseURLs());
+        mpd.getPeriods().forEach(period -> parsePeriod(uriListBuilder, rootPath, period));
+        return uriListBuilder.build();
+    }
+
+    private static Unmarshaller getUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = UNMARSHALLERS.get();
+        if (unmarshaller == null) {
+            unmarshaller = getJAXBContext().createUnmarshaller();
+            UNMARSHALLERS.set(unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    private static JAXBContext getJAXBContext() throws JAXBException {
+        JAXBContext context = jaxbContext;
+        if (context == null) {
+            synchronized (DashManifestParser.class) {
+                context = jaxbContext;
+                if (context == null) {
+                    context = JAXBContext.newInstance(MPD.class);
+                    jaxbContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    private static Schema getSchema() throws SAXException {
+        Schema mpdSchema = schema;
+        if (mpdSchema == null) {
+            synchronized (DashManifestParser.class) {
+                mpdSchema = schema;
+                if (mpdSchema == null) {
+                    StreamSource[] streamSources = new StreamSource[]{new StreamSource(DashManifestParser.class.getResourceAsStream("/xlink.xsd")),
+                            new StreamSource(DashManifestParser.class.getResourceAsStream("/DASH-MPD.xsd"))};
+                    mpdSchema = SchemaFactory.newInstance(javax.xml.XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(streamSources);
+                    schema = mpdSchema;
+                }
+            }
+        }
+        return mpdSchema;
+    }
 
     private static boolean handleValidationEvent(ImmutableList.Builder<String> errorList, ValidationEvent validationEvent) {
         if (validationEvent.getSeverity() != ValidationEvent.WARNING) {
@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * omakase-tool-manifest
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.manifest.dash;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.projectomakase.omakase.commons.functions.Throwables;
+import org.projectomakase.omakase.worker.tool.ToolException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the URIs of the files referenced by a DASH MPD using StAX.
+ * <p>
+ * Only the BaseURL, SegmentBase, SegmentList and SegmentTemplate elements of the MPD, Period, AdaptationSet and Representation elements are read, the rest
+ * of the MPD is skipped without being unmarshalled or validated. The URIs are returned in the same order, and with the same assumptions, as
+ * {@link DashManifestParser} unmarshalling the MPD with JAXB.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+final class DashMpdStreamReader {
+
+    private static final String MPD = "MPD";
+    private static final String PERIOD = "Period";
+    private static final String ADAPTATION_SET = "AdaptationSet";
+    private static final String REPRESENTATION = "Representation";
+    private static final String BASE_URL = "BaseURL";
+    private static final String SEGMENT_BASE = "SegmentBase";
+    private static final String SEGMENT_LIST = "SegmentList";
+    private static final String SEGMENT_TEMPLATE = "SegmentTemplate";
+    private static final String INITIALIZATION = "Initialization";
+    private static final String REPRESENTATION_INDEX = "RepresentationIndex";
+    private static final String SOURCE_URL = "sourceURL";
+
+    private static final Set<String> SEGMENT_OWNERS = ImmutableSet.of(PERIOD, ADAPTATION_SET, REPRESENTATION);
+    private static final Set<String> BASE_URL_OWNERS = ImmutableSet.of(MPD, PERIOD, ADAPTATION_SET, REPRESENTATION);
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXMLInputFactory();
+
+    private DashMpdStreamReader() {
+        // hide default constructor
+    }
+
+    /**
+     * Reads the URIs of the files referenced by the DASH MPD.
+     *
+     * @param inputStream
+     *         the DASH MPD input stream
+     * @return the URIs of the files referenced by the DASH MPD relative to the MPD.
+     * @throws XMLStreamException
+     *         if the MPD is not well formed XML
+     * @throws ToolException
+     *         if the MPD is not a MPD or uses segment lists or segment templates.
+     */
+    static List<URI> readFileUris(InputStream inputStream) throws XMLStreamException {
+        ImmutableList.Builder<URI> uriListBuilder = ImmutableList.builder();
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+        try {
+            Deque<Element> elements = new ArrayDeque<>();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    startElement(reader, elements, uriListBuilder);
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    endElement(elements.pop(), uriListBuilder);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return uriListBuilder.build();
+    }
+
+    private static void startElement(XMLStreamReader reader, Deque<Element> elements, ImmutableList.Builder<URI> uriListBuilder) throws XMLStreamException {
+        String name = reader.getLocalName();
+        Element parent = elements.peek();
+        if (parent == null) {
+            if (!MPD.equals(name)) {
+                throw new ToolException("Failed to parse DASH MPD. The root element is " + name);
+            }
+            elements.push(new Element(name, null));
+            return;
+        }
+
+        if (BASE_URL.equals(name) && BASE_URL_OWNERS.contains(parent.name)) {
+            // reads to the end element so the BaseURL is not pushed
+            parent.addBaseURL(reader.getElementText().trim());
+            return;
+        }
+
+        if (SEGMENT_OWNERS.contains(parent.name)) {
+            if (SEGMENT_LIST.equals(name)) {
+                throw new ToolException("DASH MPD files with Segment lists are not supported");
+            } else if (SEGMENT_TEMPLATE.equals(name)) {
+                throw new ToolException("DASH MPD files with Segment templates are not supported");
+            } else if (SEGMENT_BASE.equals(name) && REPRESENTATION.equals(parent.name)) {
+                // the representation's own file precedes the files in its segment base
+                addRepresentationUri(parent, uriListBuilder);
+            }
+        } else if (SEGMENT_BASE.equals(parent.name)) {
+            if (INITIALIZATION.equals(name)) {
+                parent.initializationUrl = reader.getAttributeValue(null, SOURCE_URL);
+            } else if (REPRESENTATION_INDEX.equals(name)) {
+                parent.representationIndexUrl = reader.getAttributeValue(null, SOURCE_URL);
+            }
+        }
+        elements.push(new Element(name, parent));
+    }
+
+    private static void endElement(Element element, ImmutableList.Builder<URI> uriListBuilder) {
+        if (SEGMENT_BASE.equals(element.name) && SEGMENT_OWNERS.contains(element.parent.name)) {
+            Element owner = element.parent;
+            // the files in a representation's segment base are relative to the adaptation set, not the representation
+            String pathPrefix = REPRESENTATION.equals(owner.name) ? owner.parent.getPath() : owner.getPath();
+            if (element.representationIndexUrl != null) {
+                uriListBuilder.add(toUri(pathPrefix + element.representationIndexUrl));
+            }
+            if (element.initializationUrl != null) {
+                uriListBuilder.add(toUri(pathPrefix + element.initializationUrl));
+            }
+        } else if (REPRESENTATION.equals(element.name)) {
+            addRepresentationUri(element, uriListBuilder);
+        }
+    }
+
+    private static void addRepresentationUri(Element representation, ImmutableList.Builder<URI> uriListBuilder) {
+        if (!representation.uriAdded) {
+            representation.uriAdded = true;
+            uriListBuilder.add(toUri(representation.parent.getPath() + (representation.relativeBaseURL == null ? "" : representation.relativeBaseURL)));
+        }
+    }
+
+    private static URI toUri(String uri) {
+        return Throwables.returnableInstance(() -> new URI(uri));
+    }
+
+    private static XMLInputFactory createXMLInputFactory() {
+        XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return xmlInputFactory;
+    }
+
+    private static class Element {
+        private final String name;
+        private final Element parent;
+        private String relativeBaseURL;
+        private String initializationUrl;
+        private String representationIndexUrl;
+        private boolean uriAdded;
+
+        Element(String name, Element parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        /**
+         * Only the first relative base URL is used, absolute base URLs are ignored.
+         */
+        void addBaseURL(String baseURL) {
+            if (relativeBaseURL == null && !toUri(baseURL).isAbsolute()) {
+                relativeBaseURL = baseURL;
+            }
+        }
+
+        /**
+         * Returns the path, including a trailing path separator, that the files referenced by child elements are relative to.
+         */
+        String getPath() {
+            String parentPath = parent == null ? "" : parent.getPath();
+            return relativeBaseURL == null ? parentPath : parentPath + relativeBaseURL + "/";
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * #%L
+ * omakase-tool-manifest
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.manifest.dash;
+
+/**
+ * The modes used by the {@link DashManifestParser} to parse a DASH MPD.
+ *
+ * @author Richard Lucas
+ */
+public enum DashParseMode {
+    /**
+     * Unmarshalls the MPD with JAXB and validates it against the DASH MPD schema.
+     */
+    VALIDATE,
+    /**
+     * Unmarshalls the MPD with JAXB without validating it.
+     */
+    UNMARSHAL,
+    /**
+     * Reads only the BaseURL, SegmentBase, SegmentList and SegmentTemplate elements with StAX without building the MPD object tree or validating the MPD.
+     */
+    STREAM
+}
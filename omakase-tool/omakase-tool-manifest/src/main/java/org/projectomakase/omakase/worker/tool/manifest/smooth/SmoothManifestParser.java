@@ -73,9 +73,9 @@ public class SmoothManifestParser implements ManifestParser {
             files.addAll(getAudioSrcFiles(document, xPath));
 
             manifestFileBuilder.init(manifestUri);
-            return new ManifestParserResult(ImmutableList.of(), files.build().stream()
-                    .map(file -> manifestFileBuilder.build(Throwables.returnableInstance(() -> new URI(file))))
-                    .collect(ImmutableListCollector.toImmutableList()));
+            return new ManifestParserResult(ImmutableList.of(), manifestFileBuilder.buildAll(files.build().stream()
+                    .map(file -> Throwables.returnableInstance(() -> new URI(file)))
+                    .collect(ImmutableListCollector.toImmutableList())));
 
         } catch (ParserConfigurationException | SAXException | IOException | XPathExpressionException e) {
             LOGGER.error("Failed to parse DASH MPD", e);
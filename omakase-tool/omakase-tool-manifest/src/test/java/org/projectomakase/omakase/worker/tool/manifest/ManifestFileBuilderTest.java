@@ -19,7 +19,9 @@
  */
 package org.projectomakase.omakase.worker.tool.manifest;
 
+import com.google.common.collect.ImmutableList;
 import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.projectomakase.omakase.task.providers.manifest.ManifestFile;
 import org.projectomakase.omakase.worker.tool.manifest.assertions.ManifestFileAssert;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerResolver;
@@ -27,7 +29,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.net.URI;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
@@ -56,6 +60,18 @@ public class ManifestFileBuilderTest {
         new ManifestFileAssert(manifestFileBuilder.build(new URI("test2/a.mp4"))).hasURI(new URI("test2/a.mp4")).hasSize(1024);
     }
 
+    @Test
+    public void shouldBuildManifestFilesConcurrently() throws Exception {
+        manifestFileBuilder.sizeProbeThreads = 4;
+        manifestFileBuilder.maxSizeProbesPerHost = 2;
+        manifestFileBuilder.init(new URI("file:/test/a.xml"));
+        List<ManifestFile> manifestFiles = manifestFileBuilder.buildAll(ImmutableList.of(new URI("test2/a.mp4"), new URI("test2/b.mp4"), new URI("test2/c.mp4")));
+        assertThat(manifestFiles).hasSize(3);
+        new ManifestFileAssert(manifestFiles.get(0)).hasURI(new URI("test2/a.mp4")).hasSize(1024);
+        new ManifestFileAssert(manifestFiles.get(1)).hasURI(new URI("test2/b.mp4")).hasSize(1024);
+        new ManifestFileAssert(manifestFiles.get(2)).hasURI(new URI("test2/c.mp4")).hasSize(1024);
+    }
+
     @Test
     public void shouldThrowExceptionIfNotInitialized() throws Exception {
         assertThatThrownBy(() -> manifestFileBuilder.build(new URI("test2/a.mp4")))
@@ -28,9 +28,11 @@ import org.junit.Test;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
@@ -42,17 +44,35 @@ public class DashManifestParserTest {
     private DashManifestParser dashManifestParser;
 
     @Before
+    @SuppressWarnings("unchecked")
     public void setUp() throws Exception {
         dashManifestParser = new DashManifestParser();
         ManifestFileBuilder manifestFileBuilder = mock(ManifestFileBuilder.class);
-        doAnswer(invocation -> new ManifestFile((URI) invocation.getArguments()[0], 1024)).when(manifestFileBuilder).build(any());
+        doAnswer(invocation -> ((List<URI>) invocation.getArguments()[0]).stream().map(uri -> new ManifestFile(uri, 1024)).collect(Collectors.toList())).when(manifestFileBuilder)
+                .buildAll(anyListOf(URI.class));
         dashManifestParser.manifestFileBuilder = manifestFileBuilder;
     }
 
     @Test
     public void shouldParse() throws Exception {
-        ManifestParserResult manifestParserResult = getManifestParserResult("dash.mpd");
+        assertParsedManifest(getManifestParserResult("dash.mpd"));
+    }
+
+    @Test
+    public void shouldParseWithoutValidation() throws Exception {
+        dashManifestParser.parseMode = DashParseMode.UNMARSHAL.name();
+        assertParsedManifest(getManifestParserResult("dash.mpd"));
+    }
+
+    @Test
+    public void shouldParseUsingStreamMode() throws Exception {
+        dashManifestParser.parseMode = DashParseMode.STREAM.name();
+        assertParsedManifest(getManifestParserResult("dash.mpd"));
+    }
+
+    private static void assertParsedManifest(ManifestParserResult manifestParserResult) throws Exception {
         assertThat(manifestParserResult.getManifests()).isEmpty();
+        assertThat(manifestParserResult.getFiles()).hasSize(9);
 
         new ManifestFileAssert(manifestParserResult.getFiles().get(0)).hasURI(new URI("test/feelings_vp9-20130806-171.webm")).hasSize(1024);
         new ManifestFileAssert(manifestParserResult.getFiles().get(1)).hasURI(new URI("test/a.mp4")).hasSize(1024);
@@ -28,8 +28,10 @@ import org.junit.Test;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.List;
+import java.util.stream.Collectors;
 
-import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
@@ -41,10 +43,12 @@ public class SmoothManifestParserTest {
     private SmoothManifestParser smoothManifestParser;
 
     @Before
+    @SuppressWarnings("unchecked")
     public void setUp() throws Exception {
         smoothManifestParser = new SmoothManifestParser();
         ManifestFileBuilder manifestFileBuilder = mock(ManifestFileBuilder.class);
-        doAnswer(invocation -> new ManifestFile((URI) invocation.getArguments()[0], 1024)).when(manifestFileBuilder).build(any());
+        doAnswer(invocation -> ((List<URI>) invocation.getArguments()[0]).stream().map(uri -> new ManifestFile(uri, 1024)).collect(Collectors.toList())).when(manifestFileBuilder)
+                .buildAll(anyListOf(URI.class));
         smoothManifestParser.manifestFileBuilder = manifestFileBuilder;
     }
 
@@ -22,6 +22,7 @@ package org.projectomakase.omakase.worker.tool.s3;
 import com.google.common.collect.ImmutableList;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
 import org.projectomakase.omakase.commons.aws.AWSClients;
 import org.projectomakase.omakase.commons.aws.AWSUploadPart;
 import org.projectomakase.omakase.commons.aws.s3.S3Client;
@@ -40,25 +41,42 @@ import org.projectomakase.omakase.worker.tool.ToolCallback;
 import org.projectomakase.omakase.worker.tool.ToolException;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerResolver;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
+ * Uploads the parts of a S3 multipart upload.
+ * <p>
+ * The source is read once, as a single stream that is also used to calculate the MD5. If the configured upload concurrency is greater than 1 each part is
+ * read into memory and uploaded concurrently with the parts that follow it, at most upload concurrency parts are held in memory at a time. Otherwise the
+ * parts are uploaded sequentially from the stream.
+ * </p>
+ *
  * @author Richard Lucas
  */
 @Named(S3UploadTool.NAME)
 public class S3UploadTool implements Tool {
 
     private static final Logger LOGGER = Logger.getLogger(S3UploadTool.class);
+    // parts are buffered in byte arrays when they are uploaded concurrently
+    private static final long MAX_BUFFERED_PART_SIZE = Integer.MAX_VALUE - 8;
 
     @Inject
     ProtocolHandlerResolver protocolHandlerResolver;
@@ -67,6 +85,9 @@ public class S3UploadTool implements Tool {
     S3Client s3Client;
     @Inject
     Event<ToolCallback> event;
+    @Inject
+    @ConfigProperty(name = "s3.upload.concurrency", defaultValue = "1")
+    int uploadConcurrency;
 
     public static final String NAME = "S3_UPLOAD";
 
@@ -95,7 +116,7 @@ public class S3UploadTool implements Tool {
 
         } catch (Exception e) {
             LOGGER.error("GlacierUploadTool failed. Reason: " + e.getMessage(), e);
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to copy file. Reason: " + e.getMessage(), 0)));
+            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to copy file. Reason: " + e.getMessage(), 0), e));
         }
     }
 
@@ -109,16 +130,86 @@ public class S3UploadTool implements Tool {
 
         S3Upload upload = AWSClients.s3UploadFromURI(destinationUri);
 
+        List<S3Part> s3Parts;
+        String md5;
         try (InputStream inputStream = sourceProtocolHandler.openStream(); HashingInputStream hashingInputStream = new HashingInputStream(Hashing.md5(), inputStream)) {
-            List<S3Part> s3Parts = uploadParts.stream().map(uploadPart -> uploadPart(hashingInputStream, upload, partSize, uploadPart)).collect(ImmutableListCollector.toImmutableList());
-            String md5 = hashingInputStream.hash().toString();
+            if (isParallelUpload(uploadParts, partSize)) {
+                s3Parts = uploadPartsConcurrently(hashingInputStream, upload, partSize, uploadParts);
+            } else {
+                s3Parts = uploadParts.stream().map(uploadPart -> uploadPart(hashingInputStream, upload, partSize, uploadPart)).collect(ImmutableListCollector.toImmutableList());
+            }
+            md5 = hashingInputStream.hash().toString();
+        }
+
+        S3UploadTaskOutput taskOutput = new S3UploadTaskOutput(s3Parts, ImmutableList.of(new Hash("MD5", md5)));
+        String message = "Uploaded " + sourceUri + " to " + upload.getHost() + upload.getEndpoint() + ". Calculated md5: " + md5;
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(message);
+        }
+        long bytesUploaded = uploadParts.stream().mapToLong(uploadPart -> uploadPart.getLength() - uploadPart.getOffset()).sum();
+        event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, message, 100, taskOutput), bytesUploaded));
+    }
 
-            S3UploadTaskOutput taskOutput = new S3UploadTaskOutput(s3Parts, ImmutableList.of(new Hash("MD5", md5)));
-            String message = "Uploaded " + sourceUri + " to " + upload.getHost() + upload.getEndpoint() + ". Calculated md5: " + md5;
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(message);
+    private boolean isParallelUpload(List<AWSUploadPart> uploadParts, long partSize) {
+        return uploadConcurrency > 1 && uploadParts.size() > 1 && partSize <= MAX_BUFFERED_PART_SIZE;
+    }
+
+    private List<S3Part> uploadPartsConcurrently(InputStream source, S3Upload upload, long partSize, List<AWSUploadPart> uploadParts) throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(uploadConcurrency, uploadParts.size()));
+        Semaphore bufferedParts = new Semaphore(uploadConcurrency);
+        try {
+            List<Future<S3Part>> futures = new ArrayList<>();
+            int completed = 0;
+            for (AWSUploadPart uploadPart : uploadParts) {
+                // stop reading the source once a part has failed
+                while (completed < futures.size() && futures.get(completed).isDone()) {
+                    getUploadedPart(futures.get(completed++));
+                }
+                acquire(bufferedParts);
+                byte[] part;
+                try {
+                    part = new byte[(int) (uploadPart.getLength() - uploadPart.getOffset())];
+                    ByteStreams.readFully(source, part);
+                } catch (IOException | RuntimeException e) {
+                    bufferedParts.release();
+                    throw e;
+                }
+                futures.add(executorService.submit(() -> {
+                    try {
+                        return uploadPart(new ByteArrayInputStream(part), upload, partSize, uploadPart);
+                    } finally {
+                        bufferedParts.release();
+                    }
+                }));
+            }
+            return futures.stream().map(S3UploadTool::getUploadedPart).collect(ImmutableListCollector.toImmutableList());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ToolException("Upload interrupted", e);
+        }
+    }
+
+    private static S3Part getUploadedPart(Future<S3Part> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ToolException("Upload interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ToolException) {
+                throw (ToolException) e.getCause();
             }
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, message, 100, taskOutput)));
+            String message = "Upload Failed. Reason: " + e.getCause().getMessage();
+            LOGGER.error(message, e.getCause());
+            throw new ToolException(message, e.getCause());
         }
     }
 
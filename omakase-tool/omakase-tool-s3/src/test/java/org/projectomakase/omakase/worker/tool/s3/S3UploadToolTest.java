@@ -29,6 +29,7 @@ import org.projectomakase.omakase.commons.aws.AWSUploadPart;
 import org.projectomakase.omakase.commons.aws.s3.S3Client;
 import org.projectomakase.omakase.commons.aws.s3.S3Part;
 import org.projectomakase.omakase.commons.aws.s3.S3Upload;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.commons.hash.Hash;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.api.TaskStatus;
@@ -56,6 +57,7 @@ import java.util.List;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.doAnswer;
@@ -120,6 +122,71 @@ public class S3UploadToolTest {
         validateToolCallback(callbacks.get(0), "a", TaskStatus.COMPLETED, 100, new S3UploadTaskOutput(Collections.singletonList(new S3Part(1, "abc")), Collections.singletonList(new Hash("MD5", sourceMd5))));
     }
 
+    @Test
+    public void shouldUploadToS3InParallel() throws Exception {
+        tool.s3Client = mock(S3Client.class);
+        tool.uploadConcurrency = 2;
+
+        File source = temporaryFolder.newFile();
+        Files.write("This is a test", source, Charsets.UTF_8);
+        String sourceMd5 = Files.hash(source, Hashing.md5()).toString();
+
+        URI destination = new URI("s3://access:secret@dev.s3-us-west-1.amazonaws.com/object-one?partNumber=1&uploadId=1234");
+        ImmutableList.Builder<AWSUploadPart> uploadPartBuilder = ImmutableList.builder();
+        uploadPartBuilder.add(new AWSUploadPart(0, 0, 7, "a", "b"));
+        uploadPartBuilder.add(new AWSUploadPart(1, 7, source.length(), "c", "d"));
+        S3UploadTaskConfiguration configuration = new S3UploadTaskConfiguration(source.toURI(), destination, 7, uploadPartBuilder.build(), ImmutableList.of("MD5"));
+
+        // each part is uploaded with its own bytes from the single pass of the source that calculates the MD5
+        doAnswer(invocation -> {
+            AWSUploadPart uploadPart = (AWSUploadPart) invocation.getArguments()[1];
+            InputStream inputStream = (InputStream) invocation.getArguments()[3];
+            String content = new String(ByteStreams.toByteArray(inputStream), Charsets.UTF_8);
+            return new S3Part(uploadPart.getNumber() + 1, content);
+        }).when(tool.s3Client).uploadMultipartPart(any(), any(), anyInt(), any());
+
+        try {
+            Task task = new Task("a", "S3_UPLOAD", "test", configuration);
+            tool.execute(task);
+
+            await().until(() -> assertThat(callbacks).hasSize(1));
+            S3UploadTaskOutput output = (S3UploadTaskOutput) callbacks.get(0).getTaskStatusUpdate().getOutput().get();
+            assertThat(output.getParts()).extracting("number", "etag").containsExactly(tuple(1, "This is"), tuple(2, " a test"));
+            assertThat(output.getHashes().get(0)).isEqualToComparingFieldByField(new Hash("MD5", sourceMd5));
+        } finally {
+            tool.uploadConcurrency = 1;
+        }
+    }
+
+    @Test
+    public void shouldFailIfAPartFailsToUploadInParallel() throws Exception {
+        tool.s3Client = mock(S3Client.class);
+        tool.uploadConcurrency = 2;
+
+        File source = temporaryFolder.newFile();
+        Files.write("This is a test", source, Charsets.UTF_8);
+
+        URI destination = new URI("s3://access:secret@dev.s3-us-west-1.amazonaws.com/object-one?partNumber=1&uploadId=1234");
+        ImmutableList.Builder<AWSUploadPart> uploadPartBuilder = ImmutableList.builder();
+        uploadPartBuilder.add(new AWSUploadPart(0, 0, 7, "a", "b"));
+        uploadPartBuilder.add(new AWSUploadPart(1, 7, source.length(), "c", "d"));
+        S3UploadTaskConfiguration configuration = new S3UploadTaskConfiguration(source.toURI(), destination, 7, uploadPartBuilder.build(), ImmutableList.of("MD5"));
+
+        doAnswer(invocation -> {
+            throw new OmakaseRuntimeException("Failed to upload part to S3");
+        }).when(tool.s3Client).uploadMultipartPart(any(), any(), anyInt(), any());
+
+        try {
+            tool.execute(new Task("a", "S3_UPLOAD", "test", configuration));
+
+            await().until(() -> assertThat(callbacks).hasSize(1));
+            assertThat(callbacks.get(0).getTaskStatusUpdate().getStatus()).isEqualTo(TaskStatus.FAILED_DIRTY);
+            assertThat(callbacks.get(0).getTaskStatusUpdate().getMessage()).contains("Failed to upload part to S3");
+        } finally {
+            tool.uploadConcurrency = 1;
+        }
+    }
+
     private void validateToolCallback(ToolCallback callback, String expectedTaskId, TaskStatus expectedTaskStatus, int expectedPercentComplete, S3UploadTaskOutput expectedOutput) {
         assertThat(callback.getTaskId()).isEqualTo(expectedTaskId);
         TaskStatusUpdate taskStatusUpdate = callback.getTaskStatusUpdate();
@@ -20,6 +20,7 @@
 package org.projectomakase.omakase.worker.tool.transfer;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingInputStream;
 import com.google.common.io.CountingInputStream;
@@ -37,21 +38,42 @@ import org.projectomakase.omakase.worker.tool.Tool;
 import org.projectomakase.omakase.worker.tool.ToolCallback;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerResolver;
+import org.projectomakase.omakase.worker.tool.protocol.provider.file.FileLinkMode;
+import org.projectomakase.omakase.worker.tool.protocol.provider.file.FileProtocolHandler;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
+ * Transfer Tool.
+ * <p>
+ * When both the source and destination are files the file is copied within the kernel, or linked if transfer.file.link.mode is HARDLINK or REFLINK,
+ * while the MD5 is calculated by reading the source on a separate thread. Otherwise the source is streamed to the destination and hashed in a single
+ * pass.
+ * </p>
+ *
  * @author Richard Lucas
  */
 @Named(TransferTool.NAME)
@@ -60,6 +82,7 @@ public class TransferTool implements Tool {
     public static final String NAME = "TRANSFER";
 
     private static final Logger LOGGER = Logger.getLogger(TransferTool.class);
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
 
     @Inject
     ProtocolHandlerResolver protocolHandlerResolver;
@@ -67,6 +90,21 @@ public class TransferTool implements Tool {
     @Inject
     Event<ToolCallback> event;
 
+    @Inject
+    @ConfigProperty(name = "transfer.file.link.mode", defaultValue = "NONE")
+    String fileLinkMode;
+
+    private FileLinkMode linkMode;
+
+    @PostConstruct
+    public void init() {
+        try {
+            linkMode = FileLinkMode.valueOf(fileLinkMode.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid transfer.file.link.mode " + fileLinkMode + ", must be one of " + Arrays.toString(FileLinkMode.values()), e);
+        }
+    }
+
     @Override
     public void execute(Task task) {
 
@@ -86,12 +124,14 @@ public class TransferTool implements Tool {
 
             TransferTaskOutput taskOutput = new TransferTaskOutput(contentInfos);
 
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, "Transferred " + configuration.getIoInstructions().size() + " file(s)", 100, taskOutput)));
+            long bytesTransferred = contentInfos.stream().mapToLong(ContentInfo::getSize).sum();
+            String message = "Transferred " + configuration.getIoInstructions().size() + " file(s)";
+            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.COMPLETED, message, 100, taskOutput), bytesTransferred));
 
         } catch (Exception e) {
             LOGGER.error("IOTool failed. Reason: " + e.getMessage(), e);
             String message = Optional.ofNullable(e.getCause()).map(Throwable::getMessage).orElse(e.getMessage());
-            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to transfer file. Reason: " + message, 0)));
+            event.fire(new ToolCallback(NAME, taskId, new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "Failed to transfer file. Reason: " + message, 0), e));
         }
     }
 
@@ -108,13 +148,17 @@ public class TransferTool implements Tool {
         }
     }
 
-    private static ContentInfo transfer(URI sourceUri, URI destinationUri, ProtocolHandler destinationProtocolHandler, ProtocolHandler sourceProtocolHandler)
+    private ContentInfo transfer(URI sourceUri, URI destinationUri, ProtocolHandler destinationProtocolHandler, ProtocolHandler sourceProtocolHandler)
             throws IOException, NoSuchAlgorithmException {
         sourceProtocolHandler.init(sourceUri);
         destinationProtocolHandler.init(destinationUri);
 
         long contentLength = sourceProtocolHandler.getContentLength();
 
+        if (sourceProtocolHandler instanceof FileProtocolHandler && destinationProtocolHandler instanceof FileProtocolHandler) {
+            return transferFile(sourceUri, destinationUri, (FileProtocolHandler) destinationProtocolHandler, (FileProtocolHandler) sourceProtocolHandler, contentLength);
+        }
+
         try (InputStream inputStream = sourceProtocolHandler.openStream(); HashingInputStream hashingInputStream = new HashingInputStream(Hashing.md5(), inputStream);
                 CountingInputStream countingInputStream = new CountingInputStream(hashingInputStream)) {
             destinationProtocolHandler.copyTo(countingInputStream, contentLength);
@@ -128,6 +172,50 @@ public class TransferTool implements Tool {
         }
     }
 
+    private ContentInfo transferFile(URI sourceUri, URI destinationUri, FileProtocolHandler destinationProtocolHandler, FileProtocolHandler sourceProtocolHandler,
+                                     long contentLength) throws IOException {
+        Path source = sourceProtocolHandler.getPath();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            // the source is hashed while it is copied, both read the same pages so the source is only read from disk once
+            Future<String> md5Future = executorService.submit(() -> md5(source));
+            destinationProtocolHandler.copyFrom(source, linkMode);
+            String md5 = getMd5(md5Future);
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Transferred " + sourceUri + " to " + destinationUri + ". Calculated md5: " + md5);
+            }
+
+            return new ContentInfo(sourceUri, contentLength, ImmutableList.of(new Hash("MD5", md5)));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static String md5(Path source) throws IOException, NoSuchAlgorithmException {
+        MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(HASH_BUFFER_SIZE);
+        try (FileChannel fileChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+            while (fileChannel.read(buffer) != -1) {
+                buffer.flip();
+                messageDigest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HashCode.fromBytes(messageDigest.digest()).toString();
+    }
+
+    private static String getMd5(Future<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted calculating md5", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to calculate md5. Reason: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     @Override
     public String getName() {
         return NAME;
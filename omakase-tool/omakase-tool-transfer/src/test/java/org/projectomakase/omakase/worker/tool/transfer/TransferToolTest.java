@@ -56,6 +56,7 @@ import java.util.List;
 
 import static com.jayway.awaitility.Awaitility.await;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @RunWith(CdiTestRunner.class)
 public class TransferToolTest {
@@ -133,6 +134,13 @@ public class TransferToolTest {
         validateFileWritenToDest(destinationTwo);
     }
 
+    @Test
+    public void shouldRejectInvalidFileLinkMode() throws Exception {
+        TransferTool tool = new TransferTool();
+        tool.fileLinkMode = "symlink";
+        assertThatThrownBy(tool::init).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("transfer.file.link.mode");
+    }
+
     @Test
     public void shouldFailToTransferFromFileToFile() throws Exception {
         File source = new File("badFile.txt");
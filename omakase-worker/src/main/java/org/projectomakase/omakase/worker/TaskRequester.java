@@ -22,14 +22,26 @@ package org.projectomakase.omakase.worker;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.worker.rest.v1.client.OmakaseClient;
 import org.projectomakase.omakase.worker.tool.ToolRegistry;
+import org.projectomakase.omakase.worker.tool.ToolInfo;
 import org.apache.camel.ProducerTemplate;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 /**
+ * Requests tasks from Omakase and delegates them to the correct tool.
+ * <p>
+ * If long polling is enabled, tool.poll.wait.secs is greater than 0, the requester polls again immediately after each response for as long as the tools
+ * have available capacity and Omakase can be reached, otherwise it makes a single request each time it is invoked. If Omakase answers a long poll without any
+ * tasks in less than tool.poll.min.interval.ms, e.g. because the worker was woken for tasks that were assigned to another worker, the requester waits for the
+ * remainder of the interval before polling again so that it does not poll in a tight loop.
+ * </p>
+ *
  * @author Richard Lucas
  */
 @Named
@@ -44,17 +56,53 @@ public class TaskRequester {
     @Inject
     @Omakase
     ProducerTemplate producerTemplate;
+    @Inject
+    @ConfigProperty(name = "tool.poll.wait.secs", defaultValue = "0")
+    int pollWaitInSecs;
+    @Inject
+    @ConfigProperty(name = "tool.poll.min.interval.ms", defaultValue = "1000")
+    long pollMinIntervalInMs;
 
     public void requestTasks() {
-        List<Task> tasks = omakaseClient.consumeToolTasks(toolRegistry.getAvailableCapacity());
+        if (pollWaitInSecs <= 0) {
+            delegateTasks(omakaseClient.consumeToolTasks(toolRegistry.getAvailableCapacity()));
+            return;
+        }
+
+        Set<ToolInfo> availableCapacity = toolRegistry.getAvailableCapacity();
+        while (!availableCapacity.isEmpty()) {
+            long start = System.currentTimeMillis();
+            Optional<List<Task>> tasks = omakaseClient.pollToolTasks(availableCapacity, pollWaitInSecs);
+            if (!tasks.isPresent()) {
+                // the request failed, wait for the next scheduled request rather than retrying in a tight loop
+                return;
+            }
+            delegateTasks(tasks.get());
+            if (tasks.get().isEmpty() && !backOff(pollMinIntervalInMs - (System.currentTimeMillis() - start))) {
+                return;
+            }
+            availableCapacity = toolRegistry.getAvailableCapacity();
+        }
+    }
+
+    private static boolean backOff(long backOffInMs) {
+        if (backOffInMs > 0) {
+            try {
+                Thread.sleep(backOffInMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
 
+    private void delegateTasks(List<Task> tasks) {
         if (LOGGER.isDebugEnabled() && !tasks.isEmpty()) {
             LOGGER.debug("Received " + tasks.size() + " tasks");
         }
 
-        tasks.forEach(task -> {
-            toolRegistry.decreaseAvailableCapacity(task.getType());
-            producerTemplate.send("seda:" + task.getType(), exchange -> exchange.getIn().setBody(task));
-        });
+        toolRegistry.reserveCapacity(tasks);
+        tasks.forEach(task -> producerTemplate.send("seda:" + task.getType(), exchange -> exchange.getIn().setBody(task)));
     }
 }
@@ -49,6 +49,15 @@ public class CamelActivator {
     @Inject
     @ConfigProperty(name = "tool.poll.frequency.in.secs")
     int pollFrequencyInSecs;
+    @Inject
+    @ConfigProperty(name = "tool.poll.wait.secs", defaultValue = "0")
+    int pollWaitInSecs;
+    @Inject
+    @ConfigProperty(name = "tool.callback.batch.size", defaultValue = "1")
+    int callbackBatchSize;
+    @Inject
+    @ConfigProperty(name = "tool.callback.batch.timeout.ms", defaultValue = "250")
+    long callbackBatchTimeoutInMs;
 
     public void start() {
         LOGGER.info("Creating CamelContext and registering Camel Routes.");
@@ -73,7 +82,7 @@ public class CamelActivator {
     public void registerRoutes(List<Tool> tools) {
         List<ToolInfo> toolInfos = toolRegistry.registerTools(tools);
         toolInfos.forEach(toolInfo -> Throwables.voidInstance(() -> context.addRoutes(new ToolRoute(context, toolInfo))));
-        Throwables.voidInstance(() -> context.addRoutes(new RequestTasksRoute(context, pollFrequencyInSecs)));
-        Throwables.voidInstance(() -> context.addRoutes(new ToolCallbackRoute(context)));
+        Throwables.voidInstance(() -> context.addRoutes(new RequestTasksRoute(context, pollFrequencyInSecs, pollWaitInSecs > 0)));
+        Throwables.voidInstance(() -> context.addRoutes(new ToolCallbackRoute(context, callbackBatchSize, callbackBatchTimeoutInMs)));
     }
 }
@@ -24,20 +24,29 @@ import org.apache.camel.builder.RouteBuilder;
 
 /**
  * Camel Route responsible for requesting tasks from Omakase and delegating them to the correct tool.
+ * <p>
+ * When long polling is enabled the {@link org.projectomakase.omakase.worker.TaskRequester} polls continuously while the tools have available capacity, the
+ * timer only restarts polling once capacity is freed or after a failed request so it fires every second instead of every poll period.
+ * </p>
  *
  * @author Richard Lucas
  */
 public class RequestTasksRoute extends RouteBuilder {
 
+    private static final int LONG_POLL_RESTART_PERIOD_MS = 1000;
+
     private final int pollFrequencyInSecs;
+    private final boolean longPolling;
 
-    public RequestTasksRoute(CamelContext camelContext, int pollFrequencyInSecs) {
+    public RequestTasksRoute(CamelContext camelContext, int pollFrequencyInSecs, boolean longPolling) {
         super(camelContext);
         this.pollFrequencyInSecs = pollFrequencyInSecs;
+        this.longPolling = longPolling;
     }
 
     @Override
     public void configure() throws Exception {
-        from("timer://requestTasks?delay=10000&period=" + (pollFrequencyInSecs * 1000)).routeId("request_tasks").beanRef("taskRequester");
+        int period = longPolling ? LONG_POLL_RESTART_PERIOD_MS : pollFrequencyInSecs * 1000;
+        from("timer://requestTasks?delay=10000&fixedRate=false&period=" + period).routeId("request_tasks").beanRef("taskRequester");
     }
 }
@@ -0,0 +1,37 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.camel.route;
+
+import org.projectomakase.omakase.worker.tool.ToolCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.processor.aggregate.AbstractListAggregationStrategy;
+
+/**
+ * Aggregates tool callbacks into a list so that the task status updates can be sent to Omakase as a single batch.
+ *
+ * @author Richard Lucas
+ */
+public class ToolCallbackAggregationStrategy extends AbstractListAggregationStrategy<ToolCallback> {
+
+    @Override
+    public ToolCallback getValue(Exchange exchange) {
+        return exchange.getIn().getBody(ToolCallback.class);
+    }
+}
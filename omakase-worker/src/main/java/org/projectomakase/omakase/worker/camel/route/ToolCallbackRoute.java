@@ -21,20 +21,42 @@ package org.projectomakase.omakase.worker.camel.route;
 
 import org.apache.camel.CamelContext;
 import org.apache.camel.builder.RouteBuilder;
+import org.jboss.logging.Logger;
 
 /**
  * Camel Route that routes tool callbacks received from the different tool implementations to Omakase via the Tool REST API.
+ * <p>
+ * If the batch size is greater than 1 the tool callbacks are aggregated in memory and sent to Omakase in a single request once either the batch size or
+ * timeout is reached, otherwise each tool callback is sent to Omakase as it is received.
+ * </p>
  *
  * @author Richard Lucas
  */
 public class ToolCallbackRoute extends RouteBuilder {
 
-    public ToolCallbackRoute(CamelContext camelContext) {
+    private static final Logger LOGGER = Logger.getLogger(ToolCallbackRoute.class);
+
+    private final int batchSize;
+    private final long batchTimeoutInMs;
+
+    public ToolCallbackRoute(CamelContext camelContext, int batchSize, long batchTimeoutInMs) {
         super(camelContext);
+        this.batchSize = batchSize;
+        this.batchTimeoutInMs = batchTimeoutInMs;
     }
 
     @Override
     public void configure() throws Exception {
-        from("direct:toolOutput").routeId("tool_callback").beanRef("omakaseClient", "produceToolTaskStatusUpdate");
+        if (batchSize > 1) {
+            LOGGER.info("Batching tool callbacks into batches of up to " + batchSize + " callback(s), waiting at most " + batchTimeoutInMs + " ms");
+            from("direct:toolOutput").routeId("tool_callback")
+                    .aggregate(constant(true), new ToolCallbackAggregationStrategy())
+                    .completionSize(batchSize)
+                    .completionTimeout(batchTimeoutInMs)
+                    .forceCompletionOnStop()
+                    .beanRef("omakaseClient", "produceToolTaskStatusUpdates");
+        } else {
+            from("direct:toolOutput").routeId("tool_callback").beanRef("omakaseClient", "produceToolTaskStatusUpdate");
+        }
     }
 }
@@ -80,9 +80,11 @@ public class OmakaseClient {
 
     private static final MediaType APPLICATION_CONSUME_TYPE = new MediaType("application", "consume-tasks+json");
     private static final MediaType APPLICATION_PRODUCE_TYPE = new MediaType("application", "produce-status+json");
+    private static final MediaType APPLICATION_PRODUCE_STATUSES_TYPE = new MediaType("application", "produce-statuses+json");
 
     private static final String CAPACITY_JSON_TEMPLATE = "{\"type\":\"%s\",\"availability\":%d}";
     private static final String WORKER_JSON_TEMPLATE = "{\"name\":\"%s\",\"external_ids\":[]}";
+    private static final String STATUS_JSON_TEMPLATE = "{\"task_id\":\"%s\",\"status\":%s}";
 
     @Inject
     @ConfigProperty(name = "omakase.url")
@@ -119,11 +121,31 @@ public class OmakaseClient {
      * @return the next available message or an empty payload if there are no messages to consume.
      */
     public List<Task> consumeToolTasks(Set<ToolInfo> toolInfos) {
+        return pollToolTasks(toolInfos, 0).orElse(ImmutableList.of());
+    }
+
+    /**
+     * Long polls for the next set of available tasks for the given list of available tools via the Omakase Tool REST API.
+     * <p>
+     * If no tasks are available Omakase holds the request open for up to the specified number of seconds, returning early with an empty list if tasks the tools
+     * can consume are queued in the meantime.
+     * </p>
+     *
+     * @param toolInfos
+     *         a set of {@link ToolInfo} instances that have available capacity
+     * @param waitInSecs
+     *         the maximum number of seconds Omakase should wait for tasks to become available, 0 returns immediately
+     * @return the next available tasks, an empty list if there are no tasks to consume or an empty Optional if the request failed.
+     */
+    public Optional<List<Task>> pollToolTasks(Set<ToolInfo> toolInfos, int waitInSecs) {
         String resource = String.format(TASKS_API_PATH, workerId);
         String json = "[" + toolInfos.stream().map(toolInfo -> String.format(CAPACITY_JSON_TEMPLATE, toolInfo.getName(), toolInfo.getAvailableCapacity())).collect(Collectors.joining(",")) + "]";
 
-        return invoke(getInvocationBuilder(resource).accept(MediaType.APPLICATION_JSON_TYPE).build("POST", entity(json, APPLICATION_CONSUME_TYPE))).map(this::getTasksFromResponse)
-                .orElse(ImmutableList.of());
+        WebTarget webTarget = resteasyClient.target(omakaseUrl).path(resource);
+        if (waitInSecs > 0) {
+            webTarget = webTarget.queryParam("wait_secs", waitInSecs);
+        }
+        return invoke(webTarget.request().accept(MediaType.APPLICATION_JSON_TYPE).build("POST", entity(json, APPLICATION_CONSUME_TYPE))).flatMap(this::getTasksFromResponse);
     }
 
     /**
@@ -138,6 +160,20 @@ public class OmakaseClient {
                 .ifPresent(response -> response.readEntity(String.class));
     }
 
+    /**
+     * Posts the specified task status updates to Omakase via the Task REST API in a single request.
+     *
+     * @param toolCallbacks
+     *         the tool callbacks
+     */
+    public void produceToolTaskStatusUpdates(List<ToolCallback> toolCallbacks) {
+        String resource = String.format(TASKS_API_PATH, workerId);
+        String json = "[" + toolCallbacks.stream().map(toolCallback -> String.format(STATUS_JSON_TEMPLATE, toolCallback.getTaskId(), toolCallback.getTaskStatusUpdate().toJson()))
+                .collect(Collectors.joining(",")) + "]";
+        invoke(getInvocationBuilder(resource).accept(MediaType.APPLICATION_JSON_TYPE).build("POST", entity(json, APPLICATION_PRODUCE_STATUSES_TYPE)))
+                .ifPresent(response -> response.readEntity(String.class));
+    }
+
     /**
      * Posts the specified worker information to register with the Omakase Worker REST API.
      *
@@ -167,12 +203,13 @@ public class OmakaseClient {
         workerId = null;
     }
 
-    private List<Task> getTasksFromResponse(Response response) {
+    private Optional<List<Task>> getTasksFromResponse(Response response) {
         if (response.getStatus() == 200) {
-            return tasksBuilder.fromJson(response.readEntity(String.class));
+            return Optional.of(tasksBuilder.fromJson(response.readEntity(String.class)));
         } else {
             LOGGER.error("Failed to retrieve tasks from Omakase, Reason: " + response.getStatusInfo().getReasonPhrase());
-            return ImmutableList.of();
+            response.readEntity(String.class);
+            return Optional.empty();
         }
     }
 
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool;
+
+/**
+ * Adapts the number of tasks a tool is allowed to execute concurrently between a minimum and maximum bound using additive increase / multiplicative
+ * decrease (AIMD).
+ * <p>
+ * A smoothed task cost is maintained for the tool, the cost of a task is its latency per MB processed so that tasks of different sizes can be compared,
+ * tasks that process less than 1MB or do not report their size are counted as 1MB so their cost is their latency. When a task fails with a transport
+ * failure, e.g. a connection failure or timeout, the limit is multiplied by the decrease factor, other failures such as invalid input say nothing about
+ * the load on the tool and are ignored. Otherwise the limit is adapted once per window of completed tasks, equal in size to the current limit, it is
+ * multiplied by the decrease factor if any task in the window cost more than the smoothed cost multiplied by the latency tolerance, otherwise it is
+ * increased by one. If the minimum and maximum bounds are the same the limit is fixed.
+ * </p>
+ * <p>
+ * Updates are synchronized as they only occur once per task completion, the current limit is volatile so it can be read without locking.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+class AdaptiveConcurrencyLimit {
+
+    // weight given to each new cost sample when updating the smoothed cost
+    private static final double SMOOTHING_FACTOR = 0.1;
+    private static final double BYTES_PER_MB = 1048576;
+
+    /**
+     * The outcome of a task.
+     */
+    enum Outcome {
+        SUCCEEDED, FAILED, TRANSPORT_FAILED
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double decreaseFactor;
+
+    private volatile int limit;
+    private double smoothedCost;
+    private int completionsSinceChange;
+    private boolean congested;
+
+    AdaptiveConcurrencyLimit(int minLimit, int maxLimit, double latencyTolerance, double decreaseFactor) {
+        this.minLimit = Math.max(1, Math.min(minLimit, maxLimit));
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.decreaseFactor = decreaseFactor;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Returns the current concurrency limit.
+     *
+     * @return the current concurrency limit.
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns true if the limit is fixed, otherwise false.
+     *
+     * @return true if the limit is fixed, otherwise false.
+     */
+    boolean isFixed() {
+        return minLimit == maxLimit;
+    }
+
+    /**
+     * Records the outcome of a task and adapts the limit accordingly.
+     *
+     * @param latencyInMs
+     *         the time taken to execute the task
+     * @param bytesProcessed
+     *         the number of bytes processed by the task, or -1 if it is unknown
+     * @param outcome
+     *         the outcome of the task
+     * @return the updated limit.
+     */
+    synchronized int onTaskCompleted(long latencyInMs, long bytesProcessed, Outcome outcome) {
+        if (isFixed() || outcome == Outcome.FAILED) {
+            return limit;
+        }
+
+        completionsSinceChange++;
+        if (outcome == Outcome.TRANSPORT_FAILED) {
+            decrease();
+            return limit;
+        }
+
+        double cost = latencyInMs / Math.max(1, bytesProcessed / BYTES_PER_MB);
+        congested |= smoothedCost != 0 && cost > smoothedCost * latencyTolerance;
+        smoothedCost = smoothedCost == 0 ? cost : smoothedCost + SMOOTHING_FACTOR * (cost - smoothedCost);
+        // the limit is only adapted once per window so that a burst of tasks started under the same limit is not counted more than once
+        if (completionsSinceChange >= limit) {
+            if (congested) {
+                decrease();
+            } else {
+                limit = Math.min(maxLimit, limit + 1);
+                resetWindow();
+            }
+        }
+        return limit;
+    }
+
+    private void decrease() {
+        limit = Math.max(minLimit, (int) Math.floor(limit * decreaseFactor));
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        completionsSinceChange = 0;
+        congested = false;
+    }
+}
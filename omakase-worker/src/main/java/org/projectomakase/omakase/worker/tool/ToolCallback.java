@@ -21,8 +21,13 @@ package org.projectomakase.omakase.worker.tool;
 
 import org.projectomakase.omakase.task.api.TaskStatusUpdate;
 
+import java.util.Optional;
+
 /**
  * Callback sent by the different tool implementations.
+ * <p>
+ * Tools may also report the number of bytes the task processed and the exception a task failed with, both are used to adapt the tool's concurrency limit.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -31,11 +36,27 @@ public class ToolCallback {
     private final String toolName;
     private final String taskId;
     private final TaskStatusUpdate taskStatusUpdate;
+    private final long bytesProcessed;
+    private final Throwable failure;
 
     public ToolCallback(String toolName, String taskId, TaskStatusUpdate taskStatusUpdate) {
+        this(toolName, taskId, taskStatusUpdate, -1, null);
+    }
+
+    public ToolCallback(String toolName, String taskId, TaskStatusUpdate taskStatusUpdate, long bytesProcessed) {
+        this(toolName, taskId, taskStatusUpdate, bytesProcessed, null);
+    }
+
+    public ToolCallback(String toolName, String taskId, TaskStatusUpdate taskStatusUpdate, Throwable failure) {
+        this(toolName, taskId, taskStatusUpdate, -1, failure);
+    }
+
+    private ToolCallback(String toolName, String taskId, TaskStatusUpdate taskStatusUpdate, long bytesProcessed, Throwable failure) {
         this.toolName = toolName;
         this.taskId = taskId;
         this.taskStatusUpdate = taskStatusUpdate;
+        this.bytesProcessed = bytesProcessed;
+        this.failure = failure;
     }
 
     public String getToolName() {
@@ -50,6 +71,19 @@ public class ToolCallback {
         return taskStatusUpdate;
     }
 
+    /**
+     * Returns the number of bytes processed by the task, or -1 if it is unknown.
+     *
+     * @return the number of bytes processed by the task, or -1 if it is unknown.
+     */
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    public Optional<Throwable> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
     @Override
     public String toString() {
         return "ToolCallback{" +
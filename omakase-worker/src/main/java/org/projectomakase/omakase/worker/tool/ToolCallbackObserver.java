@@ -45,7 +45,7 @@ public class ToolCallbackObserver {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(toolCallback);
         }
-        toolRegistry.increaseAvailableCapacity(toolCallback.getToolName());
+        toolRegistry.increaseAvailableCapacity(toolCallback);
 
         producerTemplate.send("direct:toolOutput", exchange -> exchange.getIn().setBody(toolCallback));
     }
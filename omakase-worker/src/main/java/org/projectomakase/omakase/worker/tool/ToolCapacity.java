@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the number of tasks a tool is currently executing (in-flight) against its concurrency limit.
+ * <p>
+ * Capacity is reserved and released using compare-and-set so that the task requester and tool threads can update it concurrently without locking.
+ * </p>
+ * <p>
+ * The concurrency limit is adapted between the tool's min and max capacity based on the latency, size and outcome of the tasks it executes, see
+ * {@link AdaptiveConcurrencyLimit}.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+class ToolCapacity {
+
+    private final String name;
+    private final int maxCapacity;
+    private final AdaptiveConcurrencyLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ConcurrentMap<String, Long> taskStartTimes = new ConcurrentHashMap<>();
+
+    ToolCapacity(String name, int maxCapacity, AdaptiveConcurrencyLimit limit) {
+        this.name = name;
+        this.maxCapacity = maxCapacity;
+        this.limit = limit;
+    }
+
+    /**
+     * Attempts to reserve the specified number of slots, either all of the slots are reserved or none are.
+     *
+     * @param slots
+     *         the number of slots to reserve
+     * @return true if the slots were reserved, false if there was not enough available capacity.
+     */
+    boolean tryReserve(int slots) {
+        while (true) {
+            int current = inFlight.get();
+            int updated = current + slots;
+            if (updated > limit.getLimit()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Attempts to release the specified number of slots, either all of the slots are released or none are.
+     *
+     * @param slots
+     *         the number of slots to release
+     * @return true if the slots were released, false if releasing them would exceed the max capacity.
+     */
+    boolean tryRelease(int slots) {
+        while (true) {
+            int current = inFlight.get();
+            int updated = current - slots;
+            if (updated < 0) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, updated)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Records that the tool has started executing the specified task.
+     *
+     * @param taskId
+     *         the task id
+     */
+    void taskStarted(String taskId) {
+        taskStartTimes.put(taskId, System.nanoTime());
+    }
+
+    /**
+     * Records that the tool has finished executing the specified task and adapts the concurrency limit using the task's latency, size and outcome.
+     *
+     * @param taskId
+     *         the task id
+     * @param bytesProcessed
+     *         the number of bytes processed by the task, or -1 if it is unknown
+     * @param outcome
+     *         the outcome of the task
+     */
+    void taskCompleted(String taskId, long bytesProcessed, AdaptiveConcurrencyLimit.Outcome outcome) {
+        Long startTime = taskStartTimes.remove(taskId);
+        if (startTime != null) {
+            limit.onTaskCompleted(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), bytesProcessed, outcome);
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getMaxCapacity() {
+        return maxCapacity;
+    }
+
+    int getLimit() {
+        return limit.getLimit();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    int getAvailableCapacity() {
+        return Math.max(0, limit.getLimit() - inFlight.get());
+    }
+
+    ToolInfo toToolInfo() {
+        return new ToolInfo(name, maxCapacity, getAvailableCapacity());
+    }
+}
@@ -19,77 +19,232 @@
  */
 package org.projectomakase.omakase.worker.tool;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.amazonaws.AmazonServiceException;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
 import org.projectomakase.omakase.commons.collectors.ImmutableSetCollector;
 import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.projectomakase.omakase.task.api.Task;
+import org.projectomakase.omakase.task.api.TaskStatus;
 import org.apache.deltaspike.core.api.config.ConfigResolver;
 import org.jboss.logging.Logger;
 import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.net.ssl.SSLException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.SocketException;
+import java.net.UnknownHostException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
 
 /**
+ * Registry of the tools available to the worker and their capacity.
+ * <p>
+ * Each tool's capacity is tracked by a lock-free counter, see {@link ToolCapacity}, allowing the task requester to reserve capacity for a batch of tasks
+ * while tools release capacity as they complete. The capacity of each tool is exposed via JMX.
+ * </p>
+ * <p>
+ * A tool's concurrency limit is fixed at &lt;tool&gt;.max.capacity unless &lt;tool&gt;.min.capacity is configured with a lower value, in which case the limit
+ * is adapted between the two bounds based on the latency, size and outcome of the tool's tasks, see {@link AdaptiveConcurrencyLimit}. The adapted limit
+ * determines the capacity advertised to Omakase when requesting tasks.
+ * </p>
+ *
  * @author Richard Lucas
  */
 @ApplicationScoped
-public class ToolRegistry {
+public class ToolRegistry implements ToolRegistryMXBean {
 
     private static final Logger LOGGER = Logger.getLogger(ToolRegistry.class);
+    private static final String OBJECT_NAME = "org.projectomakase.omakase.worker:type=ToolRegistry";
 
-    private final Cache<String, ToolInfo> cache = CacheBuilder.newBuilder().concurrencyLevel(1).build();
+    private final ConcurrentMap<String, ToolCapacity> capacities = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void register() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register tool registry with JMX", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregister() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to unregister tool registry from JMX", e);
+        }
+    }
 
     public List<ToolInfo> registerTools(List<Tool> tools) {
-        List<ToolInfo> toolInfos = tools.stream().map(ToolRegistry::getToolInfo).collect(ImmutableListCollector.toImmutableList());
-        toolInfos.forEach(toolInfo -> cache.put(toolInfo.getName(), toolInfo));
-        return toolInfos;
+        List<ToolCapacity> toolCapacities = tools.stream().map(ToolRegistry::getToolCapacity).collect(ImmutableListCollector.toImmutableList());
+        toolCapacities.forEach(toolCapacity -> capacities.put(toolCapacity.getName(), toolCapacity));
+        return toolCapacities.stream().map(ToolCapacity::toToolInfo).collect(ImmutableListCollector.toImmutableList());
     }
 
     public void decreaseAvailableCapacity(String toolName) {
-        ToolInfo toolInfo = cache.getIfPresent(toolName);
-        if (toolInfo != null) {
-            int available = toolInfo.getAvailableCapacity() - 1;
-            if (available < 0) {
-                throw new OmakaseRuntimeException("Unable to decrease the " + toolName + " tool's available capacity, capacity is already 0");
+        decreaseAvailableCapacity(toolName, 1);
+    }
+
+    /**
+     * Reserves capacity for a batch of tasks received from Omakase, reserving the slots for each tool in a single update, and records the time each
+     * task started.
+     *
+     * @param tasks
+     *         the tasks
+     * @throws OmakaseRuntimeException
+     *         if a tool does not have enough available capacity
+     */
+    public void reserveCapacity(List<Task> tasks) {
+        tasks.stream().collect(Collectors.groupingBy(Task::getType, Collectors.counting()))
+                .forEach((toolName, count) -> decreaseAvailableCapacity(toolName, count.intValue()));
+        tasks.forEach(task -> Optional.ofNullable(capacities.get(task.getType())).ifPresent(toolCapacity -> toolCapacity.taskStarted(task.getId())));
+    }
+
+    /**
+     * Atomically reserves the specified number of slots from the tool's available capacity, either all of the slots are reserved or none are.
+     *
+     * @param toolName
+     *         the tool name
+     * @param slots
+     *         the number of slots to reserve
+     * @throws OmakaseRuntimeException
+     *         if the tool does not have enough available capacity
+     */
+    public void decreaseAvailableCapacity(String toolName, int slots) {
+        ToolCapacity toolCapacity = capacities.get(toolName);
+        if (toolCapacity != null) {
+            if (!toolCapacity.tryReserve(slots)) {
+                if (slots == 1) {
+                    throw new OmakaseRuntimeException("Unable to decrease the " + toolName + " tool's available capacity, capacity is already 0");
+                } else {
+                    throw new OmakaseRuntimeException("Unable to decrease the " + toolName + " tool's available capacity by " + slots + ", available capacity is " +
+                                                              toolCapacity.getAvailableCapacity());
+                }
             }
-            ToolInfo updatedToolInfo = new ToolInfo(toolName, toolInfo.getMaxCapacity(), available);
-            cache.put(toolName, updatedToolInfo);
 
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Updated " + updatedToolInfo);
+                LOGGER.debug("Updated " + toolCapacity.toToolInfo());
             }
         }
     }
 
     public void increaseAvailableCapacity(String toolName) {
-        ToolInfo toolInfo = cache.getIfPresent(toolName);
-        if (toolInfo != null) {
-            int capacity = toolInfo.getAvailableCapacity() + 1;
-            if (capacity > toolInfo.getMaxCapacity()) {
+        ToolCapacity toolCapacity = capacities.get(toolName);
+        if (toolCapacity != null) {
+            if (!toolCapacity.tryRelease(1)) {
                 throw new OmakaseRuntimeException("Unable to increase the " + toolName + " tool's available capacity as it will exceed the max capacity ");
             }
-            ToolInfo updatedToolInfo = new ToolInfo(toolName, toolInfo.getMaxCapacity(), capacity);
-            cache.put(toolName, updatedToolInfo);
 
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Updated " + updatedToolInfo);
+                LOGGER.debug("Updated " + toolCapacity.toToolInfo());
             }
         }
     }
 
+    /**
+     * Releases the capacity used by the task the tool callback is for and adapts the tool's concurrency limit using the task's latency, size and outcome.
+     *
+     * @param toolCallback
+     *         the tool callback
+     */
+    public void increaseAvailableCapacity(ToolCallback toolCallback) {
+        increaseAvailableCapacity(toolCallback.getToolName());
+        Optional.ofNullable(capacities.get(toolCallback.getToolName()))
+                .ifPresent(toolCapacity -> toolCapacity.taskCompleted(toolCallback.getTaskId(), toolCallback.getBytesProcessed(), getOutcome(toolCallback)));
+    }
+
     public Set<ToolInfo> getAvailableCapacity() {
-        return cache.asMap().entrySet().stream().map(Map.Entry::getValue).filter(toolInfo -> toolInfo.getAvailableCapacity() > 0).collect(ImmutableSetCollector.toImmutableSet());
+        return capacities.values().stream().map(ToolCapacity::toToolInfo).filter(toolInfo -> toolInfo.getAvailableCapacity() > 0).collect(ImmutableSetCollector.toImmutableSet());
+    }
+
+    @Override
+    public Map<String, Integer> getAvailableCapacityByTool() {
+        return capacityByTool(ToolCapacity::getAvailableCapacity);
     }
 
-    private static ToolInfo getToolInfo(Tool tool) {
-        int capacity = getMaxCapacity(tool.getName());
-        return new ToolInfo(tool.getName(), capacity, capacity);
+    @Override
+    public Map<String, Integer> getCapacityLimitByTool() {
+        return capacityByTool(ToolCapacity::getLimit);
+    }
+
+    @Override
+    public Map<String, Integer> getInFlightByTool() {
+        return capacityByTool(ToolCapacity::getInFlight);
+    }
+
+    @Override
+    public int getTotalInFlight() {
+        return capacities.values().stream().mapToInt(ToolCapacity::getInFlight).sum();
+    }
+
+    private Map<String, Integer> capacityByTool(ToIntFunction<ToolCapacity> function) {
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        capacities.values().forEach(toolCapacity -> builder.put(toolCapacity.getName(), function.applyAsInt(toolCapacity)));
+        return builder.build();
+    }
+
+    /**
+     * Returns the outcome of the task the tool callback is for. A failed task is a transport failure if it failed with a network error or timeout, these
+     * indicate that the tool or the remote server is overloaded, other failures e.g. invalid input or a missing file do not.
+     *
+     * @param toolCallback
+     *         the tool callback
+     * @return the outcome of the task the tool callback is for.
+     */
+    static AdaptiveConcurrencyLimit.Outcome getOutcome(ToolCallback toolCallback) {
+        if (TaskStatus.COMPLETED.equals(toolCallback.getTaskStatusUpdate().getStatus())) {
+            return AdaptiveConcurrencyLimit.Outcome.SUCCEEDED;
+        }
+        boolean transportFailure = toolCallback.getFailure().map(failure -> Throwables.getCausalChain(failure).stream().anyMatch(ToolRegistry::isTransportFailure)).orElse(false);
+        return transportFailure ? AdaptiveConcurrencyLimit.Outcome.TRANSPORT_FAILED : AdaptiveConcurrencyLimit.Outcome.FAILED;
+    }
+
+    private static boolean isTransportFailure(Throwable throwable) {
+        if (throwable instanceof AmazonServiceException) {
+            // server errors and throttling
+            return ((AmazonServiceException) throwable).getStatusCode() >= 500;
+        }
+        return throwable instanceof SocketException || throwable instanceof InterruptedIOException || throwable instanceof UnknownHostException ||
+                throwable instanceof SSLException || throwable instanceof TimeoutException;
+    }
+
+    private static ToolCapacity getToolCapacity(Tool tool) {
+        int maxCapacity = getMaxCapacity(tool.getName());
+        int minCapacity = getMinCapacity(tool.getName(), maxCapacity);
+        double latencyTolerance = Double.parseDouble(ConfigResolver.getPropertyValue("tool.capacity.latency.tolerance", "2.0"));
+        double decreaseFactor = Double.parseDouble(ConfigResolver.getPropertyValue("tool.capacity.decrease.factor", "0.75"));
+        return new ToolCapacity(tool.getName(), maxCapacity, new AdaptiveConcurrencyLimit(minCapacity, maxCapacity, latencyTolerance, decreaseFactor));
     }
 
     private static int getMaxCapacity(String toolName) {
         return Integer.parseInt(ConfigResolver.getPropertyValue(toolName.toLowerCase() + ".max.capacity", "1"));
     }
+
+    private static int getMinCapacity(String toolName, int maxCapacity) {
+        return Integer.parseInt(ConfigResolver.getPropertyValue(toolName.toLowerCase() + ".min.capacity", Integer.toString(maxCapacity)));
+    }
 }
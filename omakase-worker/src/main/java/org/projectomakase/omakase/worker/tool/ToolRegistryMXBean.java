@@ -0,0 +1,58 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool;
+
+import java.util.Map;
+
+/**
+ * JMX management interface exposing the capacity of the tools registered with the worker.
+ *
+ * @author Richard Lucas
+ */
+public interface ToolRegistryMXBean {
+
+    /**
+     * Returns the available capacity of each tool keyed by tool name.
+     *
+     * @return the available capacity of each tool keyed by tool name.
+     */
+    Map<String, Integer> getAvailableCapacityByTool();
+
+    /**
+     * Returns the current concurrency limit of each tool keyed by tool name.
+     *
+     * @return the current concurrency limit of each tool keyed by tool name.
+     */
+    Map<String, Integer> getCapacityLimitByTool();
+
+    /**
+     * Returns the number of tasks each tool is executing keyed by tool name.
+     *
+     * @return the number of tasks each tool is executing keyed by tool name.
+     */
+    Map<String, Integer> getInFlightByTool();
+
+    /**
+     * Returns the total number of tasks being executed by all of the tools.
+     *
+     * @return the total number of tasks being executed by all of the tools.
+     */
+    int getTotalInFlight();
+}
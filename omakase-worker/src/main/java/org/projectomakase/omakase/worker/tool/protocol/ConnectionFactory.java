@@ -0,0 +1,60 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol;
+
+/**
+ * Creates, validates and destroys the connections managed by a {@link ConnectionPool}.
+ *
+ * @param <K>
+ *         the connection key type, connections are only shared between borrowers using equal keys
+ * @param <C>
+ *         the connection type
+ * @author Richard Lucas
+ */
+public interface ConnectionFactory<K, C> {
+
+    /**
+     * Creates a new connection for the given key.
+     *
+     * @param key
+     *         the connection key
+     * @return a new connected connection.
+     * @throws ProtocolHandlerException
+     *         if the connection can not be established
+     */
+    C create(K key);
+
+    /**
+     * Checks that an idle connection is still usable before it is handed out by the pool.
+     *
+     * @param connection
+     *         the connection to validate
+     * @return true if the connection can be reused, otherwise false.
+     */
+    boolean validate(C connection);
+
+    /**
+     * Disconnects the connection, any failures should be logged and not thrown.
+     *
+     * @param connection
+     *         the connection to destroy
+     */
+    void destroy(C connection);
+}
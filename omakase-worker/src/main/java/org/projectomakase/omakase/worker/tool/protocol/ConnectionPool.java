@@ -0,0 +1,274 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A keyed pool of protocol connections, used by protocol handlers to reuse connections to the same remote server rather than establishing a new
+ * connection for every file.
+ * <p>
+ * Each key has at most maxConnectionsPerKey connections (borrowed and idle), borrowers wait up to maxWaitMillis for a connection to become available.
+ * Idle connections are reused most recently used first, validated before being handed out, and destroyed once they have been idle for longer than
+ * idleTimeoutMillis either lazily on borrow or by calling {@link #evictIdleConnections()}.
+ * </p>
+ * <p>
+ * Borrowing is re-entrant per thread and key, a thread that already holds a connection for a key is given another connection without waiting for the
+ * limit, e.g. a transfer between two directories on the same server. Otherwise the thread would wait for a connection that only it can release and
+ * deadlock once every connection is held by such threads. The number of connections for a key can therefore exceed maxConnectionsPerKey by the number of
+ * nested borrows.
+ * </p>
+ *
+ * @param <K>
+ *         the connection key type
+ * @param <C>
+ *         the connection type
+ * @author Richard Lucas
+ */
+public class ConnectionPool<K, C> implements AutoCloseable {
+
+    private static final org.jboss.logging.Logger LOGGER = org.jboss.logging.Logger.getLogger(ConnectionPool.class);
+
+    private final ConnectionFactory<K, C> connectionFactory;
+    private final int maxConnectionsPerKey;
+    private final long idleTimeoutMillis;
+    private final long maxWaitMillis;
+    private final ConcurrentMap<K, KeyedConnections<C>> connectionsByKey = new ConcurrentHashMap<>();
+
+    public ConnectionPool(ConnectionFactory<K, C> connectionFactory, int maxConnectionsPerKey, long idleTimeoutMillis, long maxWaitMillis) {
+        if (maxConnectionsPerKey < 1) {
+            throw new IllegalArgumentException("maxConnectionsPerKey must be greater than 0");
+        }
+        this.connectionFactory = connectionFactory;
+        this.maxConnectionsPerKey = maxConnectionsPerKey;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Borrows a connection for the given key, reusing a valid idle connection if one is available otherwise creating a new one. The connection must be
+     * returned to the pool using either {@link #release(Object, Object)} or {@link #invalidate(Object, Object)}.
+     *
+     * @param key
+     *         the connection key
+     * @return a connection for the given key.
+     * @throws ProtocolHandlerException
+     *         if a connection does not become available within the max wait time or a new connection can not be created.
+     */
+    public C borrow(K key) {
+        KeyedConnections<C> connections = getConnections(key);
+        Thread borrower = Thread.currentThread();
+        boolean reentrant = connections.borrowsByThread.containsKey(borrower);
+        if (!reentrant) {
+            acquirePermit(key, connections);
+        }
+        try {
+            C connection = pollIdleConnection(connections);
+            if (connection == null) {
+                connection = connectionFactory.create(key);
+            }
+            connections.borrowed.put(connection, new Borrow(borrower, !reentrant));
+            connections.borrowsByThread.merge(borrower, 1, Integer::sum);
+            return connection;
+        } catch (RuntimeException e) {
+            if (!reentrant) {
+                connections.permits.release();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a healthy connection to the pool so that it can be reused.
+     *
+     * @param key
+     *         the key the connection was borrowed with
+     * @param connection
+     *         the connection
+     */
+    public void release(K key, C connection) {
+        KeyedConnections<C> connections = getConnections(key);
+        connections.idle.offerFirst(new IdleConnection<>(connection, System.currentTimeMillis()));
+        returned(connections, connection);
+    }
+
+    /**
+     * Destroys a connection that is broken or in an unknown state, freeing its slot in the pool.
+     *
+     * @param key
+     *         the key the connection was borrowed with
+     * @param connection
+     *         the connection
+     */
+    public void invalidate(K key, C connection) {
+        try {
+            connectionFactory.destroy(connection);
+        } finally {
+            returned(getConnections(key), connection);
+        }
+    }
+
+    /**
+     * Destroys any idle connections that have exceeded the idle timeout.
+     */
+    public void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        connectionsByKey.values().forEach(connections -> {
+            Iterator<IdleConnection<C>> iterator = connections.idle.iterator();
+            while (iterator.hasNext()) {
+                IdleConnection<C> idleConnection = iterator.next();
+                // only destroy the connection if it has not been borrowed in the meantime
+                if (isExpired(idleConnection, now) && connections.idle.removeFirstOccurrence(idleConnection)) {
+                    connectionFactory.destroy(idleConnection.connection);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of idle connections held by the pool for the given key.
+     *
+     * @param key
+     *         the connection key
+     * @return the number of idle connections held by the pool for the given key.
+     */
+    public int getIdleCount(K key) {
+        KeyedConnections<C> connections = connectionsByKey.get(key);
+        return connections == null ? 0 : connections.idle.size();
+    }
+
+    /**
+     * Destroys all of the idle connections, borrowed connections are destroyed when they are invalidated by the borrower.
+     */
+    @Override
+    public void close() {
+        connectionsByKey.values().forEach(connections -> {
+            IdleConnection<C> idleConnection;
+            while ((idleConnection = connections.idle.pollFirst()) != null) {
+                connectionFactory.destroy(idleConnection.connection);
+            }
+        });
+    }
+
+    private KeyedConnections<C> getConnections(K key) {
+        return connectionsByKey.computeIfAbsent(key, k -> new KeyedConnections<>(maxConnectionsPerKey));
+    }
+
+    private void returned(KeyedConnections<C> connections, C connection) {
+        Borrow borrow = connections.borrowed.remove(connection);
+        if (borrow == null) {
+            return;
+        }
+        connections.borrowsByThread.computeIfPresent(borrow.borrower, (borrower, count) -> count == 1 ? null : count - 1);
+        if (borrow.holdsPermit && !transferPermit(connections, borrow.borrower)) {
+            connections.permits.release();
+        }
+    }
+
+    private boolean transferPermit(KeyedConnections<C> connections, Thread borrower) {
+        // the permit stays with the thread until it has returned all of its connections, otherwise its remaining connections would not be counted
+        synchronized (connections.borrowed) {
+            for (Borrow borrow : connections.borrowed.values()) {
+                if (borrow.borrower == borrower && !borrow.holdsPermit) {
+                    borrow.holdsPermit = true;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void acquirePermit(K key, KeyedConnections<C> connections) {
+        try {
+            if (!connections.permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                String message = "Timed out waiting for a connection to " + key + ", the max of " + maxConnectionsPerKey + " connections are in use";
+                throw new ProtocolHandlerException(message, new TimeoutException(message));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProtocolHandlerException("Interrupted waiting for a connection to " + key, e);
+        }
+    }
+
+    private C pollIdleConnection(KeyedConnections<C> connections) {
+        long now = System.currentTimeMillis();
+        IdleConnection<C> idleConnection;
+        while ((idleConnection = connections.idle.pollFirst()) != null) {
+            if (!isExpired(idleConnection, now) && isValid(idleConnection.connection)) {
+                return idleConnection.connection;
+            }
+            connectionFactory.destroy(idleConnection.connection);
+        }
+        return null;
+    }
+
+    private boolean isValid(C connection) {
+        try {
+            return connectionFactory.validate(connection);
+        } catch (Exception e) {
+            LOGGER.debug("Idle connection failed validation", e);
+            return false;
+        }
+    }
+
+    private boolean isExpired(IdleConnection<C> idleConnection, long now) {
+        return now - idleConnection.idleSince > idleTimeoutMillis;
+    }
+
+    private static class KeyedConnections<C> {
+        private final Semaphore permits;
+        private final LinkedBlockingDeque<IdleConnection<C>> idle = new LinkedBlockingDeque<>();
+        private final Map<C, Borrow> borrowed = Collections.synchronizedMap(new IdentityHashMap<>());
+        private final ConcurrentMap<Thread, Integer> borrowsByThread = new ConcurrentHashMap<>();
+
+        KeyedConnections(int maxConnections) {
+            this.permits = new Semaphore(maxConnections, true);
+        }
+    }
+
+    private static class Borrow {
+        private final Thread borrower;
+        private boolean holdsPermit;
+
+        Borrow(Thread borrower, boolean holdsPermit) {
+            this.borrower = borrower;
+            this.holdsPermit = holdsPermit;
+        }
+    }
+
+    private static class IdleConnection<C> {
+        private final C connection;
+        private final long idleSince;
+
+        IdleConnection(C connection, long idleSince) {
+            this.connection = connection;
+            this.idleSince = idleSince;
+        }
+    }
+}
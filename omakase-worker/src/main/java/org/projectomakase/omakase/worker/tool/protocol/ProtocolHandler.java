@@ -67,6 +67,52 @@ public interface ProtocolHandler extends AutoCloseable {
      */
     InputStream openStream() throws IOException;
 
+    /**
+     * Returns true if the protocol handler supports opening ranged streams via {@link #openStream(long, long)}, otherwise false.
+     * <p>
+     * The default implementation returns false.
+     * </p>
+     *
+     * @return true if the protocol handler supports opening ranged streams, otherwise false.
+     */
+    default boolean isRangeSupported() {
+        return false;
+    }
+
+    /**
+     * Returns true if reading multiple ranged streams concurrently is faster than reading them one after another, otherwise false.
+     * <p>
+     * The default implementation returns {@link #isRangeSupported()}.
+     * </p>
+     *
+     * @return true if ranged streams should be read concurrently, otherwise false.
+     */
+    default boolean isConcurrentRangeSupported() {
+        return isRangeSupported();
+    }
+
+    /**
+     * Opens a new {@link java.io.InputStream} for reading the specified range of bytes from the protocol handler URI. This method should return a new,
+     * independent stream each time it is called and must be safe to call concurrently. The caller is responsible for cleaning up the input stream.
+     * <p>
+     * The default implementation throws an {@link UnsupportedOperationException}, callers should check {@link #isRangeSupported()} first.
+     * </p>
+     * <p>
+     * A range with a length of 0 returns an empty stream.
+     * </p>
+     *
+     * @param offset
+     *         the offset of the first byte in the range
+     * @param length
+     *         the number of bytes in the range, must not be negative
+     * @return an input stream that can be used to read the specified range of bytes from the protocol handlers URI
+     * @throws java.io.IOException
+     *         if an I/O error occurs in the process of opening the stream
+     */
+    default InputStream openStream(long offset, long length) throws IOException {
+        throw new UnsupportedOperationException("Ranged reads are not supported by this protocol handler");
+    }
+
     /**
      * Returns the length of the content identified by the protocol handler URI.
      *
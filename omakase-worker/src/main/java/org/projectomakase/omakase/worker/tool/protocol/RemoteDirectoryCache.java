@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.nio.file.Path;
+
+/**
+ * Bounded cache of the directories known to exist on remote servers, used by protocol handlers to avoid checking for, or creating, the same parent
+ * directories for every file uploaded into a directory tree.
+ * <p>
+ * Directories are cached per connection key (e.g. user, server and port) as the relative paths used by the protocol handlers are resolved against the
+ * user's home directory. A cached directory can become stale if it is removed from the server, callers are expected to invalidate the connection's
+ * directories and recreate them if an upload fails because its directory no longer exists.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class RemoteDirectoryCache {
+
+    private final Cache<String, Boolean> cache;
+
+    public RemoteDirectoryCache(long maximumSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Returns true if the directory is known to exist.
+     *
+     * @param connectionKey
+     *         the connection key
+     * @param directory
+     *         the normalized relative directory path
+     * @return true if the directory is known to exist, otherwise false.
+     */
+    public boolean contains(String connectionKey, Path directory) {
+        return cache.getIfPresent(getKey(connectionKey, directory)) != null;
+    }
+
+    /**
+     * Records that the directory, and therefore all of its parent directories, exists.
+     *
+     * @param connectionKey
+     *         the connection key
+     * @param directory
+     *         the normalized relative directory path
+     */
+    public void add(String connectionKey, Path directory) {
+        Path current = directory;
+        while (current != null) {
+            cache.put(getKey(connectionKey, current), Boolean.TRUE);
+            current = current.getParent();
+        }
+    }
+
+    /**
+     * Removes all of the directories cached for the connection key.
+     *
+     * @param connectionKey
+     *         the connection key
+     */
+    public void invalidate(String connectionKey) {
+        String prefix = connectionKey + "|";
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static String getKey(String connectionKey, Path directory) {
+        return connectionKey + "|" + directory.toString();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol.provider.file;
+
+/**
+ * The ways a file can be linked to, rather than copied to, a destination on the same file system.
+ *
+ * @author Richard Lucas
+ */
+public enum FileLinkMode {
+    /**
+     * The file is always copied.
+     */
+    NONE,
+    /**
+     * The destination is created as a hard link to the source, the source and destination share the same data so changes to one are visible in the
+     * other.
+     */
+    HARDLINK,
+    /**
+     * The destination is created as a copy-on-write clone (reflink) of the source, this is only supported by some file systems e.g. Btrfs, XFS and ZFS.
+     */
+    REFLINK
+}
@@ -19,6 +19,7 @@
  */
 package org.projectomakase.omakase.worker.tool.protocol.provider.file;
 
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import org.projectomakase.omakase.worker.tool.protocol.HandleProtocol;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
@@ -30,12 +31,20 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 
 /**
  * {@link ProtocolHandler} implementation that supports the "file" protocol.
+ * <p>
+ * Supports copying directly from another file via {@link #copyFrom(Path, FileLinkMode)}, which copies the file within the kernel using
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} or links the file when requested.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -58,6 +67,24 @@ public class FileProtocolHandler implements ProtocolHandler {
         return new FileInputStream(Paths.get(uri).toFile());
     }
 
+    @Override
+    public boolean isRangeSupported() {
+        return true;
+    }
+
+    @Override
+    public InputStream openStream(long offset, long length) throws IOException {
+        isInitiated();
+        FileChannel fileChannel = FileChannel.open(Paths.get(uri), StandardOpenOption.READ);
+        try {
+            fileChannel.position(offset);
+        } catch (IOException e) {
+            fileChannel.close();
+            throw e;
+        }
+        return ByteStreams.limit(Channels.newInputStream(fileChannel), length);
+    }
+
     @Override
     public long getContentLength() {
         isInitiated();
@@ -80,6 +107,53 @@ public class FileProtocolHandler implements ProtocolHandler {
         }
     }
 
+    /**
+     * Copies the specified file to the protocol handler URI without copying the bytes through user space buffers. If a link mode other than
+     * {@link FileLinkMode#NONE} is specified the destination is linked to the source instead, falling back to a copy if the link can not be created e.g.
+     * because the source and destination are on different file systems.
+     *
+     * @param source
+     *         the path of the file to copy
+     * @param linkMode
+     *         the link mode
+     */
+    public void copyFrom(Path source, FileLinkMode linkMode) {
+        isInitiated();
+        Path destination = getPath();
+        try {
+            Optional.ofNullable(destination.getParent()).ifPresent(parent -> parent.toFile().mkdirs());
+            if (link(source, destination, linkMode)) {
+                return;
+            }
+            try (FileChannel sourceChannel = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel destinationChannel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long size = sourceChannel.size();
+                long position = 0;
+                // transferTo may copy fewer bytes than requested so it is called until the whole file is copied
+                while (position < size) {
+                    long transferred = sourceChannel.transferTo(position, size - position, destinationChannel);
+                    // transferTo returns 0 at or past the end of the source, which means it was truncated during the copy
+                    if (transferred == 0 && position >= sourceChannel.size()) {
+                        throw new IOException("Source " + source + " was truncated to " + sourceChannel.size() + " bytes during the copy, expected " + size);
+                    }
+                    position += transferred;
+                }
+            }
+        } catch (IOException e) {
+            throw new ProtocolHandlerException("Failed to copy to " + uri.toString(), e);
+        }
+    }
+
+    /**
+     * Returns the path identified by the protocol handler URI.
+     *
+     * @return the path identified by the protocol handler URI.
+     */
+    public Path getPath() {
+        isInitiated();
+        return Paths.get(uri);
+    }
+
     @Override
     public void delete() {
         isInitiated();
@@ -95,6 +169,42 @@ public class FileProtocolHandler implements ProtocolHandler {
         }
     }
 
+    private static boolean link(Path source, Path destination, FileLinkMode linkMode) {
+        try {
+            switch (linkMode) {
+                case HARDLINK:
+                    java.nio.file.Files.deleteIfExists(destination);
+                    java.nio.file.Files.createLink(destination, source);
+                    return true;
+                case REFLINK:
+                    return reflink(source, destination);
+                default:
+                    return false;
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.info("Unable to " + linkMode.name().toLowerCase() + " " + source + " to " + destination + ", copying instead. Reason: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean reflink(Path source, Path destination) throws IOException {
+        // Java does not expose reflinks (FICLONE) so GNU cp is used, --reflink=always fails rather than silently falling back to a full copy
+        Process process = new ProcessBuilder("cp", "--reflink=always", source.toString(), destination.toString()).redirectErrorStream(true).start();
+        try (InputStream output = process.getInputStream()) {
+            ByteStreams.copy(output, ByteStreams.nullOutputStream());
+        }
+        try {
+            if (process.waitFor() == 0) {
+                return true;
+            }
+            LOGGER.info("Unable to reflink " + source + " to " + destination + ", copying instead.");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for reflink", e);
+        }
+    }
+
     private static void validateUriScheme(URI uri) {
         if (!"file".equalsIgnoreCase(uri.getScheme())) {
             throw new ProtocolHandlerException(uri.getScheme() + " is not supported by this protocol handler");
@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol.provider.ftp;
+
+import java.util.Objects;
+
+/**
+ * The parameters used to connect to a FTP server, also used as the {@link FtpConnectionPool} key.
+ *
+ * @author Richard Lucas
+ */
+class FtpConnectionParameters {
+    private final String server;
+    private final int port;
+    private final String user;
+    private final String password;
+    private final boolean isPassive;
+
+    FtpConnectionParameters(String server, int port, String user, String password, boolean isPassive) {
+        this.server = server;
+        this.port = port;
+        this.user = user;
+        this.password = password;
+        this.isPassive = isPassive;
+    }
+
+    public String getServer() {
+        return server;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public boolean isPassive() {
+        return isPassive;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FtpConnectionParameters that = (FtpConnectionParameters) o;
+        return port == that.port && isPassive == that.isPassive && Objects.equals(server, that.server) && Objects.equals(user, that.user) &&
+                Objects.equals(password, that.password);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(server, port, user, password, isPassive);
+    }
+
+    @Override
+    public String toString() {
+        return "ftp://" + user + "@" + server + ":" + port;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol.provider.ftp;
+
+import org.projectomakase.omakase.worker.tool.protocol.ConnectionFactory;
+import org.projectomakase.omakase.worker.tool.protocol.ConnectionPool;
+import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerException;
+import org.projectomakase.omakase.worker.tool.protocol.RemoteDirectoryCache;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker wide pool of logged in FTP control connections keyed by server, port, credentials and passive mode.
+ * <p>
+ * Idle connections are validated with a NOOP command before they are reused.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@ApplicationScoped
+public class FtpConnectionPool implements ConnectionFactory<FtpConnectionParameters, FTPClient> {
+
+    private static final org.jboss.logging.Logger LOGGER = org.jboss.logging.Logger.getLogger(FtpConnectionPool.class);
+
+    @Inject
+    @ConfigProperty(name = "protocol.pool.max.connections.per.host", defaultValue = "4")
+    int maxConnectionsPerHost;
+    @Inject
+    @ConfigProperty(name = "protocol.pool.idle.timeout.secs", defaultValue = "60")
+    long idleTimeoutSecs;
+    @Inject
+    @ConfigProperty(name = "protocol.pool.max.wait.secs", defaultValue = "300")
+    long maxWaitSecs;
+    @Inject
+    @ConfigProperty(name = "protocol.directory.cache.size", defaultValue = "10000")
+    long directoryCacheSize;
+
+    private ConnectionPool<FtpConnectionParameters, FTPClient> connectionPool;
+    private ScheduledExecutorService evictionExecutor;
+    private RemoteDirectoryCache directoryCache;
+
+    @PostConstruct
+    public void init() {
+        connectionPool = new ConnectionPool<>(this, maxConnectionsPerHost, TimeUnit.SECONDS.toMillis(idleTimeoutSecs), TimeUnit.SECONDS.toMillis(maxWaitSecs));
+        directoryCache = new RemoteDirectoryCache(directoryCacheSize);
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ftp-connection-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictionExecutor.scheduleWithFixedDelay(connectionPool::evictIdleConnections, idleTimeoutSecs, idleTimeoutSecs, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        evictionExecutor.shutdownNow();
+        connectionPool.close();
+    }
+
+    RemoteDirectoryCache getDirectoryCache() {
+        return directoryCache;
+    }
+
+    FTPClient borrow(FtpConnectionParameters parameters) {
+        return connectionPool.borrow(parameters);
+    }
+
+    void release(FtpConnectionParameters parameters, FTPClient ftpClient) {
+        connectionPool.release(parameters, ftpClient);
+    }
+
+    void invalidate(FtpConnectionParameters parameters, FTPClient ftpClient) {
+        connectionPool.invalidate(parameters, ftpClient);
+    }
+
+    @Override
+    public FTPClient create(FtpConnectionParameters parameters) {
+        return connect(parameters);
+    }
+
+    @Override
+    public boolean validate(FTPClient ftpClient) {
+        try {
+            return ftpClient.isConnected() && ftpClient.sendNoOp();
+        } catch (IOException e) {
+            LOGGER.debug("Pooled FTP connection is no longer usable", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy(FTPClient ftpClient) {
+        disconnect(ftpClient);
+    }
+
+    static FTPClient connect(FtpConnectionParameters param) {
+        FTPClient ftpClient = new FTPClient();
+        try {
+            ftpClient.setBufferSize(0);
+            ftpClient.connect(param.getServer(), param.getPort());
+            LOGGER.debug(ftpClient.getReplyString());
+            ftpClient.login(param.getUser(), param.getPassword());
+            ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+
+            if (param.isPassive()) {
+                ftpClient.enterLocalPassiveMode();
+            }
+            return ftpClient;
+        } catch (IOException e) {
+            LOGGER.error(e.getMessage(), e);
+            throw new ProtocolHandlerException("FTPIllegalReplyException: " + e.getMessage(), e.getCause());
+        }
+    }
+
+    static void disconnect(FTPClient ftpClient) {
+        try {
+            if (ftpClient.isConnected()) {
+                ftpClient.logout();
+                ftpClient.disconnect();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to close connection", e);
+        }
+    }
+}
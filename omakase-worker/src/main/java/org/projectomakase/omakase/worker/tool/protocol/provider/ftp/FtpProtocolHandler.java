@@ -21,23 +21,32 @@ package org.projectomakase.omakase.worker.tool.protocol.provider.ftp;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Strings;
-import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.worker.tool.protocol.HandleProtocol;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerException;
-import org.apache.commons.net.ftp.FTP;
+import org.projectomakase.omakase.worker.tool.protocol.RemoteDirectoryCache;
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPReply;
 
+import javax.inject.Inject;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.StreamSupport;
 
 /**
  * {@link ProtocolHandler} implementation that supports the "ftp" protocol.
+ * <p>
+ * Connections are borrowed from the worker wide {@link FtpConnectionPool} when it is available and returned to it on close, unless the connection was
+ * left in an unknown state, e.g. a failed transfer, a stream that was not closed before the handler or a changed working directory, in which case it
+ * is disconnected.
+ * </p>
+ * <p>
+ * Remote directories that are known to exist are cached so that uploading many files into the same directory tree only creates each directory once.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -45,10 +54,18 @@ import java.util.stream.StreamSupport;
 public class FtpProtocolHandler implements ProtocolHandler {
 
     private static final org.jboss.logging.Logger LOGGER = org.jboss.logging.Logger.getLogger(FtpProtocolHandler.class);
+    private static final long LOCAL_DIRECTORY_CACHE_SIZE = 100;
+
+    @Inject
+    FtpConnectionPool connectionPool;
 
     private URI uri;
+    private FtpConnectionParameters connectionParameters;
+    private RemoteDirectoryCache directoryCache;
     private FTPClient ftpClient;
     private boolean isOpenStream;
+    private boolean isStreamClosed;
+    private boolean reusable;
 
     @Override
     public void init(URI uri) {
@@ -63,10 +80,18 @@ public class FtpProtocolHandler implements ProtocolHandler {
         InputStream inputStream = ftpClient.retrieveFileStream(getPathFromUri(uri));
         if (inputStream != null) {
             isOpenStream = true;
+            isStreamClosed = false;
         } else {
+            reusable = false;
             throw new ProtocolHandlerException("Failed to open stream for " + uri.toString() + ". " + CharMatcher.BREAKING_WHITESPACE.trimTrailingFrom(ftpClient.getReplyString()));
         }
-        return inputStream;
+        return new FilterInputStream(inputStream) {
+            @Override
+            public void close() throws IOException {
+                isStreamClosed = true;
+                super.close();
+            }
+        };
     }
 
     /**
@@ -99,20 +124,24 @@ public class FtpProtocolHandler implements ProtocolHandler {
     public void copyTo(InputStream from, long contentLength) {
         isInitiated();
         try {
-            String currentDir = ftpClient.printWorkingDirectory();
             Path filePath = Paths.get(getPathFromUri(uri));
-            StreamSupport.stream(filePath.spliterator(), false).limit(filePath.getNameCount() - 1L).forEach(path -> {
-                Throwables.returnableInstance(() -> ftpClient.makeDirectory(path.toString()));
-                Throwables.returnableInstance(() -> ftpClient.changeWorkingDirectory(path.toString()));
-            });
-
-            ftpClient.changeWorkingDirectory(currentDir);
-            if (!ftpClient.storeFile(filePath.toString(), from)) {
+            Path directory = filePath.normalize().getParent();
+            createDirectories(directory);
+            boolean stored = ftpClient.storeFile(filePath.toString(), from);
+            // the file is rejected before any content is read so it is safe to retry if a cached directory has been removed
+            if (!stored && directory != null && ftpClient.getReplyCode() == FTPReply.FILE_UNAVAILABLE) {
+                directoryCache.invalidate(connectionParameters.toString());
+                createDirectories(directory);
+                stored = ftpClient.storeFile(filePath.toString(), from);
+            }
+            if (!stored) {
+                reusable = false;
                 throw new ProtocolHandlerException("Unable to transfer file to ftp location.  Status code:" + ftpClient.getReplyCode() + "  Reason:" + ftpClient.getReplyString());
             }
         } catch(ProtocolHandlerException phe) {
             throw phe;
         } catch (Exception e) {
+            reusable = false;
             throw new ProtocolHandlerException("Failed to copy to " + uri.toString(), e);
         }
     }
@@ -134,19 +163,31 @@ public class FtpProtocolHandler implements ProtocolHandler {
 
     @Override
     public void close() {
+        if (isOpenStream && !isStreamClosed) {
+            // the transfer is still in progress, completing it would block until the remaining data has been sent so the connection is discarded
+            reusable = false;
+        }
         try {
-            if (ftpClient != null && ftpClient.isConnected()) {
-                if (isOpenStream) {
-                    ftpClient.completePendingCommand();
-                }
-                ftpClient.logout();
-                ftpClient.disconnect();
+            if (ftpClient != null && ftpClient.isConnected() && isOpenStream && isStreamClosed && !ftpClient.completePendingCommand()) {
+                reusable = false;
             }
-            uri = null;
-            isOpenStream = false;
         } catch (IOException e) {
-            LOGGER.error("Failed to close connection", e);
+            reusable = false;
+            LOGGER.error("Failed to complete pending command", e);
         }
+        if (ftpClient != null) {
+            if (connectionPool == null) {
+                FtpConnectionPool.disconnect(ftpClient);
+            } else if (reusable && ftpClient.isConnected()) {
+                connectionPool.release(connectionParameters, ftpClient);
+            } else {
+                connectionPool.invalidate(connectionParameters, ftpClient);
+            }
+        }
+        ftpClient = null;
+        uri = null;
+        isOpenStream = false;
+        isStreamClosed = false;
     }
 
     private void isInitiated() {
@@ -187,22 +228,44 @@ public class FtpProtocolHandler implements ProtocolHandler {
     }
 
     private void connect(FtpConnectionParameters param) {
-        ftpClient = new FTPClient();
-        try {
-            ftpClient.setBufferSize(0);
-            ftpClient.connect(param.getServer(), param.getPort());
-            LOGGER.debug(ftpClient.getReplyString());
-            ftpClient.login(param.getUser(), param.getPassword());
-            ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
+        connectionParameters = param;
+        if (connectionPool == null) {
+            ftpClient = FtpConnectionPool.connect(param);
+            directoryCache = new RemoteDirectoryCache(LOCAL_DIRECTORY_CACHE_SIZE);
+        } else {
+            ftpClient = connectionPool.borrow(param);
+            directoryCache = connectionPool.getDirectoryCache();
+        }
+        reusable = true;
+    }
 
-            if (param.isPassive()) {
-                ftpClient.enterLocalPassiveMode();
-            }
+    /**
+     * Creates the directory and any missing parent directories, each directory that is not known to exist is created with a single MKD command.
+     */
+    private void createDirectories(Path directory) throws IOException {
+        String connectionKey = connectionParameters.toString();
+        if (directory == null || directoryCache.contains(connectionKey, directory)) {
+            return;
+        }
+        createDirectories(directory.getParent());
+        // MKD fails if the directory already exists, only check for the directory in that case
+        if (ftpClient.makeDirectory(directory.toString()) || isDirectory(directory)) {
+            directoryCache.add(connectionKey, directory);
+        }
+    }
 
-        } catch (IOException e) {
-            LOGGER.error(e.getMessage(), e);
-            throw new ProtocolHandlerException("FTPIllegalReplyException: " + e.getMessage(), e.getCause());
+    private boolean isDirectory(Path directory) throws IOException {
+        String currentDir = ftpClient.printWorkingDirectory();
+        if (ftpClient.changeWorkingDirectory(directory.toString())) {
+            if (currentDir == null || !ftpClient.changeWorkingDirectory(currentDir)) {
+                // relative paths would resolve against the wrong directory for this and any later user of the connection
+                reusable = false;
+                throw new ProtocolHandlerException("Failed to restore working directory after checking " + directory + ". " +
+                        CharMatcher.BREAKING_WHITESPACE.trimTrailingFrom(ftpClient.getReplyString()));
+            }
+            return true;
         }
+        return false;
     }
 
     private static String getPathFromUri(URI uri) {
@@ -218,40 +281,4 @@ public class FtpProtocolHandler implements ProtocolHandler {
             throw new ProtocolHandlerException(uri.getScheme() + " is not supported by this protocol handler");
         }
     }
-
-    private static class FtpConnectionParameters {
-        private final String server;
-        private final int port;
-        private final String user;
-        private final String password;
-        private final boolean isPassive;
-
-        public FtpConnectionParameters(String server, int port, String user, String password, boolean isPassive) {
-            this.server = server;
-            this.port = port;
-            this.user = user;
-            this.password = password;
-            this.isPassive = isPassive;
-        }
-
-        public String getServer() {
-            return server;
-        }
-
-        public int getPort() {
-            return port;
-        }
-
-        public String getUser() {
-            return user;
-        }
-
-        public String getPassword() {
-            return password;
-        }
-
-        public boolean isPassive() {
-            return isPassive;
-        }
-    }
 }
@@ -23,6 +23,7 @@ import org.projectomakase.omakase.worker.Omakase;
 import org.projectomakase.omakase.worker.tool.protocol.HandleProtocol;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerException;
+import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -31,10 +32,13 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * {@link ProtocolHandler} implementation that supports the "http" protocol.
  * <p>
@@ -69,6 +73,37 @@ public class HttpProtocolHandler implements ProtocolHandler {
         return response.getEntity().getContent();
     }
 
+    @Override
+    public boolean isRangeSupported() {
+        isInitiated();
+        try {
+            HttpHead request = new HttpHead(uri);
+            HttpResponse response = httpClient.execute(request);
+            Header acceptRanges = response.getLastHeader(HttpHeaders.ACCEPT_RANGES);
+            return HttpStatus.SC_OK == response.getStatusLine().getStatusCode() && acceptRanges != null && "bytes".equalsIgnoreCase(acceptRanges.getValue());
+        } catch (IOException e) {
+            throw new ProtocolHandlerException("Unable to determine if range requests are supported for URI " + uri, e);
+        }
+    }
+
+    @Override
+    public InputStream openStream(long offset, long length) throws IOException {
+        isInitiated();
+        checkArgument(length >= 0, "Invalid range length " + length);
+        if (length == 0) {
+            // an empty range can not be expressed as a byte range header
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        HttpGet request = new HttpGet(uri);
+        request.setHeader(HttpHeaders.RANGE, "bytes=" + offset + "-" + (offset + length - 1));
+        HttpResponse response = httpClient.execute(request);
+        if (HttpStatus.SC_PARTIAL_CONTENT != response.getStatusLine().getStatusCode()) {
+            request.abort();
+            throw new ProtocolHandlerException("An error occurred requesting range " + offset + "-" + (offset + length - 1) + " from uri " + uri);
+        }
+        return response.getEntity().getContent();
+    }
+
     @Override
     public long getContentLength() {
         isInitiated();
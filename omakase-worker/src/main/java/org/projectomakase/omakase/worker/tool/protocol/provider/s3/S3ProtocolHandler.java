@@ -24,7 +24,9 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteStreams;
 import org.projectomakase.omakase.commons.aws.AWSClients;
+import org.projectomakase.omakase.commons.aws.AWSUploadPart;
 import org.projectomakase.omakase.commons.aws.s3.S3Client;
+import org.projectomakase.omakase.commons.aws.s3.S3Part;
 import org.projectomakase.omakase.commons.aws.s3.S3Upload;
 import org.projectomakase.omakase.commons.hash.ByteRange;
 import org.projectomakase.omakase.commons.hash.Hash;
@@ -39,21 +41,32 @@ import org.apache.deltaspike.core.api.config.ConfigProperty;
 
 import javax.inject.Inject;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * S3 Protocol Handler.
+ * <p>
+ * Content that is no larger than the configured buffer size is uploaded as a single object, larger content or content of an unknown length is streamed
+ * to S3 as a multipart upload with each part read into a single reusable buffer. The part size grows with the content length so that the upload never
+ * needs more than the 10,000 parts allowed by S3, content of an unknown length is uploaded in parts of the buffer size.
+ * </p>
  *
  * @author Richard Lucas
  */
 @HandleProtocol("s3")
 public class S3ProtocolHandler implements ProtocolHandler {
 
+    // S3 requires every part except the last part of a multipart upload to be at least 5MB
+    private static final int MIN_PART_SIZE = 5242880;
+    // S3 allows at most 10,000 parts in a multipart upload
+    private static final int MAX_PARTS = 10000;
+
     private URI uri;
     private AWSCredentials awsCredentials;
     private String region;
@@ -84,27 +97,32 @@ public class S3ProtocolHandler implements ProtocolHandler {
     }
 
     @Override
-    public long getContentLength() {
-        return s3Client.getObjectLength(awsCredentials, region, bucket, key);
+    public boolean isRangeSupported() {
+        return true;
     }
 
     @Override
-    public void copyTo(InputStream from, long contentLength) {
-        if (contentLength > bufferSize) {
-            throw new ProtocolHandlerException("The content length " + contentLength + " is greater than the configured buffer size " + bufferSize);
+    public InputStream openStream(long offset, long length) throws IOException {
+        checkArgument(length >= 0, "Invalid range length " + length);
+        if (length == 0) {
+            // S3 ignores an invalid range and returns the whole object, so an empty range is never requested
+            return new ByteArrayInputStream(new byte[0]);
         }
-        byte[] inMemoryBuffer = copyToBuffer(from);
+        return s3Client.getObject(awsCredentials, region, bucket, key, offset, length);
+    }
 
-        List<Hash> hashes = generateHashes(contentLength, inMemoryBuffer);
-        Hash sha256 = getHash(hashes, Hashes.SHA256);
-        Hash md5Base64 = getHash(hashes, Hashes.MD5_BASE64);
+    @Override
+    public long getContentLength() {
+        return s3Client.getObjectLength(awsCredentials, region, bucket, key);
+    }
 
+    @Override
+    public void copyTo(InputStream from, long contentLength) {
         S3Upload s3Upload = AWSClients.s3UploadFromURI(uri);
-
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(inMemoryBuffer)) {
-            s3Client.uploadObject(s3Upload, originalFileName.orElse(null), sha256.getValue(), md5Base64.getValue(), contentLength, byteArrayInputStream);
-        } catch (IOException e) {
-            throw new ProtocolHandlerException("Failed to copy to S3", e);
+        if (contentLength >= 0 && contentLength <= bufferSize) {
+            copyToObject(from, (int) contentLength, s3Upload);
+        } else {
+            copyToMultipartUpload(from, getPartSize(contentLength), s3Upload);
         }
     }
 
@@ -117,13 +135,58 @@ public class S3ProtocolHandler implements ProtocolHandler {
         return hashes.stream().filter(hash -> hash.getAlgorithm().equals(algorithm)).findFirst().orElseThrow(() -> new ProtocolHandlerException("Failed to generate" + algorithm + " hash"));
     }
 
+    /**
+     * Returns the size of the parts used to upload content of the given length. Parts are never smaller than the buffer size or the S3 minimum part size
+     * and are large enough for the content to fit in the maximum number of parts.
+     *
+     * @param contentLength
+     *         the content length, or -1 if it is unknown
+     * @return the part size
+     */
+    int getPartSize(long contentLength) {
+        long partSize = Math.max(bufferSize, MIN_PART_SIZE);
+        if (contentLength > 0) {
+            partSize = Math.max(partSize, (contentLength + MAX_PARTS - 1) / MAX_PARTS);
+        }
+        return Math.toIntExact(partSize);
+    }
+
+    private void copyToObject(InputStream from, int contentLength, S3Upload s3Upload) {
+        try {
+            byte[] buffer = new byte[contentLength];
+            int length = ByteStreams.read(from, buffer, 0, buffer.length);
+
+            List<Hash> hashes = generateHashes(buffer, length);
+            Hash sha256 = getHash(hashes, Hashes.SHA256);
+            Hash md5Base64 = getHash(hashes, Hashes.MD5_BASE64);
 
-    private static byte[] copyToBuffer(InputStream from) {
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ByteStreams.copy(from, outputStream);
-            return outputStream.toByteArray();
+            s3Client.uploadObject(s3Upload, originalFileName.orElse(null), sha256.getValue(), md5Base64.getValue(), length, new ByteArrayInputStream(buffer, 0, length));
         } catch (IOException e) {
-            throw new ProtocolHandlerException("Failed to copy to buffer", e);
+            throw new ProtocolHandlerException("Failed to copy to S3", e);
+        }
+    }
+
+    private void copyToMultipartUpload(InputStream from, int partSize, S3Upload s3Upload) {
+        String uploadId = s3Client.initiateMultipartUpload(s3Upload, originalFileName.orElse(null));
+        S3Upload multipartUpload =
+                new S3Upload(s3Upload.getAwsCredentials(), s3Upload.getHost(), s3Upload.getRegion(), s3Upload.getEndpoint(), s3Upload.getBucket(), s3Upload.getKey(), uploadId);
+        try {
+            // a single part buffer is reused for every part so the heap used by the copy is bounded by the part size regardless of the content length
+            byte[] buffer = new byte[partSize];
+            ImmutableList.Builder<S3Part> s3Parts = ImmutableList.builder();
+            long offset = 0;
+            int partNumber = 0;
+            int length;
+            while ((length = ByteStreams.read(from, buffer, 0, buffer.length)) > 0) {
+                List<Hash> hashes = generateHashes(buffer, length);
+                AWSUploadPart uploadPart = new AWSUploadPart(partNumber++, offset, offset + length, getHash(hashes, Hashes.SHA256).getValue(), getHash(hashes, Hashes.MD5_BASE64).getValue());
+                s3Parts.add(s3Client.uploadMultipartPart(multipartUpload, uploadPart, length, new ByteArrayInputStream(buffer, 0, length)));
+                offset += length;
+            }
+            s3Client.completeMultipartUpload(multipartUpload, s3Parts.build());
+        } catch (IOException | RuntimeException e) {
+            s3Client.abortMultipartUpload(multipartUpload);
+            throw new ProtocolHandlerException("Failed to copy to S3", e);
         }
     }
 
@@ -131,13 +194,12 @@ public class S3ProtocolHandler implements ProtocolHandler {
         return Hashes.getHashStrategy(algorithm, new ByteRange(0, contentLength - 1));
     }
 
-    private static List<Hash> generateHashes(long contentLength, byte[] inMemoryBuffer) {
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(inMemoryBuffer)) {
-            List<HashStrategy> hashStrategies = ImmutableList.of(getHashStrategy(Hashes.SHA256, contentLength), getHashStrategy(Hashes.MD5_BASE64, contentLength));
+    private static List<Hash> generateHashes(byte[] buffer, int length) {
+        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(buffer, 0, length)) {
+            List<HashStrategy> hashStrategies = ImmutableList.of(getHashStrategy(Hashes.SHA256, length), getHashStrategy(Hashes.MD5_BASE64, length));
             return ByteStreams.readBytes(byteArrayInputStream, new HashByteProcessor(hashStrategies));
         } catch (IOException e) {
             throw new ProtocolHandlerException("Failed to generate hash values", e);
         }
     }
 }
-
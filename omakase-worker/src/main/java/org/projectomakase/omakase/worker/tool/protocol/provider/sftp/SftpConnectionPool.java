@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol.provider.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpException;
+import org.projectomakase.omakase.worker.tool.protocol.ConnectionFactory;
+import org.projectomakase.omakase.worker.tool.protocol.ConnectionPool;
+import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerException;
+import org.projectomakase.omakase.worker.tool.protocol.RemoteDirectoryCache;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker wide pool of SFTP channels keyed by server, port and credentials.
+ * <p>
+ * Each pooled channel owns its SSH session, so borrowing an idle channel avoids the SSH handshake and authentication. Idle channels are validated by
+ * changing back to the user's home directory, which also resets any working directory changes made by the previous borrower.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@ApplicationScoped
+public class SftpConnectionPool implements ConnectionFactory<SftpConnectionParameters, ChannelSftp> {
+
+    private static final org.jboss.logging.Logger LOGGER = org.jboss.logging.Logger.getLogger(SftpConnectionPool.class);
+
+    @Inject
+    @ConfigProperty(name = "protocol.pool.max.connections.per.host", defaultValue = "4")
+    int maxConnectionsPerHost;
+    @Inject
+    @ConfigProperty(name = "protocol.pool.idle.timeout.secs", defaultValue = "60")
+    long idleTimeoutSecs;
+    @Inject
+    @ConfigProperty(name = "protocol.pool.max.wait.secs", defaultValue = "300")
+    long maxWaitSecs;
+    @Inject
+    @ConfigProperty(name = "protocol.directory.cache.size", defaultValue = "10000")
+    long directoryCacheSize;
+
+    private ConnectionPool<SftpConnectionParameters, ChannelSftp> connectionPool;
+    private ScheduledExecutorService evictionExecutor;
+    private RemoteDirectoryCache directoryCache;
+
+    @PostConstruct
+    public void init() {
+        connectionPool = new ConnectionPool<>(this, maxConnectionsPerHost, TimeUnit.SECONDS.toMillis(idleTimeoutSecs), TimeUnit.SECONDS.toMillis(maxWaitSecs));
+        directoryCache = new RemoteDirectoryCache(directoryCacheSize);
+        evictionExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sftp-connection-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictionExecutor.scheduleWithFixedDelay(connectionPool::evictIdleConnections, idleTimeoutSecs, idleTimeoutSecs, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        evictionExecutor.shutdownNow();
+        connectionPool.close();
+    }
+
+    RemoteDirectoryCache getDirectoryCache() {
+        return directoryCache;
+    }
+
+    ChannelSftp borrow(SftpConnectionParameters parameters) {
+        return connectionPool.borrow(parameters);
+    }
+
+    void release(SftpConnectionParameters parameters, ChannelSftp channel) {
+        connectionPool.release(parameters, channel);
+    }
+
+    void invalidate(SftpConnectionParameters parameters, ChannelSftp channel) {
+        connectionPool.invalidate(parameters, channel);
+    }
+
+    @Override
+    public ChannelSftp create(SftpConnectionParameters parameters) {
+        return connect(parameters);
+    }
+
+    @Override
+    public boolean validate(ChannelSftp channel) {
+        try {
+            if (!channel.isConnected() || !channel.getSession().isConnected()) {
+                return false;
+            }
+            channel.cd(channel.getHome());
+            return true;
+        } catch (JSchException | SftpException e) {
+            LOGGER.debug("Pooled SFTP channel is no longer usable", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void destroy(ChannelSftp channel) {
+        disconnect(channel);
+    }
+
+    static ChannelSftp connect(SftpConnectionParameters parameters) {
+        try {
+            JSch jsch = new JSch();
+            Session session = jsch.getSession(parameters.getUser(), parameters.getServer(), parameters.getPort());
+            session.setConfig("StrictHostKeyChecking", "no");
+            session.setPassword(parameters.getPassword());
+            session.connect();
+            ChannelSftp channel = (ChannelSftp) session.openChannel("sftp");
+            channel.connect();
+            return channel;
+        } catch (JSchException jse) {
+            LOGGER.error(jse.getMessage(), jse);
+            throw new ProtocolHandlerException(jse);
+        }
+    }
+
+    static void disconnect(ChannelSftp channel) {
+        try {
+            Session session = channel.getSession();
+            if (channel.isConnected()) {
+                channel.exit();
+            }
+            if (session != null && session.isConnected()) {
+                session.disconnect();
+            }
+        } catch (JSchException jse) {
+            LOGGER.error(jse.getMessage(), jse);
+        }
+    }
+}
@@ -20,26 +20,34 @@
 package org.projectomakase.omakase.worker.tool.protocol.provider.sftp;
 
 import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
 import com.jcraft.jsch.ChannelSftp;
-import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
 import com.jcraft.jsch.SftpException;
-import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.worker.tool.protocol.HandleProtocol;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandler;
 import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerException;
+import org.projectomakase.omakase.worker.tool.protocol.RemoteDirectoryCache;
 
+import javax.inject.Inject;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.StreamSupport;
 
 /**
- * {@link ProtocolHandler} implementation that supports the "ftp" protocol.
+ * {@link ProtocolHandler} implementation that supports the "sftp" protocol.
+ * <p>
+ * Channels are borrowed from the worker wide {@link SftpConnectionPool} when it is available and returned to it on close, unless the channel was left in
+ * an unknown state, e.g. a failed transfer, an unclosed stream or a changed working directory, in which case it is disconnected.
+ * </p>
+ * <p>
+ * Remote directories that are known to exist are cached so that uploading many files into the same directory tree only checks for, or creates, each
+ * directory once.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -47,9 +55,17 @@ import java.util.stream.StreamSupport;
 public class SftpProtocolHandler implements ProtocolHandler {
 
     private static final org.jboss.logging.Logger LOGGER = org.jboss.logging.Logger.getLogger(SftpProtocolHandler.class);
+    private static final long LOCAL_DIRECTORY_CACHE_SIZE = 100;
+
+    @Inject
+    SftpConnectionPool connectionPool;
 
     private URI uri;
+    private SftpConnectionParameters connectionParameters;
+    private RemoteDirectoryCache directoryCache;
     private ChannelSftp channel;
+    private boolean reusable;
+    private boolean isOpenStream;
 
     @Override
     public void init(URI uri) {
@@ -62,8 +78,65 @@ public class SftpProtocolHandler implements ProtocolHandler {
     public InputStream openStream() {
         try {
             isInitiated();
-            return channel.get(getPathFromUri(uri));
+            InputStream inputStream = channel.get(getPathFromUri(uri));
+            isOpenStream = true;
+            return new FilterInputStream(inputStream) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    isOpenStream = false;
+                }
+            };
         } catch (SftpException e) {
+            reusable = false;
+            LOGGER.error(e.getMessage(), e);
+            throw new ProtocolHandlerException(e);
+        }
+    }
+
+    @Override
+    public boolean isRangeSupported() {
+        return true;
+    }
+
+    /**
+     * Ranges are read on channels of the same SSH session, which share a single TCP connection and are limited by the server's maximum number of channels
+     * per session, so reading them concurrently is no faster than reading them one after another.
+     *
+     * @return false
+     */
+    @Override
+    public boolean isConcurrentRangeSupported() {
+        return false;
+    }
+
+    /**
+     * Opens the range on a new channel of the existing session, allowing a range to be read while another stream is open. The channel is disconnected when
+     * the stream is closed.
+     */
+    @Override
+    public InputStream openStream(long offset, long length) {
+        isInitiated();
+        try {
+            ChannelSftp rangeChannel = (ChannelSftp) channel.getSession().openChannel("sftp");
+            rangeChannel.connect();
+            try {
+                InputStream inputStream = rangeChannel.get(getPathFromUri(uri), null, offset);
+                return ByteStreams.limit(new FilterInputStream(inputStream) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            rangeChannel.disconnect();
+                        }
+                    }
+                }, length);
+            } catch (SftpException e) {
+                rangeChannel.disconnect();
+                throw e;
+            }
+        } catch (JSchException | SftpException e) {
             LOGGER.error(e.getMessage(), e);
             throw new ProtocolHandlerException(e);
         }
@@ -95,12 +168,21 @@ public class SftpProtocolHandler implements ProtocolHandler {
     public void copyTo(InputStream from, long contentLength) {
         isInitiated();
         try {
-            String currentDir = channel.pwd();
-            Path filePath = Paths.get(getPathFromUri(uri)).normalize();
-            StreamSupport.stream(filePath.spliterator(), false).limit(filePath.getNameCount() - 1L).forEach(path -> Throwables.voidInstance(() -> createDirectory(path)));
-            channel.cd(currentDir);
-            channel.put(from, getPathFromUri(uri));
+            Path directory = Paths.get(getPathFromUri(uri)).normalize().getParent();
+            createDirectories(directory);
+            try {
+                channel.put(from, getPathFromUri(uri));
+            } catch (SftpException e) {
+                // the file is opened before any content is read so it is safe to retry if a cached directory has been removed
+                if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE || directory == null) {
+                    throw e;
+                }
+                directoryCache.invalidate(connectionParameters.toString());
+                createDirectories(directory);
+                channel.put(from, getPathFromUri(uri));
+            }
         } catch (Exception e) {
+            reusable = false;
             throw new ProtocolHandlerException("Failed to copy to " + uri.toString(), e);
         }
     }
@@ -160,83 +242,91 @@ public class SftpProtocolHandler implements ProtocolHandler {
     }
 
     private void connect(SftpConnectionParameters param) {
-        try {
-            JSch jsch = new JSch();
-            Session session = jsch.getSession(param.getUser(), param.getServer(), param.getPort());
-            session.setConfig("StrictHostKeyChecking", "no");
-            session.setPassword(param.getPassword());
-            session.connect();
-            channel = null;
-            channel = (ChannelSftp) session.openChannel("sftp");
-            channel.connect();
-        } catch (JSchException jse) {
-            LOGGER.error(jse.getMessage(), jse);
-            throw new ProtocolHandlerException(jse);
+        connectionParameters = param;
+        channel = null;
+        if (connectionPool == null) {
+            channel = SftpConnectionPool.connect(param);
+            directoryCache = new RemoteDirectoryCache(LOCAL_DIRECTORY_CACHE_SIZE);
+        } else {
+            channel = connectionPool.borrow(param);
+            directoryCache = connectionPool.getDirectoryCache();
         }
+        reusable = true;
     }
 
     private void disconnect() {
+        if (channel == null) {
+            return;
+        }
         try {
-            if (channel != null && channel.isConnected()) {
-                channel.exit();
-                Session session = channel.getSession();
-                if (session != null && session.isConnected()) {
-                    channel.getSession().disconnect();
-                }
+            if (connectionPool == null) {
+                SftpConnectionPool.disconnect(channel);
+            } else if (reusable && !isOpenStream && isInHomeDirectory()) {
+                connectionPool.release(connectionParameters, channel);
+            } else {
+                connectionPool.invalidate(connectionParameters, channel);
             }
-        } catch (JSchException jse) {
-            LOGGER.error(jse.getMessage(), jse);
-            throw new ProtocolHandlerException(jse);
-        }
-    }
-
-    @SuppressWarnings("unchecked")
-    private void createDirectory(Path path) throws SftpException {
-        List files = channel.ls(channel.pwd());
-        Optional entry = files.stream().filter(file -> ((ChannelSftp.LsEntry) file).getFilename().equals(path.toString())).findFirst();
-        if (entry.isPresent()) {
-            channel.cd(path.toString());
-        } else {
-            channel.mkdir(path.toString());
-            channel.cd(path.toString());
+        } finally {
+            channel = null;
+            isOpenStream = false;
         }
     }
 
-    private static String getPathFromUri(URI uri) {
-        String path = uri.getPath();
-        if (Strings.isNullOrEmpty(path)) {
-            throw new ProtocolHandlerException("URI is missing required path");
+    private boolean isInHomeDirectory() {
+        try {
+            return channel.pwd().equals(channel.getHome());
+        } catch (SftpException e) {
+            LOGGER.debug("Unable to determine the working directory of the channel", e);
+            return false;
         }
-        return "./" + path;
     }
 
-    private static class SftpConnectionParameters {
-        private final String server;
-        private final int port;
-        private final String user;
-        private final String password;
-
-        public SftpConnectionParameters(String server, int port, String user, String password) {
-            this.server = server;
-            this.port = port;
-            this.user = user;
-            this.password = password;
+    /**
+     * Creates the directory and any missing parent directories. A directory whose parent is known to exist is created directly, otherwise the directory is
+     * checked with a stat and only its missing parents are created.
+     */
+    private void createDirectories(Path directory) throws SftpException {
+        String connectionKey = connectionParameters.toString();
+        if (directory == null || directoryCache.contains(connectionKey, directory)) {
+            return;
         }
-
-        public String getServer() {
-            return server;
+        Path parent = directory.getParent();
+        if (parent == null || directoryCache.contains(connectionKey, parent)) {
+            mkdir(directory);
+        } else if (!isDirectory(directory)) {
+            createDirectories(parent);
+            mkdir(directory);
         }
+        directoryCache.add(connectionKey, directory);
+    }
 
-        public int getPort() {
-            return port;
+    private void mkdir(Path directory) throws SftpException {
+        try {
+            channel.mkdir(directory.toString());
+        } catch (SftpException e) {
+            // the directory may already exist or have been created concurrently
+            if (!isDirectory(directory)) {
+                throw e;
+            }
         }
+    }
 
-        public String getUser() {
-            return user;
+    private boolean isDirectory(Path directory) throws SftpException {
+        try {
+            return channel.stat(directory.toString()).isDir();
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                return false;
+            }
+            throw e;
         }
+    }
 
-        public String getPassword() {
-            return password;
+    private static String getPathFromUri(URI uri) {
+        String path = uri.getPath();
+        if (Strings.isNullOrEmpty(path)) {
+            throw new ProtocolHandlerException("URI is missing required path");
         }
+        return "./" + path;
     }
 }
@@ -103,6 +103,21 @@ public class OmakaseClientTest {
         assertThat(task.getDescription()).isEqualTo("test");
     }
 
+    @Test
+    public void shouldLongPollToolTasks() throws Exception {
+        ResponseDefinitionBuilder responseDefinitionBuilder = aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("[]");
+        addStubFor("/omakase/api/broker/workers/1113/tasks?wait_secs=20", responseDefinitionBuilder);
+        omakaseClient.workerId = "1113";
+        assertThat(omakaseClient.pollToolTasks(ImmutableSet.of(new ToolInfo("TRANSFER", 1, 1)), 20)).contains(Collections.emptyList());
+    }
+
+    @Test
+    public void shouldFailToLongPollToolTasks() throws Exception {
+        addStubFor("/omakase/api/broker/workers/1114/tasks?wait_secs=20", aResponse().withStatus(500));
+        omakaseClient.workerId = "1114";
+        assertThat(omakaseClient.pollToolTasks(ImmutableSet.of(new ToolInfo("TRANSFER", 1, 1)), 20)).isEmpty();
+    }
+
     @Test
     public void shouldSendTaskStatusUpdateWithATaskOutput() throws Exception {
         ResponseDefinitionBuilder responseDefinitionBuilder = aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("{\"status\": \"OK\"}");
@@ -125,6 +140,18 @@ public class OmakaseClientTest {
         verifyRequest("/omakase/api/broker/workers/1110/tasks/1111111/status", "application/produce-status+json", "application/json", statusUpdate.toJson());
     }
 
+    @Test
+    public void shouldSendTaskStatusUpdatesInASingleRequest() throws Exception {
+        ResponseDefinitionBuilder responseDefinitionBuilder = aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody("{\"status\": \"OK\"}");
+        addStubFor("/omakase/api/broker/workers/1115/tasks", responseDefinitionBuilder);
+        omakaseClient.workerId = "1115";
+        TaskStatusUpdate executing = new TaskStatusUpdate(TaskStatus.EXECUTING, "executing", 50);
+        TaskStatusUpdate failed = new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "failed", 0);
+        omakaseClient.produceToolTaskStatusUpdates(ImmutableList.of(new ToolCallback("TRANSFER", "1111111", executing), new ToolCallback("TRANSFER", "2222222", failed)));
+        String expectedRequestBody = "[{\"task_id\":\"1111111\",\"status\":" + executing.toJson() + "},{\"task_id\":\"2222222\",\"status\":" + failed.toJson() + "}]";
+        verifyRequest("/omakase/api/broker/workers/1115/tasks", "application/produce-statuses+json", "application/json", expectedRequestBody);
+    }
+
     private void addStubFor(String location, ResponseDefinitionBuilder responseDefinitionBuilder) {
         stubFor(post(urlEqualTo(location)).willReturn(responseDefinitionBuilder));
     }
@@ -0,0 +1,101 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool;
+
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.projectomakase.omakase.worker.tool.AdaptiveConcurrencyLimit.Outcome.FAILED;
+import static org.projectomakase.omakase.worker.tool.AdaptiveConcurrencyLimit.Outcome.SUCCEEDED;
+import static org.projectomakase.omakase.worker.tool.AdaptiveConcurrencyLimit.Outcome.TRANSPORT_FAILED;
+
+/**
+ * @author Richard Lucas
+ */
+public class AdaptiveConcurrencyLimitTest {
+
+    @Test
+    public void shouldStartAtTheMaxLimit() throws Exception {
+        assertThat(new AdaptiveConcurrencyLimit(1, 8, 2.0, 0.5).getLimit()).isEqualTo(8);
+    }
+
+    @Test
+    public void shouldNotAdaptAFixedLimit() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 4, 2.0, 0.5);
+        assertThat(limit.isFixed()).isTrue();
+        assertThat(limit.onTaskCompleted(100, -1, TRANSPORT_FAILED)).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldDecreaseLimitWhenATaskFailsWithATransportFailure() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 8, 2.0, 0.5);
+        assertThat(limit.onTaskCompleted(100, -1, TRANSPORT_FAILED)).isEqualTo(4);
+        assertThat(limit.onTaskCompleted(100, -1, TRANSPORT_FAILED)).isEqualTo(2);
+        assertThat(limit.onTaskCompleted(100, -1, TRANSPORT_FAILED)).isEqualTo(1);
+        assertThat(limit.onTaskCompleted(100, -1, TRANSPORT_FAILED)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDecreaseLimitWhenLatencyExceedsTolerance() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 2, 2.0, 0.5);
+        assertThat(limit.onTaskCompleted(100, -1, SUCCEEDED)).isEqualTo(2);
+        assertThat(limit.onTaskCompleted(500, -1, SUCCEEDED)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotDecreaseLimitWhenATaskFailsWithoutATransportFailure() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 8, 2.0, 0.5);
+        IntStream.range(0, 10).forEach(i -> assertThat(limit.onTaskCompleted(100, -1, FAILED)).isEqualTo(8));
+    }
+
+    @Test
+    public void shouldCompareLatencyPerMBOfTasksOfDifferentSizes() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 2, 2.0, 0.5);
+        assertThat(limit.onTaskCompleted(100, 1048576, SUCCEEDED)).isEqualTo(2);
+        // a task ten times the size taking ten times as long has the same throughput
+        assertThat(limit.onTaskCompleted(1000, 10485760, SUCCEEDED)).isEqualTo(2);
+        // the throughput of a task of the same size dropping to a fifth is congestion, the limit is decreased at the end of the window
+        assertThat(limit.onTaskCompleted(5000, 10485760, SUCCEEDED)).isEqualTo(2);
+        assertThat(limit.onTaskCompleted(1000, 10485760, SUCCEEDED)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCountSmallTasksAsOneMB() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 2, 2.0, 0.5);
+        assertThat(limit.onTaskCompleted(100, 1048576, SUCCEEDED)).isEqualTo(2);
+        // the fixed overhead of a tiny task is not congestion
+        assertThat(limit.onTaskCompleted(100, 1024, SUCCEEDED)).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldIncreaseLimitOncePerWindowWhenLatencyIsWithinTolerance() throws Exception {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 4, 2.0, 0.5);
+        limit.onTaskCompleted(100, -1, TRANSPORT_FAILED);
+        assertThat(limit.getLimit()).isEqualTo(2);
+        assertThat(limit.onTaskCompleted(100, -1, SUCCEEDED)).isEqualTo(2);
+        assertThat(limit.onTaskCompleted(100, -1, SUCCEEDED)).isEqualTo(3);
+        IntStream.range(0, 3).forEach(i -> limit.onTaskCompleted(100, -1, SUCCEEDED));
+        assertThat(limit.getLimit()).isEqualTo(4);
+        IntStream.range(0, 8).forEach(i -> limit.onTaskCompleted(100, -1, SUCCEEDED));
+        assertThat(limit.getLimit()).isEqualTo(4);
+    }
+}
@@ -22,13 +22,29 @@ package org.projectomakase.omakase.worker.tool;
 import com.google.common.collect.ImmutableList;
 import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.task.api.Task;
+import org.projectomakase.omakase.task.api.TaskStatus;
+import org.projectomakase.omakase.task.api.TaskStatusUpdate;
+import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerException;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.FileNotFoundException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.projectomakase.omakase.worker.tool.AdaptiveConcurrencyLimit.Outcome.FAILED;
+import static org.projectomakase.omakase.worker.tool.AdaptiveConcurrencyLimit.Outcome.SUCCEEDED;
+import static org.projectomakase.omakase.worker.tool.AdaptiveConcurrencyLimit.Outcome.TRANSPORT_FAILED;
 
 /**
  * @author Richard Lucas
@@ -67,6 +83,17 @@ public class ToolRegistryTest {
                 .hasMessage("Unable to decrease the TEST tool's available capacity, capacity is already 0");
     }
 
+    @Test
+    public void shouldClassifyTaskOutcomes() throws Exception {
+        assertThat(ToolRegistry.getOutcome(new ToolCallback("TEST", "a", new TaskStatusUpdate(TaskStatus.COMPLETED, "done", 100)))).isEqualTo(SUCCEEDED);
+        assertThat(ToolRegistry.getOutcome(failed(null))).isEqualTo(FAILED);
+        assertThat(ToolRegistry.getOutcome(failed(new IllegalArgumentException("source uri can not be null")))).isEqualTo(FAILED);
+        assertThat(ToolRegistry.getOutcome(failed(new ProtocolHandlerException("failed", new FileNotFoundException("missing"))))).isEqualTo(FAILED);
+        assertThat(ToolRegistry.getOutcome(failed(new ProtocolHandlerException("failed", new SocketTimeoutException("Read timed out"))))).isEqualTo(TRANSPORT_FAILED);
+        assertThat(ToolRegistry.getOutcome(failed(new ProtocolHandlerException("failed", new ConnectException("Connection refused"))))).isEqualTo(TRANSPORT_FAILED);
+        assertThat(ToolRegistry.getOutcome(failed(new ProtocolHandlerException("failed", new TimeoutException())))).isEqualTo(TRANSPORT_FAILED);
+    }
+
     @Test
     public void shouldIncreaseAvailableCapacity() throws Exception {
         List<Tool> tools = ImmutableList.of(new TestTool());
@@ -85,7 +112,62 @@ public class ToolRegistryTest {
                 .hasMessage("Unable to increase the TEST tool's available capacity as it will exceed the max capacity ");
     }
 
+    @Test
+    public void shouldDecreaseAvailableCapacityForABatchOfTasks() throws Exception {
+        System.setProperty("batch.max.capacity", "3");
+        try {
+            toolRegistry.registerTools(ImmutableList.of(new TestTool("BATCH")));
+            toolRegistry.decreaseAvailableCapacity("BATCH", 2);
+            assertThat(toolRegistry.getAvailableCapacity()).usingFieldByFieldElementComparator().contains(new ToolInfo("BATCH", 3, 1));
+            assertThat(toolRegistry.getInFlightByTool()).containsEntry("BATCH", 2);
+            assertThatThrownBy(() -> toolRegistry.decreaseAvailableCapacity("BATCH", 2)).isInstanceOf(OmakaseRuntimeException.class)
+                    .hasMessage("Unable to decrease the BATCH tool's available capacity by 2, available capacity is 1");
+            assertThat(toolRegistry.getTotalInFlight()).isEqualTo(2);
+        } finally {
+            System.clearProperty("batch.max.capacity");
+        }
+    }
+
+    @Test
+    public void shouldNotLoseCapacityUpdatesWhenUpdatedConcurrently() throws Exception {
+        System.setProperty("concurrent.max.capacity", "1000");
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            toolRegistry.registerTools(ImmutableList.of(new TestTool("CONCURRENT")));
+            List<Callable<Void>> updates = IntStream.range(0, 1000).mapToObj(i -> (Callable<Void>) () -> {
+                toolRegistry.decreaseAvailableCapacity("CONCURRENT");
+                toolRegistry.increaseAvailableCapacity("CONCURRENT");
+                toolRegistry.decreaseAvailableCapacity("CONCURRENT");
+                return null;
+            }).collect(Collectors.toList());
+            for (Future<Void> future : executorService.invokeAll(updates)) {
+                future.get();
+            }
+            assertThat(toolRegistry.getInFlightByTool()).containsEntry("CONCURRENT", 1000);
+            assertThat(toolRegistry.getAvailableCapacity()).isEmpty();
+        } finally {
+            executorService.shutdownNow();
+            System.clearProperty("concurrent.max.capacity");
+        }
+    }
+
+    private static ToolCallback failed(Throwable failure) {
+        TaskStatusUpdate taskStatusUpdate = new TaskStatusUpdate(TaskStatus.FAILED_DIRTY, "failed", 0);
+        return failure == null ? new ToolCallback("TEST", "a", taskStatusUpdate) : new ToolCallback("TEST", "a", taskStatusUpdate, failure);
+    }
+
     private class TestTool implements Tool {
+
+        private final String name;
+
+        TestTool() {
+            this("TEST");
+        }
+
+        TestTool(String name) {
+            this.name = name;
+        }
+
         @Override
         public void execute(Task task) {
             //no-op
@@ -93,7 +175,7 @@ public class ToolRegistryTest {
 
         @Override
         public String getName() {
-            return "TEST";
+            return name;
         }
     }
-}
\ No newline at end of file
+}
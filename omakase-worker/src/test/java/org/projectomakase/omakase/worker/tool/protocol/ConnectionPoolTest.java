@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Richard Lucas
+ */
+public class ConnectionPoolTest {
+
+    @Test
+    public void shouldReuseReleasedConnection() throws Exception {
+        TestConnectionFactory connectionFactory = new TestConnectionFactory();
+        ConnectionPool<String, TestConnection> connectionPool = new ConnectionPool<>(connectionFactory, 2, 60000, 1000);
+        TestConnection connection = connectionPool.borrow("a");
+        connectionPool.release("a", connection);
+        assertThat(connectionPool.borrow("a")).isSameAs(connection);
+        assertThat(connectionFactory.created.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotShareConnectionsBetweenKeys() throws Exception {
+        TestConnectionFactory connectionFactory = new TestConnectionFactory();
+        ConnectionPool<String, TestConnection> connectionPool = new ConnectionPool<>(connectionFactory, 2, 60000, 1000);
+        TestConnection connection = connectionPool.borrow("a");
+        connectionPool.release("a", connection);
+        assertThat(connectionPool.borrow("b")).isNotSameAs(connection);
+        assertThat(connectionFactory.created.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldDestroyInvalidIdleConnection() throws Exception {
+        TestConnectionFactory connectionFactory = new TestConnectionFactory();
+        ConnectionPool<String, TestConnection> connectionPool = new ConnectionPool<>(connectionFactory, 2, 60000, 1000);
+        TestConnection connection = connectionPool.borrow("a");
+        connectionPool.release("a", connection);
+        connection.valid = false;
+        assertThat(connectionPool.borrow("a")).isNotSameAs(connection);
+        assertThat(connectionFactory.destroyed).containsExactly(connection);
+    }
+
+    @Test
+    public void shouldEvictExpiredIdleConnections() throws Exception {
+        TestConnectionFactory connectionFactory = new TestConnectionFactory();
+        ConnectionPool<String, TestConnection> connectionPool = new ConnectionPool<>(connectionFactory, 2, 0, 1000);
+        TestConnection connection = connectionPool.borrow("a");
+        connectionPool.release("a", connection);
+        Thread.sleep(5);
+        connectionPool.evictIdleConnections();
+        assertThat(connectionPool.getIdleCount("a")).isEqualTo(0);
+        assertThat(connectionFactory.destroyed).containsExactly(connection);
+    }
+
+    @Test
+    public void shouldTimeoutWhenMaxConnectionsAreBorrowed() throws Exception {
+        ConnectionPool<String, TestConnection> connectionPool = new ConnectionPool<>(new TestConnectionFactory(), 1, 60000, 10);
+        connectionPool.borrow("a");
+        assertThat(borrowOnOtherThread(connectionPool, "a")).isExactlyInstanceOf(ProtocolHandlerException.class)
+                .hasMessage("Timed out waiting for a connection to a, the max of 1 connections are in use");
+    }
+
+    @Test
+    public void shouldNotWaitWhenThreadAlreadyHoldsConnectionForKey() throws Exception {
+        TestConnectionFactory connectionFactory = new TestConnectionFactory();
+        ConnectionPool<String, TestConnection> connectionPool = new ConnectionPool<>(connectionFactory, 1, 60000, 10);
+        TestConnection source = connectionPool.borrow("a");
+        TestConnection destination = connectionPool.borrow("a");
+        assertThat(destination).isNotSameAs(source);
+
+        // the permit is only freed once the thread has returned all of its connections, regardless of the order they are returned in
+        connectionPool.release("a", source);
+        assertThat(borrowOnOtherThread(connectionPool, "a")).isExactlyInstanceOf(ProtocolHandlerException.class);
+        connectionPool.invalidate("a", destination);
+        assertThat(borrowOnOtherThread(connectionPool, "a")).isNull();
+        assertThat(connectionFactory.created.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFreeSlotWhenConnectionIsInvalidated() throws Exception {
+        TestConnectionFactory connectionFactory = new TestConnectionFactory();
+        ConnectionPool<String, TestConnection> connectionPool = new ConnectionPool<>(connectionFactory, 1, 60000, 10);
+        TestConnection connection = connectionPool.borrow("a");
+        connectionPool.invalidate("a", connection);
+        assertThat(connectionPool.borrow("a")).isNotSameAs(connection);
+        assertThat(connectionFactory.destroyed).containsExactly(connection);
+    }
+
+    private static Throwable borrowOnOtherThread(ConnectionPool<String, TestConnection> connectionPool, String key) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                connectionPool.release(key, connectionPool.borrow(key));
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        return failure.get();
+    }
+
+    private static class TestConnection {
+        private volatile boolean valid = true;
+    }
+
+    private static class TestConnectionFactory implements ConnectionFactory<String, TestConnection> {
+
+        private final AtomicInteger created = new AtomicInteger();
+        private final List<TestConnection> destroyed = new ArrayList<>();
+
+        @Override
+        public TestConnection create(String key) {
+            created.incrementAndGet();
+            return new TestConnection();
+        }
+
+        @Override
+        public boolean validate(TestConnection connection) {
+            return connection.valid;
+        }
+
+        @Override
+        public void destroy(TestConnection connection) {
+            destroyed.add(connection);
+        }
+    }
+}
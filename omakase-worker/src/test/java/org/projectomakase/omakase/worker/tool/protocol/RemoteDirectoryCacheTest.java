@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Richard Lucas
+ */
+public class RemoteDirectoryCacheTest {
+
+    @Test
+    public void shouldContainDirectoryAndItsParents() throws Exception {
+        RemoteDirectoryCache directoryCache = new RemoteDirectoryCache(100);
+        directoryCache.add("user@host:22", Paths.get("a/b/c"));
+        assertThat(directoryCache.contains("user@host:22", Paths.get("a/b/c"))).isTrue();
+        assertThat(directoryCache.contains("user@host:22", Paths.get("a/b"))).isTrue();
+        assertThat(directoryCache.contains("user@host:22", Paths.get("a"))).isTrue();
+        assertThat(directoryCache.contains("user@host:22", Paths.get("a/b/d"))).isFalse();
+    }
+
+    @Test
+    public void shouldNotShareDirectoriesBetweenConnections() throws Exception {
+        RemoteDirectoryCache directoryCache = new RemoteDirectoryCache(100);
+        directoryCache.add("user@host:22", Paths.get("a/b"));
+        assertThat(directoryCache.contains("user@other:22", Paths.get("a/b"))).isFalse();
+    }
+
+    @Test
+    public void shouldInvalidateConnectionDirectories() throws Exception {
+        RemoteDirectoryCache directoryCache = new RemoteDirectoryCache(100);
+        directoryCache.add("user@host:22", Paths.get("a/b"));
+        directoryCache.add("user@other:22", Paths.get("a/b"));
+        directoryCache.invalidate("user@host:22");
+        assertThat(directoryCache.contains("user@host:22", Paths.get("a"))).isFalse();
+        assertThat(directoryCache.contains("user@other:22", Paths.get("a/b"))).isTrue();
+    }
+}
@@ -70,6 +70,22 @@ public class FileProtocolHandlerTest {
         }
     }
 
+    @Test
+    public void shouldOpenRangedStream() throws Exception {
+        File file = temporaryFolder.newFile();
+        Files.write("This is a test", file, Charsets.UTF_8);
+        InputStreamReader reader = null;
+        fileProtocolHandler.init(file.toURI());
+        assertThat(fileProtocolHandler.isRangeSupported()).isTrue();
+        try (InputStream inputStream = fileProtocolHandler.openStream(5, 4)) {
+            assertThat(inputStream).isNotNull();
+            reader = new InputStreamReader(inputStream, Charsets.UTF_8);
+            assertThat(CharStreams.toString(reader)).isEqualTo("is a");
+        } finally {
+            Closeables.closeQuietly(reader);
+        }
+    }
+
     @Test
     public void shouldGetContentLength() throws Exception {
         File file = temporaryFolder.newFile();
@@ -104,6 +120,30 @@ public class FileProtocolHandlerTest {
         }
     }
 
+    @Test
+    public void shouldCopyFromFile() throws Exception {
+        File sourceFile = temporaryFolder.newFile();
+        File destinationFile = new File(temporaryFolder.newFolder(), "dir/dest.txt");
+        Files.write("This is a test", sourceFile, Charsets.UTF_8);
+
+        fileProtocolHandler.init(destinationFile.toURI());
+        fileProtocolHandler.copyFrom(sourceFile.toPath(), FileLinkMode.NONE);
+        assertThat(Files.toString(destinationFile, Charsets.UTF_8)).isEqualTo("This is a test");
+        assertThat(java.nio.file.Files.isSameFile(sourceFile.toPath(), destinationFile.toPath())).isFalse();
+    }
+
+    @Test
+    public void shouldHardLinkFromFile() throws Exception {
+        File sourceFile = temporaryFolder.newFile();
+        File destinationFile = new File(temporaryFolder.newFolder(), "dest.txt");
+        Files.write("This is a test", sourceFile, Charsets.UTF_8);
+
+        fileProtocolHandler.init(destinationFile.toURI());
+        fileProtocolHandler.copyFrom(sourceFile.toPath(), FileLinkMode.HARDLINK);
+        assertThat(Files.toString(destinationFile, Charsets.UTF_8)).isEqualTo("This is a test");
+        assertThat(java.nio.file.Files.isSameFile(sourceFile.toPath(), destinationFile.toPath())).isTrue();
+    }
+
     @Test
     public void shouldFailToInitProtocolHandlerInvalidUriScheme() throws Exception {
         try {
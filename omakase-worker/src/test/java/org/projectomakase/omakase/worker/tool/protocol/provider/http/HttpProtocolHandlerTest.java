@@ -34,10 +34,13 @@ import java.io.InputStreamReader;
 import java.net.URI;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.head;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
 
 /**
@@ -75,6 +78,29 @@ public class HttpProtocolHandlerTest {
         }
     }
 
+    @Test
+    public void shouldOpenRangedStream() throws Exception {
+        stubFor(get(urlEqualTo("/test-file.txt")).withHeader("Range", equalTo("bytes=5-6"))
+                .willReturn(aResponse().withStatus(206).withHeader("Content-Type", "text/plain;charset=UTF-8").withBody("is")));
+        InputStreamReader reader = null;
+        httpProtocolHandler.init(new URI("http://localhost:8089/test-file.txt"));
+        try (InputStream inputStream = httpProtocolHandler.openStream(5, 2)) {
+            reader = new InputStreamReader(inputStream, Charsets.UTF_8);
+            assertThat(CharStreams.toString(reader)).isEqualTo("is");
+        } finally {
+            Closeables.closeQuietly(reader);
+        }
+    }
+
+    @Test
+    public void shouldReturnEmptyStreamForEmptyRange() throws Exception {
+        httpProtocolHandler.init(new URI("http://localhost:8089/test-file.txt"));
+        try (InputStream inputStream = httpProtocolHandler.openStream(5, 0)) {
+            assertThat(inputStream.read()).isEqualTo(-1);
+        }
+        verify(0, getRequestedFor(urlEqualTo("/test-file.txt")));
+    }
+
     @Test
     public void shouldGetContentLength() throws Exception {
         String body = "This is a test";
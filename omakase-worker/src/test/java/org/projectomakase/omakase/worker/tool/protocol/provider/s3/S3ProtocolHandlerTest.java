@@ -0,0 +1,225 @@
+/*
+ * #%L
+ * omakase-worker
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.worker.tool.protocol.provider.s3;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.projectomakase.omakase.commons.aws.AWSUploadPart;
+import org.projectomakase.omakase.commons.aws.s3.S3Client;
+import org.projectomakase.omakase.commons.aws.s3.S3Part;
+import org.projectomakase.omakase.commons.aws.s3.S3Upload;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.projectomakase.omakase.worker.tool.protocol.ProtocolHandlerException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class S3ProtocolHandlerTest {
+
+    private static final int MIN_PART_SIZE = 5242880;
+    private static final String UPLOAD_ID = "upload-1";
+
+    private S3ProtocolHandler s3ProtocolHandler;
+    private S3Client mockS3Client;
+    private ByteArrayOutputStream uploaded;
+
+    @Before
+    public void before() throws Exception {
+        mockS3Client = mock(S3Client.class);
+        doReturn(UPLOAD_ID).when(mockS3Client).initiateMultipartUpload(any(S3Upload.class), anyString());
+        uploaded = new ByteArrayOutputStream();
+        // emulate the S3 client reading the part from the stream
+        doAnswer(invocation -> {
+            AWSUploadPart uploadPart = (AWSUploadPart) invocation.getArguments()[1];
+            ByteStreams.copy(ByteStreams.limit((InputStream) invocation.getArguments()[3], (long) invocation.getArguments()[2]), uploaded);
+            return new S3Part(uploadPart.getNumber() + 1, "etag" + uploadPart.getNumber());
+        }).when(mockS3Client).uploadMultipartPart(any(S3Upload.class), any(AWSUploadPart.class), anyLong(), any(InputStream.class));
+
+        s3ProtocolHandler = new S3ProtocolHandler();
+        s3ProtocolHandler.s3Client = mockS3Client;
+        s3ProtocolHandler.bufferSize = MIN_PART_SIZE;
+        s3ProtocolHandler.init(new URI("s3://access:secret@dev.s3-us-west-1.amazonaws.com/object-one"));
+    }
+
+    @Test
+    public void shouldUploadSingleObjectIfContentIsNoLargerThanBufferSize() throws Exception {
+        s3ProtocolHandler.bufferSize = 1024;
+        byte[] content = content(1024);
+
+        s3ProtocolHandler.copyTo(new ByteArrayInputStream(content), content.length);
+
+        verify(mockS3Client).uploadObject(any(S3Upload.class), any(), anyString(), anyString(), eq(1024L), any(InputStream.class));
+        verify(mockS3Client, never()).initiateMultipartUpload(any(S3Upload.class), anyString());
+    }
+
+    @Test
+    public void shouldUseMultipartUploadIfContentIsLargerThanBufferSize() throws Exception {
+        s3ProtocolHandler.bufferSize = 1024;
+        byte[] content = content(1025);
+
+        s3ProtocolHandler.copyTo(new ByteArrayInputStream(content), content.length);
+
+        verify(mockS3Client, never()).uploadObject(any(S3Upload.class), any(), anyString(), anyString(), anyLong(), any(InputStream.class));
+        // parts are never smaller than the S3 minimum part size so the content is uploaded as a single part
+        ArgumentCaptor<AWSUploadPart> uploadPartCaptor = ArgumentCaptor.forClass(AWSUploadPart.class);
+        verify(mockS3Client).uploadMultipartPart(any(S3Upload.class), uploadPartCaptor.capture(), eq(1025L), any(InputStream.class));
+        assertThat(uploadPartCaptor.getValue().getNumber()).isEqualTo(0);
+        assertThat(uploaded.toByteArray()).isEqualTo(content);
+        verify(mockS3Client).completeMultipartUpload(any(S3Upload.class), any());
+    }
+
+    @Test
+    public void shouldStreamContentAsPartsOfBufferSize() throws Exception {
+        byte[] content = content(MIN_PART_SIZE * 2 + 100);
+
+        s3ProtocolHandler.copyTo(new ByteArrayInputStream(content), content.length);
+
+        ArgumentCaptor<S3Upload> uploadCaptor = ArgumentCaptor.forClass(S3Upload.class);
+        ArgumentCaptor<AWSUploadPart> uploadPartCaptor = ArgumentCaptor.forClass(AWSUploadPart.class);
+        ArgumentCaptor<Long> partSizeCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(mockS3Client, times(3)).uploadMultipartPart(uploadCaptor.capture(), uploadPartCaptor.capture(), partSizeCaptor.capture(), any(InputStream.class));
+        assertThat(uploadCaptor.getAllValues()).extracting(S3Upload::getUploadId).containsOnly(UPLOAD_ID);
+        assertThat(uploadPartCaptor.getAllValues()).extracting(AWSUploadPart::getNumber).containsExactly(0, 1, 2);
+        assertThat(uploadPartCaptor.getAllValues()).extracting(AWSUploadPart::getOffset).containsExactly(0L, (long) MIN_PART_SIZE, (long) MIN_PART_SIZE * 2);
+        assertThat(partSizeCaptor.getAllValues()).containsExactly((long) MIN_PART_SIZE, (long) MIN_PART_SIZE, 100L);
+        assertThat(uploaded.toByteArray()).isEqualTo(content);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<S3Part>> partsCaptor = ArgumentCaptor.forClass((Class) List.class);
+        verify(mockS3Client).completeMultipartUpload(uploadCaptor.capture(), partsCaptor.capture());
+        assertThat(uploadCaptor.getValue().getUploadId()).isEqualTo(UPLOAD_ID);
+        assertThat(partsCaptor.getValue()).extracting(S3Part::getEtag).containsExactly("etag0", "etag1", "etag2");
+        verify(mockS3Client, never()).abortMultipartUpload(any(S3Upload.class));
+    }
+
+    @Test
+    public void shouldUseMultipartUploadIfContentLengthIsUnknown() throws Exception {
+        byte[] content = content(MIN_PART_SIZE + 100);
+
+        s3ProtocolHandler.copyTo(new ByteArrayInputStream(content), -1);
+
+        verify(mockS3Client, never()).uploadObject(any(S3Upload.class), any(), anyString(), anyString(), anyLong(), any(InputStream.class));
+        ArgumentCaptor<Long> partSizeCaptor = ArgumentCaptor.forClass(Long.class);
+        verify(mockS3Client, times(2)).uploadMultipartPart(any(S3Upload.class), any(AWSUploadPart.class), partSizeCaptor.capture(), any(InputStream.class));
+        assertThat(partSizeCaptor.getAllValues()).containsExactly((long) MIN_PART_SIZE, 100L);
+        assertThat(uploaded.toByteArray()).isEqualTo(content);
+        verify(mockS3Client).completeMultipartUpload(any(S3Upload.class), any());
+    }
+
+    @Test
+    public void shouldUseMultipartUploadIfContentLengthIsLargerThanAnArray() throws Exception {
+        byte[] content = content(1024);
+
+        // the content length is only used to size the parts so the stream can be shorter than the reported length
+        s3ProtocolHandler.copyTo(new ByteArrayInputStream(content), 3L * Integer.MAX_VALUE);
+
+        verify(mockS3Client, never()).uploadObject(any(S3Upload.class), any(), anyString(), anyString(), anyLong(), any(InputStream.class));
+        verify(mockS3Client).uploadMultipartPart(any(S3Upload.class), any(AWSUploadPart.class), eq(1024L), any(InputStream.class));
+        assertThat(uploaded.toByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldNeverNeedMoreThanTheMaximumNumberOfParts() throws Exception {
+        assertThat(s3ProtocolHandler.getPartSize(-1)).isEqualTo(MIN_PART_SIZE);
+        assertThat(s3ProtocolHandler.getPartSize(MIN_PART_SIZE * 2)).isEqualTo(MIN_PART_SIZE);
+        assertThat(s3ProtocolHandler.getPartSize(MIN_PART_SIZE * 10000L)).isEqualTo(MIN_PART_SIZE);
+        assertThat(s3ProtocolHandler.getPartSize(MIN_PART_SIZE * 10000L + 1)).isEqualTo(MIN_PART_SIZE + 1);
+        // the largest object S3 supports, 5TB
+        long maxObjectSize = 5L * 1024 * 1024 * 1024 * 1024;
+        int partSize = s3ProtocolHandler.getPartSize(maxObjectSize);
+        assertThat((maxObjectSize + partSize - 1) / partSize).isLessThanOrEqualTo(10000);
+    }
+
+    @Test
+    public void shouldAbortMultipartUploadIfPartFails() throws Exception {
+        doAnswer(invocation -> new S3Part(1, "etag0")).doAnswer(invocation -> {
+            throw new OmakaseRuntimeException("Failed to upload part to S3");
+        }).when(mockS3Client).uploadMultipartPart(any(S3Upload.class), any(AWSUploadPart.class), anyLong(), any(InputStream.class));
+        byte[] content = content(MIN_PART_SIZE * 3);
+
+        assertThatThrownBy(() -> s3ProtocolHandler.copyTo(new ByteArrayInputStream(content), content.length)).isInstanceOf(ProtocolHandlerException.class)
+                .hasMessage("Failed to copy to S3").hasCauseInstanceOf(OmakaseRuntimeException.class);
+
+        // no further parts are uploaded once a part has failed
+        verify(mockS3Client, times(2)).uploadMultipartPart(any(S3Upload.class), any(AWSUploadPart.class), anyLong(), any(InputStream.class));
+        ArgumentCaptor<S3Upload> uploadCaptor = ArgumentCaptor.forClass(S3Upload.class);
+        verify(mockS3Client).abortMultipartUpload(uploadCaptor.capture());
+        assertThat(uploadCaptor.getValue().getUploadId()).isEqualTo(UPLOAD_ID);
+        verify(mockS3Client, never()).completeMultipartUpload(any(S3Upload.class), any());
+    }
+
+    @Test
+    public void shouldAbortMultipartUploadIfSourceCanNotBeRead() throws Exception {
+        InputStream failingInputStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("read failed");
+            }
+        };
+
+        assertThatThrownBy(() -> s3ProtocolHandler.copyTo(failingInputStream, MIN_PART_SIZE * 2)).isInstanceOf(ProtocolHandlerException.class)
+                .hasCauseInstanceOf(IOException.class);
+
+        verify(mockS3Client).abortMultipartUpload(any(S3Upload.class));
+        verify(mockS3Client, never()).completeMultipartUpload(any(S3Upload.class), any());
+    }
+
+    @Test
+    public void shouldReturnEmptyStreamForEmptyRangeWithoutGettingObject() throws Exception {
+        try (InputStream inputStream = s3ProtocolHandler.openStream(1024, 0)) {
+            assertThat(inputStream.read()).isEqualTo(-1);
+        }
+        verify(mockS3Client, never()).getObject(any(), anyString(), anyString(), anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    public void shouldRejectNegativeRangeLength() throws Exception {
+        assertThatThrownBy(() -> s3ProtocolHandler.openStream(1024, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+}
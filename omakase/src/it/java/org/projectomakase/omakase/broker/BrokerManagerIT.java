@@ -48,7 +48,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.transaction.UserTransaction;
 import java.net.URI;
 import java.util.Collections;
 import java.util.List;
@@ -69,6 +71,8 @@ public class BrokerManagerIT {
     IntegrationTests integrationTests;
     @Inject
     IdGenerator idGenerator;
+    @Resource
+    UserTransaction userTransaction;
     private String jobId;
 
     @Deployment
@@ -205,6 +209,35 @@ public class BrokerManagerIT {
         });
     }
 
+    @Test
+    public void shouldGetNextAvailableTasksForWorkerFromTheSameTaskGroup() {
+        TestRunner.runAsUser("admin", "password", () -> {
+            Worker registeredWorker = brokerManager.registerWorker(Worker.Builder.build(w -> w.setWorkerName("worker 1")));
+            TaskGroup createdTaskGroup = taskManager.createTaskGroup(new TaskGroup(jobId, idGenerator.getId(), "test"));
+
+            // both tasks lock the same task group within a single transaction
+            List<Task> tasks = Throwables.returnableInstance(() -> {
+                userTransaction.begin();
+                try {
+                    List<Task> createdTasks = ImmutableList.of(taskManager.createTask(createdTaskGroup, newTransferTask()), taskManager.createTask(createdTaskGroup, newTransferTask()));
+                    userTransaction.commit();
+                    return createdTasks;
+                } catch (Exception e) {
+                    userTransaction.rollback();
+                    throw e;
+                }
+            });
+
+            // both tasks are assigned, locking the same task group, in a single poll
+            ImmutableList<Task> availableTasks = brokerManager.getNextAvailableTasksForWorker(registeredWorker.getId(), ImmutableList.of(new Capacity("TRANSFER", 2)));
+            assertThat(availableTasks).extracting("id", "status")
+                    .containsOnly(new Tuple(tasks.get(0).getId(), TaskStatus.EXECUTING), new Tuple(tasks.get(1).getId(), TaskStatus.EXECUTING));
+            assertThat(taskManager.getTaskGroup(createdTaskGroup.getId()).get().getStatus()).isEqualTo(TaskStatus.EXECUTING);
+            assertThat(taskManager.getTask(tasks.get(0).getId()).get().getStatus()).isEqualTo(TaskStatus.EXECUTING);
+            assertThat(taskManager.getTask(tasks.get(1).getId()).get().getStatus()).isEqualTo(TaskStatus.EXECUTING);
+        });
+    }
+
     @Test
     public void shouldOnlyGetNextAvailableTasksForWorkerThatMatchesRequestedType() {
         TestRunner.runAsUser("admin", "password", () -> {
@@ -254,10 +287,13 @@ public class BrokerManagerIT {
 
     private Task createTransferTask() {
         TaskGroup createdTaskGroup = taskManager.createTaskGroup(new TaskGroup(jobId, idGenerator.getId(), "test"));
-        return Throwables.returnableInstance(() -> taskManager.createTask(createdTaskGroup.getId(), new Task("TRANSFER", "test", 1,
-                                                                                                             new TransferTaskConfiguration(ImmutableList.of(new IOInstruction(new URI("file:/test.txt"),
-                                                                                                                                                                              new URI("file:/dest.txt"))),
-                                                                                                                                           Collections.singletonList("MD5")))));
+        return taskManager.createTask(createdTaskGroup.getId(), newTransferTask());
+    }
+
+    private static Task newTransferTask() {
+        return Throwables.returnableInstance(() -> new Task("TRANSFER", "test", 1, new TransferTaskConfiguration(ImmutableList.of(new IOInstruction(new URI("file:/test.txt"),
+                                                                                                                                                  new URI("file:/dest.txt"))),
+                                                                                                               Collections.singletonList("MD5"))));
     }
 
     private Task createDeleteTask() {
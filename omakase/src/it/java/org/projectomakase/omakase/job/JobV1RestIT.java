@@ -40,6 +40,8 @@ import org.junit.runner.RunWith;
 
 import javax.ws.rs.core.Response;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -201,6 +203,38 @@ public class JobV1RestIT {
                 .containsExactly("<" + jobResource + "?page=1&per_page=10>; rel=\"first\"", "<" + jobResource + "?page=3&per_page=10>; rel=\"last\"");
     }
 
+    @Test
+    public void shouldReturnOkOnGetJobsFollowingCursorLinksWithSortAndFilter() throws Exception {
+
+        String jobResource = getJobResourcePath(baseURL);
+
+        for (int i = 0; i < 10; i++) {
+            String name = (i % 2 == 0 ? "keep" : "skip") + i / 2;
+            String json = "{ \"name\" : \"" + name + "\", \"external_ids\" : [\"id\"], \"status\" : \"UNSUBMITTED\", \"type\" : \"INGEST\", \"priority\": 4,  \"configuration\" : " +
+                    getJobConfigurationJson(variantId, repositoryId) + "}";
+            post(jobResource, json, "editor", "password", Optional.of("v1"), Optional.empty());
+        }
+
+        List<String> names = new ArrayList<>();
+        com.jayway.restassured.response.Response response =
+                get(jobResource + "?name[like]=keep&sort=name&order=ASC&per_page=2&cursor=*", "reader", "password", Optional.of("v1"), Optional.empty());
+        names.addAll(response.path("data.name"));
+        String next = response.path("links.next.href");
+        int pages = 1;
+        while (next != null) {
+            // the next link must retain the sort, order and filter of the original request
+            assertThat(next).contains("sort=name").contains("order=ASC").contains("keep").contains("per_page=2").doesNotContain("cursor=*");
+            response = given().spec(requestSpecification("reader", "password", Optional.of("v1"))).urlEncodingEnabled(false).when().get(next);
+            response.then().statusCode(200);
+            names.addAll(response.path("data.name"));
+            next = response.path("links.next.href");
+            pages++;
+        }
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(names).containsExactly("keep0", "keep1", "keep2", "keep3", "keep4");
+    }
+
     @Test
     public void shouldReturnOkOnGetJobsUsingOnlyCount() throws Exception {
 
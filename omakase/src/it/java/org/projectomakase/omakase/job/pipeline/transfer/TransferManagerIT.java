@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.pipeline.transfer;
+
+import com.google.common.collect.ImmutableMap;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.projectomakase.omakase.Archives;
+import org.projectomakase.omakase.IntegrationTests;
+import org.projectomakase.omakase.TestRunner;
+import org.projectomakase.omakase.job.JobManager;
+import org.projectomakase.omakase.pipeline.stage.PipelineContext;
+import org.projectomakase.omakase.task.providers.manifest.ManifestFile;
+
+import javax.inject.Inject;
+import java.net.URI;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(Arquillian.class)
+public class TransferManagerIT {
+
+    // larger than the default omakase.transfer.chunk.size of 1000 so that the manifest and transfer are written and read as multiple chunks
+    private static final int LARGE_SIZE = 2500;
+
+    @Inject
+    TransferManager transferManager;
+    @Inject
+    JobManager jobManager;
+    @Inject
+    IntegrationTests integrationTests;
+
+    private String pipelineNodePath;
+
+    @Deployment
+    public static WebArchive deploy() {
+        return Archives.omakaseITWar();
+    }
+
+    @Before
+    public void before() {
+        TestRunner.runAsUser("admin", "password", this::setup);
+    }
+
+    @After
+    public void after() {
+        TestRunner.runAsUser("admin", "password", this::cleanup);
+    }
+
+    @Test
+    public void shouldRoundTripManifestFilesLargerThanOneChunk() {
+        TestRunner.runAsUser("admin", "password", () -> {
+            List<ManifestFile> manifestFiles = manifestFiles(LARGE_SIZE);
+            transferManager.setManifestFiles(newPipelineContext(), "e2ac2ab0-4f0e-4c5d-9a1e-1f1a4f6e0a01", manifestFiles);
+
+            assertThat(transferManager.streamManifestFiles(newPipelineContext(), "e2ac2ab0-4f0e-4c5d-9a1e-1f1a4f6e0a01").map(ManifestFile::getUri).collect(Collectors.toList()))
+                    .containsExactlyElementsOf(manifestFiles.stream().map(ManifestFile::getUri).collect(Collectors.toList()));
+        });
+    }
+
+    @Test
+    public void shouldReplaceManifestFilesWithFewerChunks() {
+        TestRunner.runAsUser("admin", "password", () -> {
+            transferManager.setManifestFiles(newPipelineContext(), "e2ac2ab0-4f0e-4c5d-9a1e-1f1a4f6e0a01", manifestFiles(LARGE_SIZE));
+            List<ManifestFile> manifestFiles = manifestFiles(1200);
+            transferManager.setManifestFiles(newPipelineContext(), "e2ac2ab0-4f0e-4c5d-9a1e-1f1a4f6e0a01", manifestFiles);
+
+            // the trailing chunk of the previous manifest must not be returned
+            assertThat(transferManager.streamManifestFiles(newPipelineContext(), "e2ac2ab0-4f0e-4c5d-9a1e-1f1a4f6e0a01").map(ManifestFile::getUri).collect(Collectors.toList()))
+                    .containsExactlyElementsOf(manifestFiles.stream().map(ManifestFile::getUri).collect(Collectors.toList()));
+        });
+    }
+
+    @Test
+    public void shouldNotReturnManifestFilesOfOtherManifests() {
+        TestRunner.runAsUser("admin", "password", () -> {
+            // both ids share the same first 6 characters so their chunks share the same parent node
+            transferManager.setManifestFiles(newPipelineContext(), "e2ac2ab0-4f0e-4c5d-9a1e-1f1a4f6e0a01", manifestFiles(LARGE_SIZE));
+            transferManager.setManifestFiles(newPipelineContext(), "e2ac2ab1-4f0e-4c5d-9a1e-1f1a4f6e0a02", manifestFiles(10));
+
+            assertThat(transferManager.streamManifestFiles(newPipelineContext(), "e2ac2ab0-4f0e-4c5d-9a1e-1f1a4f6e0a01").count()).isEqualTo(LARGE_SIZE);
+            assertThat(transferManager.streamManifestFiles(newPipelineContext(), "e2ac2ab1-4f0e-4c5d-9a1e-1f1a4f6e0a02").count()).isEqualTo(10);
+        });
+    }
+
+    @Test
+    public void shouldStreamTransferFileGroupsSetFromStream() {
+        TestRunner.runAsUser("admin", "password", () -> {
+            transferManager.setTransfer(newPipelineContext(), transferFileGroups(LARGE_SIZE));
+
+            assertThat(transferManager.streamTransferFileGroups(newPipelineContext()).map(TransferFileGroup::getId).collect(Collectors.toList()))
+                    .containsExactlyElementsOf(transferFileGroups(LARGE_SIZE).map(TransferFileGroup::getId).collect(Collectors.toList()));
+        });
+    }
+
+    @Test
+    public void shouldReplaceTransferFileGroupsSetFromStream() {
+        TestRunner.runAsUser("admin", "password", () -> {
+            transferManager.setTransfer(newPipelineContext(), transferFileGroups(LARGE_SIZE));
+            transferManager.setTransfer(newPipelineContext(), transferFileGroups(1200));
+
+            assertThat(transferManager.streamTransferFileGroups(newPipelineContext()).map(TransferFileGroup::getId).collect(Collectors.toList()))
+                    .containsExactlyElementsOf(transferFileGroups(1200).map(TransferFileGroup::getId).collect(Collectors.toList()));
+        });
+    }
+
+    private PipelineContext newPipelineContext() {
+        return new PipelineContext("pipeline", pipelineNodePath, "object", "test", "test", ImmutableMap.of());
+    }
+
+    private static List<ManifestFile> manifestFiles(int size) {
+        return IntStream.range(0, size).mapToObj(index -> new ManifestFile(URI.create("file:/manifest/file" + index), index)).collect(Collectors.toList());
+    }
+
+    private static Stream<TransferFileGroup> transferFileGroups(int size) {
+        return IntStream.range(0, size).mapToObj(index -> TransferFileGroup.builder().id(String.format("%08d-0000-0000-0000-000000000000", index)).description("group" + index).build());
+    }
+
+    private void setup() {
+        cleanup();
+        // the job node is used as the pipeline node, the transfer manager only requires the pipeline node to exist
+        pipelineNodePath = jobManager.getJob(integrationTests.createJob()).get().getNodePath();
+    }
+
+    private void cleanup() {
+        integrationTests.cleanup();
+        pipelineNodePath = null;
+    }
+}
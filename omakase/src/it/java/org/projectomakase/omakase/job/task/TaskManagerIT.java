@@ -48,6 +48,7 @@ import org.junit.runner.RunWith;
 import javax.inject.Inject;
 import java.net.URI;
 import java.util.Collections;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -103,6 +104,18 @@ public class TaskManagerIT {
         });
     }
 
+    @Test
+    public void shouldCreateTasks() {
+        TestRunner.runAsUser("admin", "password", () -> {
+            String workflowId = idGenerator.getId();
+            TaskGroup taskGroup = taskManager.createTaskGroup(newTaskGroup(jobId, workflowId));
+            List<Task> tasks = taskManager.createTasks(taskGroup, ImmutableList.of(newTask(), newTask(), newTask()));
+            assertThat(tasks).hasSize(3);
+            tasks.forEach(task -> Throwables.voidInstance(() -> validateTask(task)));
+            Assertions.assertThat(taskManager.getTasks(taskGroup.getId())).extracting("id").containsOnly(tasks.stream().map(Task::getId).toArray());
+        });
+    }
+
     @Test
     public void shouldGetTasksForGroup() {
         TestRunner.runAsUser("admin", "password", () -> {
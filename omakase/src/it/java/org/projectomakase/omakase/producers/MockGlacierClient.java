@@ -35,7 +35,7 @@ public class MockGlacierClient extends GlacierClient {
     private final IdGenerator idGenerator = new IdGenerator();
 
     public MockGlacierClient() {
-        super(null, null, null);
+        super(null, 0);
     }
 
     @Override
@@ -22,19 +22,37 @@ package org.projectomakase.omakase.producers;
 import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.commons.aws.glacier.GlacierClient;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.Specializes;
 
 /**
+ * Specializes the {@link GlacierClientProducer} replacing the shared Glacier client with a {@link MockGlacierClient}.
+ *
  * @author Richard Lucas
  */
 public class MockGlacierClientProducer extends GlacierClientProducer {
 
+    private final MockGlacierClient glacierClient = new MockGlacierClient();
+
+    @Override
+    @PostConstruct
+    public void init() {
+        // the mock client replaces the shared client, no AWS clients are created
+    }
+
+    @Override
+    @PreDestroy
+    public void destroy() {
+        // no-op
+    }
+
     @Override
     @Specializes
     @Produces
     @Omakase
     public GlacierClient getGlacierClient() {
-        return new MockGlacierClient();
+        return glacierClient;
     }
 }
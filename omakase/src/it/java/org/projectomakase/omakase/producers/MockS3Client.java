@@ -19,6 +19,7 @@
  */
 package org.projectomakase.omakase.producers;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import org.projectomakase.omakase.IdGenerator;
 import org.projectomakase.omakase.commons.aws.AWSUploadPart;
@@ -37,7 +38,7 @@ public class MockS3Client extends S3Client {
     private final IdGenerator idGenerator = new IdGenerator();
 
     public MockS3Client() {
-        super(null, null, null);
+        super(null, new ClientConfiguration(), 0);
     }
 
     @Override
@@ -22,19 +22,37 @@ package org.projectomakase.omakase.producers;
 import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.commons.aws.s3.S3Client;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.Specializes;
 
 /**
+ * Specializes the {@link S3ClientProducer} replacing the shared S3 client with a {@link MockS3Client}.
+ *
  * @author Richard Lucas
  */
 public class MockS3ClientProducer extends S3ClientProducer {
 
+    private final MockS3Client s3Client = new MockS3Client();
+
+    @Override
+    @PostConstruct
+    public void init() {
+        // the mock client replaces the shared client, no AWS clients are created
+    }
+
+    @Override
+    @PreDestroy
+    public void destroy() {
+        // no-op
+    }
+
     @Override
     @Specializes
     @Produces
     @Omakase
     public S3Client getS3Client() {
-        return new MockS3Client();
+        return s3Client;
     }
 }
@@ -30,6 +30,7 @@ import org.projectomakase.omakase.exceptions.NotUpdateableException;
 import org.projectomakase.omakase.job.message.Message;
 import org.projectomakase.omakase.job.message.MessageDAO;
 import org.projectomakase.omakase.job.task.TaskManager;
+import org.projectomakase.omakase.job.task.PendingTaskStatusUpdate;
 import org.projectomakase.omakase.search.Search;
 import org.projectomakase.omakase.search.SearchResult;
 import org.projectomakase.omakase.task.api.Task;
@@ -169,6 +170,21 @@ public class BrokerManager {
         taskManager.addTaskStatusUpdateToQueue(taskId, taskStatusUpdate);
     }
 
+    /**
+     * Handles a batch of task status updates from a worker.
+     *
+     * @param workerId
+     *         the worker id.
+     * @param pendingTaskStatusUpdates
+     *         the task status updates.
+     */
+    public void handleTaskStatusUpdatesFromWorker(String workerId, List<PendingTaskStatusUpdate> pendingTaskStatusUpdates) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Added " + pendingTaskStatusUpdates.size() + " task status update(s) from worker " + workerId);
+        }
+        taskManager.addTaskStatusUpdatesToQueue(pendingTaskStatusUpdates);
+    }
+
     /**
      * Returns all of the task messages for the given worker that match the given search constraints.
      *
@@ -0,0 +1,228 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.broker;
+
+import com.google.common.base.Splitter;
+import org.projectomakase.omakase.Omakase;
+import org.projectomakase.omakase.OmakaseCluster;
+import org.projectomakase.omakase.camel.CamelQueueEndpoint;
+import org.projectomakase.omakase.event.TasksQueued;
+import org.apache.camel.ProducerTemplate;
+import org.jboss.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.CompletionCallback;
+import javax.ws.rs.core.Response;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the workers that are long polling for tasks and wakes them when tasks of a type they can consume are queued.
+ * <p>
+ * A woken worker is sent an empty response and immediately polls again, this ensures tasks are always assigned on the worker's own request with the worker's
+ * security context and JCR session.
+ * </p>
+ * <p>
+ * Workers may be waiting on any Omakase instance, if the queue provider supports topics the queued task counts are published to the cluster's task availability
+ * topic and every instance, including this one, wakes its own waiting workers when it receives them. Each instance wakes up to one waiting worker per queued task
+ * so more workers than tasks may be woken, the extra workers poll again and wait. If the queue provider does not support topics, or the counts can not be published,
+ * only workers waiting on this instance are woken and workers waiting on other instances pick the tasks up when their long poll times out.
+ * </p>
+ * <p>
+ * A worker is registered before the task queue is checked for its tasks so that tasks queued while the queue is being checked are not missed, a worker that is
+ * woken while the queue is being checked is resumed as soon as it starts waiting.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@Named
+@ApplicationScoped
+public class TaskAvailabilityNotifier {
+
+    private static final Logger LOGGER = Logger.getLogger(TaskAvailabilityNotifier.class);
+
+    @Inject
+    @Omakase
+    CamelQueueEndpoint camelQueueEndpoint;
+    @Inject
+    @Omakase
+    ProducerTemplate producerTemplate;
+    @Inject
+    OmakaseCluster omakaseCluster;
+
+    private final ConcurrentMap<String, Set<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a suspended response that is resumed with an empty list of tasks when tasks of one of the given types are queued.
+     * <p>
+     * The caller must check the task queue after registering and then either call {@link Waiter#await()} if no tasks are available or {@link Waiter#cancel()} if
+     * the response is resumed by the caller.
+     * </p>
+     *
+     * @param taskTypes
+     *         the task types the worker can consume
+     * @param asyncResponse
+     *         the suspended response
+     * @return the registered waiter.
+     */
+    public Waiter register(Collection<String> taskTypes, AsyncResponse asyncResponse) {
+        Waiter waiter = new Waiter(taskTypes, asyncResponse);
+        asyncResponse.register((CompletionCallback) throwable -> remove(waiter));
+        taskTypes.forEach(taskType -> waiters.computeIfAbsent(taskType, key -> ConcurrentHashMap.newKeySet()).add(waiter));
+        return waiter;
+    }
+
+    /**
+     * Wakes up to one waiting worker per queued task on every instance once the transaction that queued the tasks has committed.
+     *
+     * @param tasksQueued
+     *         the tasks queued event
+     */
+    public void onTasksQueued(@Observes(during = TransactionPhase.AFTER_SUCCESS) TasksQueued tasksQueued) {
+        Optional<String> topicEndpoint = camelQueueEndpoint.getTopicEndpoint(getTopicName());
+        if (topicEndpoint.isPresent()) {
+            try {
+                producerTemplate.sendBody(topicEndpoint.get(), toTopicMessage(tasksQueued.getTaskCounts()));
+                return;
+            } catch (Exception e) {
+                LOGGER.warn("Failed to publish queued task counts, only waking workers waiting on this instance. Reason: " + e.getMessage());
+            }
+        }
+        wake(tasksQueued.getTaskCounts());
+    }
+
+    /**
+     * Wakes up to one waiting worker per available task using the task counts published to the task availability topic.
+     *
+     * @param topicMessage
+     *         the published task counts e.g. TRANSFER=2,HASH=1
+     */
+    public void onTasksAvailable(String topicMessage) {
+        wake(Splitter.on(',').omitEmptyStrings().withKeyValueSeparator('=').split(topicMessage).entrySet().stream()
+                     .collect(Collectors.toMap(Map.Entry::getKey, entry -> Integer.parseInt(entry.getValue()))));
+    }
+
+    /**
+     * Returns the name of the cluster wide task availability topic.
+     *
+     * @return the name of the cluster wide task availability topic.
+     */
+    public String getTopicName() {
+        return omakaseCluster.getClusterName().toLowerCase() + "-task-availability-topic";
+    }
+
+    private void wake(Map<String, Integer> taskCounts) {
+        taskCounts.forEach((taskType, count) -> Optional.ofNullable(waiters.get(taskType)).ifPresent(responses -> wake(taskType, responses, count)));
+    }
+
+    private void remove(Waiter waiter) {
+        waiter.taskTypes.forEach(taskType -> Optional.ofNullable(waiters.get(taskType)).ifPresent(responses -> responses.remove(waiter)));
+    }
+
+    private static void wake(String taskType, Set<Waiter> responses, int count) {
+        int woken = 0;
+        Iterator<Waiter> iterator = responses.iterator();
+        while (woken < count && iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            iterator.remove();
+            if (waiter.wake()) {
+                woken++;
+            }
+        }
+        if (LOGGER.isDebugEnabled() && woken > 0) {
+            LOGGER.debug("Woke " + woken + " worker(s) waiting for " + taskType + " tasks");
+        }
+    }
+
+    private static String toTopicMessage(Map<String, Integer> taskCounts) {
+        return taskCounts.entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue()).collect(Collectors.joining(","));
+    }
+
+    /**
+     * A worker waiting for tasks.
+     */
+    public final class Waiter {
+
+        private static final int CHECKING = 0;
+        private static final int WAITING = 1;
+        private static final int WOKEN_WHILE_CHECKING = 2;
+        private static final int DONE = 3;
+
+        private final Collection<String> taskTypes;
+        private final AsyncResponse asyncResponse;
+        private final AtomicInteger state = new AtomicInteger(CHECKING);
+
+        Waiter(Collection<String> taskTypes, AsyncResponse asyncResponse) {
+            this.taskTypes = taskTypes;
+            this.asyncResponse = asyncResponse;
+        }
+
+        /**
+         * Waits for tasks to be queued, if the worker was woken while the task queue was being checked it is resumed immediately.
+         */
+        public void await() {
+            if (!state.compareAndSet(CHECKING, WAITING) && state.compareAndSet(WOKEN_WHILE_CHECKING, DONE)) {
+                remove(this);
+                asyncResponse.resume(emptyResponse());
+            }
+        }
+
+        /**
+         * Stops waiting, the response is resumed by the caller.
+         */
+        public void cancel() {
+            state.set(DONE);
+            remove(this);
+        }
+
+        boolean wake() {
+            while (true) {
+                int current = state.get();
+                if (current == CHECKING) {
+                    if (state.compareAndSet(CHECKING, WOKEN_WHILE_CHECKING)) {
+                        return true;
+                    }
+                } else if (current == WAITING) {
+                    if (state.compareAndSet(WAITING, DONE)) {
+                        return asyncResponse.resume(emptyResponse());
+                    }
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        private Response emptyResponse() {
+            return Response.ok("[]").build();
+        }
+    }
+}
@@ -20,6 +20,7 @@
 package org.projectomakase.omakase.broker.rest.v1;
 
 import org.projectomakase.omakase.broker.BrokerManager;
+import org.projectomakase.omakase.broker.TaskAvailabilityNotifier;
 import org.projectomakase.omakase.broker.Worker;
 import org.projectomakase.omakase.broker.rest.v1.converter.WorkerQuerySearchConverter;
 import org.projectomakase.omakase.broker.rest.v1.model.WorkerModel;
@@ -51,6 +52,8 @@ public class BrokerResource {
     @Inject
     BrokerManager brokerManager;
     @Inject
+    TaskAvailabilityNotifier taskAvailabilityNotifier;
+    @Inject
     RepresentationConverter<WorkerModel, Worker> workerRepresentationConverter;
     @Inject
     WorkerQuerySearchConverter workerQuerySearchConverter;
@@ -82,7 +85,7 @@ public class BrokerResource {
 
     @Path("/broker/workers/{workerId}/tasks")
     public WorkerTasksResource getWorkerTasksResource() {
-        return  new WorkerTasksResource(brokerManager);
+        return  new WorkerTasksResource(brokerManager, taskAvailabilityNotifier, tasks);
     }
 
     @Path("/broker/workers/{workerId}/tasks/{taskId}")
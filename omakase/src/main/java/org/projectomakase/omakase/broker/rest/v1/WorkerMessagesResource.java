@@ -77,8 +77,8 @@ public class WorkerMessagesResource {
         SearchResult<Message> searchResult = brokerManager.findWorkerMessages(workerId, search);
         if (!onlyCount) {
             Collection<MessageModel> jobModels = messageRepresentationConverter.from(uriInfo, searchResult.getRecords());
-            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult.getTotalRecords());
-            PaginatedEnvelope<MessageModel> envelope = new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), searchResult.getTotalRecords(), jobModels, paginationLinks.get());
+            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult);
+            PaginatedEnvelope<MessageModel> envelope = new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), paginationLinks.getTotalCount(), jobModels, paginationLinks.get());
             LinkHeaders linkHeaders = new LinkHeaders();
             paginationLinks.get().forEach((rel, href) -> linkHeaders.addLink(Link.fromUri(href.getHref()).rel(rel).build()));
             return Response.ok(envelope).links(linkHeaders.getLinks().toArray(new Link[linkHeaders.getLinks().size()])).build();
@@ -22,21 +22,44 @@ package org.projectomakase.omakase.broker.rest.v1;
 import com.google.common.collect.ImmutableList;
 import org.projectomakase.omakase.broker.BrokerManager;
 import org.projectomakase.omakase.broker.Capacity;
+import org.projectomakase.omakase.broker.TaskAvailabilityNotifier;
 import org.projectomakase.omakase.broker.rest.v1.model.CapacityModel;
 import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
+import org.projectomakase.omakase.job.task.PendingTaskStatusUpdate;
+import org.projectomakase.omakase.job.task.Tasks;
+import org.projectomakase.omakase.rest.model.v1.ResponseStatusModel;
+import org.projectomakase.omakase.rest.model.v1.ResponseStatusValue;
 import org.projectomakase.omakase.task.api.Task;
 
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.io.StringReader;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
  * JAX-RS Subresource for /broker/worker/{workerId}/tasks
+ * <p>
+ * Supports long polling via the wait_secs query parameter. If no tasks are available the request is suspended until tasks matching the workers capacity are
+ * queued or the wait expires, in both cases an empty list is returned and the worker is expected to poll again immediately.
+ * </p>
+ * <p>
+ * Also accepts a batch of task status updates, allowing a worker to report the status of multiple tasks in a single request. The batch is a JSON array
+ * of objects containing a task_id and the status update e.g. [{"task_id":"123","status":{...}}].
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -46,21 +69,67 @@ public class WorkerTasksResource {
 
     private static final String JSON_TEMPLATE = "{\"id\":\"%s\",\"type\":\"%s\",\"description\":\"%s\",\"configuration\":%s}";
 
+    private static final int MAX_WAIT_SECS = 60;
+
     private final BrokerManager brokerManager;
+    private final TaskAvailabilityNotifier taskAvailabilityNotifier;
+    private final Tasks tasks;
 
-    public WorkerTasksResource(BrokerManager brokerManager) {
+    public WorkerTasksResource(BrokerManager brokerManager, TaskAvailabilityNotifier taskAvailabilityNotifier, Tasks tasks) {
         this.brokerManager = brokerManager;
+        this.taskAvailabilityNotifier = taskAvailabilityNotifier;
+        this.tasks = tasks;
     }
 
     @POST
     @Consumes({"application/consume-tasks+json", "application/consume-tasks.v1+json"})
-    public Response consumeTasks(@PathParam("workerId") String workerId, List<CapacityModel> capacity) {
-        return Response.ok(getTasksForWorkerJson(workerId, capacity)).build();
+    public void consumeTasks(@PathParam("workerId") String workerId, @DefaultValue("0") @QueryParam("wait_secs") int waitSecs, List<CapacityModel> capacity,
+                             @Suspended AsyncResponse asyncResponse) {
+        ImmutableList<Capacity> caps = capacity.stream().map(cap -> new Capacity(cap.getType(), cap.getAvailability())).collect(ImmutableListCollector.toImmutableList());
+        if (waitSecs <= 0 || caps.isEmpty()) {
+            asyncResponse.resume(Response.ok(tasksToJson(brokerManager.getNextAvailableTasksForWorker(workerId, caps))).build());
+            return;
+        }
+
+        // the worker is registered before the queue is checked so that tasks queued while the queue is being checked wake the worker
+        TaskAvailabilityNotifier.Waiter waiter = taskAvailabilityNotifier.register(caps.stream().map(Capacity::getType).collect(ImmutableListCollector.toImmutableList()), asyncResponse);
+        ImmutableList<Task> tasks;
+        try {
+            tasks = brokerManager.getNextAvailableTasksForWorker(workerId, caps);
+        } catch (RuntimeException e) {
+            waiter.cancel();
+            throw e;
+        }
+        if (!tasks.isEmpty()) {
+            waiter.cancel();
+            asyncResponse.resume(Response.ok(tasksToJson(tasks)).build());
+        } else {
+            asyncResponse.setTimeoutHandler(response -> response.resume(Response.ok(tasksToJson(ImmutableList.of())).build()));
+            asyncResponse.setTimeout(Math.min(waitSecs, MAX_WAIT_SECS), TimeUnit.SECONDS);
+            waiter.await();
+        }
     }
 
-    private String getTasksForWorkerJson(String workerId, List<CapacityModel> capacity) {
-        ImmutableList<Capacity> caps = capacity.stream().map(cap -> new Capacity(cap.getType(), cap.getAvailability())).collect(ImmutableListCollector.toImmutableList());
-        ImmutableList<Task> tasks = brokerManager.getNextAvailableTasksForWorker(workerId, caps);
+    @POST
+    @Consumes({"application/produce-statuses+json", "application/produce-statuses.v1+json"})
+    public Response produceTaskStatuses(@PathParam("workerId") String workerId, String taskStatusUpdatesJson) {
+        brokerManager.handleTaskStatusUpdatesFromWorker(workerId, pendingTaskStatusUpdatesFromJson(taskStatusUpdatesJson));
+        return Response.ok(new ResponseStatusModel(ResponseStatusValue.OK)).build();
+    }
+
+    private ImmutableList<PendingTaskStatusUpdate> pendingTaskStatusUpdatesFromJson(String json) {
+        try (StringReader stringReader = new StringReader(json); JsonReader jsonReader = Json.createReader(stringReader)) {
+            JsonArray jsonArray = jsonReader.readArray();
+            return jsonArray.getValuesAs(JsonObject.class).stream().map(this::pendingTaskStatusUpdateFromJson).collect(ImmutableListCollector.toImmutableList());
+        }
+    }
+
+    private PendingTaskStatusUpdate pendingTaskStatusUpdateFromJson(JsonObject jsonObject) {
+        String taskId = jsonObject.getString("task_id");
+        return new PendingTaskStatusUpdate(taskId, tasks.taskStatusUpdateFromJson(taskId, jsonObject.getJsonObject("status").toString()));
+    }
+
+    private static String tasksToJson(List<Task> tasks) {
         return "[" + tasks.stream().map(WorkerTasksResource::taskToJson).collect(Collectors.joining(",")) + "]";
     }
 
@@ -79,8 +79,8 @@ public class WorkersResource {
         SearchResult<Worker> searchResult = brokerManager.findWorkers(search);
         if (!onlyCount) {
             Collection<WorkerModel> jobModels = workerRepresentationConverter.from(uriInfo, searchResult.getRecords());
-            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult.getTotalRecords());
-            PaginatedEnvelope<WorkerModel> envelope = new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), searchResult.getTotalRecords(), jobModels, paginationLinks.get());
+            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult);
+            PaginatedEnvelope<WorkerModel> envelope = new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), paginationLinks.getTotalCount(), jobModels, paginationLinks.get());
             LinkHeaders linkHeaders = new LinkHeaders();
             paginationLinks.get().forEach((rel, href) -> linkHeaders.addLink(Link.fromUri(href.getHref()).rel(rel).build()));
             return Response.ok(envelope).links(linkHeaders.getLinks().toArray(new Link[linkHeaders.getLinks().size()])).build();
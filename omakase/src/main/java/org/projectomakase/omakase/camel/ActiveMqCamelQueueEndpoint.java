@@ -26,6 +26,7 @@ import org.springframework.transaction.PlatformTransactionManager;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.jms.ConnectionFactory;
+import java.util.Optional;
 
 /**
  * {@link CamelQueueEndpoint} implementation for ActiveMQ.
@@ -36,6 +37,7 @@ public class ActiveMqCamelQueueEndpoint implements CamelQueueEndpoint {
 
     private static final String PROVIDER_NAME = "ACTIVEMQ";
     private static final String QUEUE_ENDPOINT = "queue:%s?preserveMessageQos=true&destination.consumer.prefetchSize=1";
+    private static final String TOPIC_ENDPOINT = "queue:topic:%s";
 
     @Resource(mappedName = "java:/AMQConnectionFactory")
     private ConnectionFactory connectionFactory;
@@ -58,4 +60,9 @@ public class ActiveMqCamelQueueEndpoint implements CamelQueueEndpoint {
     public String getQueueEndpoint(String queueName) {
         return String.format(QUEUE_ENDPOINT, queueName);
     }
+
+    @Override
+    public Optional<String> getTopicEndpoint(String topicName) {
+        return Optional.of(String.format(TOPIC_ENDPOINT, topicName));
+    }
 }
@@ -20,6 +20,8 @@
 package org.projectomakase.omakase.camel;
 
 import org.projectomakase.omakase.Omakase;
+import org.projectomakase.omakase.camel.routes.TaskAvailabilityRoute;
+import org.projectomakase.omakase.camel.routes.TaskGroupRepairRoute;
 import org.projectomakase.omakase.camel.routes.TaskStatusQueueRoute;
 import org.projectomakase.omakase.commons.functions.Throwables;
 import org.apache.camel.CamelContext;
@@ -56,6 +58,10 @@ public class CamelLifecycle {
     CamelQueueEndpoint camelQueueEndpoint;
     @Inject
     TaskStatusQueueRoute taskStatusQueueRoute;
+    @Inject
+    TaskGroupRepairRoute taskGroupRepairRoute;
+    @Inject
+    TaskAvailabilityRoute taskAvailabilityRoute;
     @Resource
     ManagedExecutorService managedExecutorService;
     @Resource
@@ -111,5 +117,7 @@ public class CamelLifecycle {
 
     private void registerRoutes() {
         Throwables.voidInstance(() -> camelContext.addRoutes(taskStatusQueueRoute));
+        Throwables.voidInstance(() -> camelContext.addRoutes(taskGroupRepairRoute));
+        Throwables.voidInstance(() -> camelContext.addRoutes(taskAvailabilityRoute));
     }
 }
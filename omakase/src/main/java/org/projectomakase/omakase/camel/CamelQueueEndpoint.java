@@ -21,6 +21,8 @@ package org.projectomakase.omakase.camel;
 
 import org.apache.camel.CamelContext;
 
+import java.util.Optional;
+
 /**
  * Implementations of this interface expose provider specific camel endpoints for accessing queues managed by the provider.
  *
@@ -51,4 +53,13 @@ public interface CamelQueueEndpoint {
      * @return a provider specific endpoint for accessing the specified queue.
      */
     String getQueueEndpoint(String queueName);
+
+    /**
+     * Returns a provider specific endpoint for publishing to and subscribing to the specified topic, every subscriber receives every message published to the topic.
+     *
+     * @param topicName
+     *         the topic name
+     * @return a provider specific endpoint for the specified topic or an empty Optional if the provider does not support topics.
+     */
+    Optional<String> getTopicEndpoint(String topicName);
 }
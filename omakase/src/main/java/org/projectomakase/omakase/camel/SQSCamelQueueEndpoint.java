@@ -21,6 +21,8 @@ package org.projectomakase.omakase.camel;
 
 import org.apache.camel.CamelContext;
 
+import java.util.Optional;
+
 /**
  * {@link CamelQueueEndpoint} implementation for AWS SQS.
  *
@@ -45,4 +47,10 @@ public class SQSCamelQueueEndpoint implements CamelQueueEndpoint {
     public String getQueueEndpoint(String queueName) {
         return String.format(QUEUE_ENDPOINT, queueName);
     }
+
+    @Override
+    public Optional<String> getTopicEndpoint(String topicName) {
+        // SQS does not support topics
+        return Optional.empty();
+    }
 }
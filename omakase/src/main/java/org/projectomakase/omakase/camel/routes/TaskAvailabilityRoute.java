@@ -0,0 +1,60 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.camel.routes;
+
+import org.projectomakase.omakase.Omakase;
+import org.projectomakase.omakase.broker.TaskAvailabilityNotifier;
+import org.projectomakase.omakase.camel.CamelQueueEndpoint;
+import org.apache.camel.builder.RouteBuilder;
+import org.jboss.logging.Logger;
+
+import javax.inject.Inject;
+import java.util.Optional;
+
+/**
+ * Camel route used to subscribe to the cluster wide task availability topic and wake the workers waiting on this instance when tasks are queued by any instance.
+ * <p>
+ * The route is disabled if the queue provider does not support topics.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class TaskAvailabilityRoute extends RouteBuilder {
+
+    private static final Logger LOGGER = Logger.getLogger(TaskAvailabilityRoute.class);
+
+    @Inject
+    @Omakase
+    CamelQueueEndpoint camelQueueEndpoint;
+    @Inject
+    TaskAvailabilityNotifier taskAvailabilityNotifier;
+
+    @Override
+    public void configure() throws Exception {
+        Optional<String> topicEndpoint = camelQueueEndpoint.getTopicEndpoint(taskAvailabilityNotifier.getTopicName());
+        if (topicEndpoint.isPresent()) {
+            LOGGER.info("Waking waiting workers when tasks are queued by any instance");
+            onException(Exception.class).handled(true).to("log:org.projectomakase.omakase.camel.routes.TaskAvailabilityRoute?level=ERROR");
+            from(topicEndpoint.get()).routeId("TaskAvailabilityRoute").beanRef("taskAvailabilityNotifier", "onTasksAvailable");
+        } else {
+            LOGGER.info("Only waking waiting workers when tasks are queued by this instance, " + camelQueueEndpoint.getProviderName() + " does not support topics");
+        }
+    }
+}
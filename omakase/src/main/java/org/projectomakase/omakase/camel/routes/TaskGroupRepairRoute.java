@@ -0,0 +1,54 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.camel.routes;
+
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.inject.Inject;
+
+/**
+ * Camel route used to periodically repair the task counts of active task groups.
+ * <p>
+ * Task groups keep a count of their tasks in each status that is updated, while holding the task group lock, with every task status transition. The route is not
+ * required to keep the counts consistent, it recomputes the counts from the tasks in order to correct task groups that were counted before the task groups were
+ * locked. The route is disabled if the period is 0.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class TaskGroupRepairRoute extends RouteBuilder {
+
+    private static final Logger LOGGER = Logger.getLogger(TaskGroupRepairRoute.class);
+
+    @Inject
+    @ConfigProperty(name = "omakase.task.group.repair.period.ms", defaultValue = "600000")
+    long periodInMs;
+
+    @Override
+    public void configure() throws Exception {
+        if (periodInMs > 0) {
+            LOGGER.info("Repairing task group task counts every " + periodInMs + " ms");
+            onException(Exception.class).handled(true).to("log:org.projectomakase.omakase.camel.routes.TaskGroupRepairRoute?level=ERROR");
+            from("timer:task-group-repair?fixedRate=false&delay=" + periodInMs + "&period=" + periodInMs).routeId("TaskGroupRepairRoute").beanRef("taskManager", "repairTaskGroupCounts");
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.OmakaseCluster;
 import org.projectomakase.omakase.camel.CamelQueueEndpoint;
 import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.model.ProcessorDefinition;
 import org.apache.camel.model.RouteDefinition;
 import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
@@ -31,6 +32,12 @@ import javax.inject.Inject;
 
 /**
  * Camel route used to consume Task Status Update messages from the Task Status Queue and process them.
+ * <p>
+ * If a batch size greater than 1 is configured, messages are processed in batches rather than individually. Batches are consumed by the task status queue itself, the
+ * route runs a single timer that asks the task status queue to process the next batch as soon as the previous batch has completed. The messages in a batch are only
+ * removed from the queue once the batch has been processed so a batch in progress is re-delivered if the instance fails. When throttled the throttle applies to
+ * batches rather than to individual messages.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -49,21 +56,41 @@ public class TaskStatusQueueRoute extends RouteBuilder {
     @Inject
     @ConfigProperty(name = "omakase.task.status.queue.throttle.period.ms")
     int periodInMs;
+    @Inject
+    @ConfigProperty(name = "omakase.task.status.queue.batch.size", defaultValue = "25")
+    int batchSize;
+    @Inject
+    @ConfigProperty(name = "omakase.task.status.queue.batch.timeout.ms", defaultValue = "500")
+    long batchTimeoutInMs;
 
     @Override
     public void configure() throws Exception {
         // the route is NOT transacted and messages are consumed from the queue regardless of the outcome of processing them. This is to ensure that failed messages do not clog up the queue.
+        // when batching, the messages are removed from the queue once the batch has been processed rather than when they are received.
 
         // this ensures the message is consumed even on error.
         onException(Exception.class).continued(true).to("log:org.projectomakase.omakase.camel.routes.TaskStatusQueueRoute?level=ERROR");
 
-        RouteDefinition routeDefinition = from(camelQueueEndpoint.getQueueEndpoint(omakaseCluster.getClusterName() + "-task-status-queue")).routeId("TaskStatusQueueRoute");
+        RouteDefinition routeDefinition;
+        if (batchSize > 1) {
+            // the timer fires with a fixed delay so the next batch is only requested once the previous batch has been processed, waiting for the first message of a batch
+            // blocks for at most the batch timeout so an empty queue is not polled continuously.
+            LOGGER.info("Processing task-status-queue messages in batches of up to " + batchSize + " message(s), waiting at most " + batchTimeoutInMs + " ms");
+            routeDefinition = from("timer:task-status-queue?fixedRate=false&period=1").routeId("TaskStatusQueueRoute");
+        } else {
+            routeDefinition = from(camelQueueEndpoint.getQueueEndpoint(omakaseCluster.getClusterName() + "-task-status-queue")).routeId("TaskStatusQueueRoute");
+        }
 
+        ProcessorDefinition<?> processorDefinition = routeDefinition;
         if (throttleMaxPerPeriod > 0) {
-            LOGGER.info("Throttling task-status-queue route to " + throttleMaxPerPeriod  + " message(s) per " + periodInMs + " ms");
-            routeDefinition.throttle(throttleMaxPerPeriod).timePeriodMillis(periodInMs).beanRef("taskStatusQueue", "processQueueMessage");
+            LOGGER.info("Throttling task-status-queue route to " + throttleMaxPerPeriod + (batchSize > 1 ? " batch(es)" : " message(s)") + " per " + periodInMs + " ms");
+            processorDefinition = routeDefinition.throttle(throttleMaxPerPeriod).timePeriodMillis(periodInMs);
+        }
+
+        if (batchSize > 1) {
+            processorDefinition.beanRef("taskStatusQueue", "processNextBatch(" + batchSize + ", " + batchTimeoutInMs + ")");
         } else {
-            routeDefinition.beanRef("taskStatusQueue", "processQueueMessage");
+            processorDefinition.beanRef("taskStatusQueue", "processQueueMessage");
         }
     }
 }
@@ -22,6 +22,7 @@ package org.projectomakase.omakase.content;
 import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.jcr.AbstractJcrDAO;
 import org.projectomakase.omakase.jcr.JcrThrowables;
+import org.projectomakase.omakase.jcr.NodePathCache;
 import org.jcrom.Jcrom;
 import org.jcrom.util.NodeFilter;
 
@@ -37,9 +38,14 @@ import java.util.Optional;
  */
 public class VariantDAO extends AbstractJcrDAO<Variant> {
 
+    private static final String NODE_TYPE = "omakase:variant";
+
+    private final NodePathCache nodePathCache;
+
     @Inject
-    public VariantDAO(Session session, @Omakase Jcrom jcrom) {
+    public VariantDAO(Session session, @Omakase Jcrom jcrom, NodePathCache nodePathCache) {
         super(session, jcrom);
+        this.nodePathCache = nodePathCache;
     }
 
     public String getAssetId(Variant variant) {
@@ -47,17 +53,26 @@ public class VariantDAO extends AbstractJcrDAO<Variant> {
     }
 
     /**
-     * Finds the variant for the specified variant id.
+     * Finds the variant for the specified variant id. The variants node path is cached so that subsequent look ups for the same variant do not require a query.
      *
      * @param variantId
      *         the variant id.
      * @return an Optional containing the variant or empty if no variant was found.
      */
     public Optional<Variant> findVariantById(@NotNull String variantId) {
-        String sql = "SELECT variant.* " +
-                "FROM [omakase:variant] AS variant " +
-                "WHERE variant.[jcr:name] = '" + variantId + "'";
-        return super.findBySql(sql, new NodeFilter(NodeFilter.INCLUDE_ALL, NodeFilter.DEPTH_INFINITE)).stream().findFirst();
+        NodeFilter nodeFilter = new NodeFilter(NodeFilter.INCLUDE_ALL, NodeFilter.DEPTH_INFINITE);
+        return findByIdUsingNodePathCache(nodePathCache, NODE_TYPE, variantId, nodeFilter, () -> {
+            String sql = "SELECT variant.* " +
+                    "FROM [omakase:variant] AS variant " +
+                    "WHERE variant.[jcr:name] = '" + variantId + "'";
+            return super.findBySql(sql, nodeFilter).stream().findFirst();
+        });
+    }
+
+    @Override
+    public void remove(String path) {
+        super.remove(path);
+        nodePathCache.invalidate(NODE_TYPE, path.substring(path.lastIndexOf('/') + 1));
     }
 }
 
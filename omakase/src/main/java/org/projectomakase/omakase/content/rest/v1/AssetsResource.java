@@ -83,8 +83,8 @@ public class AssetsResource {
         SearchResult<Asset> searchResult = contentManager.findAssets(search);
         if (!onlyCount) {
             Collection<AssetModel> assetModels = assetRepresentationConverter.from(uriInfo, searchResult.getRecords());
-            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult.getTotalRecords());
-            PaginatedEnvelope<AssetModel> envelope = new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), searchResult.getTotalRecords(), assetModels, paginationLinks.get());
+            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult);
+            PaginatedEnvelope<AssetModel> envelope = new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), paginationLinks.getTotalCount(), assetModels, paginationLinks.get());
             LinkHeaders linkHeaders = new LinkHeaders();
             paginationLinks.get().forEach((rel, href) -> linkHeaders.addLink(Link.fromUri(href.getHref()).rel(rel).build()));
             return Response.ok(envelope).links(linkHeaders.getLinks().toArray(new Link[linkHeaders.getLinks().size()])).build();
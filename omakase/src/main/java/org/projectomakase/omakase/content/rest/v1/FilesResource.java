@@ -75,9 +75,9 @@ public class FilesResource {
         SearchResult<VariantFile> searchResult = contentManager.findVariantFiles(assetId, variantId, search);
         if (!onlyCount) {
             Collection<FileModel> fileModels = representationConverter.from(uriInfo, searchResult.getRecords());
-            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult.getTotalRecords());
+            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult);
             PaginatedEnvelope<FileModel> envelope =
-                    new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), searchResult.getTotalRecords(), fileModels, paginationLinks.get());
+                    new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), paginationLinks.getTotalCount(), fileModels, paginationLinks.get());
             LinkHeaders linkHeaders = new LinkHeaders();
             paginationLinks.get().forEach((rel, href) -> linkHeaders.addLink(Link.fromUri(href.getHref()).rel(rel).build()));
             return Response.ok(envelope).links(linkHeaders.getLinks().toArray(new Link[linkHeaders.getLinks().size()])).build();
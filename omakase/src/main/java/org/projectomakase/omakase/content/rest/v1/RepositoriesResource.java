@@ -76,9 +76,9 @@ public class RepositoriesResource {
         SearchResult<VariantRepository> searchResult = contentManager.findVariantRepositories(assetId, variantId, search);
         if (!onlyCount) {
             Collection<RepositoryModel> repositoryModels = repositoryRepresentationConverter.from(uriInfo, searchResult.getRecords());
-            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult.getTotalRecords());
+            PaginationLinks paginationLinks = new PaginationLinks(uriInfo, page, perPage, searchResult);
             PaginatedEnvelope<RepositoryModel> envelope =
-                    new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), searchResult.getTotalRecords(), repositoryModels, paginationLinks.get());
+                    new PaginatedEnvelope<>(page, perPage, paginationLinks.getTotalPages(), paginationLinks.getTotalCount(), repositoryModels, paginationLinks.get());
             LinkHeaders linkHeaders = new LinkHeaders();
             paginationLinks.get().forEach((rel, href) -> linkHeaders.addLink(Link.fromUri(href.getHref()).rel(rel).build()));
             return Response.ok(envelope).links(linkHeaders.getLinks().toArray(new Link[linkHeaders.getLinks().size()])).build();
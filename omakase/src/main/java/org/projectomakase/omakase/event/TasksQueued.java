@@ -0,0 +1,45 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.event;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Notifies observers that tasks have been added to the task queue.
+ *
+ * @author Richard Lucas
+ */
+public class TasksQueued {
+
+    private final ImmutableMap<String, Integer> taskCounts;
+
+    public TasksQueued(ImmutableMap<String, Integer> taskCounts) {
+        this.taskCounts = taskCounts;
+    }
+
+    /**
+     * Returns the number of tasks queued keyed by task type.
+     *
+     * @return the number of tasks queued keyed by task type.
+     */
+    public ImmutableMap<String, Integer> getTaskCounts() {
+        return taskCounts;
+    }
+}
@@ -23,6 +23,8 @@ import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.exceptions.InvalidUUIDException;
 import org.projectomakase.omakase.jcr.query.DefaultSQL2QueryBuilder;
 import org.projectomakase.omakase.jcr.query.SQL2QueryBuilder;
+import org.projectomakase.omakase.search.CountMode;
+import org.projectomakase.omakase.search.Cursor;
 import org.projectomakase.omakase.search.Search;
 import org.projectomakase.omakase.search.SearchException;
 import org.projectomakase.omakase.search.SearchResult;
@@ -33,13 +35,21 @@ import org.jcrom.util.NodeFilter;
 
 import javax.inject.Inject;
 import javax.jcr.Node;
+import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
 import javax.jcr.query.QueryResult;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Extends Jcrom {@link org.jcrom.dao.AbstractJcrDAO} providing additional common functionality.
@@ -71,6 +81,23 @@ public abstract class AbstractJcrDAO<T> extends org.jcrom.dao.AbstractJcrDAO<T>
         return get(jcrom.getPath(createdEntity));
     }
 
+    /**
+     * Creates the entity under the parent node path without saving the session.
+     * <p>
+     * Used to batch the creation of multiple entities into a single session save, callers are responsible for calling {@link #save()} once all of the entities have been
+     * created. Unlike {@link #create(String, Object)} the entity is not re-read after it is created and auto assigned node properties e.g. created/modified will not be
+     * set on the given entity.
+     * </p>
+     *
+     * @param parentNodePath
+     *         the path to the parent node
+     * @param entity
+     *         the object to be mapped to the JCR node
+     */
+    public void createWithoutSave(String parentNodePath, T entity) {
+        JcrThrowables.wrapJcrExceptions(() -> jcrom.addNode(session.getNode(parentNodePath), entity));
+    }
+
     /**
      * Creates the entity under the parent node path using a distribution algorithm that creates additional hierarchical layers between the parent node path and the entity in order to avoid having a
      * large number of nodes sit under a single parent (too wide).
@@ -110,6 +137,38 @@ public abstract class AbstractJcrDAO<T> extends org.jcrom.dao.AbstractJcrDAO<T>
         return create(nodeLevelThreePath, entity);
     }
 
+    /**
+     * Creates the entity under the parent node path using the same distribution algorithm as {@link #distributedCreate(String, Object, String)} without saving the session.
+     * <p>
+     * Used to batch the creation of multiple entities into a single session save, callers are responsible for calling {@link #save()} once all of the entities have been
+     * created. The parent node path is expected to exist within the current session.
+     * </p>
+     *
+     * @param parentNodePath
+     *         the path to the parent node
+     * @param entity
+     *         the object to be mapped to the JCR node
+     * @param uuid
+     *         the id of the entity, this is expected to be a UUID.
+     */
+    public void distributedCreateWithoutSave(String parentNodePath, T entity, String uuid) {
+        String nodeLevelOneName = uuid.substring(0, 2);
+        String nodeLevelOnePath = parentNodePath + "/" + nodeLevelOneName;
+
+        String nodeLevelTwoName = uuid.substring(2, 4);
+        String nodeLevelTwoPath = nodeLevelOnePath + "/" + nodeLevelTwoName;
+
+        String nodeLevelThreeName = uuid.substring(4, 6);
+        String nodeLevelThreePath = nodeLevelTwoPath + "/" + nodeLevelThreeName;
+
+        JcrThrowables.wrapJcrExceptions(() -> {
+            addLevel(parentNodePath, nodeLevelOneName, nodeLevelOnePath);
+            addLevel(nodeLevelOnePath, nodeLevelTwoName, nodeLevelTwoPath);
+            addLevel(nodeLevelTwoPath, nodeLevelThreeName, nodeLevelThreePath);
+            jcrom.addNode(session.getNode(nodeLevelThreePath), entity);
+        });
+    }
+
     /**
      * Returns the node path of a node that was stored under the parent node path using distribution.
      *
@@ -147,49 +206,120 @@ public abstract class AbstractJcrDAO<T> extends org.jcrom.dao.AbstractJcrDAO<T>
         return findNodes(rootNodePath, search, new DefaultSQL2QueryBuilder(nodeType, rootNodePath));
     }
 
+    /**
+     * Returns all descendant nodes of the root path that match the query built by the given query builder. The number of rows returned is limited by the count and offset.
+     * <p>
+     * The query is executed once per call. If the search uses {@link CountMode#EXACT} the query is executed without a limit, the total is read from the size of the result and the page is read
+     * by skipping to the offset. Otherwise the query is limited to the records up to and including the current page plus one additional record, which is used to determine if there are more
+     * records after the current page.
+     * </p>
+     * <p>
+     * If the search has a {@link Cursor} keyset pagination is used instead, the query is restricted to the records that sort after the cursor position and is limited to the page size plus one
+     * additional record. The offset and count mode are ignored and the total is not calculated.
+     * </p>
+     *
+     * @param rootNodePath
+     *         that parent node path
+     * @param search
+     *         the search that will be used to filter the result set.
+     * @param queryBuilder
+     *         the query builder used to build the query
+     * @return a {@link SearchResult} containing any matching nodes.
+     */
     public SearchResult<T> findNodes(String rootNodePath, Search search, SQL2QueryBuilder queryBuilder) {
 
         //Validate parentNodePath
         JcrThrowables.wrapJcrExceptions(() -> getNode(rootNodePath));
 
         try {
-
-            List<T> records = new ArrayList<>();
             queryBuilder.conditions(search.getSearchConditions()).orderBy(search.getOrderBy(), search.getSortOrder());
 
-            QueryManager queryManager = getSession().getWorkspace().getQueryManager();
-            Query query = queryManager.createQuery(queryBuilder.build(), Query.JCR_SQL2);
-            QueryResult result = query.execute();
-
-            QueryResult resultWithLimit = null;
-            if (!search.isOnlyCount()) {
-                if (search.getCount() > 0) {
-                    queryBuilder.limit(search.getCount(), search.getOffset());
-                }
-                Query queryWithLimit = queryManager.createQuery(queryBuilder.build(), Query.JCR_SQL2);
-                resultWithLimit = queryWithLimit.execute();
+            if (search.getCursor().isPresent() && !search.isOnlyCount()) {
+                return findNodesAfterCursor(search, search.getCursor().get(), queryBuilder);
             }
 
-            long totalCount = -1;
-            if (result != null) {
-                totalCount = result.getNodes().getSize();
-            }
+            boolean paged = !search.isOnlyCount() && search.getCount() > 0;
+            boolean exactCount = search.isOnlyCount() || CountMode.EXACT.equals(search.getCountMode()) || !paged;
 
-            // totalCount > search.getOffset() is a workaround for MODE-2435
-            if (resultWithLimit != null && totalCount > search.getOffset()) {
-                records = toList(resultWithLimit.getNodes(), null);
+            if (!exactCount) {
+                // the offset is applied by skipping the results rather than using OFFSET, this is a workaround for MODE-2435
+                queryBuilder.limit(search.getOffset() + search.getCount() + 1, 0);
             }
 
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace(" plan -> " + ((org.modeshape.jcr.api.query.QueryResult)result).getPlan());
+            NodeIterator nodes = execute(queryBuilder).getNodes();
+            List<T> records = new ArrayList<>();
+            long skipped = 0;
+            if (paged) {
+                skipped = skip(nodes, search.getOffset());
+                records = toList(new LimitedNodeIterator(nodes, search.getCount()), null);
+            } else if (!search.isOnlyCount()) {
+                records = toList(nodes, null);
             }
 
-            return new SearchResult<>(records, totalCount);
+            if (exactCount) {
+                long totalCount = nodes.getSize();
+                if (totalCount < 0) {
+                    totalCount = skipped + records.size() + skip(nodes, Long.MAX_VALUE);
+                }
+                return new SearchResult<>(records, totalCount);
+            } else {
+                boolean moreRecords = nodes.hasNext();
+                long totalCount = CountMode.ESTIMATE.equals(search.getCountMode()) ? skipped + records.size() + (moreRecords ? 1 : 0) : -1;
+                return new SearchResult<>(records, totalCount, search.getCountMode(), moreRecords);
+            }
         } catch (RepositoryException e) {
             throw new SearchException(e.getMessage(), e);
         }
     }
 
+    private SearchResult<T> findNodesAfterCursor(Search search, Cursor cursor, SQL2QueryBuilder queryBuilder) throws RepositoryException {
+        // one extra record is requested in order to determine if there is a next page
+        queryBuilder.after(cursor).limit(search.getCount() + 1, 0);
+        NodeIterator nodes = execute(queryBuilder).getNodes();
+        LimitedNodeIterator pageNodes = new LimitedNodeIterator(nodes, search.getCount());
+        List<T> records = toList(pageNodes, null);
+
+        Cursor nextCursor = null;
+        if (nodes.hasNext() && pageNodes.getLastNode() != null) {
+            Node lastNode = pageNodes.getLastNode();
+            String sortValue = null;
+            if (search.getOrderBy() != null && lastNode.hasProperty(search.getOrderBy())) {
+                sortValue = lastNode.getProperty(search.getOrderBy()).getString();
+            }
+            nextCursor = Cursor.after(search.getOrderBy(), search.getSortOrder(), sortValue, lastNode.getName());
+        }
+        return new SearchResult<>(records, nextCursor);
+    }
+
+    /**
+     * Returns a stream of the entities that match the JCR-SQL2 query.
+     * <p>
+     * Unlike {@link #findBySql(String, NodeFilter)} the entities are mapped from the query result as the stream is consumed instead of all being loaded up front, which allows large result sets
+     * to be processed without holding every entity in memory.
+     * </p>
+     *
+     * @param sql
+     *         the JCR-SQL2 query
+     * @return a stream of the entities that match the query.
+     */
+    public Stream<T> streamBySql(String sql) {
+        NodeIterator nodes = JcrThrowables.wrapJcrExceptionsWithReturn(() -> getSession().getWorkspace().getQueryManager().createQuery(sql, Query.JCR_SQL2).execute().getNodes());
+        @SuppressWarnings("unchecked")
+        Iterator<Node> iterator = nodes;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false).map(node -> jcrom.fromNode(entityClass, node));
+    }
+
+    private QueryResult execute(SQL2QueryBuilder queryBuilder) throws RepositoryException {
+        QueryManager queryManager = getSession().getWorkspace().getQueryManager();
+        Query query = queryManager.createQuery(queryBuilder.build(), Query.JCR_SQL2);
+        QueryResult result = query.execute();
+
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace(" plan -> " + ((org.modeshape.jcr.api.query.QueryResult) result).getPlan());
+        }
+        return result;
+    }
+
     @Override
     public T update(T entity) {
         T updatedEntity = super.update(entity);
@@ -204,6 +334,80 @@ public abstract class AbstractJcrDAO<T> extends org.jcrom.dao.AbstractJcrDAO<T>
         return get(jcrom.getPath(updatedEntity));
     }
 
+    /**
+     * Applies the entity to its existing JCR node without saving the session.
+     * <p>
+     * Used to batch multiple updates into a single session save, callers are responsible for calling {@link #save()} once all of the updates have been applied. Unlike {@link #update(Object)} the
+     * entity is not re-read after the update and auto assigned node properties will not be reflected on the given entity.
+     * </p>
+     *
+     * @param entity
+     *         the entity to apply to its node
+     */
+    public void updateWithoutSave(T entity) {
+        JcrThrowables.wrapJcrExceptions(() -> jcrom.updateNode(getNode(jcrom.getPath(entity)), entity));
+    }
+
+    /**
+     * Saves any pending changes made within the current session.
+     */
+    public void save() {
+        JcrThrowables.wrapJcrExceptions(session::save);
+    }
+
+    /**
+     * Finds the entity with the given id, using the node path cache to load the entity directly from its node if the node path of the entity has previously been resolved.
+     * <p>
+     * If the node path is not cached, or the cached node no longer exists, the query is used to find the entity and the node path of the result is cached.
+     * </p>
+     *
+     * @param nodePathCache
+     *         the node path cache
+     * @param nodeType
+     *         the node type of the entity
+     * @param id
+     *         the entity id, this is expected to be the jcr:name of the entity node
+     * @param nodeFilter
+     *         the node filter used when loading the entity from a cached node path, may be null
+     * @param query
+     *         the query used to find the entity if the node path is not cached
+     * @return an Optional containing the entity or empty if no entity was found.
+     */
+    protected Optional<T> findByIdUsingNodePathCache(NodePathCache nodePathCache, String nodeType, String id, NodeFilter nodeFilter, Supplier<Optional<T>> query) {
+        Optional<String> cachedNodePath = nodePathCache.get(nodeType, id);
+        if (cachedNodePath.isPresent()) {
+            String nodePath = cachedNodePath.get();
+            Optional<T> entity = Optional.ofNullable(nodeFilter == null ? get(nodePath) : get(nodePath, nodeFilter));
+            if (entity.isPresent()) {
+                return entity;
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Cached node path " + nodePath + " for " + id + " no longer exists");
+            }
+            nodePathCache.invalidate(nodeType, id);
+        }
+
+        Optional<T> entity = query.get();
+        entity.ifPresent(e -> nodePathCache.put(nodeType, id, jcrom.getPath(e)));
+        return entity;
+    }
+
+    private static long skip(NodeIterator nodes, long count) {
+        long size = nodes.getSize();
+        if (size >= 0) {
+            long skipCount = Math.max(0, Math.min(count, size - nodes.getPosition()));
+            nodes.skip(skipCount);
+            return skipCount;
+        } else {
+            long skipCount = 0;
+            while (skipCount < count && nodes.hasNext()) {
+                nodes.skip(1);
+                skipCount++;
+            }
+            return skipCount;
+        }
+    }
+
     private void addLevel(String currentNodeLevelPath, String nextNodeLevelName, String nextNodeLevelPath) throws RepositoryException {
         if (!session.nodeExists(nextNodeLevelPath)) {
             Node parentNode = session.getNode(currentNodeLevelPath);
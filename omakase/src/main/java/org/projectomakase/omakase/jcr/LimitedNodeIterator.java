@@ -0,0 +1,96 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.jcr;
+
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link NodeIterator} implementation that limits the number of nodes returned by a delegate iterator. Nodes that are not returned by this iterator are not consumed from the delegate.
+ *
+ * @author Richard Lucas
+ */
+class LimitedNodeIterator implements NodeIterator {
+
+    private final NodeIterator delegate;
+    private final long limit;
+    private long position;
+    private Node lastNode;
+
+    LimitedNodeIterator(NodeIterator delegate, long limit) {
+        this.delegate = delegate;
+        this.limit = limit;
+    }
+
+    @Override
+    public Node nextNode() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        position++;
+        lastNode = delegate.nextNode();
+        return lastNode;
+    }
+
+    @Override
+    public void skip(long skipNum) {
+        if (position + skipNum > limit) {
+            throw new NoSuchElementException();
+        }
+        delegate.skip(skipNum);
+        position += skipNum;
+    }
+
+    @Override
+    public long getSize() {
+        long size = delegate.getSize();
+        return size < 0 ? -1 : Math.min(limit, size - delegate.getPosition() + position);
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < limit && delegate.hasNext();
+    }
+
+    @Override
+    public Object next() {
+        return nextNode();
+    }
+
+    /**
+     * Returns the last node returned by {@link #nextNode()}, or null if no nodes have been returned.
+     *
+     * @return the last node returned by {@link #nextNode()}.
+     */
+    Node getLastNode() {
+        return lastNode;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
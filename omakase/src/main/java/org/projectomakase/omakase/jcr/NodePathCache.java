@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.jcr;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Optional;
+
+/**
+ * Bounded cache of entity id to JCR node path mappings, used to resolve entities by id with a direct node lookup instead of a query.
+ * <p>
+ * Entity node names are the entity ids and entities are never moved once created, so a cached path can only become stale if the node is removed. Callers are expected to validate a cached path
+ * by loading the node and to invalidate the mapping and fall back to a query if the node no longer exists, this makes the cache safe to use on every node in a cluster without cross node
+ * invalidation.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@ApplicationScoped
+public class NodePathCache {
+
+    @Inject
+    @ConfigProperty(name = "omakase.jcr.node.path.cache.size", defaultValue = "10000")
+    long maximumSize;
+
+    private Cache<String, String> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    /**
+     * Returns the cached node path for the given node type and id.
+     *
+     * @param nodeType
+     *         the node type
+     * @param id
+     *         the entity id
+     * @return the cached node path or an empty Optional if the node path is not cached.
+     */
+    public Optional<String> get(String nodeType, String id) {
+        return Optional.ofNullable(cache.getIfPresent(getKey(nodeType, id)));
+    }
+
+    /**
+     * Caches the node path for the given node type and id.
+     *
+     * @param nodeType
+     *         the node type
+     * @param id
+     *         the entity id
+     * @param nodePath
+     *         the node path
+     */
+    public void put(String nodeType, String id, String nodePath) {
+        cache.put(getKey(nodeType, id), nodePath);
+    }
+
+    /**
+     * Removes the cached node path for the given node type and id.
+     *
+     * @param nodeType
+     *         the node type
+     * @param id
+     *         the entity id
+     */
+    public void invalidate(String nodeType, String id) {
+        cache.invalidate(getKey(nodeType, id));
+    }
+
+    private static String getKey(String nodeType, String id) {
+        return nodeType + "|" + id;
+    }
+}
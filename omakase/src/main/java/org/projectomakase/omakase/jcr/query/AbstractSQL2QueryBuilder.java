@@ -22,6 +22,7 @@ package org.projectomakase.omakase.jcr.query;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import org.projectomakase.omakase.commons.collectors.ImmutableListsCollector;
+import org.projectomakase.omakase.search.Cursor;
 import org.projectomakase.omakase.search.Operator;
 import org.projectomakase.omakase.search.SearchCondition;
 import org.projectomakase.omakase.search.SearchException;
@@ -42,12 +43,14 @@ import java.util.Optional;
 public abstract class AbstractSQL2QueryBuilder implements SQL2QueryBuilder {
 
     private static final Logger LOGGER = Logger.getLogger(AbstractSQL2QueryBuilder.class);
+    private static final String JCR_NAME = "jcr:name";
 
     protected List<SearchCondition> searchConditions = ImmutableList.of();
     protected Integer count;
     protected Integer offset;
     protected String sortAttribute;
     protected SortOrder sortOrder;
+    protected Cursor cursor;
 
     @Override
     public AbstractSQL2QueryBuilder conditions(List<SearchCondition> searchConditions) {
@@ -69,10 +72,21 @@ public abstract class AbstractSQL2QueryBuilder implements SQL2QueryBuilder {
         return this;
     }
 
+    @Override
+    public AbstractSQL2QueryBuilder after(@NotNull Cursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
     protected String build(String selectClause) {
         StringBuilder stringBuilder = new StringBuilder(selectClause);
         getJcrSql2Conditions(searchConditions).forEach(stringBuilder::append);
-        getOrderBy(sortAttribute, sortOrder).ifPresent(stringBuilder::append);
+        if (cursor == null) {
+            getOrderBy(sortAttribute, sortOrder).ifPresent(stringBuilder::append);
+        } else {
+            getKeysetCondition(sortAttribute, sortOrder, cursor).ifPresent(stringBuilder::append);
+            stringBuilder.append(getKeysetOrderBy(sortAttribute, sortOrder));
+        }
         getLimit(count, offset).ifPresent(stringBuilder::append);
 
         String sql = stringBuilder.toString();
@@ -96,6 +110,43 @@ public abstract class AbstractSQL2QueryBuilder implements SQL2QueryBuilder {
         }
     }
 
+    static String getKeysetOrderBy(String sortAttribute, SortOrder sortOrder) {
+        String order = Optional.ofNullable(sortOrder).orElse(SortOrder.ASC).name();
+        if (sortAttribute != null) {
+            return String.format(" ORDER by node.[%s] %s, node.[%s] %s", sortAttribute, order, JCR_NAME, order);
+        } else {
+            return String.format(" ORDER by node.[%s] %s", JCR_NAME, order);
+        }
+    }
+
+    static Optional<String> getKeysetCondition(String sortAttribute, SortOrder sortOrder, Cursor cursor) {
+        if (cursor.isStart()) {
+            return Optional.empty();
+        }
+
+        // records without a value for the sort attribute sort before records with a value in ascending order and after them in descending order
+        boolean descending = SortOrder.DESC.equals(sortOrder);
+        String comparison = descending ? "<" : ">";
+        String name = escape(cursor.getName());
+
+        String condition;
+        if (sortAttribute == null) {
+            condition = String.format(" AND (node.[%s] %s '%s')", JCR_NAME, comparison, name);
+        } else if (cursor.getSortValue().isPresent()) {
+            String value = escape(cursor.getSortValue().get());
+            condition = String.format(" AND (node.[%1$s] %2$s '%3$s' OR (node.[%1$s] = '%3$s' AND node.[%4$s] %2$s '%5$s')", sortAttribute, comparison, value, JCR_NAME, name);
+            if (descending) {
+                condition += String.format(" OR NOT node.[%s] IS NOT NULL", sortAttribute);
+            }
+            condition += ")";
+        } else if (descending) {
+            condition = String.format(" AND (NOT node.[%1$s] IS NOT NULL AND node.[%2$s] < '%3$s')", sortAttribute, JCR_NAME, name);
+        } else {
+            condition = String.format(" AND ((NOT node.[%1$s] IS NOT NULL AND node.[%2$s] > '%3$s') OR node.[%1$s] IS NOT NULL)", sortAttribute, JCR_NAME, name);
+        }
+        return Optional.of(condition);
+    }
+
     static Optional<String> getLimit(Integer count, Integer offset)  {
         if (count != null && offset != null) {
             return Optional.of(String.format(" LIMIT %d OFFSET %d", count, offset));
@@ -104,6 +155,10 @@ public abstract class AbstractSQL2QueryBuilder implements SQL2QueryBuilder {
         }
     }
 
+    private static String escape(String value) {
+        return value.replace("'", "''");
+    }
+
     static List<String> getJcrSql2ConditionsForValue(SearchCondition searchCondition) {
         return searchCondition.getValues().stream().map(value -> getJcrSql2Condition(searchCondition.getAttribute(), searchCondition.getOperator(), value, searchCondition.isDate())).collect(
                 ImmutableListCollector.toImmutableList());
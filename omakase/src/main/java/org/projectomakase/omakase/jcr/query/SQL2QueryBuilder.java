@@ -19,6 +19,7 @@
  */
 package org.projectomakase.omakase.jcr.query;
 
+import org.projectomakase.omakase.search.Cursor;
 import org.projectomakase.omakase.search.SearchCondition;
 import org.projectomakase.omakase.search.SortOrder;
 
@@ -63,6 +64,16 @@ public interface SQL2QueryBuilder {
      */
     SQL2QueryBuilder orderBy(@NotNull String sortAttribute, @NotNull SortOrder sortOrder);
 
+    /**
+     * Restricts the query to the results that sort after the position of the given keyset pagination cursor. The results are additionally ordered by jcr:name to give a total ordering that
+     * is consistent across pages.
+     *
+     * @param cursor
+     *         the keyset pagination cursor
+     * @return the builder.
+     */
+    SQL2QueryBuilder after(@NotNull Cursor cursor);
+
     /**
      * Builds the JCR SQL 2 query.
      *
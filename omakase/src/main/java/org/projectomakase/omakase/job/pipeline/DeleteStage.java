@@ -90,7 +90,7 @@ public class DeleteStage implements PipelineStage {
             return PipelineStageResult.builder(pipelineId, PipelineStageStatus.COMPLETED).addMessages(ImmutableSet.of("Deleted variant " + variantId + " from repositories")).build();
         } else {
             TaskGroup taskGroup = taskManager.createTaskGroup(new TaskGroup(jobId, pipelineContext.getPipelineId(), PipelineExecutor.CALLBACK_LISTENER_ID));
-            tasks.forEach(task -> taskManager.createTask(taskGroup, task));
+            taskManager.createTasks(taskGroup, tasks);
             return PipelineStageResult.builder(pipelineId, PipelineStageStatus.QUEUED).addMessages(ImmutableSet.of("Queued tasks to delete variant " + variantId + " from repositories")).build();
         }
     }
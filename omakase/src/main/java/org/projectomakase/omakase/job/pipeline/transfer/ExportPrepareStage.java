@@ -66,6 +66,8 @@ public class ExportPrepareStage implements PipelineStage {
     ContentManager contentManager;
     @Inject
     MultipartUploadInfoProvider multipartUploadInfoProvider;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public PipelineStageResult prepare(PipelineContext pipelineContext) {
@@ -92,7 +94,7 @@ public class ExportPrepareStage implements PipelineStage {
                 searchResult.getRecords().stream().map(variantFile -> createTransferFileGroup(variantId, repositoryId, repositoryUri, destinationLocation, variantFile)).collect(
                         ImmutableListCollector.toImmutableList());
         Transfer transfer = new Transfer(transferFileGroups);
-        propertiesBuilder.put(TransferPipeline.TRANSFER, transfer.toJson());
+        transferManager.setTransfer(pipelineContext, transfer);
 
         multipartUploadInfoProvider.get(locationManager.expandLocationUri(Throwables.returnableInstance(() -> new URI(destinationLocation))))
                 .ifPresent(multipartUploadInfo -> propertiesBuilder.put("multipartUploadInfo", multipartUploadInfo.toJson()));
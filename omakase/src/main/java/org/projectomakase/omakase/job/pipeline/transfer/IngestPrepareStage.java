@@ -62,6 +62,8 @@ public class IngestPrepareStage implements PipelineStage {
     RepositoryManager repositoryManager;
     @Inject
     LocationManager locationManager;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public PipelineStageResult prepare(PipelineContext pipelineContext) {
@@ -92,10 +94,10 @@ public class IngestPrepareStage implements PipelineStage {
         if (manifestType.isPresent()) {
             propertiesBuilder.put("manifestType", manifestType.get().name());
             propertiesBuilder.put(TransferPipeline.MANIFEST_TRANSFER, createManifestTransfer(manifestType.get(), configuration.getIngestJobFiles(), variantId, repository, repositoryUri).toJson());
-            propertiesBuilder.put(TransferPipeline.TRANSFER, new Transfer(ImmutableList.of()).toJson());
+            transferManager.setTransfer(pipelineContext, new Transfer(ImmutableList.of()));
         } else {
             validateFileSizeIsPresent(configuration, repository);
-            propertiesBuilder.put(TransferPipeline.TRANSFER, createTransfer(configuration.getIngestJobFiles(), variantId, repositoryId, repositoryUri).toJson());
+            transferManager.setTransfer(pipelineContext, createTransfer(configuration.getIngestJobFiles(), variantId, repositoryId, repositoryUri));
         }
         return PipelineStageResult.builder(pipelineId, PipelineStageStatus.COMPLETED).addProperties(propertiesBuilder.build()).build();
     }
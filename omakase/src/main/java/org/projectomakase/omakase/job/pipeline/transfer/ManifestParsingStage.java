@@ -53,6 +53,7 @@ import javax.inject.Inject;
 import java.net.URI;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * {@link PipelineStage} implementation that parses and ingests manifests.
@@ -71,6 +72,8 @@ public class ManifestParsingStage implements PipelineStage {
     RepositoryManager repositoryManager;
     @Inject
     TransferDelegateResolver transferDelegateResolver;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public PipelineStageResult prepare(PipelineContext pipelineContext) {
@@ -148,12 +151,18 @@ public class ManifestParsingStage implements PipelineStage {
         });
 
         List<ManifestTransferFile> childManifestTransferFiles = getChildManifestTransferFiles(pipelineContext, variantId, repository, repositoryUri, manifestTransferFiles);
-        propertiesBuilder.put(TransferPipeline.MANIFEST_TRANSFER, updateManifestTransfer(pipelineContext, manifestTransferFiles, childManifestTransferFiles).toJson());
+
+        // the files referenced by each manifest are paged into chunk nodes instead of being stored in the manifest transfer pipeline property
+        manifestTransferFiles.forEach(manifest -> transferManager.setManifestFiles(pipelineContext, manifest.getId(), manifest.getManifestFiles()));
+        List<ManifestTransferFile> parsedManifestTransferFiles = manifestTransferFiles.stream()
+                .map(manifest -> ManifestTransferFile.builder(manifest).manifestFiles(ImmutableList.of()).build())
+                .collect(ImmutableListCollector.toImmutableList());
+        propertiesBuilder.put(TransferPipeline.MANIFEST_TRANSFER, updateManifestTransfer(pipelineContext, parsedManifestTransferFiles, childManifestTransferFiles).toJson());
 
         if (!childManifestTransferFiles.isEmpty()) {
             return createManifestTransferTasks(pipelineContext, propertiesBuilder, repositoryId, jobId, priority, childManifestTransferFiles);
         } else {
-            return createTransfer(pipelineContext, propertiesBuilder, variantId, repository, manifestTransferFiles, repositoryUri);
+            return createTransfer(pipelineContext, propertiesBuilder, variantId, repository, parsedManifestTransferFiles, repositoryUri);
         }
 
     }
@@ -226,25 +235,25 @@ public class ManifestParsingStage implements PipelineStage {
 
         ManifestType manifestType = ManifestType.valueOf(Pipelines.getPipelineProperty(pipelineContext, "manifestType"));
 
-        // The transfer will consist of either n transfer groups each with n transfer files if the manifest is HLS or n transfer groups with 1 transfer file per group in non HLS
+        // The transfer will consist of either n transfer groups each with n transfer files if the manifest is HLS or n transfer groups with 1 transfer file per group in non HLS.
+        // The manifest files are read lazily and the transfer file groups are written as they are created so the transfer is never held in memory in its entirety.
+        Stream<TransferFileGroup> transferFileGroups;
         if (ManifestType.HLS.equals(manifestType)) {
-            List<TransferFileGroup> transferFileGroups =
-                    manifestTransferFiles.stream().map(manifest -> createTransferGroup(pipelineContext, manifest, variantId, repository, repositoryUri)).collect(ImmutableListCollector.toImmutableList());
-            propertiesBuilder.put(TransferPipeline.TRANSFER, new Transfer(transferFileGroups).toJson());
+            transferFileGroups = manifestTransferFiles.stream().map(manifest -> createTransferGroup(pipelineContext, manifest, variantId, repository, repositoryUri));
         } else {
-            List<TransferFileGroup> transferFileGroups = manifestTransferFiles.stream().map(manifest -> manifest.getManifestFiles().stream().map(uri -> TransferFileGroup.builder()
+            transferFileGroups = manifestTransferFiles.stream().flatMap(manifest -> transferManager.streamManifestFiles(pipelineContext, manifest.getId()).map(uri -> TransferFileGroup.builder()
                     .transferFiles(ImmutableList.of(createTransferFile(pipelineContext, manifest, uri, variantId, repository, repositoryUri)))
                     .description(manifest.getDescription().orElse(DEFAULT_MANIFEST_DESCRIPTION))
-                    .build()).collect(ImmutableListCollector.toImmutableList())).collect(ImmutableListsCollector.toImmutableList());
-            propertiesBuilder.put(TransferPipeline.TRANSFER, new Transfer(transferFileGroups).toJson());
-
+                    .build()));
         }
+        transferManager.setTransfer(pipelineContext, transferFileGroups);
         return PipelineStageResult.builder(pipelineContext.getPipelineId(), PipelineStageStatus.COMPLETED).addProperties(propertiesBuilder.build()).build();
     }
 
     private TransferFileGroup createTransferGroup(PipelineContext pipelineContext, ManifestTransferFile parent, String variantId, Repository repository, URI repositoryUri) {
-        List<TransferFile> transferFiles = parent.getManifestFiles().stream().map(uri -> createTransferFile(pipelineContext, parent, uri, variantId, repository, repositoryUri)).collect(
-                ImmutableListCollector.toImmutableList());
+        List<TransferFile> transferFiles = transferManager.streamManifestFiles(pipelineContext, parent.getId())
+                .map(uri -> createTransferFile(pipelineContext, parent, uri, variantId, repository, repositoryUri))
+                .collect(ImmutableListCollector.toImmutableList());
 
         return TransferFileGroup.builder().transferFiles(transferFiles).description(parent.getDescription().orElse(DEFAULT_MANIFEST_DESCRIPTION)).build();
     }
@@ -65,6 +65,8 @@ public class MultipartPrepareStage implements PipelineStage {
 
     @Inject
     TaskManager taskManager;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public PipelineStageResult prepare(PipelineContext pipelineContext) {
@@ -79,13 +81,13 @@ public class MultipartPrepareStage implements PipelineStage {
 
         TaskGroup taskGroup = taskManager.createTaskGroup(new TaskGroup(jobId, pipelineContext.getPipelineId(), PipelineExecutor.CALLBACK_LISTENER_ID));
 
-        Transfer transfer = new Transfer(TransferPipeline.getTransferFromPipelineContext(pipelineContext)
-                                                 .getTransferFileGroups()
-                                                 .stream()
-                                                 .map(transferFileGroup -> updateTransferFileGroup(multipartUploadInfo, transferFileGroup, taskGroup, priority, propertiesBuilder))
-                                                 .collect(ImmutableListCollector.toImmutableList()));
+        List<TransferFileGroup> transferFileGroups = transferManager.getTransfer(pipelineContext)
+                .getTransferFileGroups()
+                .stream()
+                .map(transferFileGroup -> updateTransferFileGroup(multipartUploadInfo, transferFileGroup, taskGroup, priority, propertiesBuilder))
+                .collect(ImmutableListCollector.toImmutableList());
 
-        propertiesBuilder.put(TransferPipeline.TRANSFER, transfer.toJson());
+        transferManager.updateTransferFileGroups(pipelineContext, transferFileGroups);
         return PipelineStageResult.builder(pipelineId, PipelineStageStatus.QUEUED).addProperties(propertiesBuilder.build()).build();
     }
 
@@ -95,15 +97,13 @@ public class MultipartPrepareStage implements PipelineStage {
 
         PipelineStageStatus pipelineStageStatus;
 
-        ImmutableMap.Builder<String, String> propertiesBuilder = ImmutableMap.builder();
-
         switch (groupStatus) {
             case EXECUTING:
                 pipelineStageStatus = PipelineStageStatus.EXECUTING;
                 break;
             case COMPLETED:
                 pipelineStageStatus = PipelineStageStatus.COMPLETED;
-                handledCompleted(pipelineContext, callbackEvent, propertiesBuilder);
+                handledCompleted(pipelineContext, callbackEvent);
                 break;
             case FAILED_DIRTY:
             case FAILED_CLEAN:
@@ -115,7 +115,7 @@ public class MultipartPrepareStage implements PipelineStage {
                 break;
         }
 
-        return PipelineStageResult.builder(pipelineContext.getPipelineId(), pipelineStageStatus).addProperties(propertiesBuilder.build()).build();
+        return PipelineStageResult.builder(pipelineContext.getPipelineId(), pipelineStageStatus).build();
     }
 
     private TransferFileGroup updateTransferFileGroup(MultipartUploadInfo multipartUploadInfo, TransferFileGroup transferFileGroup, TaskGroup taskGroup, int priority,
@@ -139,19 +139,19 @@ public class MultipartPrepareStage implements PipelineStage {
         return new HashTaskConfiguration(transferFile.getSource(), hashInputs);
     }
 
-    private void handledCompleted(PipelineContext pipelineContext, CallbackEvent callbackEvent, ImmutableMap.Builder<String, String> propertiesBuilder) {
+    private void handledCompleted(PipelineContext pipelineContext, CallbackEvent callbackEvent) {
         Set<Task> tasks = taskManager.getTasks(Callbacks.getCallbackEventProperty(callbackEvent, "taskGroupId"));
         MultipartUploadInfo multipartUploadInfo = getMultipartUploadInfo(pipelineContext);
         List<TransferFileGroup> transferFileGroups = tasks.stream().map(task -> updateTransfers(pipelineContext, task, multipartUploadInfo)).collect(ImmutableListCollector.toImmutableList());
-        propertiesBuilder.put(TransferPipeline.TRANSFER, new Transfer(transferFileGroups).toJson());
+        transferManager.updateTransferFileGroups(pipelineContext, transferFileGroups);
     }
 
     private static MultipartUploadInfo getMultipartUploadInfo(PipelineContext pipelineContext) {
         return MultipartUploadInfo.fromJson(Pipelines.getPipelineProperty(pipelineContext, "multipartUploadInfo"));
     }
 
-    private static TransferFileGroup updateTransfers(PipelineContext pipelineContext, Task task, MultipartUploadInfo multipartUploadInfo) {
-        final TransferFileGroup transferFileGroup = TransferPipeline.getTransferFileGroupFromPipelineContext(pipelineContext, task.getId());
+    private TransferFileGroup updateTransfers(PipelineContext pipelineContext, Task task, MultipartUploadInfo multipartUploadInfo) {
+        final TransferFileGroup transferFileGroup = transferManager.getTransferFileGroup(pipelineContext, task.getId());
         // multipart prepare should only ever be called on transfer groups with one file.
         TransferFile transferFile = transferFileGroup.getTransferFiles().get(0);
         final HashTaskOutput hashTaskOutput = (HashTaskOutput) task.getOutput().orElseThrow(() -> new OmakaseRuntimeException("Task " + task.getId() + " is missing required output"));
@@ -63,6 +63,8 @@ public class ReplicationPrepareStage implements PipelineStage {
     RepositoryManager repositoryManager;
     @Inject
     ContentManager contentManager;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public PipelineStageResult prepare(PipelineContext pipelineContext) {
@@ -96,7 +98,7 @@ public class ReplicationPrepareStage implements PipelineStage {
                 .map(variantFile -> createTransferFileGroup(variantId, sourceRepositoryUri, sourceRepositoryId, destinationRepository, destinationRepositoryUri, variantFile))
                 .collect(ImmutableListCollector.toImmutableList());
         Transfer transfer = new Transfer(transferFileGroups);
-        propertiesBuilder.put(TransferPipeline.TRANSFER, transfer.toJson());
+        transferManager.setTransfer(pipelineContext, transfer);
 
         getMultipartUploadInfo(destinationRepositoryId).ifPresent(multipartUploadInfo -> propertiesBuilder.put("multipartUploadInfo", multipartUploadInfo.toJson()));
 
@@ -65,6 +65,8 @@ public class RestoreStage implements PipelineStage {
     TaskManager taskManager;
     @Inject
     RepositoryManager repositoryManager;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public PipelineStageResult prepare(PipelineContext pipelineContext) {
@@ -77,7 +79,7 @@ public class RestoreStage implements PipelineStage {
 
         ImmutableMap.Builder<String, String> propertiesBuilder = ImmutableMap.builder();
 
-        Transfer transfer = TransferPipeline.getTransferFromPipelineContext(pipelineContext);
+        Transfer transfer = transferManager.getTransfer(pipelineContext);
         transfer.getTransferFileGroups().forEach(transferFileGroup -> {
             // restore should only ever be called on transfer groups with one file.
             TransferFile transferFile = transferFileGroup.getTransferFiles().get(0);
@@ -98,7 +100,6 @@ public class RestoreStage implements PipelineStage {
     public PipelineStageResult onCallback(PipelineContext pipelineContext, CallbackEvent callbackEvent) {
 
         TaskStatus groupStatus = TaskStatus.valueOf(Callbacks.getCallbackEventProperty(callbackEvent, "taskGroupStatus"));
-        ImmutableMap.Builder<String, String> propertiesBuilder = ImmutableMap.builder();
 
         PipelineStageStatus pipelineStageStatus;
 
@@ -114,7 +115,7 @@ public class RestoreStage implements PipelineStage {
                 pipelineStageStatus = PipelineStageStatus.COMPLETED;
                 Set<Task> tasks = taskManager.getTasks(Callbacks.getCallbackEventProperty(callbackEvent, "taskGroupId"));
                 List<TransferFileGroup> transferFileGroups = tasks.stream().map(task -> createNewTransferFileGroup(task, pipelineContext)).collect(ImmutableListCollector.toImmutableList());
-                propertiesBuilder.put(TransferPipeline.TRANSFER, new Transfer(transferFileGroups).toJson());
+                transferManager.updateTransferFileGroups(pipelineContext, transferFileGroups);
                 break;
             case FAILED_DIRTY:
             case FAILED_CLEAN:
@@ -126,11 +127,11 @@ public class RestoreStage implements PipelineStage {
                 break;
         }
 
-        return PipelineStageResult.builder(pipelineContext.getPipelineId(), pipelineStageStatus).addProperties(propertiesBuilder.build()).build();
+        return PipelineStageResult.builder(pipelineContext.getPipelineId(), pipelineStageStatus).build();
     }
 
     private TransferFileGroup createNewTransferFileGroup(Task task, PipelineContext pipelineContext) {
-        TransferFileGroup transferFileGroup = TransferPipeline.getTransferFileGroupFromPipelineContext(pipelineContext, task.getId());
+        TransferFileGroup transferFileGroup = transferManager.getTransferFileGroup(pipelineContext, task.getId());
         // restore should only ever be called on transfer groups with one file.
         TransferFile transferFile = transferFileGroup.getTransferFiles().get(0);
         RestoreTaskOutput output = (RestoreTaskOutput) task.getOutput().orElseThrow(() -> new OmakaseRuntimeException("Task " + task.getId() + " is missing required output"));
@@ -25,11 +25,17 @@ import javax.json.JsonReader;
 import javax.json.JsonValue;
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
  * Represents a {@link Transfer}. A Transfer can consist of one or more {@link TransferFileGroup}.
+ * <p>
+ * The transfer file groups are indexed by id when the transfer is created so that individual groups can be looked up without scanning the transfer.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -38,15 +44,29 @@ public final class Transfer {
     private static final String TRANSFER_FILE_GROUPS = "transfer_file_groups";
 
     private final List<TransferFileGroup> transferFileGroups;
+    private final Map<String, TransferFileGroup> transferFileGroupsById;
 
     public Transfer(List<TransferFileGroup> transferFileGroups) {
         this.transferFileGroups = transferFileGroups;
+        this.transferFileGroupsById = new HashMap<>(transferFileGroups.size() * 2);
+        transferFileGroups.forEach(transferFileGroup -> transferFileGroupsById.putIfAbsent(transferFileGroup.getId(), transferFileGroup));
     }
 
     public List<TransferFileGroup> getTransferFileGroups() {
         return transferFileGroups;
     }
 
+    /**
+     * Returns the {@link TransferFileGroup} with the given id.
+     *
+     * @param transferFileGroupId
+     *         the transfer file group id
+     * @return the {@link TransferFileGroup} with the given id or an empty Optional if the transfer does not contain the group.
+     */
+    public Optional<TransferFileGroup> getTransferFileGroup(String transferFileGroupId) {
+        return Optional.ofNullable(transferFileGroupsById.get(transferFileGroupId));
+    }
+
     /**
      * Serializes the {@link Transfer} into a JSON representation of the transfer.
      *
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.pipeline.transfer;
+
+import com.google.common.collect.Lists;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.projectomakase.omakase.job.pipeline.transfer.jcr.ManifestFileChunkNode;
+import org.projectomakase.omakase.job.pipeline.transfer.jcr.ManifestFileChunkNodeDAO;
+import org.projectomakase.omakase.job.pipeline.transfer.jcr.TransferFileGroupNode;
+import org.projectomakase.omakase.job.pipeline.transfer.jcr.TransferFileGroupNodeDAO;
+import org.projectomakase.omakase.pipeline.Pipelines;
+import org.projectomakase.omakase.pipeline.stage.PipelineContext;
+import org.projectomakase.omakase.task.providers.manifest.ManifestFile;
+import org.jboss.logging.Logger;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Manages the {@link Transfer} associated with a pipeline.
+ * <p>
+ * Each {@link TransferFileGroup} is persisted as its own node beneath the pipeline instead of as a single pipeline property. The parsed transfer is held on the
+ * {@link PipelineContext} so that it is only loaded once per prepare/callback regardless of how many groups are looked up.
+ * </p>
+ * <p>
+ * Pipelines created prior to the transfer being stored as nodes have the transfer stored as JSON in the {@link TransferPipeline#TRANSFER} pipeline property, the
+ * property is used if the pipeline does not have any transfer nodes and is migrated to nodes the next time the transfer is updated.
+ * </p>
+ * <p>
+ * Transfers created from large manifests can contain hundreds of thousands of files. The files referenced by a manifest are paged into chunk nodes that are
+ * written once and read lazily, and the transfer can be written and read as a stream of groups so that it never has to be held in memory in its entirety.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@Stateless
+public class TransferManager {
+
+    private static final Logger LOGGER = Logger.getLogger(TransferManager.class);
+
+    private static final String TRANSFER_ATTRIBUTE = Transfer.class.getName();
+
+    @Inject
+    TransferFileGroupNodeDAO transferFileGroupNodeDAO;
+    @Inject
+    ManifestFileChunkNodeDAO manifestFileChunkNodeDAO;
+    @Inject
+    @ConfigProperty(name = "omakase.transfer.chunk.size", defaultValue = "1000")
+    int chunkSize;
+
+    /**
+     * Returns the {@link Transfer} associated with the pipeline.
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @return the {@link Transfer} associated with the pipeline.
+     * @throws OmakaseRuntimeException
+     *         if the pipeline does not have a transfer.
+     */
+    public Transfer getTransfer(PipelineContext pipelineContext) {
+        return pipelineContext.getAttribute(TRANSFER_ATTRIBUTE, () -> loadTransfer(pipelineContext));
+    }
+
+    /**
+     * Returns a stream of the {@link TransferFileGroup}s associated with the pipeline.
+     * <p>
+     * If the transfer has already been loaded into the {@link PipelineContext} the loaded transfer is used, otherwise the groups are read from the repository as
+     * the stream is consumed and the transfer is not loaded into the context. This should be used when the groups only need to be visited once.
+     * </p>
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @return a stream of the {@link TransferFileGroup}s associated with the pipeline.
+     */
+    public Stream<TransferFileGroup> streamTransferFileGroups(PipelineContext pipelineContext) {
+        Optional<Transfer> transfer = pipelineContext.getAttribute(TRANSFER_ATTRIBUTE);
+        String pipelineNodePath = pipelineContext.getPipelineNodePath();
+        if (transfer.isPresent()) {
+            return transfer.get().getTransferFileGroups().stream();
+        } else if (transferFileGroupNodeDAO.hasTransfer(pipelineNodePath)) {
+            return transferFileGroupNodeDAO.streamTransferFileGroupNodes(pipelineNodePath).map(transferFileGroupNode -> TransferFileGroup.fromJson(transferFileGroupNode.getTransferFileGroup()));
+        } else {
+            return getTransfer(pipelineContext).getTransferFileGroups().stream();
+        }
+    }
+
+    /**
+     * Returns the {@link TransferFileGroup} associated with the task id.
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @param taskId
+     *         the task id
+     * @return the {@link TransferFileGroup} associated with the task id.
+     * @throws OmakaseRuntimeException
+     *         if the pipeline does not have a transfer file group for the task.
+     */
+    public TransferFileGroup getTransferFileGroup(PipelineContext pipelineContext, String taskId) {
+        String transferFileGroupId = Pipelines.getPipelineProperty(pipelineContext, taskId);
+        return getTransfer(pipelineContext).getTransferFileGroup(transferFileGroupId)
+                .orElseThrow(() -> new OmakaseRuntimeException("pipeline context does not contain a transfer file group for task " + taskId));
+    }
+
+    /**
+     * Sets the {@link Transfer} associated with the pipeline replacing any existing transfer.
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @param transfer
+     *         the {@link Transfer}
+     */
+    public void setTransfer(PipelineContext pipelineContext, Transfer transfer) {
+        writeTransferFileGroups(pipelineContext, transfer.getTransferFileGroups().stream());
+        pipelineContext.setAttribute(TRANSFER_ATTRIBUTE, transfer);
+    }
+
+    /**
+     * Sets the {@link Transfer} associated with the pipeline from a stream of {@link TransferFileGroup}s replacing any existing transfer.
+     * <p>
+     * The groups are written as they are consumed from the stream and are not loaded into the {@link PipelineContext}.
+     * </p>
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @param transferFileGroups
+     *         the transfer file groups in transfer order
+     */
+    public void setTransfer(PipelineContext pipelineContext, Stream<TransferFileGroup> transferFileGroups) {
+        writeTransferFileGroups(pipelineContext, transferFileGroups);
+        pipelineContext.removeAttribute(TRANSFER_ATTRIBUTE);
+    }
+
+    /**
+     * Pages the files referenced by a manifest into chunks that are stored beneath the pipeline replacing any files previously set for the manifest transfer file.
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @param manifestTransferFileId
+     *         the id of the manifest transfer file that references the files
+     * @param manifestFiles
+     *         the files referenced by the manifest
+     */
+    public void setManifestFiles(PipelineContext pipelineContext, String manifestTransferFileId, List<ManifestFile> manifestFiles) {
+        List<String> chunks = Lists.partition(manifestFiles, chunkSize)
+                .stream()
+                .map(chunk -> "[" + chunk.stream().map(ManifestFile::toJson).collect(Collectors.joining(",")) + "]")
+                .collect(Collectors.toList());
+        manifestFileChunkNodeDAO.createManifestFileChunkNodes(pipelineContext.getPipelineNodePath(), manifestTransferFileId, chunks);
+    }
+
+    /**
+     * Returns a stream of the files referenced by a manifest. The files are read from the repository one chunk at a time as the stream is consumed.
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @param manifestTransferFileId
+     *         the id of the manifest transfer file that references the files
+     * @return a stream of the files referenced by a manifest.
+     */
+    public Stream<ManifestFile> streamManifestFiles(PipelineContext pipelineContext, String manifestTransferFileId) {
+        return manifestFileChunkNodeDAO.streamManifestFileChunkNodes(pipelineContext.getPipelineNodePath(), manifestTransferFileId)
+                .map(ManifestFileChunkNode::getManifestFiles)
+                .flatMap(TransferManager::parseManifestFiles);
+    }
+
+    /**
+     * Updates the given {@link TransferFileGroup}s in the {@link Transfer} associated with the pipeline. Only the updated groups are persisted, groups that are
+     * not already part of the transfer are added to the end of the transfer.
+     *
+     * @param pipelineContext
+     *         the {@link PipelineContext}
+     * @param transferFileGroups
+     *         the updated transfer file groups
+     * @return the updated {@link Transfer}.
+     */
+    public Transfer updateTransferFileGroups(PipelineContext pipelineContext, List<TransferFileGroup> transferFileGroups) {
+        Map<String, TransferFileGroup> updatedTransferFileGroups = new LinkedHashMap<>();
+        transferFileGroups.forEach(transferFileGroup -> updatedTransferFileGroups.put(transferFileGroup.getId(), transferFileGroup));
+
+        List<TransferFileGroup> mergedTransferFileGroups = new ArrayList<>();
+        getTransfer(pipelineContext).getTransferFileGroups()
+                .forEach(transferFileGroup -> mergedTransferFileGroups.add(Optional.ofNullable(updatedTransferFileGroups.remove(transferFileGroup.getId())).orElse(transferFileGroup)));
+        mergedTransferFileGroups.addAll(updatedTransferFileGroups.values());
+        Transfer transfer = new Transfer(mergedTransferFileGroups);
+
+        String pipelineNodePath = pipelineContext.getPipelineNodePath();
+        if (transferFileGroupNodeDAO.hasTransfer(pipelineNodePath)) {
+            Set<String> updatedIds = transferFileGroups.stream().map(TransferFileGroup::getId).collect(Collectors.toSet());
+            List<TransferFileGroupNode> transferFileGroupNodes = IntStream.range(0, mergedTransferFileGroups.size())
+                    .filter(index -> updatedIds.contains(mergedTransferFileGroups.get(index).getId()))
+                    .mapToObj(index -> createTransferFileGroupNode(index, mergedTransferFileGroups.get(index)))
+                    .collect(Collectors.toList());
+            transferFileGroupNodeDAO.updateTransferFileGroupNodes(pipelineNodePath, transferFileGroupNodes);
+            pipelineContext.setAttribute(TRANSFER_ATTRIBUTE, transfer);
+        } else {
+            setTransfer(pipelineContext, transfer);
+        }
+        return transfer;
+    }
+
+    private Transfer loadTransfer(PipelineContext pipelineContext) {
+        String pipelineNodePath = pipelineContext.getPipelineNodePath();
+        if (transferFileGroupNodeDAO.hasTransfer(pipelineNodePath)) {
+            return new Transfer(transferFileGroupNodeDAO.findTransferFileGroupNodes(pipelineNodePath)
+                                        .stream()
+                                        .map(transferFileGroupNode -> TransferFileGroup.fromJson(transferFileGroupNode.getTransferFileGroup()))
+                                        .collect(Collectors.toList()));
+        } else {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Pipeline " + pipelineContext.getPipelineId() + " does not have transfer nodes, using the " + TransferPipeline.TRANSFER + " property");
+            }
+            return Transfer.fromJson(Pipelines.getPipelineProperty(pipelineContext, TransferPipeline.TRANSFER));
+        }
+    }
+
+    private void writeTransferFileGroups(PipelineContext pipelineContext, Stream<TransferFileGroup> transferFileGroups) {
+        AtomicLong index = new AtomicLong();
+        Stream<TransferFileGroupNode> transferFileGroupNodes = transferFileGroups.map(transferFileGroup -> createTransferFileGroupNode(index.getAndIncrement(), transferFileGroup));
+        transferFileGroupNodeDAO.replaceTransferFileGroupNodes(pipelineContext.getPipelineNodePath(), transferFileGroupNodes, chunkSize);
+    }
+
+    private static Stream<ManifestFile> parseManifestFiles(String json) {
+        try (StringReader stringReader = new StringReader(json); JsonReader jsonReader = Json.createReader(stringReader)) {
+            return jsonReader.readArray().stream().map(JsonValue::toString).map(ManifestFile::fromJson).collect(Collectors.toList()).stream();
+        }
+    }
+
+    private static TransferFileGroupNode createTransferFileGroupNode(long index, TransferFileGroup transferFileGroup) {
+        return new TransferFileGroupNode(transferFileGroup.getId(), index, transferFileGroup.toJson());
+    }
+}
@@ -39,6 +39,9 @@ import java.util.stream.Collectors;
  */
 public final class TransferPipeline {
 
+    /**
+     * The pipeline property the transfer was stored in prior to transfer file groups being stored as nodes, see {@link TransferManager}.
+     */
     public static final String TRANSFER = "transfer";
     public static final String MANIFEST_TRANSFER = "manifestTransfer";
 
@@ -46,34 +49,6 @@ public final class TransferPipeline {
         // hide default constructor
     }
 
-    /**
-     * Returns the {@link Transfer} stored in the {@link PipelineContext}.
-     *
-     * @param pipelineContext
-     *         the {@link PipelineContext}
-     * @return the {@link Transfer} stored in the {@link PipelineContext}.
-     */
-    public static Transfer getTransferFromPipelineContext(PipelineContext pipelineContext) {
-        return Transfer.fromJson(Pipelines.getPipelineProperty(pipelineContext, TRANSFER));
-    }
-
-    /**
-     * Returns the {@link TransferFileGroup} associated with the task id in the {@link PipelineContext}.
-     *
-     * @param pipelineContext
-     *         the {@link PipelineContext}
-     * @param taskId
-     *         the task id
-     * @return the {@link TransferFileGroup} associated with the task id in the {@link PipelineContext}.
-     */
-    public static TransferFileGroup getTransferFileGroupFromPipelineContext(PipelineContext pipelineContext, String taskId) {
-        String transferFileGroupId = Pipelines.getPipelineProperty(pipelineContext, taskId);
-        Transfer transfer = getTransferFromPipelineContext(pipelineContext);
-        List<TransferFileGroup> transferFileGroups = transfer.getTransferFileGroups();
-        return transferFileGroups.stream().filter(transferFileGroup -> transferFileGroup.getId().equals(transferFileGroupId)).findFirst()
-                .orElseThrow(() -> new OmakaseRuntimeException("pipeline context does not contain a transfer file  group for task " + taskId));
-    }
-
     /**
      * Returns true if the transfer has one or more files otherwise false.
      *
@@ -90,14 +65,14 @@ public final class TransferPipeline {
     }
 
     /**
-     * Returns the {@link ManifestTransfer} stored in the {@link PipelineContext}.
+     * Returns the {@link ManifestTransfer} stored in the {@link PipelineContext}. The manifest transfer is only parsed once per {@link PipelineContext}.
      *
      * @param pipelineContext
      *         the {@link PipelineContext}
      * @return the {@link ManifestTransfer} stored in the {@link PipelineContext}.
      */
     public static ManifestTransfer getManifestTransferFromPipelineContext(PipelineContext pipelineContext) {
-        return ManifestTransfer.fromJson(Pipelines.getPipelineProperty(pipelineContext, MANIFEST_TRANSFER));
+        return pipelineContext.getAttribute(ManifestTransfer.class.getName(), () -> ManifestTransfer.fromJson(Pipelines.getPipelineProperty(pipelineContext, MANIFEST_TRANSFER)));
     }
 
     /**
@@ -61,6 +61,8 @@ public class TransferStage implements PipelineStage {
     TaskManager taskManager;
     @Inject
     TransferDelegateResolver transferDelegateResolver;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public PipelineStageResult prepare(PipelineContext pipelineContext) {
@@ -69,10 +71,16 @@ public class TransferStage implements PipelineStage {
         // Using a two stage process in order to first initiate each transfer (which may fail)
         // and then only create tasks if all transfers initiate successfully.
         ImmutableMap.Builder<String, String> propertiesBuilder = ImmutableMap.builder();
-        Transfer transfer = new Transfer(initiateTransferFileGroups(pipelineContext));
+        List<TransferFileGroup> transferFileGroups = initiateTransferFileGroups(pipelineContext);
         TaskGroup taskGroup = taskManager.createTaskGroup(new TaskGroup(jobId, pipelineContext.getPipelineId(), PipelineExecutor.CALLBACK_LISTENER_ID));
-        transfer.getTransferFileGroups().forEach(transferFileGroup -> createTask(pipelineContext, taskGroup, propertiesBuilder, transferFileGroup));
-        propertiesBuilder.put(TransferPipeline.TRANSFER, transfer.toJson());
+        // the tasks are created and queued as a single batch, the created tasks are returned in the same order as the transfer file groups
+        List<Task> tasks = taskManager.createTasks(taskGroup, transferFileGroups.stream()
+                .map(transferFileGroup -> getTransferDelegate(pipelineContext).newTask(pipelineContext, transferFileGroup))
+                .collect(toImmutableList()));
+        for (int i = 0; i < tasks.size(); i++) {
+            propertiesBuilder.put(tasks.get(i).getId(), transferFileGroups.get(i).getId());
+        }
+        transferManager.updateTransferFileGroups(pipelineContext, transferFileGroups);
         return PipelineStageResult.builder(pipelineId, PipelineStageStatus.QUEUED).addProperties(propertiesBuilder.build()).build();
     }
 
@@ -109,18 +117,13 @@ public class TransferStage implements PipelineStage {
     }
 
     private ImmutableList<TransferFileGroup> initiateTransferFileGroups(PipelineContext pipelineContext) {
-        return TransferPipeline.getTransferFromPipelineContext(pipelineContext)
+        return transferManager.getTransfer(pipelineContext)
                 .getTransferFileGroups()
                 .stream()
                 .map(transferFileGroup -> getTransferDelegate(pipelineContext).initiateTransferFileGroup(transferFileGroup))
                 .collect(toImmutableList());
     }
 
-    private void createTask(PipelineContext pipelineContext, TaskGroup taskGroup, ImmutableMap.Builder<String, String> propertiesBuilder, TransferFileGroup transferFileGroup) {
-        Task task = getTransferDelegate(pipelineContext).createTask(pipelineContext, transferFileGroup, taskGroup);
-        propertiesBuilder.put(task.getId(), transferFileGroup.getId());
-    }
-
     private PipelineStageResult handleCompleted(PipelineContext pipelineContext, CallbackEvent callbackEvent) {
         Set<Task> tasks = taskManager.getTasks(Callbacks.getCallbackEventProperty(callbackEvent, "taskGroupId"));
 
@@ -140,15 +143,14 @@ public class TransferStage implements PipelineStage {
     }
 
     private TransferFileGroup completeTransferFileGroup(PipelineContext pipelineContext, Task task) {
-        TransferFileGroup transferFileGroup = TransferPipeline.getTransferFileGroupFromPipelineContext(pipelineContext, task.getId());
+        TransferFileGroup transferFileGroup = transferManager.getTransferFileGroup(pipelineContext, task.getId());
         return getTransferDelegate(pipelineContext)
                 .completeTransferFileGroup(transferFileGroup, task.getOutput().orElseThrow(() -> new OmakaseRuntimeException("Task " + task.getId() + " is missing required output")));
     }
 
 
     private void handleFailed(PipelineContext pipelineContext) {
-        TransferPipeline.getTransferFromPipelineContext(pipelineContext)
-                .getTransferFileGroups()
+        transferManager.streamTransferFileGroups(pipelineContext)
                 .forEach(transferFileGroup -> abortTransfer(pipelineContext, transferFileGroup));
     }
 
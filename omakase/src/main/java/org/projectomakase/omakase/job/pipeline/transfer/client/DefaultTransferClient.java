@@ -23,8 +23,6 @@ import com.google.common.collect.ImmutableList;
 import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
-import org.projectomakase.omakase.job.task.TaskGroup;
-import org.projectomakase.omakase.job.task.TaskManager;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.providers.transfer.ContentInfo;
 import org.projectomakase.omakase.task.providers.transfer.IOInstruction;
@@ -34,7 +32,6 @@ import org.projectomakase.omakase.task.spi.TaskConfiguration;
 import org.projectomakase.omakase.task.spi.TaskOutput;
 import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
 
-import javax.inject.Inject;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
@@ -48,9 +45,6 @@ public class DefaultTransferClient implements TransferClient {
 
     private static final String TRANSFER = "TRANSFER";
 
-    @Inject
-    TaskManager taskManager;
-
     @Override
     public TransferFileGroup initiateTransferFileGroup(TransferFileGroup transferFileGroup) {
         return transferFileGroup;
@@ -84,18 +78,18 @@ public class DefaultTransferClient implements TransferClient {
     }
 
     @Override
-    public Task createTask(TransferFileGroup transferFileGroup, TaskGroup taskGroup, String description, int priority) {
+    public Task newTask(TransferFileGroup transferFileGroup, String description, int priority) {
         List<TransferFile> transferFiles = transferFileGroup.getTransferFiles();
         if (transferFiles.size() > 1) {
             List<IOInstruction> ioInstructions =
                     transferFileGroup.getTransferFiles().stream().map(transferFile -> new IOInstruction(transferFile.getSource(), transferFile.getDestination())).collect(
                             ImmutableListCollector.toImmutableList());
             TransferTaskConfiguration configuration = new TransferTaskConfiguration(ioInstructions, ImmutableList.of("MD5"));
-            return taskManager.createTask(taskGroup, new Task(TRANSFER, description, priority, configuration));
+            return new Task(TRANSFER, description, priority, configuration);
         } else {
             TransferFile transferFile = transferFileGroup.getTransferFiles().get(0);
             TaskConfiguration configuration = new TransferTaskConfiguration(ImmutableList.of(new IOInstruction(transferFile.getSource(), transferFile.getDestination())), ImmutableList.of("MD5"));
-            return taskManager.createTask(taskGroup, new Task(TRANSFER, description, priority, configuration));
+            return new Task(TRANSFER, description, priority, configuration);
         }
     }
 }
@@ -30,8 +30,6 @@ import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.commons.hash.Hashes;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
-import org.projectomakase.omakase.job.task.TaskGroup;
-import org.projectomakase.omakase.job.task.TaskManager;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.providers.aws.glacier.GlacierUploadTaskConfiguration;
 import org.projectomakase.omakase.task.providers.aws.glacier.GlacierUploadTaskOutput;
@@ -52,8 +50,6 @@ public class GlacierTransferClient implements TransferClient {
     @Inject
     @Omakase
     GlacierClient glacierClient;
-    @Inject
-    TaskManager taskManager;
 
     @Override
     public TransferFileGroup initiateTransferFileGroup(TransferFileGroup transferFileGroup) {
@@ -96,13 +92,13 @@ public class GlacierTransferClient implements TransferClient {
     }
 
     @Override
-    public Task createTask(TransferFileGroup transferFileGroup, TaskGroup taskGroup, String description, int priority) {
+    public Task newTask(TransferFileGroup transferFileGroup, String description, int priority) {
         if (transferFileGroup.getTransferFiles().size() > 1) {
             throw new OmakaseRuntimeException("Glacier Transfer client does not support Transfer File Groups with more than one file");
         }
         TransferFile transferFile = transferFileGroup.getTransferFiles().get(0);
         TaskConfiguration configuration =
                 new GlacierUploadTaskConfiguration(transferFile.getSource(), transferFile.getDestination(), transferFile.getPartSize().get(), transferFile.getParts(), ImmutableList.of("MD5"));
-        return taskManager.createTask(taskGroup, new Task(GLACIER_UPLOAD, description, priority, configuration));
+        return new Task(GLACIER_UPLOAD, description, priority, configuration);
     }
 }
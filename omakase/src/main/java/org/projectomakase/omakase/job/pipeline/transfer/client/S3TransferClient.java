@@ -28,8 +28,6 @@ import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.commons.functions.Throwables;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
-import org.projectomakase.omakase.job.task.TaskGroup;
-import org.projectomakase.omakase.job.task.TaskManager;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.providers.aws.s3.S3UploadTaskConfiguration;
 import org.projectomakase.omakase.task.providers.aws.s3.S3UploadTaskOutput;
@@ -51,8 +49,6 @@ public class S3TransferClient implements TransferClient {
     @Inject
     @Omakase
     S3Client s3Client;
-    @Inject
-    TaskManager taskManager;
 
     @Override
     public TransferFileGroup initiateTransferFileGroup(TransferFileGroup transferFileGroup) {
@@ -94,13 +90,13 @@ public class S3TransferClient implements TransferClient {
     }
 
     @Override
-    public Task createTask(TransferFileGroup transferFileGroup, TaskGroup taskGroup, String description, int priority) {
+    public Task newTask(TransferFileGroup transferFileGroup, String description, int priority) {
         if (transferFileGroup.getTransferFiles().size() > 1) {
             throw new OmakaseRuntimeException("S3 Transfer client does not support Transfer File Groups with more than one file");
         }
         TransferFile transferFile = transferFileGroup.getTransferFiles().get(0);
         TaskConfiguration configuration =
                 new S3UploadTaskConfiguration(transferFile.getSource(), transferFile.getDestination(), transferFile.getPartSize().get(), transferFile.getParts(), ImmutableList.of("MD5"));
-        return taskManager.createTask(taskGroup, new Task(S3_UPLOAD, description, priority, configuration));
+        return new Task(S3_UPLOAD, description, priority, configuration);
     }
 }
@@ -21,7 +21,6 @@ package org.projectomakase.omakase.job.pipeline.transfer.client;
 
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
-import org.projectomakase.omakase.job.task.TaskGroup;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.spi.TaskOutput;
 
@@ -61,17 +60,16 @@ public interface TransferClient {
     void abortTransferFileGroup(TransferFileGroup transferFileGroup);
 
     /**
-     * Creates a service specific task e.g. S3_UPLOAD task that will perform the transfer.
+     * Returns a new service specific task e.g. S3_UPLOAD task that will perform the transfer. The task is not created, callers are responsible for creating the task
+     * within a task group.
      *
      * @param transferFileGroup
      *         the transferFileGroup
-     * @param taskGroup
-     *         the task group the task belongs to
      * @param description
      *         a task description
      * @param priority
      *         the tasks priority
-     * @return the created task.
+     * @return the new task.
      */
-    Task createTask(TransferFileGroup transferFileGroup, TaskGroup taskGroup, String description, int priority);
+    Task newTask(TransferFileGroup transferFileGroup, String description, int priority);
 }
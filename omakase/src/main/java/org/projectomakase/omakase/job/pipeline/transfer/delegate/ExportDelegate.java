@@ -26,7 +26,6 @@ import org.projectomakase.omakase.job.pipeline.transfer.Transfer;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
 import org.projectomakase.omakase.job.pipeline.transfer.client.TransferClient;
 import org.projectomakase.omakase.job.pipeline.transfer.client.TransferClientResolver;
-import org.projectomakase.omakase.job.task.TaskGroup;
 import org.projectomakase.omakase.job.task.TaskManager;
 import org.projectomakase.omakase.pipeline.Pipelines;
 import org.projectomakase.omakase.pipeline.stage.PipelineContext;
@@ -66,12 +65,12 @@ public class ExportDelegate implements TransferDelegate {
     }
 
     @Override
-    public Task createTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup, TaskGroup taskGroup) {
+    public Task newTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup) {
         int priority = Integer.parseInt(Pipelines.getPipelineProperty(pipelineContext, "priority"));
         String variantId = Pipelines.getPipelineProperty(pipelineContext, "variant");
         Variant variant = contentManager.getVariant(variantId).orElseThrow(() -> new OmakaseRuntimeException("Variant " + variantId + " does not exist"));
         String description = "Export Variant " + variant.getId() + Optional.ofNullable(variant.getVariantName()).map(name -> "(" + name + ")").orElse("");
-        return getTransferClient(transferFileGroup).createTask(transferFileGroup, taskGroup, description, priority);
+        return getTransferClient(transferFileGroup).newTask(transferFileGroup, description, priority);
     }
 
     @Override
@@ -34,10 +34,10 @@ import org.projectomakase.omakase.job.pipeline.transfer.ManifestTransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.Transfer;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
+import org.projectomakase.omakase.job.pipeline.transfer.TransferManager;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferPipeline;
 import org.projectomakase.omakase.job.pipeline.transfer.client.TransferClient;
 import org.projectomakase.omakase.job.pipeline.transfer.client.TransferClientResolver;
-import org.projectomakase.omakase.job.task.TaskGroup;
 import org.projectomakase.omakase.pipeline.Pipelines;
 import org.projectomakase.omakase.pipeline.stage.PipelineContext;
 import org.projectomakase.omakase.repository.RepositoryManager;
@@ -66,6 +66,8 @@ public class IngestDelegate implements TransferDelegate {
     ContentManager contentManager;
     @Inject
     TransferClientResolver transferClientResolver;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public TransferFileGroup initiateTransferFileGroup(TransferFileGroup transferFileGroup) {
@@ -83,7 +85,7 @@ public class IngestDelegate implements TransferDelegate {
     }
 
     @Override
-    public Task createTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup, TaskGroup taskGroup) {
+    public Task newTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup) {
         String repositoryId = Pipelines.getPipelineProperty(pipelineContext, "destinationRepositoryId");
         int priority = Integer.parseInt(Pipelines.getPipelineProperty(pipelineContext, "priority"));
 
@@ -93,7 +95,7 @@ public class IngestDelegate implements TransferDelegate {
         } else {
             description = "Ingest " + transferFileGroup.getTransferFiles().get(0).getSource() + " to repository" + repositoryId;
         }
-        return getTransferClient(transferFileGroup).createTask(transferFileGroup, taskGroup, description, priority);
+        return getTransferClient(transferFileGroup).newTask(transferFileGroup, description, priority);
 
     }
 
@@ -117,8 +119,7 @@ public class IngestDelegate implements TransferDelegate {
             manifestTransfer.getManifestTransferFiles().forEach(manifestTransferFile -> deleteRepositoryFile(repositoryId, manifestTransferFile));
         });
 
-        Transfer transfer = TransferPipeline.getTransferFromPipelineContext(pipelineContext);
-        transfer.getTransferFileGroups().forEach(transferFileGroup -> transferFileGroup.getTransferFiles().forEach(transferFile -> deleteRepositoryFile(repositoryId, transferFile)));
+        transferManager.streamTransferFileGroups(pipelineContext).forEach(transferFileGroup -> transferFileGroup.getTransferFiles().forEach(transferFile -> deleteRepositoryFile(repositoryId, transferFile)));
     }
 
     private String getDestinationRepositoryFileId(TransferFile transferFile) {
@@ -27,10 +27,9 @@ import org.projectomakase.omakase.content.VariantRepository;
 import org.projectomakase.omakase.job.pipeline.transfer.Transfer;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
-import org.projectomakase.omakase.job.pipeline.transfer.TransferPipeline;
+import org.projectomakase.omakase.job.pipeline.transfer.TransferManager;
 import org.projectomakase.omakase.job.pipeline.transfer.client.TransferClient;
 import org.projectomakase.omakase.job.pipeline.transfer.client.TransferClientResolver;
-import org.projectomakase.omakase.job.task.TaskGroup;
 import org.projectomakase.omakase.pipeline.Pipelines;
 import org.projectomakase.omakase.pipeline.stage.PipelineContext;
 import org.projectomakase.omakase.repository.RepositoryManager;
@@ -57,6 +56,8 @@ public class ReplicationDelegate implements TransferDelegate {
     ContentManager contentManager;
     @Inject
     TransferClientResolver transferClientResolver;
+    @Inject
+    TransferManager transferManager;
 
     @Override
     public TransferFileGroup initiateTransferFileGroup(TransferFileGroup transferFileGroup) {
@@ -74,13 +75,13 @@ public class ReplicationDelegate implements TransferDelegate {
     }
 
     @Override
-    public Task createTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup, TaskGroup taskGroup) {
+    public Task newTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup) {
         String repositoryId = Pipelines.getPipelineProperty(pipelineContext, "destinationRepositoryId");
         int priority = Integer.parseInt(Pipelines.getPipelineProperty(pipelineContext, "priority"));
         String variantId = Pipelines.getPipelineProperty(pipelineContext, "variant");
         Variant variant = contentManager.getVariant(variantId).orElseThrow(() -> new OmakaseRuntimeException("Variant " + variantId + " does not exist"));
         String description = "Replicate Variant " + variant.getId() + Optional.ofNullable(variant.getVariantName()).map(name -> "(" + name + ")").orElse("") + " to repository " + repositoryId;
-        return getTransferClient(transferFileGroup).createTask(transferFileGroup, taskGroup, description, priority);
+        return getTransferClient(transferFileGroup).newTask(transferFileGroup, description, priority);
     }
 
     @Override
@@ -95,8 +96,7 @@ public class ReplicationDelegate implements TransferDelegate {
     @Override
     public void cleanupContentRepository(PipelineContext pipelineContext) {
         String repositoryId = Pipelines.getPipelineProperty(pipelineContext, "destinationRepositoryId");
-        Transfer transfer = TransferPipeline.getTransferFromPipelineContext(pipelineContext);
-        transfer.getTransferFileGroups().forEach(transferFileGroup -> transferFileGroup.getTransferFiles().forEach(transferFile -> deleteRepositoryFile(repositoryId, transferFile)));
+        transferManager.streamTransferFileGroups(pipelineContext).forEach(transferFileGroup -> transferFileGroup.getTransferFiles().forEach(transferFile -> deleteRepositoryFile(repositoryId, transferFile)));
     }
 
     private void deleteRepositoryFile(String repositoryId, TransferFile transferFile) {
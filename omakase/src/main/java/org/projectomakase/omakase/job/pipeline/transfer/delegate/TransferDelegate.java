@@ -22,7 +22,6 @@ package org.projectomakase.omakase.job.pipeline.transfer.delegate;
 import org.projectomakase.omakase.job.pipeline.transfer.Transfer;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFile;
 import org.projectomakase.omakase.job.pipeline.transfer.TransferFileGroup;
-import org.projectomakase.omakase.job.task.TaskGroup;
 import org.projectomakase.omakase.pipeline.stage.PipelineContext;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.spi.TaskOutput;
@@ -82,16 +81,14 @@ public interface TransferDelegate {
 
 
     /**
-     * Creates the task that will perform the transfer.
+     * Returns a new task that will perform the transfer. The task is not created, callers are responsible for creating the task within a task group.
      *
      * @param pipelineContext
      *         the pipeline context
      * @param transferFileGroup
      *         the transferFileGroup
-     * @param taskGroup
-     *         the task group the task belongs to
-     * @return the created task.
+     * @return the new task.
      */
-    Task createTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup, TaskGroup taskGroup);
+    Task newTask(PipelineContext pipelineContext, TransferFileGroup transferFileGroup);
 
 }
@@ -0,0 +1,66 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.pipeline.transfer.jcr;
+
+import org.projectomakase.omakase.jcr.JcrEntity;
+import org.jcrom.annotations.JcrNode;
+import org.jcrom.annotations.JcrProperty;
+
+/**
+ * Manifest File Chunk Node implementation that uses {@link org.jcrom.Jcrom} to serialize/deserialize to/from a JCR node.
+ * <p>
+ * The files referenced by a manifest are paged into fixed size chunks, each chunk is stored as its own node beneath the pipeline so that large manifests do not
+ * need to be stored in a single property.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@JcrNode(mixinTypes = {"omakase:manifestFileChunk"})
+public class ManifestFileChunkNode extends JcrEntity {
+
+    public static final String MANIFEST_FILES = "omakase:manifestFiles";
+
+    @JcrProperty(name = MANIFEST_FILES)
+    private String manifestFiles;
+
+    public ManifestFileChunkNode() {
+        // required by jcrom
+    }
+
+    public ManifestFileChunkNode(String id, String manifestFiles) {
+        this.name = id;
+        this.manifestFiles = manifestFiles;
+    }
+
+    public String getManifestFiles() {
+        return manifestFiles;
+    }
+
+    public void setManifestFiles(String manifestFiles) {
+        this.manifestFiles = manifestFiles;
+    }
+
+    @Override
+    public String toString() {
+        return "ManifestFileChunkNode{" +
+                "id='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.pipeline.transfer.jcr;
+
+import org.projectomakase.omakase.Omakase;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.projectomakase.omakase.jcr.AbstractJcrDAO;
+import org.projectomakase.omakase.jcr.JcrThrowables;
+import org.jcrom.Jcrom;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Manifest File Chunk DAO.
+ * <p>
+ * Manifest file chunks are stored beneath a manifest files node that is a child of the pipeline node. Each chunk is named using the id of the manifest transfer
+ * file and the index of the chunk, e.g. eb751690-23cb-11e4-8c21-0800200c9a66-0, and is distributed using its name so that all of the chunks for a manifest share
+ * the same parent. Chunks are found by listing the children of the shared parent whose names start with the manifest transfer file id and do not require a query.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class ManifestFileChunkNodeDAO extends AbstractJcrDAO<ManifestFileChunkNode> {
+
+    private static final String MANIFEST_FILES_NODE_NAME = "manifestFiles";
+
+    @Inject
+    public ManifestFileChunkNodeDAO(Session session, @Omakase Jcrom jcrom) {
+        super(session, jcrom);
+    }
+
+    /**
+     * Creates a chunk node beneath the pipeline for each of the given chunks replacing any existing chunks for the manifest transfer file. The changes are saved in
+     * a single session save.
+     *
+     * @param pipelineNodePath
+     *         the pipeline's node path
+     * @param manifestTransferFileId
+     *         the id of the manifest transfer file the chunks belong to
+     * @param chunks
+     *         the JSON representation of each chunk in index order
+     */
+    public void createManifestFileChunkNodes(String pipelineNodePath, String manifestTransferFileId, List<String> chunks) {
+        String manifestFilesNodePath = getManifestFilesNodePath(pipelineNodePath);
+        JcrThrowables.wrapJcrExceptions(() -> {
+            Node pipelineNode = session.getNode(pipelineNodePath);
+            if (!pipelineNode.hasNode(MANIFEST_FILES_NODE_NAME)) {
+                pipelineNode.addNode(MANIFEST_FILES_NODE_NAME);
+            }
+            // existing chunks are removed so that chunks from a previous, larger, version of the manifest are not returned with the new chunks
+            for (Node chunkNode : getChunkNodes(manifestFilesNodePath, manifestTransferFileId)) {
+                chunkNode.remove();
+            }
+        });
+        for (int index = 0; index < chunks.size(); index++) {
+            String chunkId = getChunkId(manifestTransferFileId, index);
+            distributedCreateWithoutSave(manifestFilesNodePath, new ManifestFileChunkNode(chunkId, chunks.get(index)), chunkId);
+        }
+        save();
+    }
+
+    /**
+     * Returns a stream of the chunk nodes for the manifest transfer file in index order. The chunk node paths are listed up front and the chunks are read from the
+     * repository as the stream is consumed.
+     *
+     * @param pipelineNodePath
+     *         the pipeline's node path
+     * @param manifestTransferFileId
+     *         the id of the manifest transfer file the chunks belong to
+     * @return a stream of the chunk nodes for the manifest transfer file in index order.
+     * @throws OmakaseRuntimeException
+     *         if a chunk is missing.
+     */
+    public Stream<ManifestFileChunkNode> streamManifestFileChunkNodes(String pipelineNodePath, String manifestTransferFileId) {
+        List<String> chunkNodePaths = JcrThrowables.wrapJcrExceptionsWithReturn(() -> getChunkNodePaths(getManifestFilesNodePath(pipelineNodePath), manifestTransferFileId));
+        return chunkNodePaths.stream()
+                .map(chunkNodePath -> Optional.ofNullable(get(chunkNodePath)).orElseThrow(() -> new OmakaseRuntimeException("Manifest file chunk " + chunkNodePath + " no longer exists")));
+    }
+
+    private List<String> getChunkNodePaths(String manifestFilesNodePath, String manifestTransferFileId) throws RepositoryException {
+        SortedMap<Integer, String> chunkNodePaths = new TreeMap<>();
+        for (Node chunkNode : getChunkNodes(manifestFilesNodePath, manifestTransferFileId)) {
+            chunkNodePaths.put(getChunkIndex(manifestTransferFileId, chunkNode.getName()), chunkNode.getPath());
+        }
+        // the chunks are indexed from 0 without gaps, a gap means a chunk is missing and the manifest can not be read in its entirety
+        int index = 0;
+        for (int chunkIndex : chunkNodePaths.keySet()) {
+            if (chunkIndex != index) {
+                throw new OmakaseRuntimeException("Manifest file chunk " + getChunkId(manifestTransferFileId, index) + " is missing");
+            }
+            index++;
+        }
+        return new ArrayList<>(chunkNodePaths.values());
+    }
+
+    private List<Node> getChunkNodes(String manifestFilesNodePath, String manifestTransferFileId) throws RepositoryException {
+        List<Node> chunkNodes = new ArrayList<>();
+        String chunkParentNodePath = getChunkParentNodePath(manifestFilesNodePath, manifestTransferFileId);
+        if (session.nodeExists(chunkParentNodePath)) {
+            // chunks of other manifests can share the same parent so the children are filtered by name
+            NodeIterator nodes = session.getNode(chunkParentNodePath).getNodes(manifestTransferFileId + "-*");
+            while (nodes.hasNext()) {
+                chunkNodes.add(nodes.nextNode());
+            }
+        }
+        return chunkNodes;
+    }
+
+    private String getChunkParentNodePath(String manifestFilesNodePath, String manifestTransferFileId) {
+        String chunkNodePath = getDistributedNodePath(manifestFilesNodePath, getChunkId(manifestTransferFileId, 0));
+        return chunkNodePath.substring(0, chunkNodePath.lastIndexOf('/'));
+    }
+
+    private static String getManifestFilesNodePath(String pipelineNodePath) {
+        return pipelineNodePath + "/" + MANIFEST_FILES_NODE_NAME;
+    }
+
+    private static String getChunkId(String manifestTransferFileId, int index) {
+        return manifestTransferFileId + "-" + index;
+    }
+
+    private static int getChunkIndex(String manifestTransferFileId, String chunkId) {
+        return Integer.parseInt(chunkId.substring(manifestTransferFileId.length() + 1));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.pipeline.transfer.jcr;
+
+import org.projectomakase.omakase.jcr.JcrEntity;
+import org.jcrom.annotations.JcrNode;
+import org.jcrom.annotations.JcrProperty;
+
+/**
+ * Transfer File Group Node implementation that uses {@link org.jcrom.Jcrom} to serialize/deserialize to/from a JCR node.
+ * <p>
+ * Each transfer file group in a pipeline's transfer is stored as its own node beneath the pipeline so that the groups can be read and written individually. The
+ * index records the position of the group within the transfer.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@JcrNode(mixinTypes = {"omakase:transferFileGroup"})
+public class TransferFileGroupNode extends JcrEntity {
+
+    public static final String INDEX = "omakase:index";
+    public static final String TRANSFER_FILE_GROUP = "omakase:transferFileGroup";
+
+    @JcrProperty(name = INDEX)
+    private long index;
+    @JcrProperty(name = TRANSFER_FILE_GROUP)
+    private String transferFileGroup;
+
+    public TransferFileGroupNode() {
+        // required by jcrom
+    }
+
+    public TransferFileGroupNode(String id, long index, String transferFileGroup) {
+        this.name = id;
+        this.index = index;
+        this.transferFileGroup = transferFileGroup;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public void setIndex(long index) {
+        this.index = index;
+    }
+
+    public String getTransferFileGroup() {
+        return transferFileGroup;
+    }
+
+    public void setTransferFileGroup(String transferFileGroup) {
+        this.transferFileGroup = transferFileGroup;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferFileGroupNode{" +
+                "id='" + name + '\'' +
+                ", index=" + index +
+                '}';
+    }
+}
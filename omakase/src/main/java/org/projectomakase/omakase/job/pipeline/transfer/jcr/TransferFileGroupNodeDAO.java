@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.pipeline.transfer.jcr;
+
+import org.projectomakase.omakase.Omakase;
+import org.projectomakase.omakase.jcr.AbstractJcrDAO;
+import org.projectomakase.omakase.jcr.JcrThrowables;
+import org.jcrom.Jcrom;
+
+import javax.inject.Inject;
+import javax.jcr.Node;
+import javax.jcr.Session;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Transfer File Group DAO.
+ * <p>
+ * Transfer file groups are stored beneath a transfer node that is a child of the pipeline node. The groups are distributed beneath the transfer node using their
+ * id in order to avoid a large number of nodes sitting under a single parent.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class TransferFileGroupNodeDAO extends AbstractJcrDAO<TransferFileGroupNode> {
+
+    private static final String TRANSFER_NODE_NAME = "transfer";
+
+    @Inject
+    public TransferFileGroupNodeDAO(Session session, @Omakase Jcrom jcrom) {
+        super(session, jcrom);
+    }
+
+    /**
+     * Returns true if the pipeline has a transfer node otherwise false.
+     *
+     * @param pipelineNodePath
+     *         the pipeline's node path
+     * @return true if the pipeline has a transfer node otherwise false.
+     */
+    public boolean hasTransfer(String pipelineNodePath) {
+        return JcrThrowables.wrapJcrExceptionsWithReturn(() -> session.nodeExists(getTransferNodePath(pipelineNodePath)));
+    }
+
+    /**
+     * Returns all of the transfer file groups stored beneath the pipeline ordered by their index.
+     *
+     * @param pipelineNodePath
+     *         the pipeline's node path
+     * @return all of the transfer file groups stored beneath the pipeline ordered by their index.
+     */
+    public List<TransferFileGroupNode> findTransferFileGroupNodes(String pipelineNodePath) {
+        return findBySql(getTransferFileGroupNodesQuery(pipelineNodePath), null);
+    }
+
+    /**
+     * Returns a stream of the transfer file groups stored beneath the pipeline ordered by their index. The groups are read from the repository as the stream is consumed.
+     *
+     * @param pipelineNodePath
+     *         the pipeline's node path
+     * @return a stream of the transfer file groups stored beneath the pipeline ordered by their index.
+     */
+    public Stream<TransferFileGroupNode> streamTransferFileGroupNodes(String pipelineNodePath) {
+        return streamBySql(getTransferFileGroupNodesQuery(pipelineNodePath));
+    }
+
+    /**
+     * Replaces all of the transfer file groups stored beneath the pipeline with the given transfer file groups.
+     * <p>
+     * The groups are consumed from the stream one at a time and the session is saved each time the batch size is reached, which allows a transfer to be written
+     * without first materializing all of its groups.
+     * </p>
+     *
+     * @param pipelineNodePath
+     *         the pipeline's node path
+     * @param transferFileGroupNodes
+     *         the transfer file groups
+     * @param batchSize
+     *         the number of groups to create between each session save
+     */
+    public void replaceTransferFileGroupNodes(String pipelineNodePath, Stream<TransferFileGroupNode> transferFileGroupNodes, int batchSize) {
+        String transferNodePath = getTransferNodePath(pipelineNodePath);
+        JcrThrowables.wrapJcrExceptions(() -> {
+            if (session.nodeExists(transferNodePath)) {
+                session.getNode(transferNodePath).remove();
+            }
+            session.getNode(pipelineNodePath).addNode(TRANSFER_NODE_NAME);
+        });
+        Iterator<TransferFileGroupNode> iterator = transferFileGroupNodes.iterator();
+        int created = 0;
+        while (iterator.hasNext()) {
+            TransferFileGroupNode transferFileGroupNode = iterator.next();
+            distributedCreateWithoutSave(transferNodePath, transferFileGroupNode, transferFileGroupNode.getId());
+            if (++created % batchSize == 0) {
+                save();
+            }
+        }
+        save();
+    }
+
+    /**
+     * Updates the given transfer file groups stored beneath the pipeline, creating any groups that do not already exist. The changes are saved in a single session
+     * save.
+     *
+     * @param pipelineNodePath
+     *         the pipeline's node path
+     * @param transferFileGroupNodes
+     *         the transfer file groups
+     */
+    public void updateTransferFileGroupNodes(String pipelineNodePath, List<TransferFileGroupNode> transferFileGroupNodes) {
+        String transferNodePath = getTransferNodePath(pipelineNodePath);
+        transferFileGroupNodes.forEach(transferFileGroupNode -> {
+            String nodePath = getDistributedNodePath(transferNodePath, transferFileGroupNode.getId());
+            JcrThrowables.wrapJcrExceptions(() -> {
+                if (session.nodeExists(nodePath)) {
+                    Node node = session.getNode(nodePath);
+                    node.setProperty(TransferFileGroupNode.INDEX, transferFileGroupNode.getIndex());
+                    node.setProperty(TransferFileGroupNode.TRANSFER_FILE_GROUP, transferFileGroupNode.getTransferFileGroup());
+                } else {
+                    distributedCreateWithoutSave(transferNodePath, transferFileGroupNode, transferFileGroupNode.getId());
+                }
+            });
+        });
+        save();
+    }
+
+    private static String getTransferFileGroupNodesQuery(String pipelineNodePath) {
+        return "SELECT group.* " +
+                "FROM [omakase:transferFileGroup] AS group " +
+                "WHERE ISDESCENDANTNODE(group, '" + getTransferNodePath(pipelineNodePath) + "') " +
+                "ORDER BY group.[" + TransferFileGroupNode.INDEX + "]";
+    }
+
+    private static String getTransferNodePath(String pipelineNodePath) {
+        return pipelineNodePath + "/" + TRANSFER_NODE_NAME;
+    }
+}
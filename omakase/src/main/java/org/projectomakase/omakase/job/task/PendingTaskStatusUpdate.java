@@ -0,0 +1,57 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task;
+
+import org.projectomakase.omakase.task.api.TaskStatusUpdate;
+
+/**
+ * A {@link TaskStatusUpdate} that is waiting to be applied to the task with the given id.
+ * <p>
+ * Used to apply task status updates in batches, see {@link TaskManager#updateTaskStatuses(java.util.List)}.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class PendingTaskStatusUpdate {
+
+    private final String taskId;
+    private final TaskStatusUpdate taskStatusUpdate;
+
+    public PendingTaskStatusUpdate(String taskId, TaskStatusUpdate taskStatusUpdate) {
+        this.taskId = taskId;
+        this.taskStatusUpdate = taskStatusUpdate;
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public TaskStatusUpdate getTaskStatusUpdate() {
+        return taskStatusUpdate;
+    }
+
+    @Override
+    public String toString() {
+        return "PendingTaskStatusUpdate{" +
+                "taskId='" + taskId + '\'' +
+                ", taskStatusUpdate=" + taskStatusUpdate +
+                '}';
+    }
+}
@@ -22,6 +22,8 @@ package org.projectomakase.omakase.job.task;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
 import com.google.common.collect.Range;
 import com.google.common.primitives.Ints;
 import org.projectomakase.omakase.IdGenerator;
@@ -48,21 +50,40 @@ import org.projectomakase.omakase.search.SearchResult;
 import org.projectomakase.omakase.task.api.Task;
 import org.projectomakase.omakase.task.api.TaskStatus;
 import org.projectomakase.omakase.task.api.TaskStatusUpdate;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.jboss.logging.Logger;
 import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 
+import javax.annotation.Resource;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 import javax.validation.constraints.NotNull;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import static org.projectomakase.omakase.commons.collectors.ImmutableSetCollector.toImmutableSet;
 
 /**
  * Java facade for managing tasks
+ * <p>
+ * Task groups keep a count of their tasks in each status. Any method that changes the counts acquires a JCR lock on the task group, see
+ * {@link TaskGroupNodeDAO#lock(String, long)}, before the counts are read and releases it once the current transaction has completed, so that concurrent updates to
+ * tasks in the same task group, including from other cluster members, are applied one at a time. A task group is only locked once per transaction, subsequent
+ * updates within the same transaction re-use the locked task group.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -71,6 +92,8 @@ import static org.projectomakase.omakase.commons.collectors.ImmutableSetCollecto
 public class TaskManager {
 
     private static final Logger LOGGER = Logger.getLogger(TaskManager.class);
+    // transaction scoped resource holding the task groups locked by the transaction, keyed by task group path
+    private static final String LOCKED_TASK_GROUPS_KEY = TaskManager.class.getName() + ".lockedTaskGroups";
 
     @Inject
     @OrganizationNodePath()
@@ -91,6 +114,11 @@ public class TaskManager {
     TaskStatusQueue taskStatusQueue;
     @Inject
     Callback callback;
+    @Inject
+    @ConfigProperty(name = "omakase.task.group.lock.timeout.ms", defaultValue = "30000")
+    long taskGroupLockTimeoutInMs;
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
 
     /**
      * Creates a new task group.
@@ -194,20 +222,17 @@ public class TaskManager {
      *         if the user does not have permission to create tasks.
      */
     public Task createTask(@NotNull TaskGroup taskGroup, @NotNull final Task task, boolean queueTask) {
-        if (!TaskStatus.QUEUED.equals(task.getStatus())) {
-            throw new InvalidPropertyException("Invalid task status '" + task.getStatus() + "', new tasks must have a status of 'QUEUED'");
-        }
-
-        if (!Range.closed(1L, 10L).contains(task.getPriority())) {
-            throw new InvalidPropertyException("Invalid task priority value '" + task.getPriority() + "', the value must be between 1 and 10");
-        }
+        validateNewTask(task);
 
         String taskId = idGenerator.getId();
 
         TaskNode taskNode = tasks.fromTask(task);
         taskNode.setId(taskId);
 
-        Task createdTask = tasks.fromTaskNode(taskDAO.create(getTaskGroupPath(taskGroup.getJobId(), taskGroup.getId()), taskNode));
+        // the task group count is staged so that it is saved with the task
+        String taskGroupPath = getTaskGroupPath(taskGroup.getJobId(), taskGroup.getId());
+        stageTaskGroupCountForNewTasks(lockTaskGroup(taskGroupPath), 1);
+        Task createdTask = tasks.fromTaskNode(taskDAO.create(taskGroupPath, taskNode));
         if (queueTask) {
             taskQueue.add(createdTask);
         }
@@ -223,6 +248,48 @@ public class TaskManager {
         return createdTask;
     }
 
+    /**
+     * Creates new tasks within the specified task group, and queues them for processing by workers.
+     * <p>
+     * Validates each task has a status of QUEUED and a priority with a value between 1 and 10. All of the tasks, and the task group counts, are written to the
+     * repository with a single session save and are added to the task queue as a single batch. The created tasks are not re-read from the repository.
+     * </p>
+     *
+     * @param taskGroup
+     *         the task group
+     * @param newTasks
+     *         the tasks to create.
+     * @return the created tasks in the same order as the given tasks.
+     * @throws InvalidPropertyException
+     *         if a task contains an invalid property
+     * @throws NotAuthorizedException
+     *         if the user does not have permission to create tasks.
+     */
+    public ImmutableList<Task> createTasks(@NotNull TaskGroup taskGroup, @NotNull final List<Task> newTasks) {
+        newTasks.forEach(TaskManager::validateNewTask);
+
+        String taskGroupPath = getTaskGroupPath(taskGroup.getJobId(), taskGroup.getId());
+        stageTaskGroupCountForNewTasks(lockTaskGroup(taskGroupPath), newTasks.size());
+        ZonedDateTime created = ZonedDateTime.now();
+        ImmutableList<Task> createdTasks = newTasks.stream().map(task -> {
+            String taskId = idGenerator.getId();
+            TaskNode taskNode = tasks.fromTask(task);
+            taskNode.setId(taskId);
+            taskDAO.createWithoutSave(taskGroupPath, taskNode);
+            return new Task(taskId, task.getType(), task.getDescription(), task.getStatus(), task.getStatusTimestamp(), task.getPriority(), task.getConfiguration(),
+                            task.getOutput().orElse(null), created);
+        }).collect(ImmutableListCollector.toImmutableList());
+        taskDAO.save();
+
+        taskQueue.addAll(createdTasks);
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Created " + createdTasks.size() + " task(s) in task group " + taskGroup.getId());
+        }
+
+        return createdTasks;
+    }
+
     /**
      * Returns all of the tasks for the caller principles organization that match the given search constraints.
      *
@@ -234,7 +301,7 @@ public class TaskManager {
      */
     public SearchResult<Task> findJobs(@NotNull final Search search) {
         SearchResult<TaskNode> taskNodeSearchResults = taskDAO.findNodes(organizationNodePath + "/jobs", search, "omakase:task");
-        return new SearchResult<>(taskNodeSearchResults.getRecords().stream().map(tasks::fromTaskNode).collect(Collectors.toList()), taskNodeSearchResults.getTotalRecords());
+        return taskNodeSearchResults.map(tasks::fromTaskNode);
     }
 
     /**
@@ -279,33 +346,27 @@ public class TaskManager {
      */
     public Task updateTaskStatus(@NotNull final String taskId, @NotNull final TaskStatusUpdate taskStatusUpdate) {
 
-        TaskNode currentTaskNode = taskDAO.findById(taskId).orElseThrow(() -> new NotFoundException("Unable to find task " + taskId));
+        TaskNode taskNode = taskDAO.findById(taskId).orElseThrow(() -> new NotFoundException("Unable to find task " + taskId));
+
+        // the task is re-read once the task group is locked so that its status is consistent with the task group counts
+        TaskGroupNode taskGroupNode = lockTaskGroup(getTaskGroupPath(taskNode));
+        TaskNode currentTaskNode = taskDAO.get(taskNode.getNodePath());
 
         if (TaskStatus.COMPLETED.equals(currentTaskNode.getStatus()) || tasks.isFailedTaskStatus(currentTaskNode.getStatus())) {
             LOGGER.warn("Task is in already terminating state and can not be updated");
             return tasks.fromTaskNode(currentTaskNode);
         } else {
-            TaskNode updatedTaskNode = updateTaskNodeWithTaskStatusUpdate(taskStatusUpdate, currentTaskNode);
-
-            TaskGroupNode taskGroupNode = taskGroupDAO.findByTaskId(taskId).orElseThrow(() -> new NotFoundException("Unable to find task group for task " + taskId));
-            TaskStatus newGroupStatus = tasks.getTaskGroupStatusFromTasks(getTasks(taskGroupNode.getId()));
-            TaskGroupNode updatedTaskGroup = updateTaskGroupStatus(taskGroupNode, newGroupStatus);
-
-            ImmutableMultimap.Builder<String, String> mapBuilder = ImmutableMultimap.builder();
-            mapBuilder.put("taskGroupId", updatedTaskGroup.getId());
-            mapBuilder.put("taskGroupStatus", updatedTaskGroup.getStatus().name());
-            mapBuilder.put("taskId", taskId);
-
+            TaskNode updatedTaskNode = stageTaskNodeWithTaskStatusUpdate(taskStatusUpdate, currentTaskNode);
+            taskGroupNode.recordTaskTransition(currentTaskNode.getStatus(), updatedTaskNode.getStatus());
+            TaskGroupNode updatedTaskGroup = stageTaskGroupStatus(taskGroupNode);
             Optional.ofNullable(taskStatusUpdate.getMessage()).ifPresent(message -> {
                 MessageType messageType = Optional.of(taskStatusUpdate.getStatus()).filter(tasks::isFailedTaskStatus).map(taskStatus -> MessageType.ERROR).orElse(MessageType.INFO);
-                messageDAO.create(updatedTaskNode.getNodePath(), new Message(message, messageType));
+                messageDAO.createWithoutSave(updatedTaskNode.getNodePath(), new Message(message, messageType));
             });
+            // the task, task group and message changes are written with a single session save
+            taskDAO.save();
 
-            CallbackEvent callbackEvent = new CallbackEvent(updatedTaskGroup.getPipelineId(), mapBuilder.build());
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(callbackEvent);
-            }
-            callback.fire(callbackEvent, Optional.ofNullable(updatedTaskGroup.getCallbackListenerId()).orElse(""));
+            fireTaskGroupCallback(updatedTaskGroup, ImmutableList.of(taskId));
             Task task = tasks.fromTaskNode(updatedTaskNode);
 
             // re-queue the task as it has been reset to queued in order for it to be retried
@@ -317,6 +378,106 @@ public class TaskManager {
         }
     }
 
+    /**
+     * Applies a batch of task status updates and notifies any observers of the updates by firing a single CallbackEvent per affected task group.
+     * <p>
+     * The updates are applied in the order they are provided, all of the task, task group and message changes are written to the repository with a single session save. Updates for tasks that are already
+     * in a terminating state are skipped. If any update can not be applied no updates are saved and the exception is thrown, allowing the caller to retry or apply the
+     * updates individually. The task groups of the tasks are locked in path order before any of the updates are applied.
+     * </p>
+     *
+     * @param pendingTaskStatusUpdates
+     *         the task status updates to apply
+     * @return the updated tasks
+     * @throws NotFoundException
+     *         if a task does not exist
+     */
+    public ImmutableList<Task> updateTaskStatuses(@NotNull final List<PendingTaskStatusUpdate> pendingTaskStatusUpdates) {
+        Map<String, TaskNode> taskNodes = new LinkedHashMap<>();
+        pendingTaskStatusUpdates.stream().map(PendingTaskStatusUpdate::getTaskId).distinct().forEach(
+                taskId -> taskNodes.put(taskId, taskDAO.findById(taskId).orElseThrow(() -> new NotFoundException("Unable to find task " + taskId))));
+
+        // the task groups are always locked in the same order to avoid concurrent batches waiting on each other's locks
+        Map<String, TaskGroupNode> taskGroupNodes = new TreeMap<>();
+        taskNodes.values().stream().map(TaskManager::getTaskGroupPath).distinct().sorted().forEach(taskGroupPath -> taskGroupNodes.put(taskGroupPath, lockTaskGroup(taskGroupPath)));
+
+        Map<String, TaskNode> updatedTaskNodes = new LinkedHashMap<>();
+        Multimap<String, String> taskIdsByTaskGroup = LinkedHashMultimap.create();
+
+        for (PendingTaskStatusUpdate pendingTaskStatusUpdate : pendingTaskStatusUpdates) {
+            String taskId = pendingTaskStatusUpdate.getTaskId();
+            // the task is re-read once its task group is locked so that its status is consistent with the task group counts
+            TaskNode currentTaskNode = Optional.ofNullable(updatedTaskNodes.get(taskId)).orElseGet(() -> taskDAO.get(taskNodes.get(taskId).getNodePath()));
+
+            if (TaskStatus.COMPLETED.equals(currentTaskNode.getStatus()) || tasks.isFailedTaskStatus(currentTaskNode.getStatus())) {
+                LOGGER.warn("Task " + taskId + " is in already terminating state and can not be updated");
+            } else {
+                TaskGroupNode taskGroupNode = taskGroupNodes.get(getTaskGroupPath(currentTaskNode));
+                TaskNode updatedTaskNode = stageTaskNodeWithTaskStatusUpdate(pendingTaskStatusUpdate.getTaskStatusUpdate(), currentTaskNode);
+                updatedTaskNodes.put(taskId, updatedTaskNode);
+                taskGroupNode.recordTaskTransition(currentTaskNode.getStatus(), updatedTaskNode.getStatus());
+                taskIdsByTaskGroup.put(taskGroupNode.getNodePath(), taskId);
+
+                Optional.ofNullable(pendingTaskStatusUpdate.getTaskStatusUpdate().getMessage()).ifPresent(message -> {
+                    MessageType messageType =
+                            Optional.of(pendingTaskStatusUpdate.getTaskStatusUpdate().getStatus()).filter(tasks::isFailedTaskStatus).map(taskStatus -> MessageType.ERROR).orElse(MessageType.INFO);
+                    messageDAO.createWithoutSave(updatedTaskNode.getNodePath(), new Message(message, messageType));
+                });
+            }
+        }
+
+        List<TaskGroupNode> updatedTaskGroupNodes = taskGroupNodes.values().stream().map(this::stageTaskGroupStatus).collect(Collectors.toList());
+
+        taskDAO.save();
+
+        updatedTaskGroupNodes.forEach(taskGroupNode -> fireTaskGroupCallback(taskGroupNode, taskIdsByTaskGroup.get(taskGroupNode.getNodePath())));
+
+        ImmutableList<Task> updatedTasks = updatedTaskNodes.values().stream().map(tasks::fromTaskNode).collect(ImmutableListCollector.toImmutableList());
+
+        // re-queue the tasks that have been reset to queued in order for them to be retried
+        updatedTasks.stream().filter(task -> TaskStatus.QUEUED.equals(task.getStatus())).forEach(taskQueue::add);
+
+        return updatedTasks;
+    }
+
+    /**
+     * Recomputes the task counts of all of the active task groups from their tasks and repairs any task groups whose counts do not match the status of their tasks.
+     * <p>
+     * Task counts are kept consistent by locking the task group whenever they are updated, this is a safety net for task groups whose counts were recorded before the
+     * task groups were locked or were changed outside of the task manager. Each task group is locked while it is recounted, task groups that can not be locked are
+     * skipped. If the status of a repaired task group changes, observers are notified by firing a CallbackEvent.
+     * </p>
+     *
+     * @return the number of task groups that were repaired.
+     */
+    public int repairTaskGroupCounts() {
+        int repaired = 0;
+        for (TaskGroupNode activeTaskGroupNode : taskGroupDAO.findActiveTaskGroups()) {
+            TaskGroupNode taskGroupNode;
+            try {
+                taskGroupNode = lockTaskGroup(activeTaskGroupNode.getNodePath());
+            } catch (OmakaseRuntimeException e) {
+                LOGGER.warn("Skipping repair of task group " + activeTaskGroupNode.getId() + ", " + e.getMessage());
+                continue;
+            }
+            Map<TaskStatus, Long> taskCounts = countTasks(taskGroupNode);
+            boolean drifted = !taskGroupNode.hasTaskCounts() ||
+                    Arrays.stream(TaskStatus.values()).anyMatch(taskStatus -> taskGroupNode.getTaskCount(taskStatus) != taskCounts.getOrDefault(taskStatus, 0L));
+            if (drifted) {
+                LOGGER.warn("Repairing task counts for task group " + taskGroupNode.getId() + ", recorded " + taskGroupNode + ", actual " + taskCounts);
+                TaskStatus previousStatus = taskGroupNode.getStatus();
+                taskGroupNode.setTaskCounts(taskCounts);
+                stageTaskGroupStatus(taskGroupNode);
+                taskGroupDAO.save();
+                if (!previousStatus.equals(taskGroupNode.getStatus())) {
+                    fireTaskGroupCallback(taskGroupNode, ImmutableList.of());
+                }
+                repaired++;
+            }
+        }
+        return repaired;
+    }
+
     /**
      * Adds a {@link Message} to the given task.
      *
@@ -357,6 +518,26 @@ public class TaskManager {
         taskStatusQueue.add(taskId, taskStatusUpdate);
     }
 
+    /**
+     * Adds a batch of task status updates to the task status queue for asynchronous processing.
+     *
+     * @param pendingTaskStatusUpdates
+     *         the task status updates
+     */
+    public void addTaskStatusUpdatesToQueue(@NotNull List<PendingTaskStatusUpdate> pendingTaskStatusUpdates) {
+        taskStatusQueue.addAll(pendingTaskStatusUpdates);
+    }
+
+    private static void validateNewTask(Task task) {
+        if (!TaskStatus.QUEUED.equals(task.getStatus())) {
+            throw new InvalidPropertyException("Invalid task status '" + task.getStatus() + "', new tasks must have a status of 'QUEUED'");
+        }
+
+        if (!Range.closed(1L, 10L).contains(task.getPriority())) {
+            throw new InvalidPropertyException("Invalid task priority value '" + task.getPriority() + "', the value must be between 1 and 10");
+        }
+    }
+
     private String getRootPath(String jobId) {
         return taskDAO.getDistributedNodePath(organizationNodePath + "/jobs", jobId);
     }
@@ -365,29 +546,127 @@ public class TaskManager {
         return taskDAO.getDistributedNodePath(organizationNodePath + "/jobs", jobId + "/" + taskGroupId);
     }
 
-    private TaskNode updateTaskNodeWithTaskStatusUpdate(@NotNull TaskStatusUpdate taskStatusUpdate, TaskNode currentTaskNode) {
-        TaskNode updatedTask;
+    private static String getTaskGroupPath(TaskNode taskNode) {
+        // tasks are always created as direct children of their task group
+        return taskNode.getNodePath().substring(0, taskNode.getNodePath().lastIndexOf('/'));
+    }
+
+    private TaskGroupNode lockTaskGroup(String taskGroupPath) {
+        // JCR locks are not re-entrant, a task group that has already been locked by the current transaction is re-used along with any changes staged to it
+        Map<String, TaskGroupNode> lockedTaskGroups = getLockedTaskGroups();
+        TaskGroupNode lockedTaskGroupNode = lockedTaskGroups.get(taskGroupPath);
+        if (lockedTaskGroupNode != null) {
+            return lockedTaskGroupNode;
+        }
+
+        String lockToken = taskGroupDAO.lock(taskGroupPath, taskGroupLockTimeoutInMs);
+        try {
+            // the lock is held until the transaction has completed so that the next lock holder reads the committed task counts
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new TaskGroupUnlockSynchronization(taskGroupPath, lockToken));
+        } catch (IllegalStateException e) {
+            taskGroupDAO.unlock(taskGroupPath, lockToken);
+            throw e;
+        }
+        TaskGroupNode taskGroupNode = Optional.ofNullable(taskGroupDAO.get(taskGroupPath)).orElseThrow(() -> new NotFoundException("Unable to find task group " + taskGroupPath));
+        initializeTaskCounts(taskGroupNode);
+        lockedTaskGroups.put(taskGroupPath, taskGroupNode);
+        return taskGroupNode;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, TaskGroupNode> getLockedTaskGroups() {
+        Map<String, TaskGroupNode> lockedTaskGroups = (Map<String, TaskGroupNode>) transactionSynchronizationRegistry.getResource(LOCKED_TASK_GROUPS_KEY);
+        if (lockedTaskGroups == null) {
+            lockedTaskGroups = new HashMap<>();
+            transactionSynchronizationRegistry.putResource(LOCKED_TASK_GROUPS_KEY, lockedTaskGroups);
+        }
+        return lockedTaskGroups;
+    }
+
+    private void initializeTaskCounts(TaskGroupNode taskGroupNode) {
+        // task groups created before task counts were introduced are counted from their persisted tasks the first time they are updated
+        if (!taskGroupNode.hasTaskCounts()) {
+            taskGroupNode.setTaskCounts(countTasks(taskGroupNode));
+        }
+    }
+
+    private Map<TaskStatus, Long> countTasks(TaskGroupNode taskGroupNode) {
+        return taskDAO.findTasksForGroup(taskGroupNode.getId()).stream().collect(Collectors.groupingBy(TaskNode::getStatus, Collectors.counting()));
+    }
+
+    private void stageTaskGroupCountForNewTasks(TaskGroupNode taskGroupNode, int newTasks) {
+        taskGroupNode.setTaskCount(TaskStatus.QUEUED, taskGroupNode.getTaskCount(TaskStatus.QUEUED) + newTasks);
+        taskGroupDAO.updateWithoutSave(taskGroupNode);
+    }
+
+    private TaskNode stageTaskNodeWithTaskStatusUpdate(@NotNull TaskStatusUpdate taskStatusUpdate, TaskNode currentTaskNode) {
+        TaskNode updatedTask = applyTaskStatusUpdate(taskStatusUpdate, currentTaskNode);
+        taskDAO.updateWithoutSave(updatedTask);
+        return updatedTask;
+    }
+
+    private TaskNode applyTaskStatusUpdate(@NotNull TaskStatusUpdate taskStatusUpdate, TaskNode currentTaskNode) {
         if (tasks.shouldRetryTask(taskStatusUpdate.getStatus(), Ints.checkedCast(currentTaskNode.getRetryAttempts()), tasks.getMaxTaskRetries())) {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Retrying task " + currentTaskNode.getId());
             }
-            updatedTask = taskDAO.update(new TaskNode(currentTaskNode, TaskStatus.QUEUED, null, currentTaskNode.getRetryAttempts() + 1L));
+            return new TaskNode(currentTaskNode, TaskStatus.QUEUED, null, currentTaskNode.getRetryAttempts() + 1L);
         } else {
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Updating task " + currentTaskNode.getId() + " status to " + taskStatusUpdate.getStatus());
             }
-            updatedTask = taskDAO.update(new TaskNode(currentTaskNode, taskStatusUpdate.getStatus(), taskStatusUpdate.getOutput().orElse(null), currentTaskNode.getRetryAttempts()));
+            return new TaskNode(currentTaskNode, taskStatusUpdate.getStatus(), taskStatusUpdate.getOutput().orElse(null), currentTaskNode.getRetryAttempts());
         }
-        return updatedTask;
     }
 
-    private TaskGroupNode updateTaskGroupStatus(TaskGroupNode taskGroupNode, TaskStatus taskStatus) {
-        if (!TaskStatus.QUEUED.equals(taskStatus) && !taskGroupNode.getStatus().equals(taskStatus)) {
+    private TaskGroupNode stageTaskGroupStatus(TaskGroupNode taskGroupNode) {
+        tasks.getTaskGroupStatusFromTaskCounts(taskGroupNode).filter(taskStatus -> shouldUpdateTaskGroupStatus(taskGroupNode, taskStatus)).ifPresent(taskStatus -> {
             taskGroupNode.setStatus(taskStatus);
             taskGroupNode.setStatusTimestamp(new Date());
-            return taskGroupDAO.update(taskGroupNode);
-        } else {
-            return taskGroupNode;
+        });
+        // the task counts change with every task transition so the task group is always staged
+        taskGroupDAO.updateWithoutSave(taskGroupNode);
+        return taskGroupNode;
+    }
+
+    private void fireTaskGroupCallback(TaskGroupNode taskGroupNode, Collection<String> taskIds) {
+        ImmutableMultimap.Builder<String, String> mapBuilder = ImmutableMultimap.builder();
+        mapBuilder.put("taskGroupId", taskGroupNode.getId());
+        mapBuilder.put("taskGroupStatus", taskGroupNode.getStatus().name());
+        mapBuilder.putAll("taskId", taskIds);
+
+        CallbackEvent callbackEvent = new CallbackEvent(taskGroupNode.getPipelineId(), mapBuilder.build());
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(callbackEvent);
+        }
+        callback.fire(callbackEvent, Optional.ofNullable(taskGroupNode.getCallbackListenerId()).orElse(""));
+    }
+
+    private static boolean shouldUpdateTaskGroupStatus(TaskGroupNode taskGroupNode, TaskStatus taskStatus) {
+        return !TaskStatus.QUEUED.equals(taskStatus) && !taskGroupNode.getStatus().equals(taskStatus);
+    }
+
+    /**
+     * Releases a task group lock once the transaction that acquired it has completed.
+     */
+    private final class TaskGroupUnlockSynchronization implements Synchronization {
+
+        private final String taskGroupPath;
+        private final String lockToken;
+
+        TaskGroupUnlockSynchronization(String taskGroupPath, String lockToken) {
+            this.taskGroupPath = taskGroupPath;
+            this.lockToken = lockToken;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            // no-op
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            taskGroupDAO.unlock(taskGroupPath, lockToken);
         }
     }
 }
@@ -39,6 +39,7 @@ import javax.json.JsonReader;
 import java.io.StringReader;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Map;
@@ -156,6 +157,17 @@ public class Tasks {
         return taskStatuses.stream().sorted(Comparator.comparing(taskStatusWeight::get)).findFirst().get();
     }
 
+    /**
+     * Returns the task group status based on the task counts of the task group, or an empty Optional if the task group does not contain any tasks.
+     *
+     * @param taskGroupNode
+     *         the task group
+     * @return the task group status based on the task counts of the task group.
+     */
+    public Optional<TaskStatus> getTaskGroupStatusFromTaskCounts(TaskGroupNode taskGroupNode) {
+        return Arrays.stream(TaskStatus.values()).filter(taskStatus -> taskGroupNode.getTaskCount(taskStatus) > 0).sorted(Comparator.comparing(taskStatusWeight::get)).findFirst();
+    }
+
     /**
      * Returns true if the task status is a failure statue otherwise true.
      *
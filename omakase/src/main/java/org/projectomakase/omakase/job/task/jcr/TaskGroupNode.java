@@ -25,9 +25,14 @@ import org.jcrom.annotations.JcrNode;
 import org.jcrom.annotations.JcrProperty;
 
 import java.util.Date;
+import java.util.Map;
 
 /**
  * Task Group Node implementation that uses {@link org.jcrom.Jcrom} to serialize/deserialize to/from a JCR node.
+ * <p>
+ * The task group keeps a count of the number of tasks in each status, the counts are updated with each task status transition so that the status of the task group
+ * can be derived without loading all of its tasks. Task groups created prior to the counts being introduced do not have counts.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -44,6 +49,16 @@ public class TaskGroupNode extends JcrEntity {
     private String pipelineId;
     @JcrProperty(name = "omakase:callbackListenerId")
     private String callbackListenerId;
+    @JcrProperty(name = "omakase:queuedTaskCount")
+    private Long queuedTaskCount;
+    @JcrProperty(name = "omakase:executingTaskCount")
+    private Long executingTaskCount;
+    @JcrProperty(name = "omakase:completedTaskCount")
+    private Long completedTaskCount;
+    @JcrProperty(name = "omakase:failedDirtyTaskCount")
+    private Long failedDirtyTaskCount;
+    @JcrProperty(name = "omakase:failedCleanTaskCount")
+    private Long failedCleanTaskCount;
 
     public TaskGroupNode() {
         // required by jcrom
@@ -56,6 +71,11 @@ public class TaskGroupNode extends JcrEntity {
         this.jobId = jobId;
         this.pipelineId = pipelineId;
         this.callbackListenerId = callbackListenerId;
+        this.queuedTaskCount = 0L;
+        this.executingTaskCount = 0L;
+        this.completedTaskCount = 0L;
+        this.failedDirtyTaskCount = 0L;
+        this.failedCleanTaskCount = 0L;
     }
 
     public TaskStatus getStatus() {
@@ -86,6 +106,112 @@ public class TaskGroupNode extends JcrEntity {
         return callbackListenerId;
     }
 
+    /**
+     * Returns true if the task group has task counts, otherwise false.
+     *
+     * @return true if the task group has task counts, otherwise false.
+     */
+    public boolean hasTaskCounts() {
+        return queuedTaskCount != null && executingTaskCount != null && completedTaskCount != null && failedDirtyTaskCount != null && failedCleanTaskCount != null;
+    }
+
+    /**
+     * Returns the number of tasks in the task group with the given status.
+     *
+     * @param taskStatus
+     *         the task status
+     * @return the number of tasks in the task group with the given status.
+     */
+    public long getTaskCount(TaskStatus taskStatus) {
+        Long count;
+        switch (taskStatus) {
+            case QUEUED:
+                count = queuedTaskCount;
+                break;
+            case EXECUTING:
+                count = executingTaskCount;
+                break;
+            case COMPLETED:
+                count = completedTaskCount;
+                break;
+            case FAILED_DIRTY:
+                count = failedDirtyTaskCount;
+                break;
+            case FAILED_CLEAN:
+                count = failedCleanTaskCount;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported task status " + taskStatus);
+        }
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Sets the number of tasks in the task group with the given status.
+     *
+     * @param taskStatus
+     *         the task status
+     * @param count
+     *         the number of tasks
+     */
+    public void setTaskCount(TaskStatus taskStatus, long count) {
+        switch (taskStatus) {
+            case QUEUED:
+                queuedTaskCount = count;
+                break;
+            case EXECUTING:
+                executingTaskCount = count;
+                break;
+            case COMPLETED:
+                completedTaskCount = count;
+                break;
+            case FAILED_DIRTY:
+                failedDirtyTaskCount = count;
+                break;
+            case FAILED_CLEAN:
+                failedCleanTaskCount = count;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported task status " + taskStatus);
+        }
+    }
+
+    /**
+     * Replaces all of the task counts with the given counts, statuses that are not included are set to 0.
+     *
+     * @param taskCounts
+     *         the number of tasks in each status
+     */
+    public void setTaskCounts(Map<TaskStatus, Long> taskCounts) {
+        for (TaskStatus taskStatus : TaskStatus.values()) {
+            setTaskCount(taskStatus, taskCounts.getOrDefault(taskStatus, 0L));
+        }
+    }
+
+    /**
+     * Records the transition of a task from one status to another.
+     * <p>
+     * Callers are expected to hold the task group lock, see {@link TaskGroupNodeDAO#lock(String, long)}, so that the counts are not updated concurrently.
+     * </p>
+     *
+     * @param fromStatus
+     *         the status the task is transitioning from
+     * @param toStatus
+     *         the status the task is transitioning to
+     * @throws IllegalStateException
+     *         if the task group does not have any tasks with the from status, i.e. the task counts are inconsistent with the tasks.
+     */
+    public void recordTaskTransition(TaskStatus fromStatus, TaskStatus toStatus) {
+        if (!fromStatus.equals(toStatus)) {
+            long fromCount = getTaskCount(fromStatus);
+            if (fromCount < 1) {
+                throw new IllegalStateException("Task group " + name + " has no " + fromStatus + " tasks to transition to " + toStatus + ", the task counts are inconsistent");
+            }
+            setTaskCount(fromStatus, fromCount - 1);
+            setTaskCount(toStatus, getTaskCount(toStatus) + 1);
+        }
+    }
+
     @Override
     public String toString() {
         return "TaskGroupNode{" +
@@ -95,6 +221,11 @@ public class TaskGroupNode extends JcrEntity {
                 ", jobId='" + jobId + '\'' +
                 ", pipelineId='" + pipelineId + '\'' +
                 ", callbackListenerId='" + callbackListenerId + '\'' +
+                ", queuedTaskCount=" + queuedTaskCount +
+                ", executingTaskCount=" + executingTaskCount +
+                ", completedTaskCount=" + completedTaskCount +
+                ", failedDirtyTaskCount=" + failedDirtyTaskCount +
+                ", failedCleanTaskCount=" + failedCleanTaskCount +
                 ", created=" + created +
                 ", createdBy='" + createdBy + '\'' +
                 ", lastModified=" + lastModified +
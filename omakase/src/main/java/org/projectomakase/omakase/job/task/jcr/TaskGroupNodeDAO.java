@@ -19,14 +19,24 @@
  */
 package org.projectomakase.omakase.job.task.jcr;
 
+import org.jboss.logging.Logger;
 import org.projectomakase.omakase.Omakase;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.jcr.AbstractJcrDAO;
+import org.projectomakase.omakase.jcr.JcrThrowables;
+import org.projectomakase.omakase.jcr.modeshape.OmakaseCredentials;
 import org.jcrom.Jcrom;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import javax.jcr.lock.LockException;
+import javax.jcr.lock.LockManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Task Group DAO.
@@ -35,6 +45,12 @@ import java.util.Optional;
  */
 public class TaskGroupNodeDAO extends AbstractJcrDAO<TaskGroupNode> {
 
+    private static final Logger LOGGER = Logger.getLogger(TaskGroupNodeDAO.class);
+    private static final long LOCK_RETRY_INTERVAL_MS = 50;
+
+    @Resource(mappedName = "java:/jcr/omakase-repo")
+    Repository repository;
+
     @Inject
     public TaskGroupNodeDAO(Session session, @Omakase Jcrom jcrom) {
         super(session, jcrom);
@@ -69,6 +85,18 @@ public class TaskGroupNodeDAO extends AbstractJcrDAO<TaskGroupNode> {
         return findBySql(sql, null).stream().findFirst();
     }
 
+    /**
+     * Returns all of the task groups that have a status of QUEUED or EXECUTING.
+     *
+     * @return all of the task groups that have a status of QUEUED or EXECUTING.
+     */
+    public List<TaskGroupNode> findActiveTaskGroups() {
+        String sql = "SELECT group.* " +
+                "FROM [omakase:taskGroup] AS group " +
+                "WHERE group.[omakase:status] IN ('QUEUED', 'EXECUTING')";
+        return findBySql(sql, null);
+    }
+
     /**
      * Returns the task group for the given task id if it exists, otherwise returns an empty Optional.
      *
@@ -83,4 +111,78 @@ public class TaskGroupNodeDAO extends AbstractJcrDAO<TaskGroupNode> {
                 "WHERE task.[jcr:name]='" + taskId + "'";
         return findBySql(sql, null).stream().findFirst();
     }
+
+    /**
+     * Acquires an open-scoped JCR lock on the task group, waiting for up to the given timeout if the task group is already locked.
+     * <p>
+     * The lock is used to serialize updates to the task counts of a task group across sessions and cluster members. The lock is not released when the session is
+     * saved or logged out, callers must release it by calling {@link #unlock(String, String)} once the transaction that updated the task group has completed. The
+     * timeout is also used as the JCR lock timeout hint so that the lock is eventually released if the caller fails to release it. Once the lock is acquired the
+     * session is refreshed, retaining any pending changes, so that the task group and its tasks are read as last saved by the previous lock holder.
+     * </p>
+     *
+     * @param taskGroupPath
+     *         the task group node path
+     * @param timeoutInMs
+     *         the maximum amount of time to wait for the lock in milliseconds
+     * @return the lock token
+     * @throws OmakaseRuntimeException
+     *         if the lock could not be acquired within the timeout
+     */
+    public String lock(String taskGroupPath, long timeoutInMs) {
+        return JcrThrowables.wrapJcrExceptionsWithReturn(() -> {
+            LockManager lockManager = session.getWorkspace().getLockManager();
+            long timeoutHint = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeoutInMs));
+            long deadline = System.currentTimeMillis() + timeoutInMs;
+            while (true) {
+                try {
+                    String lockToken = lockManager.lock(taskGroupPath, false, false, timeoutHint, null).getLockToken();
+                    session.refresh(true);
+                    return lockToken;
+                } catch (LockException e) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        throw new OmakaseRuntimeException("Timed out waiting for lock on task group " + taskGroupPath, e);
+                    }
+                    waitForLock(taskGroupPath);
+                }
+            }
+        });
+    }
+
+    /**
+     * Releases a lock that was acquired with {@link #lock(String, long)}.
+     * <p>
+     * The lock is released using a new session so that it can be released after the request scoped session that acquired it has ended, e.g. when the
+     * transaction that updated the task group completes. Failures are logged rather than thrown, if the lock can not be released it expires once its timeout has elapsed.
+     * </p>
+     *
+     * @param taskGroupPath
+     *         the task group node path
+     * @param lockToken
+     *         the lock token returned when the lock was acquired
+     */
+    public void unlock(String taskGroupPath, String lockToken) {
+        Session unlockSession = null;
+        try {
+            unlockSession = repository.login(new OmakaseCredentials());
+            LockManager lockManager = unlockSession.getWorkspace().getLockManager();
+            lockManager.addLockToken(lockToken);
+            lockManager.unlock(taskGroupPath);
+        } catch (RepositoryException e) {
+            LOGGER.warn("Failed to release lock on task group " + taskGroupPath + ", the lock will expire once its timeout has elapsed", e);
+        } finally {
+            if (unlockSession != null) {
+                unlockSession.logout();
+            }
+        }
+    }
+
+    private static void waitForLock(String taskGroupPath) {
+        try {
+            Thread.sleep(LOCK_RETRY_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OmakaseRuntimeException("Interrupted waiting for lock on task group " + taskGroupPath, e);
+        }
+    }
 }
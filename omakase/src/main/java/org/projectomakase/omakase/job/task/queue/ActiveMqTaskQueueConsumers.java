@@ -0,0 +1,346 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Receives batches of messages from the ActiveMQ task and task status queues.
+ * <p>
+ * Consumers are long lived, each consumer has its own transacted session and is kept open for the lifetime of the bean, they are closed when the bean is
+ * destroyed. Consumers are pooled by queue name and selector, a consumer is only used by one request at a time and is returned to the pool once the messages it
+ * received have been committed or rolled back. A consumer that fails is closed and discarded.
+ * </p>
+ * <p>
+ * The consumers do not use the pooled JCA connection factory as its connections are only valid within a request, instead they share a single connection that is
+ * created using omakase.activemq.broker.url. The default URL uses the failover transport so the connection, and the consumers using it, are re-connected after
+ * a broker failover.
+ * </p>
+ * <p>
+ * As the sessions are not enlisted in the JTA transaction, when called within a JTA transaction the session is committed when the transaction commits and rolled
+ * back, returning the messages to the queue, if it rolls back. Otherwise the session is committed once the batch has been received.
+ * </p>
+ * <p>
+ * Consumers are created with a pre-fetch size of 0, this ensures the consumers do not pre-fetch messages hiding them from other concurrent consumers. With a
+ * pre-fetch size of 0 a receive without a wait can return null while the queue still has messages, so the remainder of a batch is received using a short timeout.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@ApplicationScoped
+public class ActiveMqTaskQueueConsumers {
+
+    private static final Logger LOGGER = Logger.getLogger(ActiveMqTaskQueueConsumers.class);
+    private static final long NEXT_RECEIVE_TIMEOUT_MS = 50;
+
+    @Inject
+    @ConfigProperty(name = "omakase.activemq.broker.url", defaultValue = "failover:(tcp://localhost:61616)")
+    String brokerUrl;
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    ConnectionFactory connectionFactory;
+
+    private final Map<String, Queue<TaskQueueConsumer>> consumers = new ConcurrentHashMap<>();
+    private Connection connection;
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void init() {
+        connectionFactory = new ActiveMQConnectionFactory(brokerUrl);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        closed = true;
+        consumers.values().forEach(pool -> {
+            TaskQueueConsumer consumer;
+            while ((consumer = pool.poll()) != null) {
+                consumer.close();
+            }
+        });
+        closeConnection();
+    }
+
+    /**
+     * Receives up to the specified max number of message bodies from the queue.
+     *
+     * @param queueName
+     *         the queue name
+     * @param selector
+     *         the JMS message selector, may be null
+     * @param max
+     *         the max number of messages to receive
+     * @param timeoutInMs
+     *         the maximum amount of time to wait for the first message
+     * @return the message bodies or an empty list if no messages are available.
+     */
+    public ImmutableList<String> receive(String queueName, String selector, int max, long timeoutInMs) {
+        if (max < 1) {
+            return ImmutableList.of();
+        }
+
+        TaskQueueConsumer consumer = borrow(queueName, selector);
+        try {
+            ImmutableList<String> messages = consumer.receive(max, timeoutInMs);
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Received " + messages.size() + " message(s) from " + queueName + " with selector " + selector);
+            }
+            if (messages.isEmpty()) {
+                release(consumer);
+            } else if (isTransactionActive()) {
+                transactionSynchronizationRegistry.registerInterposedSynchronization(new TaskQueueConsumerSynchronization(consumer));
+            } else {
+                consumer.commit();
+                release(consumer);
+            }
+            return messages;
+        } catch (JMSException | RuntimeException e) {
+            consumer.rollback();
+            consumer.close();
+            throw new OmakaseRuntimeException("Failed to receive messages from " + queueName, e);
+        }
+    }
+
+    /**
+     * Receives up to the specified max number of message bodies from the queue and passes them to the processor.
+     * <p>
+     * The messages are only removed from the queue once the processor returns, if the instance fails while the messages are being processed they are re-delivered.
+     * Messages are removed regardless of the outcome of processing them, this ensures messages that can not be processed do not clog up the queue.
+     * </p>
+     *
+     * @param queueName
+     *         the queue name
+     * @param selector
+     *         the JMS message selector, may be null
+     * @param max
+     *         the max number of messages to receive
+     * @param timeoutInMs
+     *         the maximum amount of time to wait for the first message
+     * @param processor
+     *         processes the received message bodies, it is not called if no messages are available
+     */
+    public void consume(String queueName, String selector, int max, long timeoutInMs, Consumer<ImmutableList<String>> processor) {
+        if (max < 1) {
+            return;
+        }
+
+        TaskQueueConsumer consumer = borrow(queueName, selector);
+        ImmutableList<String> messages;
+        try {
+            messages = consumer.receive(max, timeoutInMs);
+        } catch (JMSException | RuntimeException e) {
+            consumer.rollback();
+            consumer.close();
+            throw new OmakaseRuntimeException("Failed to receive messages from " + queueName, e);
+        }
+
+        try {
+            if (!messages.isEmpty()) {
+                processor.accept(messages);
+            }
+        } finally {
+            try {
+                consumer.commit();
+                release(consumer);
+            } catch (JMSException e) {
+                // the uncommitted messages are returned to the queue when the consumer is closed
+                LOGGER.error("Failed to remove " + messages.size() + " processed message(s) from " + queueName, e);
+                consumer.close();
+            }
+        }
+    }
+
+    private TaskQueueConsumer borrow(String queueName, String selector) {
+        if (closed) {
+            throw new OmakaseRuntimeException("Unable to receive messages from " + queueName + ", the consumers have been closed");
+        }
+        String key = queueName + "|" + selector;
+        TaskQueueConsumer consumer = consumers.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).poll();
+        if (consumer != null) {
+            return consumer;
+        }
+        try {
+            Session session = getConnection().createSession(true, Session.SESSION_TRANSACTED);
+            try {
+                return new TaskQueueConsumer(key, session, session.createConsumer(session.createQueue(queueName + "?consumer.prefetchSize=0"), selector));
+            } catch (JMSException e) {
+                session.close();
+                throw e;
+            }
+        } catch (JMSException e) {
+            throw new OmakaseRuntimeException("Failed to create consumer for " + queueName, e);
+        }
+    }
+
+    private void release(TaskQueueConsumer consumer) {
+        if (closed) {
+            consumer.close();
+        } else {
+            consumers.get(consumer.key).offer(consumer);
+        }
+    }
+
+    private synchronized Connection getConnection() throws JMSException {
+        if (connection == null) {
+            Connection newConnection = connectionFactory.createConnection();
+            try {
+                newConnection.setExceptionListener(e -> {
+                    LOGGER.warn("Task queue consumer connection failed, consumers will be re-created", e);
+                    resetConnection();
+                });
+                newConnection.start();
+            } catch (JMSException e) {
+                newConnection.close();
+                throw e;
+            }
+            connection = newConnection;
+        }
+        return connection;
+    }
+
+    private synchronized void resetConnection() {
+        // consumers that are in use are discarded when they fail
+        consumers.values().forEach(pool -> {
+            TaskQueueConsumer consumer;
+            while ((consumer = pool.poll()) != null) {
+                consumer.close();
+            }
+        });
+        closeConnection();
+    }
+
+    private synchronized void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                LOGGER.warn("Failed to close task queue consumer connection", e);
+            }
+            connection = null;
+        }
+    }
+
+    private boolean isTransactionActive() {
+        return transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+    }
+
+    private static final class TaskQueueConsumer {
+
+        private final String key;
+        private final Session session;
+        private final MessageConsumer messageConsumer;
+
+        TaskQueueConsumer(String key, Session session, MessageConsumer messageConsumer) {
+            this.key = key;
+            this.session = session;
+            this.messageConsumer = messageConsumer;
+        }
+
+        ImmutableList<String> receive(int max, long timeoutInMs) throws JMSException {
+            ImmutableList.Builder<String> builder = ImmutableList.builder();
+            Message message = messageConsumer.receive(timeoutInMs);
+            int received = 0;
+            while (message != null) {
+                builder.add(((TextMessage) message).getText());
+                received++;
+                message = received < max ? messageConsumer.receive(NEXT_RECEIVE_TIMEOUT_MS) : null;
+            }
+            return builder.build();
+        }
+
+        void commit() throws JMSException {
+            session.commit();
+        }
+
+        void rollback() {
+            try {
+                session.rollback();
+            } catch (JMSException e) {
+                LOGGER.warn("Failed to rollback task queue consumer session", e);
+            }
+        }
+
+        void close() {
+            try {
+                messageConsumer.close();
+                session.close();
+            } catch (JMSException e) {
+                LOGGER.warn("Failed to close task queue consumer", e);
+            }
+        }
+    }
+
+    private final class TaskQueueConsumerSynchronization implements Synchronization {
+
+        private final TaskQueueConsumer consumer;
+
+        TaskQueueConsumerSynchronization(TaskQueueConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void beforeCompletion() {
+            // no-op
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status == Status.STATUS_COMMITTED) {
+                try {
+                    consumer.commit();
+                } catch (JMSException e) {
+                    // the uncommitted messages are returned to the queue when the consumer is closed
+                    LOGGER.error("Failed to commit received task queue messages", e);
+                    consumer.close();
+                    return;
+                }
+            } else {
+                consumer.rollback();
+            }
+            release(consumer);
+        }
+    }
+}
@@ -19,24 +19,61 @@
  */
 package org.projectomakase.omakase.job.task.queue;
 
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableList;
 import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.OmakaseCluster;
 import org.projectomakase.omakase.camel.CamelQueueEndpoint;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.task.api.Task;
+import org.projectomakase.omakase.task.api.TaskInstanceLoader;
 import org.apache.camel.ConsumerTemplate;
 import org.apache.camel.ProducerTemplate;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.jboss.logging.Logger;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * ActiveMQ specific implementation of {@link TaskQueueDelegate}.
+ * <p>
+ * By default all tasks are added to a single shared task queue and consumers filter the queue by task type using a JMS selector. If
+ * omakase.activemq.task.queue.per.type is enabled each task type is added to its own queue instead, removing the need for the broker to evaluate a selector against every message in the
+ * shared queue. In both modes the task priority is mapped to the JMS priority of the message.
+ * </p>
+ * <p>
+ * Batches of tasks are added using a single connection and transacted session, when called within a JTA transaction the session is enlisted in the transaction and the
+ * messages are delivered when the transaction commits.
+ * </p>
+ * <p>
+ * When using per task type queues any tasks waiting on the shared queue are migrated to the per task type queue by {@link ActiveMqTaskQueueMigration}, in their own
+ * transaction, when the task type is requested.
+ * </p>
  *
  * @author Richard Lucas
  */
 public class ActiveMqTaskQueueDelegate implements TaskQueueDelegate {
 
+    private static final Logger LOGGER = Logger.getLogger(ActiveMqTaskQueueDelegate.class);
     private static final String PROVIDER_NAME = "ACTIVEMQ";
+    private static final String JMS_PRIORITY = "JMSPriority";
+    private static final String TASK_TYPE = "TaskType";
+    private static final long RECEIVE_TIMEOUT_MS = 100;
 
     @Inject
     @Omakase
@@ -51,6 +88,17 @@ public class ActiveMqTaskQueueDelegate implements TaskQueueDelegate {
     JMSPriorityConverter jmsPriorityConverter;
     @Inject
     OmakaseCluster omakaseCluster;
+    @Inject
+    ActiveMqTaskQueueConsumers activeMqTaskQueueConsumers;
+    @Inject
+    ActiveMqTaskQueueMigration activeMqTaskQueueMigration;
+    @Inject
+    @ConfigProperty(name = "omakase.activemq.task.queue.per.type", defaultValue = "false")
+    boolean queuePerTaskType;
+    @Resource(mappedName = "java:/AMQConnectionFactory")
+    ConnectionFactory connectionFactory;
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
 
     @Override
     public String getType() {
@@ -59,30 +107,104 @@ public class ActiveMqTaskQueueDelegate implements TaskQueueDelegate {
 
     @Override
     public void add(Task task) {
-        String endpoint = getQueueEndpoint();
-        producerTemplate.send(endpoint, exchange -> {
-            exchange.getIn().setBody(task.getId());
-            exchange.getIn().setHeader("JMSPriority", jmsPriorityConverter.convert(task.getPriority()));
-            exchange.getIn().setHeader("TaskType", task.getType());
-        });
+        String endpoint = queuePerTaskType ? getQueueEndpoint(getQueueName(task.getType())) : getQueueEndpoint(getSharedQueueName());
+        send(endpoint, task.getId(), jmsPriorityConverter.convert(task.getPriority()), task.getType());
+    }
+
+    @Override
+    public void addAll(List<Task> tasks) {
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+            Map<String, MessageProducer> producers = new HashMap<>();
+            for (Task task : tasks) {
+                String queueName = queuePerTaskType ? getQueueName(task.getType()) : getSharedQueueName();
+                MessageProducer producer = producers.get(queueName);
+                if (producer == null) {
+                    producer = session.createProducer(session.createQueue(queueName));
+                    producers.put(queueName, producer);
+                }
+                TextMessage message = session.createTextMessage(task.getId());
+                message.setStringProperty(TASK_TYPE, task.getType());
+                producer.send(message, DeliveryMode.PERSISTENT, jmsPriorityConverter.convert(task.getPriority()), Message.DEFAULT_TIME_TO_LIVE);
+            }
+            if (!isTransactionActive()) {
+                session.commit();
+            }
+        } catch (JMSException e) {
+            throw new OmakaseRuntimeException("Failed to add " + tasks.size() + " task(s) to the task queue", e);
+        }
     }
 
     @Override
     public Optional<String> get(String type) {
-        String endpoint = getQueueEndpoint() + "&selector=TaskType='" + type + "'";
-        return Optional.ofNullable(consumerTemplate.receiveBody(endpoint, 100, String.class));
+        String endpoint;
+        if (queuePerTaskType) {
+            migrateSharedQueueTasks(type);
+            endpoint = getQueueEndpoint(getQueueName(type));
+        } else {
+            endpoint = getQueueEndpoint(getSharedQueueName()) + "&selector=" + getSelector(type);
+        }
+        return Optional.ofNullable(consumerTemplate.receiveBody(endpoint, RECEIVE_TIMEOUT_MS, String.class));
+    }
+
+    @Override
+    public ImmutableList<String> getBatch(String type, int max) {
+        if (queuePerTaskType) {
+            migrateSharedQueueTasks(type);
+            return activeMqTaskQueueConsumers.receive(getQueueName(type), null, max, RECEIVE_TIMEOUT_MS);
+        } else {
+            return activeMqTaskQueueConsumers.receive(getSharedQueueName(), getSelector(type), max, RECEIVE_TIMEOUT_MS);
+        }
     }
 
     @Override
     public void drain() {
+        drain(getQueueEndpoint(getSharedQueueName()));
+        if (queuePerTaskType) {
+            TaskInstanceLoader.getTaskTypes().forEach(type -> drain(getQueueEndpoint(getQueueName(type))));
+        }
+    }
+
+    private void drain(String endpoint) {
         Optional<String> taskId;
         do {
-            taskId = Optional.ofNullable(consumerTemplate.receiveBody(getQueueEndpoint(), 100, String.class));
+            taskId = Optional.ofNullable(consumerTemplate.receiveBody(endpoint, RECEIVE_TIMEOUT_MS, String.class));
         } while (taskId.isPresent());
     }
 
-    private String getQueueEndpoint() {
+    private void send(String endpoint, String taskId, Object jmsPriority, String taskType) {
+        producerTemplate.send(endpoint, exchange -> {
+            exchange.getIn().setBody(taskId);
+            exchange.getIn().setHeader(JMS_PRIORITY, jmsPriority);
+            exchange.getIn().setHeader(TASK_TYPE, taskType);
+        });
+    }
+
+    private void migrateSharedQueueTasks(String type) {
+        if (activeMqTaskQueueMigration.isDue(type)) {
+            activeMqTaskQueueMigration.migrate(getSharedQueueName(), getQueueName(type), type);
+        }
+    }
+
+    private boolean isTransactionActive() {
+        return transactionSynchronizationRegistry.getTransactionStatus() == Status.STATUS_ACTIVE;
+    }
+
+    private String getQueueEndpoint(String queueName) {
         // pre-fetch size must be 0 when using a consumer template, this ensures the current consumer does not pre-fetch messages hiding them from other concurrent consumers.
-        return camelQueueEndpoint.getQueueEndpoint(omakaseCluster.getClusterName().toLowerCase() + "-task-queue").replace("destination.consumer.prefetchSize=1", "destination.consumer.prefetchSize=0");
+        return camelQueueEndpoint.getQueueEndpoint(queueName).replace("destination.consumer.prefetchSize=1", "destination.consumer.prefetchSize=0");
+    }
+
+    private String getSharedQueueName() {
+        return omakaseCluster.getClusterName().toLowerCase() + "-task-queue";
+    }
+
+    private String getQueueName(String taskType) {
+        String type = CaseFormat.UPPER_UNDERSCORE.converterTo(CaseFormat.LOWER_HYPHEN).convert(taskType);
+        return omakaseCluster.getClusterName().toLowerCase() + "-" + type + "-task-queue";
+    }
+
+    private static String getSelector(String type) {
+        return "TaskType='" + type + "'";
     }
 }
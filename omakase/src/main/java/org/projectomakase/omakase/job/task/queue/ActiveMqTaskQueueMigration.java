@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.transaction.Transactional;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Migrates tasks waiting on the shared ActiveMQ task queue to the per task type queues.
+ * <p>
+ * The tasks are migrated in their own transaction, independent of the transaction of the caller, so that migrated tasks are available to all consumers as soon as the
+ * migration completes and a caller that rolls back does not move the tasks back to the shared queue. The tasks are removed from the shared queue and added to the
+ * per task type queue in the same transaction, preserving their priority.
+ * </p>
+ * <p>
+ * The time of the next migration of each task type is shared by all of the callers. Tasks are migrated on every request while the shared queue has tasks of the
+ * requested type, once it has none the shared queue is only re-checked every omakase.activemq.task.queue.migration.interval.ms, e.g. for tasks added by instances
+ * that are still using the shared queue.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+@ApplicationScoped
+public class ActiveMqTaskQueueMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(ActiveMqTaskQueueMigration.class);
+    private static final String TASK_TYPE = "TaskType";
+    private static final long RECEIVE_TIMEOUT_MS = 100;
+    private static final long NEXT_RECEIVE_TIMEOUT_MS = 50;
+    private static final int MAX_MIGRATED_TASKS_PER_REQUEST = 100;
+
+    @Inject
+    @ConfigProperty(name = "omakase.activemq.task.queue.migration.interval.ms", defaultValue = "60000")
+    long migrationIntervalInMs;
+    @Resource(mappedName = "java:/AMQConnectionFactory")
+    ConnectionFactory connectionFactory;
+
+    private final Map<String, Long> nextMigrationTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Returns true if the shared queue should be checked for tasks of the given type.
+     *
+     * @param type
+     *         the task type
+     * @return true if the shared queue should be checked for tasks of the given type, otherwise false.
+     */
+    public boolean isDue(String type) {
+        return System.currentTimeMillis() >= nextMigrationTimes.getOrDefault(type, 0L);
+    }
+
+    /**
+     * Moves up to 100 tasks of the given type from the shared queue to the task type queue in a new transaction.
+     *
+     * @param sharedQueueName
+     *         the shared queue name
+     * @param queueName
+     *         the task type queue name
+     * @param type
+     *         the task type
+     * @return the number of tasks that were migrated.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public int migrate(String sharedQueueName, String queueName, String type) {
+        long now = System.currentTimeMillis();
+        int migrated = moveSharedQueueTasks(sharedQueueName, queueName, type);
+        // keep migrating on every request while the shared queue has tasks of this type, once it has none only re-check it periodically
+        nextMigrationTimes.put(type, migrated > 0 ? now : now + migrationIntervalInMs);
+        if (migrated > 0) {
+            LOGGER.info("Migrated " + migrated + " " + type + " task(s) from the shared task queue to " + queueName);
+        }
+        return migrated;
+    }
+
+    private int moveSharedQueueTasks(String sharedQueueName, String queueName, String type) {
+        // the session is enlisted in the new transaction and the tasks are moved when it commits
+        try (Connection connection = connectionFactory.createConnection()) {
+            connection.start();
+            Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+            MessageConsumer consumer = session.createConsumer(session.createQueue(sharedQueueName + "?consumer.prefetchSize=0"), "TaskType='" + type + "'");
+            MessageProducer producer = session.createProducer(session.createQueue(queueName));
+            int migrated = 0;
+            Message message = consumer.receive(RECEIVE_TIMEOUT_MS);
+            while (message != null) {
+                TextMessage migratedMessage = session.createTextMessage(((TextMessage) message).getText());
+                migratedMessage.setStringProperty(TASK_TYPE, type);
+                producer.send(migratedMessage, DeliveryMode.PERSISTENT, message.getJMSPriority(), Message.DEFAULT_TIME_TO_LIVE);
+                migrated++;
+                // with a pre-fetch size of 0 a receive without a wait can return null while the shared queue still has tasks
+                message = migrated < MAX_MIGRATED_TASKS_PER_REQUEST ? consumer.receive(NEXT_RECEIVE_TIMEOUT_MS) : null;
+            }
+            return migrated;
+        } catch (JMSException e) {
+            throw new OmakaseRuntimeException("Failed to migrate " + type + " tasks from the shared task queue to " + queueName, e);
+        }
+    }
+}
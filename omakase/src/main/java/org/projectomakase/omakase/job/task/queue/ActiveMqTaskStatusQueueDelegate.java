@@ -0,0 +1,88 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.google.common.collect.ImmutableList;
+import org.projectomakase.omakase.OmakaseCluster;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+import java.util.Enumeration;
+import java.util.function.Consumer;
+
+/**
+ * ActiveMQ specific implementation of {@link TaskStatusQueueDelegate}.
+ * <p>
+ * Messages are consumed using the long lived consumers provided by {@link ActiveMqTaskQueueConsumers}. The queue size is counted using a queue browser, ActiveMQ only
+ * browses up to the max browse page size of the queue (400 by default) so larger backlogs are reported as the max browse page size.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class ActiveMqTaskStatusQueueDelegate implements TaskStatusQueueDelegate {
+
+    private static final String PROVIDER_NAME = "ACTIVEMQ";
+
+    @Inject
+    OmakaseCluster omakaseCluster;
+    @Inject
+    ActiveMqTaskQueueConsumers activeMqTaskQueueConsumers;
+    @Resource(mappedName = "java:/AMQConnectionFactory")
+    ConnectionFactory connectionFactory;
+
+    @Override
+    public String getType() {
+        return PROVIDER_NAME;
+    }
+
+    @Override
+    public void consume(int max, long timeoutInMs, Consumer<ImmutableList<String>> processor) {
+        activeMqTaskQueueConsumers.consume(getQueueName(), null, max, timeoutInMs, processor);
+    }
+
+    @Override
+    public long getQueueSize() {
+        try (Connection connection = connectionFactory.createConnection()) {
+            connection.start();
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            try (QueueBrowser queueBrowser = session.createBrowser(session.createQueue(getQueueName()))) {
+                long size = 0;
+                Enumeration<?> messages = queueBrowser.getEnumeration();
+                while (messages.hasMoreElements()) {
+                    messages.nextElement();
+                    size++;
+                }
+                return size;
+            }
+        } catch (JMSException e) {
+            throw new OmakaseRuntimeException("Failed to get the size of " + getQueueName(), e);
+        }
+    }
+
+    private String getQueueName() {
+        return omakaseCluster.getClusterName().toLowerCase() + "-task-status-queue";
+    }
+}
@@ -19,17 +19,39 @@
  */
 package org.projectomakase.omakase.job.task.queue;
 
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.OmakaseCluster;
 import org.projectomakase.omakase.camel.CamelQueueEndpoint;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
 import org.projectomakase.omakase.job.task.Tasks;
 import org.projectomakase.omakase.task.api.Task;
 import org.apache.camel.ConsumerTemplate;
 import org.apache.camel.ProducerTemplate;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.jboss.logging.Logger;
 
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * SQS specific implementation of {@link TaskQueueDelegate}.
@@ -38,7 +60,12 @@ import java.util.Optional;
  */
 public class SQSTaskQueueDelegate implements TaskQueueDelegate {
 
+    private static final Logger LOGGER = Logger.getLogger(SQSTaskQueueDelegate.class);
     private static final String PROVIDER_NAME = "SQS";
+    // SQS limits the number of messages that can be received in a single call to 10
+    private static final int MAX_MESSAGES_PER_RECEIVE = 10;
+    // SQS limits the number of messages that can be sent in a single call to 10
+    private static final int MAX_MESSAGES_PER_SEND = 10;
 
     @Inject
     @Omakase
@@ -55,6 +82,14 @@ public class SQSTaskQueueDelegate implements TaskQueueDelegate {
     OmakaseCluster omakaseCluster;
     @Inject
     Tasks tasks;
+    @Inject
+    @Named("sqsClient")
+    AmazonSQSClient sqsClient;
+    @Inject
+    @ConfigProperty(name = "omakase.sqs.receive.wait.time.secs", defaultValue = "5")
+    int receiveWaitTimeInSecs;
+
+    private final Map<String, String> queueUrls = new ConcurrentHashMap<>();
 
     @Override
     public String getType() {
@@ -66,14 +101,113 @@ public class SQSTaskQueueDelegate implements TaskQueueDelegate {
         producerTemplate.send(getEndpoint(task.getType()), exchange -> exchange.getIn().setBody(task.getId()));
     }
 
+    /**
+     * Adds the task ids using SQS batch send, each call sends up to 10 messages. If the queue for a task type does not exist yet the first task is added individually in
+     * order to create the queue. Any messages that fail to send as part of a batch are re-sent individually.
+     */
+    @Override
+    public void addAll(List<Task> tasks) {
+        Map<String, List<Task>> tasksByType = tasks.stream().collect(Collectors.groupingBy(Task::getType));
+        tasksByType.forEach((type, tasksForType) -> {
+            List<Task> remainingTasks = tasksForType;
+            Optional<String> queueUrl = getQueueUrl(type);
+            if (!queueUrl.isPresent()) {
+                add(tasksForType.get(0));
+                remainingTasks = tasksForType.subList(1, tasksForType.size());
+                queueUrl = getQueueUrl(type);
+            }
+            String url = queueUrl.orElseThrow(() -> new OmakaseRuntimeException("Unable to resolve the queue url for " + getQueueName(type)));
+            Lists.partition(remainingTasks, MAX_MESSAGES_PER_SEND).forEach(batch -> sendBatch(url, batch));
+        });
+    }
+
     @Override
     public Optional<String> get(String type) {
         return Optional.ofNullable(consumerTemplate.receiveBody(getEndpoint(type), 5000, String.class));
     }
 
+    /**
+     * Retrieves the task ids using SQS batch receive, each call returns up to 10 messages. Long polling is used for the first call, subsequent calls return immediately if the queue is empty.
+     * The received messages are deleted from the queue with a single batch delete per call, any messages that fail to delete as part of a batch are re-deleted individually.
+     */
+    @Override
+    public ImmutableList<String> getBatch(String type, int max) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        Optional<String> queueUrl = getQueueUrl(type);
+        if (!queueUrl.isPresent()) {
+            return builder.build();
+        }
+
+        int remaining = max;
+        int waitTimeInSecs = receiveWaitTimeInSecs;
+        while (remaining > 0) {
+            ReceiveMessageRequest receiveMessageRequest =
+                    new ReceiveMessageRequest(queueUrl.get()).withMaxNumberOfMessages(Math.min(remaining, MAX_MESSAGES_PER_RECEIVE)).withWaitTimeSeconds(waitTimeInSecs);
+            List<Message> messages = sqsClient.receiveMessage(receiveMessageRequest).getMessages();
+            if (messages.isEmpty()) {
+                break;
+            }
+
+            messages.forEach(message -> builder.add(message.getBody()));
+            deleteBatch(sqsClient, queueUrl.get(), messages);
+
+            remaining -= messages.size();
+            waitTimeInSecs = 0;
+        }
+        return builder.build();
+    }
+
+    private void sendBatch(String queueUrl, List<Task> batch) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(new SendMessageBatchRequestEntry(Integer.toString(i), batch.get(i).getId()));
+        }
+        SendMessageBatchResult result = sqsClient.sendMessageBatch(new SendMessageBatchRequest(queueUrl, entries));
+        result.getFailed().forEach(failed -> {
+            Task task = batch.get(Integer.parseInt(failed.getId()));
+            LOGGER.warn("Failed to add task " + task.getId() + " to the task queue as part of a batch, re-sending. Reason: " + failed.getMessage());
+            sqsClient.sendMessage(queueUrl, task.getId());
+        });
+    }
+
+    /**
+     * Deletes the messages from the queue with a single batch delete, any messages that fail to delete as part of the batch are re-deleted individually. A message
+     * that still can not be deleted becomes visible again once its visibility timeout expires.
+     */
+    static void deleteBatch(AmazonSQSClient sqsClient, String queueUrl, List<Message> batch) {
+        List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            entries.add(new DeleteMessageBatchRequestEntry(Integer.toString(i), batch.get(i).getReceiptHandle()));
+        }
+        DeleteMessageBatchResult result = sqsClient.deleteMessageBatch(new DeleteMessageBatchRequest(queueUrl, entries));
+        result.getFailed().forEach(failed -> {
+            Message message = batch.get(Integer.parseInt(failed.getId()));
+            LOGGER.warn("Failed to delete message " + message.getBody() + " from " + queueUrl + " as part of a batch, re-deleting. Reason: " + failed.getMessage());
+            try {
+                sqsClient.deleteMessage(queueUrl, message.getReceiptHandle());
+            } catch (AmazonClientException e) {
+                LOGGER.error("Failed to delete message " + message.getBody() + " from " + queueUrl + ", it will be re-delivered", e);
+            }
+        });
+    }
+
     private String getEndpoint(String taskType) {
+        return camelQueueEndpoint.getQueueEndpoint(getQueueName(taskType));
+    }
+
+    private String getQueueName(String taskType) {
         String type = CaseFormat.UPPER_UNDERSCORE.converterTo(CaseFormat.LOWER_HYPHEN).convert(taskType);
-        return camelQueueEndpoint.getQueueEndpoint(omakaseCluster.getClusterName().toLowerCase() + "-" + type + "-task-queue");
+        return omakaseCluster.getClusterName().toLowerCase() + "-" + type + "-task-queue";
+    }
+
+    private Optional<String> getQueueUrl(String taskType) {
+        String queueName = getQueueName(taskType);
+        try {
+            return Optional.of(queueUrls.computeIfAbsent(queueName, name -> sqsClient.getQueueUrl(name).getQueueUrl()));
+        } catch (QueueDoesNotExistException e) {
+            // the queue is created the first time a task of the given type is added
+            return Optional.empty();
+        }
     }
 
     @Override
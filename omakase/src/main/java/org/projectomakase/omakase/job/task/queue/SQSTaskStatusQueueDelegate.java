@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.projectomakase.omakase.OmakaseCluster;
+import org.projectomakase.omakase.commons.collectors.ImmutableListCollector;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * SQS specific implementation of {@link TaskStatusQueueDelegate}.
+ * <p>
+ * Messages are received using SQS batch receive without being deleted, once the batch has been processed the messages are deleted using SQS batch delete. A batch that
+ * is not deleted, e.g. because the instance failed, becomes visible again once the visibility timeout of the queue expires.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public class SQSTaskStatusQueueDelegate implements TaskStatusQueueDelegate {
+
+    private static final String PROVIDER_NAME = "SQS";
+    // SQS limits the number of messages that can be received or deleted in a single call to 10
+    private static final int MAX_MESSAGES_PER_CALL = 10;
+    // SQS limits the long poll wait time to 20 seconds
+    private static final int MAX_WAIT_TIME_SECS = 20;
+
+    @Inject
+    OmakaseCluster omakaseCluster;
+    @Inject
+    @Named("sqsClient")
+    AmazonSQSClient sqsClient;
+
+    private volatile String queueUrl;
+
+    @Override
+    public String getType() {
+        return PROVIDER_NAME;
+    }
+
+    @Override
+    public void consume(int max, long timeoutInMs, Consumer<ImmutableList<String>> processor) {
+        if (max < 1) {
+            return;
+        }
+        Optional<String> url = getQueueUrl();
+        if (!url.isPresent()) {
+            return;
+        }
+
+        List<Message> messages = new ArrayList<>();
+        int waitTimeInSecs = (int) Math.min(MAX_WAIT_TIME_SECS, Math.max(1, (timeoutInMs + 999) / 1000));
+        while (messages.size() < max) {
+            ReceiveMessageRequest receiveMessageRequest =
+                    new ReceiveMessageRequest(url.get()).withMaxNumberOfMessages(Math.min(max - messages.size(), MAX_MESSAGES_PER_CALL)).withWaitTimeSeconds(waitTimeInSecs);
+            List<Message> received = sqsClient.receiveMessage(receiveMessageRequest).getMessages();
+            if (received.isEmpty()) {
+                break;
+            }
+            messages.addAll(received);
+            waitTimeInSecs = 0;
+        }
+
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            processor.accept(messages.stream().map(Message::getBody).collect(ImmutableListCollector.toImmutableList()));
+        } finally {
+            Lists.partition(messages, MAX_MESSAGES_PER_CALL).forEach(batch -> SQSTaskQueueDelegate.deleteBatch(sqsClient, url.get(), batch));
+        }
+    }
+
+    @Override
+    public long getQueueSize() {
+        return getQueueUrl().map(url -> sqsClient.getQueueAttributes(new GetQueueAttributesRequest(url).withAttributeNames(QueueAttributeName.ApproximateNumberOfMessages))
+                .getAttributes().get(QueueAttributeName.ApproximateNumberOfMessages.toString())).map(Long::parseLong).orElse(0L);
+    }
+
+    private Optional<String> getQueueUrl() {
+        if (queueUrl == null) {
+            try {
+                queueUrl = sqsClient.getQueueUrl(omakaseCluster.getClusterName().toLowerCase() + "-task-status-queue").getQueueUrl();
+            } catch (QueueDoesNotExistException e) {
+                // the queue is created the first time a task status update is added
+                return Optional.empty();
+            }
+        }
+        return Optional.of(queueUrl);
+    }
+}
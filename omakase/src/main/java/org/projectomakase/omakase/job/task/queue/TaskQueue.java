@@ -20,17 +20,23 @@
 package org.projectomakase.omakase.job.task.queue;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.projectomakase.omakase.Omakase;
+import org.projectomakase.omakase.event.TasksQueued;
 import org.projectomakase.omakase.task.api.Task;
 import org.jboss.logging.Logger;
 
+import javax.enterprise.event.Event;
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Java Facade for interacting with the Omakase Task Queue.
  * <p>
- * The Omakase Task Queue is a scalable queue shared across all of the Omakase instances.
+ * The Omakase Task Queue is a scalable queue shared across all of the Omakase instances. A {@link TasksQueued} event is fired whenever tasks are added to
+ * the queue.
  * </p>
  *
  * @author Richard Lucas
@@ -42,6 +48,8 @@ public class TaskQueue {
     @Inject
     @Omakase
     TaskQueueDelegate taskQueueDelegate;
+    @Inject
+    Event<TasksQueued> tasksQueuedEvent;
 
     /**
      * Adds the specified task id onto the task queue.
@@ -54,6 +62,24 @@ public class TaskQueue {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Added task " + task.getId() + " to task queue");
         }
+        tasksQueuedEvent.fire(new TasksQueued(ImmutableMap.of(task.getType(), 1)));
+    }
+
+    /**
+     * Adds the task ids of the specified tasks onto the task queue using as few round trips to the queue provider as possible.
+     *
+     * @param tasks
+     *         the tasks
+     */
+    public void addAll(List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        taskQueueDelegate.addAll(tasks);
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Added " + tasks.size() + " task(s) to task queue");
+        }
+        tasksQueuedEvent.fire(new TasksQueued(ImmutableMap.copyOf(tasks.stream().collect(Collectors.groupingBy(Task::getType, Collectors.summingInt(task -> 1))))));
     }
 
     /**
@@ -69,18 +95,11 @@ public class TaskQueue {
      * @return the next n eligible tasks, up to the specified max value, that match the specified type from the queue.
      */
     public ImmutableList<String> get(String type, int max) {
-        ImmutableList.Builder<String> builder = ImmutableList.builder();
-
-        for (int i = 0; i < max; i++) {
-            Optional<String> taskId = get(type);
-            if (taskId.isPresent()) {
-                builder.add(taskId.get());
-            } else {
-                break;
-            }
+        ImmutableList<String> taskIds = taskQueueDelegate.getBatch(type, max);
+        if (LOGGER.isDebugEnabled() && !taskIds.isEmpty()) {
+            LOGGER.debug("Retrieved tasks " + taskIds + " from task queue");
         }
-
-        return builder.build();
+        return taskIds;
     }
 
     /**
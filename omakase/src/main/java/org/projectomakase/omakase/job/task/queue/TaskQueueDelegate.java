@@ -19,8 +19,10 @@
  */
 package org.projectomakase.omakase.job.task.queue;
 
+import com.google.common.collect.ImmutableList;
 import org.projectomakase.omakase.task.api.Task;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -45,6 +47,17 @@ public interface TaskQueueDelegate {
      */
     void add(Task task);
 
+    /**
+     * Adds the task ids of the given tasks to the queue.
+     * <p>
+     * Implementations should add the task ids using as few round trips to the queue provider as possible.
+     * </p>
+     *
+     * @param tasks
+     *         the tasks
+     */
+    void addAll(List<Task> tasks);
+
     /**
      * Gets the next eligible task id from the queue for the given task type.
      *
@@ -54,6 +67,20 @@ public interface TaskQueueDelegate {
      */
     Optional<String> get(String type);
 
+    /**
+     * Gets the next n eligible task ids, up to the specified max value, from the queue for the given task type.
+     * <p>
+     * Implementations should retrieve the task ids using as few round trips to the queue provider as possible.
+     * </p>
+     *
+     * @param type
+     *         the task type
+     * @param max
+     *         the max number of task ids to retrieve
+     * @return the next n eligible task ids from the queue, or an empty list if no eligible tasks are available.
+     */
+    ImmutableList<String> getBatch(String type, int max);
+
     /**
      * Drains the queue of any remaining messages.
      *
@@ -19,10 +19,14 @@
  */
 package org.projectomakase.omakase.job.task.queue;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.OmakaseCluster;
 import org.projectomakase.omakase.camel.CamelQueueEndpoint;
 import org.projectomakase.omakase.commons.compress.Compressors;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.projectomakase.omakase.job.task.PendingTaskStatusUpdate;
 import org.projectomakase.omakase.job.task.TaskManager;
 import org.projectomakase.omakase.job.task.Tasks;
 import org.projectomakase.omakase.task.api.TaskStatusUpdate;
@@ -33,9 +37,14 @@ import org.jboss.logging.Logger;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.json.Json;
+import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonReader;
+import javax.json.JsonStructure;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Java Facade for interacting with the Omakase Task Status Queue.
@@ -43,11 +52,16 @@ import java.io.StringReader;
  * The Omakase Task Status Queue is a scalable queue shared across all of the Omakase instances.
  * </p>
  * <p>
- * The Task Status Queue is processed by a camel route that reads messages from the queue passes them to this class for processing.
+ * The Task Status Queue is processed by a camel route. Depending on the route configuration messages are either read from the queue by the route and passed to this class
+ * for processing individually, or the route periodically asks this class to process the next batch of messages. Batches are consumed using the {@link TaskStatusQueueDelegate}
+ * and are only removed from the queue once they have been processed.
  * </p>
  * <p>
  * The status payload is compressed priror
  * </p>
+ * <p>
+ * Each queue message contains either a single task status update or, when updates are added in bulk, a JSON array of up to 25 task status updates.
+ * </p>
  *
  * @author Richard Lucas
  */
@@ -56,6 +70,8 @@ public class TaskStatusQueue {
 
     private static final Logger LOGGER = Logger.getLogger(TaskStatusQueue.class);
     private static final String QUEUE_MESSAGE = "{\"taskId\":\"%s\",\"status\":\"%s\"}";
+    // keeps batched messages well within the message size limits of the queue providers
+    private static final int MAX_UPDATES_PER_MESSAGE = 25;
 
     @Inject
     @Omakase
@@ -72,6 +88,11 @@ public class TaskStatusQueue {
     Tasks tasks;
     @Inject
     OmakaseCluster omakaseCluster;
+    @Inject
+    TaskStatusQueueMetrics taskStatusQueueMetrics;
+    @Inject
+    @Omakase
+    TaskStatusQueueDelegate taskStatusQueueDelegate;
 
     /**
      * Adds the task status update to the task status queue.
@@ -89,25 +110,171 @@ public class TaskStatusQueue {
         }
     }
 
+    /**
+     * Adds the task status updates to the task status queue using as few queue messages as possible.
+     *
+     * @param pendingTaskStatusUpdates
+     *         the task status updates
+     */
+    public void addAll(List<PendingTaskStatusUpdate> pendingTaskStatusUpdates) {
+        Lists.partition(pendingTaskStatusUpdates, MAX_UPDATES_PER_MESSAGE)
+                .forEach(batch -> producerTemplate.send(getQueueEndpoint(), exchange -> exchange.getIn().setBody(toQueueMessage(batch))));
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Added " + pendingTaskStatusUpdates.size() + " task status update(s) to task status queue");
+        }
+    }
+
     /**
      * Process the given task status update message.
+     * <p>
+     * If the message contains multiple updates and they can not be applied together they are applied individually.
+     * </p>
      *
      * @param queueMessage
      *         the message to process
+     * @throws OmakaseRuntimeException
+     *         if one or more of the updates could not be applied
      */
     public void processQueueMessage(String queueMessage) {
+        taskStatusQueueMetrics.recordReceived(1);
+        processQueueMessages(ImmutableList.of(queueMessage));
+    }
+
+    /**
+     * Consumes the next batch of task status update messages from the queue and processes them.
+     * <p>
+     * The messages are only removed from the queue once the batch has been processed, if the instance fails while the batch is being processed the messages are
+     * re-delivered.
+     * </p>
+     *
+     * @param max
+     *         the max number of messages in the batch
+     * @param timeoutInMs
+     *         the maximum amount of time to wait for the first message
+     * @throws OmakaseRuntimeException
+     *         if one or more of the updates could not be read or applied
+     */
+    public void processNextBatch(int max, long timeoutInMs) {
+        taskStatusQueueDelegate.consume(max, timeoutInMs, queueMessages -> {
+            taskStatusQueueMetrics.recordReceived(queueMessages.size());
+            processQueueMessages(queueMessages);
+        });
+    }
+
+    /**
+     * Process a batch of task status update messages.
+     * <p>
+     * The updates are applied as a single batch, if the batch can not be applied the updates are applied individually so that a single failing update does not
+     * prevent the remaining updates from being applied. Any failure, including updates that can not be read, is thrown once the remaining updates have been applied.
+     * </p>
+     *
+     * @param queueMessages
+     *         the messages to process
+     * @throws OmakaseRuntimeException
+     *         if one or more of the updates could not be read or applied
+     */
+    public void processQueueMessages(List<String> queueMessages) {
+        List<Exception> failures = new ArrayList<>();
+        try {
+            applyUpdates(fromQueueMessages(queueMessages, failures));
+        } catch (Exception e) {
+            failures.add(e);
+        } finally {
+            taskStatusQueueMetrics.recordBatch(queueMessages.size());
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Processed batch of " + queueMessages.size() + " task status queue message(s)");
+        }
+
+        throwIfFailed(failures, "Failed to process one or more task status updates from " + queueMessages.size() + " task status queue message(s)");
+    }
+
+    private void applyUpdates(List<PendingTaskStatusUpdate> pendingTaskStatusUpdates) {
+        if (pendingTaskStatusUpdates.size() == 1) {
+            PendingTaskStatusUpdate pendingTaskStatusUpdate = pendingTaskStatusUpdates.get(0);
+            taskManager.updateTaskStatus(pendingTaskStatusUpdate.getTaskId(), pendingTaskStatusUpdate.getTaskStatusUpdate());
+        } else if (pendingTaskStatusUpdates.size() > 1) {
+            try {
+                taskManager.updateTaskStatuses(pendingTaskStatusUpdates);
+            } catch (Exception e) {
+                // none of the updates in the batch were saved, apply them one at a time so that only the failing updates are lost
+                LOGGER.warn("Failed to apply batch of " + pendingTaskStatusUpdates.size() + " task status update(s), applying them individually. Reason: " + e.getMessage());
+                applyUpdatesIndividually(pendingTaskStatusUpdates);
+            }
+        }
+    }
+
+    private void applyUpdatesIndividually(List<PendingTaskStatusUpdate> pendingTaskStatusUpdates) {
+        List<Exception> failures = new ArrayList<>();
+        for (PendingTaskStatusUpdate pendingTaskStatusUpdate : pendingTaskStatusUpdates) {
+            try {
+                taskManager.updateTaskStatus(pendingTaskStatusUpdate.getTaskId(), pendingTaskStatusUpdate.getTaskStatusUpdate());
+            } catch (Exception e) {
+                failures.add(new OmakaseRuntimeException("Failed to apply task status update " + pendingTaskStatusUpdate, e));
+            }
+        }
+        throwIfFailed(failures, "Failed to apply " + failures.size() + " of " + pendingTaskStatusUpdates.size() + " task status update(s)");
+    }
+
+    private static void throwIfFailed(List<Exception> failures, String message) {
+        if (failures.size() == 1 && failures.get(0) instanceof RuntimeException) {
+            throw (RuntimeException) failures.get(0);
+        } else if (!failures.isEmpty()) {
+            OmakaseRuntimeException exception = new OmakaseRuntimeException(message, failures.get(0));
+            failures.stream().skip(1).forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    private List<PendingTaskStatusUpdate> fromQueueMessages(List<String> queueMessages, List<Exception> failures) {
+        List<PendingTaskStatusUpdate> pendingTaskStatusUpdates = new ArrayList<>(queueMessages.size());
+        for (String queueMessage : queueMessages) {
+            List<JsonObject> jsonObjects;
+            try {
+                jsonObjects = toJsonObjects(queueMessage);
+            } catch (Exception e) {
+                failures.add(new OmakaseRuntimeException("Failed to parse task status queue message " + queueMessage, e));
+                continue;
+            }
+            // each update in a message is read separately so that an update for a task that no longer exists does not prevent the other updates being applied
+            for (JsonObject jsonObject : jsonObjects) {
+                try {
+                    pendingTaskStatusUpdates.add(fromJsonObject(jsonObject));
+                } catch (Exception e) {
+                    failures.add(new OmakaseRuntimeException("Failed to read task status update for task " + jsonObject.getString("taskId", null), e));
+                }
+            }
+        }
+        return pendingTaskStatusUpdates;
+    }
+
+    private static List<JsonObject> toJsonObjects(String queueMessage) {
         try (StringReader stringReader = new StringReader(queueMessage); JsonReader jsonReader = Json.createReader(stringReader)) {
-            JsonObject jsonObject = jsonReader.readObject();
-            String taskId = jsonObject.getString("taskId");
-            String status = Compressors.uncompressString(jsonObject.getString("status"));
-            taskManager.updateTaskStatus(taskId, tasks.taskStatusUpdateFromJson(taskId, status));
+            JsonStructure jsonStructure = jsonReader.read();
+            if (jsonStructure instanceof JsonArray) {
+                return ((JsonArray) jsonStructure).getValuesAs(JsonObject.class);
+            } else {
+                return ImmutableList.of((JsonObject) jsonStructure);
+            }
         }
     }
 
+    private PendingTaskStatusUpdate fromJsonObject(JsonObject jsonObject) {
+        String taskId = jsonObject.getString("taskId");
+        String status = Compressors.uncompressString(jsonObject.getString("status"));
+        return new PendingTaskStatusUpdate(taskId, tasks.taskStatusUpdateFromJson(taskId, status));
+    }
+
     private static String toQueueMessage(String taskId, TaskStatusUpdate taskStatusUpdate) {
         return String.format(QUEUE_MESSAGE, taskId, Compressors.compressString(taskStatusUpdate.toJson()));
     }
 
+    private static String toQueueMessage(List<PendingTaskStatusUpdate> pendingTaskStatusUpdates) {
+        return "[" + pendingTaskStatusUpdates.stream().map(update -> toQueueMessage(update.getTaskId(), update.getTaskStatusUpdate())).collect(Collectors.joining(",")) + "]";
+    }
+
     private String getQueueEndpoint() {
         return camelQueueEndpoint.getQueueEndpoint(omakaseCluster.getClusterName().toLowerCase() + "-task-status-queue");
     }
@@ -0,0 +1,66 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.function.Consumer;
+
+/**
+ * Queue provider specific operations used to consume batches of messages from the task status queue.
+ * <p>
+ * Unlike a camel consumer, which removes a message from the queue as soon as it is received, messages are only removed from the queue once the batch has been
+ * processed so that a batch in progress is not lost if the instance fails.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public interface TaskStatusQueueDelegate {
+
+    /**
+     * Returns the Task Status Queue Delegate type e.g. ACTIVEMQ, SQS, etc.
+     *
+     * @return the Task Status Queue Delegate type e.g. ACTIVEMQ, SQS, etc.
+     */
+    String getType();
+
+    /**
+     * Receives up to the specified max number of messages from the task status queue and passes them to the processor.
+     * <p>
+     * The messages are removed from the queue once the processor returns, regardless of the outcome of processing them, this ensures messages that can not be processed
+     * do not clog up the queue.
+     * </p>
+     *
+     * @param max
+     *         the max number of messages to receive
+     * @param timeoutInMs
+     *         the maximum amount of time to wait for the first message, providers that long poll in seconds round it up to the nearest second
+     * @param processor
+     *         processes the received messages, it is not called if no messages are available
+     */
+    void consume(int max, long timeoutInMs, Consumer<ImmutableList<String>> processor);
+
+    /**
+     * Returns the approximate number of messages waiting on the task status queue as reported by the queue provider.
+     *
+     * @return the approximate number of messages waiting on the task status queue.
+     */
+    long getQueueSize();
+}
@@ -0,0 +1,143 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import org.projectomakase.omakase.Omakase;
+import org.jboss.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records metrics for the messages consumed from the Task Status Queue, the metrics are exposed via JMX.
+ *
+ * @author Richard Lucas
+ */
+@Named
+@ApplicationScoped
+public class TaskStatusQueueMetrics implements TaskStatusQueueMetricsMXBean {
+
+    private static final Logger LOGGER = Logger.getLogger(TaskStatusQueueMetrics.class);
+    private static final String OBJECT_NAME = "org.projectomakase.omakase:type=TaskStatusQueue";
+
+    @Inject
+    @Omakase
+    TaskStatusQueueDelegate taskStatusQueueDelegate;
+
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong processedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicInteger lastBatchSize = new AtomicInteger();
+    private final AtomicInteger maxBatchSize = new AtomicInteger();
+
+    @PostConstruct
+    public void register() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to register task status queue metrics with JMX", e);
+        }
+    }
+
+    @PreDestroy
+    public void unregister() {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.warn("Unable to unregister task status queue metrics from JMX", e);
+        }
+    }
+
+    /**
+     * Records that messages have been received from the queue.
+     *
+     * @param count
+     *         the number of messages received
+     */
+    public void recordReceived(int count) {
+        receivedCount.addAndGet(count);
+    }
+
+    /**
+     * Records that a batch of messages has been processed.
+     *
+     * @param batchSize
+     *         the number of messages in the batch
+     */
+    public void recordBatch(int batchSize) {
+        processedCount.addAndGet(batchSize);
+        batchCount.incrementAndGet();
+        lastBatchSize.set(batchSize);
+        maxBatchSize.accumulateAndGet(batchSize, Math::max);
+    }
+
+    @Override
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    @Override
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    @Override
+    public long getBacklog() {
+        return taskStatusQueueDelegate.getQueueSize();
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    @Override
+    public int getLastBatchSize() {
+        return lastBatchSize.get();
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    @Override
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0 : (double) processedCount.get() / batches;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+/**
+ * JMX management interface exposing the Task Status Queue processing metrics.
+ *
+ * @author Richard Lucas
+ */
+public interface TaskStatusQueueMetricsMXBean {
+
+    /**
+     * Returns the number of task status update messages received from the queue.
+     *
+     * @return the number of task status update messages received from the queue.
+     */
+    long getReceivedCount();
+
+    /**
+     * Returns the number of task status update messages that have been processed.
+     *
+     * @return the number of task status update messages that have been processed.
+     */
+    long getProcessedCount();
+
+    /**
+     * Returns the approximate number of task status update messages waiting on the queue, as reported by the queue provider.
+     *
+     * @return the approximate number of task status update messages waiting on the queue.
+     */
+    long getBacklog();
+
+    /**
+     * Returns the number of batches that have been processed.
+     *
+     * @return the number of batches that have been processed.
+     */
+    long getBatchCount();
+
+    /**
+     * Returns the size of the last batch that was processed.
+     *
+     * @return the size of the last batch that was processed.
+     */
+    int getLastBatchSize();
+
+    /**
+     * Returns the size of the largest batch that has been processed.
+     *
+     * @return the size of the largest batch that has been processed.
+     */
+    int getMaxBatchSize();
+
+    /**
+     * Returns the average batch size.
+     *
+     * @return the average batch size.
+     */
+    double getAverageBatchSize();
+}
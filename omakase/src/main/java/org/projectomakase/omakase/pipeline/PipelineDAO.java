@@ -21,6 +21,7 @@ package org.projectomakase.omakase.pipeline;
 
 import org.projectomakase.omakase.Omakase;
 import org.projectomakase.omakase.jcr.AbstractJcrDAO;
+import org.projectomakase.omakase.jcr.NodePathCache;
 import org.jcrom.Jcrom;
 
 import javax.inject.Inject;
@@ -34,22 +35,29 @@ import java.util.Optional;
  */
 public class PipelineDAO extends AbstractJcrDAO<Pipeline> {
 
+    private static final String NODE_TYPE = "omakase:pipeline";
+
+    private final NodePathCache nodePathCache;
+
     @Inject
-    public PipelineDAO(Session session, @Omakase Jcrom jcrom) {
+    public PipelineDAO(Session session, @Omakase Jcrom jcrom, NodePathCache nodePathCache) {
         super(session, jcrom);
+        this.nodePathCache = nodePathCache;
     }
 
     /**
-     * Returns the pipeline for the given id.
+     * Returns the pipeline for the given id. The pipelines node path is cached so that subsequent look ups for the same pipeline do not require a query.
      *
      * @param id
      *         the pipeline id
      * @return the pipeline for the given id.
      */
     public Optional<Pipeline> findById(String id) {
-        String sql = "SELECT pipeline.* " +
-                "FROM [omakase:pipeline] AS pipeline " +
-                "WHERE pipeline.[jcr:name]='" + id + "'";
-        return findBySql(sql, null).stream().findFirst();
+        return findByIdUsingNodePathCache(nodePathCache, NODE_TYPE, id, null, () -> {
+            String sql = "SELECT pipeline.* " +
+                    "FROM [omakase:pipeline] AS pipeline " +
+                    "WHERE pipeline.[jcr:name]='" + id + "'";
+            return findBySql(sql, null).stream().findFirst();
+        });
     }
 }
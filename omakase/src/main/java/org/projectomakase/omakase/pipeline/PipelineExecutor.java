@@ -322,6 +322,6 @@ public class PipelineExecutor {
     }
 
     private static PipelineContext createPipelineContext(Pipeline pipeline) {
-        return new PipelineContext(pipeline.getId(), pipeline.getObjectId(), pipeline.getObject(), pipeline.getCallbackListenerId(), ImmutableMap.copyOf(pipeline.getProperties()));
+        return new PipelineContext(pipeline.getId(), pipeline.getNodePath(), pipeline.getObjectId(), pipeline.getObject(), pipeline.getCallbackListenerId(), ImmutableMap.copyOf(pipeline.getProperties()));
     }
 }
@@ -21,11 +21,21 @@ package org.projectomakase.omakase.pipeline.stage;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
 /**
- * An immutable context that encapsulates the current state of the pipeline.
+ * A context that encapsulates the current state of the pipeline.
  * <p>
  * The context is used by the pipeline framework to expose the pipeline information to the {@link PipelineStage} implementations. The implementations are not
- * allowed to directly modify the pipeline which is why an immutable context is passed instead of the pipeline object.
+ * allowed to directly modify the pipeline which is why a context with read-only pipeline information is passed instead of the pipeline object. Only the
+ * transient attributes of the context are mutable.
+ * </p>
+ * <p>
+ * A new context is created each time a stage is prepared or receives a callback. Attributes can be used to hold values derived from the pipeline, such as parsed
+ * models, for the lifetime of the context so that they are only computed once per prepare/callback. Attributes are never persisted.
  * </p>
  *
  * @author Richard Lucas
@@ -33,16 +43,20 @@ import com.google.common.collect.ImmutableMap;
 public class PipelineContext {
 
     private final String pipelineId;
+    private final String pipelineNodePath;
     private final String objectId;
     private final String object;
     private final String callbackListenerId;
     private final ImmutableMap<String, String> properties;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
 
     /**
      * Creates a new pipelineContext
      *
      * @param pipelineId
      *         the pipeline id
+     * @param pipelineNodePath
+     *         the pipeline's node path
      * @param objectId
      *         the pipeline's object id
      * @param object
@@ -52,8 +66,9 @@ public class PipelineContext {
      * @param properties
      *         pipeline properties
      */
-    public PipelineContext(String pipelineId, String objectId, String object, String callbackListenerId, ImmutableMap<String, String> properties) {
+    public PipelineContext(String pipelineId, String pipelineNodePath, String objectId, String object, String callbackListenerId, ImmutableMap<String, String> properties) {
         this.pipelineId = pipelineId;
+        this.pipelineNodePath = pipelineNodePath;
         this.objectId = objectId;
         this.object = object;
         this.callbackListenerId = callbackListenerId;
@@ -64,6 +79,10 @@ public class PipelineContext {
         return pipelineId;
     }
 
+    public String getPipelineNodePath() {
+        return pipelineNodePath;
+    }
+
     public String getObjectId() {
         return objectId;
     }
@@ -80,10 +99,63 @@ public class PipelineContext {
         return properties;
     }
 
+    /**
+     * Returns the attribute with the given name, computing and storing it using the supplier if the attribute has not been set.
+     *
+     * @param name
+     *         the attribute name
+     * @param supplier
+     *         supplies the attribute value if the attribute has not been set
+     * @param <T>
+     *         the attribute type
+     * @return the attribute with the given name.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAttribute(String name, Supplier<T> supplier) {
+        return (T) attributes.computeIfAbsent(name, key -> supplier.get());
+    }
+
+    /**
+     * Returns the attribute with the given name if it has been set.
+     *
+     * @param name
+     *         the attribute name
+     * @param <T>
+     *         the attribute type
+     * @return the attribute with the given name or an empty Optional if the attribute has not been set.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> getAttribute(String name) {
+        return Optional.ofNullable((T) attributes.get(name));
+    }
+
+    /**
+     * Sets the attribute with the given name, replacing any existing value.
+     *
+     * @param name
+     *         the attribute name
+     * @param value
+     *         the attribute value
+     */
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    /**
+     * Removes the attribute with the given name.
+     *
+     * @param name
+     *         the attribute name
+     */
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
     @Override
     public String toString() {
         return "PipelineContext{" +
                 "pipelineId='" + pipelineId + '\'' +
+                ", pipelineNodePath='" + pipelineNodePath + '\'' +
                 ", objectId='" + objectId + '\'' +
                 ", object='" + object + '\'' +
                 ", callbackListenerId='" + callbackListenerId + '\'' +
@@ -19,32 +19,50 @@
  */
 package org.projectomakase.omakase.producers;
 
-import com.amazonaws.services.glacier.AmazonGlacier;
-import com.amazonaws.services.glacier.AmazonGlacierClient;
 import org.projectomakase.omakase.Omakase;
-import org.projectomakase.omakase.commons.aws.RuntimeCredentialsProvider;
 import org.projectomakase.omakase.commons.aws.glacier.GlacierClient;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.apache.http.client.HttpClient;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 
 /**
  * AWS Glacier Client CDI Producer.
+ * <p>
+ * The Glacier client is thread-safe and caches the underlying AWS SDK clients so a single instance is shared by all injection points.
+ * </p>
  *
  * @author Richard Lucas
  */
+@ApplicationScoped
 public class GlacierClientProducer {
 
     @Inject
     @Omakase
     HttpClient httpClient;
+    @Inject
+    @ConfigProperty(name = "aws.client.cache.size", defaultValue = "50")
+    long maxCachedClients;
+
+    private GlacierClient glacierClient;
+
+    @PostConstruct
+    public void init() {
+        glacierClient = new GlacierClient(httpClient, maxCachedClients);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        glacierClient.shutdown();
+    }
 
     @Produces
     @Omakase
     public GlacierClient getGlacierClient() {
-        RuntimeCredentialsProvider provider = new RuntimeCredentialsProvider();
-        AmazonGlacier amazonGlacier = new AmazonGlacierClient(provider);
-        return new GlacierClient(httpClient, provider, amazonGlacier);
+        return glacierClient;
     }
 }
@@ -19,32 +19,51 @@
  */
 package org.projectomakase.omakase.producers;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.ClientConfiguration;
 import org.projectomakase.omakase.Omakase;
-import org.projectomakase.omakase.commons.aws.RuntimeCredentialsProvider;
 import org.projectomakase.omakase.commons.aws.s3.S3Client;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
 import org.apache.http.client.HttpClient;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 
 /**
  * AWS S3 Client CDI Producer.
+ * <p>
+ * The S3 client is thread-safe and caches the underlying AWS SDK clients so a single instance is shared by all injection points.
+ * </p>
  *
  * @author Richard Lucas
  */
+@ApplicationScoped
 public class S3ClientProducer {
 
     @Inject
     @Omakase
     HttpClient httpClient;
+    @Inject
+    @ConfigProperty(name = "aws.client.cache.size", defaultValue = "50")
+    long maxCachedClients;
+
+    private S3Client s3Client;
+
+    @PostConstruct
+    public void init() {
+        s3Client = new S3Client(httpClient, new ClientConfiguration(), maxCachedClients);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        s3Client.shutdown();
+    }
 
     @Produces
     @Omakase
     public S3Client getS3Client() {
-        RuntimeCredentialsProvider provider = new RuntimeCredentialsProvider();
-        AmazonS3 amazonS3 = new AmazonS3Client(provider);
-        return new S3Client(httpClient, provider, amazonS3);
+        return s3Client;
     }
 }
@@ -22,6 +22,8 @@ package org.projectomakase.omakase.rest.converter;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableList;
+import org.projectomakase.omakase.search.CountMode;
+import org.projectomakase.omakase.search.Cursor;
 import org.projectomakase.omakase.search.InvalidSearchConditionException;
 import org.projectomakase.omakase.search.Operator;
 import org.projectomakase.omakase.search.Search;
@@ -48,7 +50,7 @@ public abstract class QuerySearchConverter {
 
     private static final Logger LOGGER = Logger.getLogger(QuerySearchConverter.class);
 
-    private static final List<String> SEARCH_QUERY_PARAMETERS = ImmutableList.of("page", "per_page", "sort", "order", "only_count");
+    private static final List<String> SEARCH_QUERY_PARAMETERS = ImmutableList.of("page", "per_page", "sort", "order", "only_count", "count_mode", "cursor");
     private static final Pattern PATTERN = Pattern.compile("((?:[^\\[]+))\\[((?:[a-z]+))\\]", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
 
     /**
@@ -95,6 +97,8 @@ public abstract class QuerySearchConverter {
         Optional.ofNullable(queryParameters.getFirst("sort")).ifPresent(sort -> searchBuilder.orderBy(getOrderBy(sort)));
         Optional.ofNullable(queryParameters.getFirst("order")).map(QuerySearchConverter::getSortOder).ifPresent(searchBuilder::sortOrder);
         Optional.ofNullable(queryParameters.getFirst("only_count")).map(Boolean::valueOf).ifPresent(searchBuilder::onlyCount);
+        Optional.ofNullable(queryParameters.getFirst("count_mode")).map(QuerySearchConverter::getCountMode).ifPresent(searchBuilder::countMode);
+        Optional.ofNullable(queryParameters.getFirst("cursor")).map(Cursor::decode).ifPresent(searchBuilder::cursor);
         ImmutableList.Builder<SearchCondition> listBuilder = ImmutableList.builder();
         queryParameters.forEach((key, value) -> {
             if (!SEARCH_QUERY_PARAMETERS.contains(key)) {
@@ -151,6 +155,14 @@ public abstract class QuerySearchConverter {
         }
     }
 
+    private static CountMode getCountMode(@NotNull String countMode) {
+        try {
+            return CountMode.valueOf(countMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchConditionException("Invalid count mode", countMode, e);
+        }
+    }
+
     private static Operator getOperator(@NotNull String operator) {
         try {
             return Operator.valueOf(operator.toUpperCase());
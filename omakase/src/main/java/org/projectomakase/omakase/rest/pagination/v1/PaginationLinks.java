@@ -22,6 +22,9 @@ package org.projectomakase.omakase.rest.pagination.v1;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.math.LongMath;
 import org.projectomakase.omakase.rest.model.v1.Href;
+import org.projectomakase.omakase.search.CountMode;
+import org.projectomakase.omakase.search.Cursor;
+import org.projectomakase.omakase.search.SearchResult;
 
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
@@ -37,7 +40,8 @@ import java.util.Map;
 public class PaginationLinks {
 
     private final Map<String, Href> links;
-    private final long totalPages;
+    private final Long totalPages;
+    private final Long totalCount;
 
     /**
      * Creates Pagination Links for the given Uri.
@@ -53,29 +57,79 @@ public class PaginationLinks {
      */
     public PaginationLinks(UriInfo uriInfo, int page, int pageSize, long totalCount) {
         ImmutableMap.Builder<String, Href> linksBuilder = ImmutableMap.builder();
-        linksBuilder.put("first", new Href(getLinkUri(uriInfo, 1, pageSize).toString()));
+        linksBuilder.put("first", new Href(getLinkUri(uriInfo, 1, pageSize, null).toString()));
 
         long pages = 1;
         if (totalCount > pageSize) {
             pages = LongMath.divide(totalCount, pageSize, RoundingMode.CEILING);
         }
         if (pages > 1) {
-            linksBuilder.put("last", new Href(getLinkUri(uriInfo, pages, pageSize).toString()));
+            linksBuilder.put("last", new Href(getLinkUri(uriInfo, pages, pageSize, null).toString()));
         }
 
         if (page > 1) {
             int prev = page - 1;
             if (prev < pages) {
-                linksBuilder.put("prev", new Href(getLinkUri(uriInfo, prev, pageSize).toString()));
+                linksBuilder.put("prev", new Href(getLinkUri(uriInfo, prev, pageSize, null).toString()));
             }
         }
 
         int next = page + 1;
         if (next <= pages) {
-            linksBuilder.put("next", new Href(getLinkUri(uriInfo, next, pageSize).toString()));
+            linksBuilder.put("next", new Href(getLinkUri(uriInfo, next, pageSize, null).toString()));
         }
         this.links = linksBuilder.build();
         this.totalPages = pages;
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * Creates Pagination Links for the given Uri using the total and count mode of the search result.
+     * <p>
+     * If the search result total is not exact the last page is unknown, in this case no last link is provided and the next link is only provided if the search found more records after the
+     * current page. The count mode is propagated to the links so that subsequent pages are retrieved using the same count mode.
+     * </p>
+     * <p>
+     * If the search used cursor pagination only the first and next links are provided, the next link contains the continuation cursor and is only provided if there are more records. Cursor
+     * links retain the sort, order and filter query parameters of the current request.
+     * </p>
+     *
+     * @param uriInfo
+     *         uriInfo representing the current request URI.
+     * @param page
+     *         the current page.
+     * @param pageSize
+     *         the page size.
+     * @param searchResult
+     *         the search result being paginated.
+     */
+    public PaginationLinks(UriInfo uriInfo, int page, int pageSize, SearchResult<?> searchResult) {
+        CountMode countMode = searchResult.getCountMode();
+        if (searchResult.isCursorPaged()) {
+            ImmutableMap.Builder<String, Href> linksBuilder = ImmutableMap.builder();
+            linksBuilder.put("first", new Href(getCursorLinkUri(uriInfo, Cursor.START_TOKEN, pageSize).toString()));
+            searchResult.getNextCursor().ifPresent(cursor -> linksBuilder.put("next", new Href(getCursorLinkUri(uriInfo, cursor.encode(), pageSize).toString())));
+            this.links = linksBuilder.build();
+            this.totalPages = null;
+            this.totalCount = null;
+        } else if (CountMode.EXACT.equals(countMode)) {
+            PaginationLinks exactLinks = new PaginationLinks(uriInfo, page, pageSize, searchResult.getTotalRecords());
+            this.links = exactLinks.links;
+            this.totalPages = exactLinks.totalPages;
+            this.totalCount = exactLinks.totalCount;
+        } else {
+            ImmutableMap.Builder<String, Href> linksBuilder = ImmutableMap.builder();
+            linksBuilder.put("first", new Href(getLinkUri(uriInfo, 1, pageSize, countMode).toString()));
+            if (page > 1) {
+                linksBuilder.put("prev", new Href(getLinkUri(uriInfo, page - 1, pageSize, countMode).toString()));
+            }
+            if (searchResult.hasMoreRecords()) {
+                linksBuilder.put("next", new Href(getLinkUri(uriInfo, page + 1, pageSize, countMode).toString()));
+            }
+            this.links = linksBuilder.build();
+            this.totalPages = null;
+            this.totalCount = CountMode.NONE.equals(countMode) ? null : searchResult.getTotalRecords();
+        }
     }
 
     /**
@@ -88,18 +142,39 @@ public class PaginationLinks {
     }
 
     /**
-     * Returns the total number of totalPages
+     * Returns the total number of totalPages, or null if the total count is not exact.
      *
      * @return the total number of totalPages
      */
-    public long getTotalPages() {
+    public Long getTotalPages() {
         return totalPages;
     }
 
-    private static URI getLinkUri(UriInfo uriInfo, long page, int pageSize) {
+    /**
+     * Returns the total count of items being paginated, or null if the total count was not calculated. If the count mode is ESTIMATE this is a lower bound estimate.
+     *
+     * @return the total count of items being paginated.
+     */
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    private static URI getLinkUri(UriInfo uriInfo, long page, int pageSize, CountMode countMode) {
         UriBuilder uriBuilder = uriInfo.getAbsolutePathBuilder();
         uriBuilder.queryParam("page", page);
         uriBuilder.queryParam("per_page", pageSize);
+        if (countMode != null) {
+            uriBuilder.queryParam("count_mode", countMode.name().toLowerCase());
+        }
+        return uriBuilder.build();
+    }
+
+    private static URI getCursorLinkUri(UriInfo uriInfo, String cursor, int pageSize) {
+        // the cursor is only valid for the same sort, order and filters so the links retain all of the query parameters of the current request
+        UriBuilder uriBuilder = uriInfo.getRequestUriBuilder();
+        uriBuilder.replaceQueryParam("page");
+        uriBuilder.replaceQueryParam("cursor", cursor);
+        uriBuilder.replaceQueryParam("per_page", pageSize);
         return uriBuilder.build();
     }
 }
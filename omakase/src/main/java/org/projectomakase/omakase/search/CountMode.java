@@ -0,0 +1,34 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.search;
+
+/**
+ * Determines how the total number of records is calculated when executing a search.
+ * <ul>
+ * <li>EXACT - the exact total is calculated, this requires the search to visit every matching record.</li>
+ * <li>ESTIMATE - a lower bound estimate of the total is calculated from the records up to and including the current page.</li>
+ * <li>NONE - the total is not calculated, only whether or not there are more records after the current page is determined.</li>
+ * </ul>
+ *
+ * @author Richard Lucas
+ */
+public enum CountMode {
+    EXACT, ESTIMATE, NONE
+}
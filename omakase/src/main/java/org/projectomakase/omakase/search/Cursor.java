@@ -0,0 +1,232 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.search;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Keyset pagination cursor. Identifies the position of the last record returned by a search using the value of the sort attribute and the jcr:name of the record, the next page is retrieved by
+ * searching for the records that sort after the position rather than skipping to an offset.
+ * <p>
+ * Cursors are exposed to clients as an opaque URL safe token, see {@link #encode()} and {@link #decode(String)}. The start cursor, used to retrieve the first page, does not have a position.
+ * </p>
+ *
+ * @author Richard Lucas
+ */
+public final class Cursor {
+
+    /**
+     * The token used to request the first page of a cursor paginated search.
+     */
+    public static final String START_TOKEN = "*";
+
+    private static final int VERSION = 1;
+    private static final Cursor START = new Cursor(null, null, null, null);
+
+    private final String orderBy;
+    private final SortOrder sortOrder;
+    private final String sortValue;
+    private final String name;
+
+    private Cursor(String orderBy, SortOrder sortOrder, String sortValue, String name) {
+        this.orderBy = orderBy;
+        this.sortOrder = sortOrder;
+        this.sortValue = sortValue;
+        this.name = name;
+    }
+
+    /**
+     * Returns the start cursor used to retrieve the first page of a cursor paginated search.
+     *
+     * @return the start cursor.
+     */
+    public static Cursor start() {
+        return START;
+    }
+
+    /**
+     * Creates a new cursor positioned after a record.
+     *
+     * @param orderBy
+     *         the order by attribute of the search, may be null if the search is not sorted
+     * @param sortOrder
+     *         the sort order of the search
+     * @param sortValue
+     *         the records sort attribute value, may be null if the search is not sorted or the record does not have a value
+     * @param name
+     *         the records jcr:name
+     * @return a new cursor positioned after the record.
+     */
+    public static Cursor after(String orderBy, SortOrder sortOrder, String sortValue, String name) {
+        return new Cursor(orderBy, Objects.requireNonNull(sortOrder), sortValue, Objects.requireNonNull(name));
+    }
+
+    /**
+     * Returns true if this is the start cursor, otherwise false.
+     *
+     * @return true if this is the start cursor, otherwise false.
+     */
+    public boolean isStart() {
+        return name == null;
+    }
+
+    /**
+     * Returns the order by attribute the cursor was created for.
+     *
+     * @return the order by attribute the cursor was created for.
+     */
+    public Optional<String> getOrderBy() {
+        return Optional.ofNullable(orderBy);
+    }
+
+    /**
+     * Returns the sort order the cursor was created for.
+     *
+     * @return the sort order the cursor was created for.
+     */
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    /**
+     * Returns the sort attribute value of the last record.
+     *
+     * @return the sort attribute value of the last record.
+     */
+    public Optional<String> getSortValue() {
+        return Optional.ofNullable(sortValue);
+    }
+
+    /**
+     * Returns the jcr:name of the last record.
+     *
+     * @return the jcr:name of the last record.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns true if the cursor can be used to continue a search with the given order by attribute and sort order.
+     *
+     * @param searchOrderBy
+     *         the search order by attribute
+     * @param searchSortOrder
+     *         the search sort order
+     * @return true if the cursor can be used to continue the search, otherwise false.
+     */
+    public boolean isCompatible(String searchOrderBy, SortOrder searchSortOrder) {
+        return isStart() || (Objects.equals(orderBy, searchOrderBy) && sortOrder == searchSortOrder);
+    }
+
+    /**
+     * Encodes the cursor as an opaque URL safe token.
+     *
+     * @return the encoded cursor.
+     */
+    public String encode() {
+        if (isStart()) {
+            return START_TOKEN;
+        }
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(); DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(VERSION);
+            writeOptional(output, orderBy);
+            output.writeUTF(sortOrder.name());
+            writeOptional(output, sortValue);
+            output.writeUTF(name);
+            output.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new SearchException("Failed to encode cursor", e);
+        }
+    }
+
+    /**
+     * Decodes a cursor from a token created by {@link #encode()}.
+     *
+     * @param token
+     *         the encoded cursor
+     * @return the decoded cursor.
+     * @throws InvalidSearchConditionException
+     *         if the token is not a valid cursor.
+     */
+    public static Cursor decode(String token) {
+        if (START_TOKEN.equals(token)) {
+            return START;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (input.readByte() != VERSION) {
+                throw new InvalidSearchConditionException("Invalid cursor", token);
+            }
+            String orderBy = readOptional(input);
+            SortOrder sortOrder = SortOrder.valueOf(input.readUTF());
+            String sortValue = readOptional(input);
+            String name = input.readUTF();
+            return new Cursor(orderBy, sortOrder, sortValue, name);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidSearchConditionException("Invalid cursor", token, e);
+        }
+    }
+
+    private static void writeOptional(DataOutputStream output, String value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static String readOptional(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Cursor cursor = (Cursor) o;
+        return Objects.equals(orderBy, cursor.orderBy) && sortOrder == cursor.sortOrder && Objects.equals(sortValue, cursor.sortValue) && Objects.equals(name, cursor.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderBy, sortOrder, sortValue, name);
+    }
+
+    @Override
+    public String toString() {
+        return "Cursor{" +
+                "orderBy='" + orderBy + '\'' +
+                ", sortOrder=" + sortOrder +
+                ", sortValue='" + sortValue + '\'' +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
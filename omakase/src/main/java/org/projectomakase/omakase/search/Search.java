@@ -25,6 +25,7 @@ import org.jboss.logging.Logger;
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Encapsulates the search conditions, sorting and pagination.
@@ -43,6 +44,8 @@ public class Search {
     private final int offset;
     private final int count;
     private final boolean onlyCount;
+    private final CountMode countMode;
+    private final Cursor cursor;
 
     /**
      * Constructor used to create a new search. This constructor should NEVER be called directly. Instead search objects should be built using a {@link Search.Builder}
@@ -62,12 +65,39 @@ public class Search {
      *         true if only the record count should be returned otherwise false. If true the offset and count are ignored.
      */
     protected Search(List<SearchCondition> searchConditions, String orderBy, SortOrder sortOrder, int offset, int count, boolean onlyCount) {
+        this(searchConditions, orderBy, sortOrder, offset, count, onlyCount, CountMode.EXACT, null);
+    }
+
+    /**
+     * Constructor used to create a new search. This constructor should NEVER be called directly. Instead search objects should be built using a {@link Search.Builder}
+     * implementation for the current search domain.
+     *
+     * @param searchConditions
+     *         a list of {@link SearchCondition}s
+     * @param orderBy
+     *         the order by attribute
+     * @param sortOrder
+     *         the sort order (ASC, DESC)
+     * @param offset
+     *         the search result offset (zero based)
+     * @param count
+     *         the maximum number of results to return
+     * @param onlyCount
+     *         true if only the record count should be returned otherwise false. If true the offset and count are ignored.
+     * @param countMode
+     *         determines how the total number of records is calculated.
+     * @param cursor
+     *         the keyset pagination cursor, or null if the search uses offset pagination. If set the offset and count mode are ignored.
+     */
+    protected Search(List<SearchCondition> searchConditions, String orderBy, SortOrder sortOrder, int offset, int count, boolean onlyCount, CountMode countMode, Cursor cursor) {
         this.searchConditions = searchConditions;
         this.orderBy = orderBy;
         this.sortOrder = sortOrder;
         this.offset = offset;
         this.count = count;
         this.onlyCount = onlyCount;
+        this.countMode = countMode;
+        this.cursor = cursor;
     }
 
     /**
@@ -124,6 +154,25 @@ public class Search {
         return onlyCount;
     }
 
+    /**
+     * Returns the {@link CountMode} used to determine how the total number of records is calculated. If only the record count is requested the count mode is ignored and the exact count is
+     * always returned.
+     *
+     * @return the {@link CountMode} used to determine how the total number of records is calculated.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * Returns the keyset pagination {@link Cursor} if the search uses cursor pagination, otherwise an empty optional.
+     *
+     * @return the keyset pagination {@link Cursor} if the search uses cursor pagination, otherwise an empty optional.
+     */
+    public Optional<Cursor> getCursor() {
+        return Optional.ofNullable(cursor);
+    }
+
     /**
      * Abstract Search Builder. Implementations of this are used to create and validate search objects for specific search domains.
      */
@@ -137,7 +186,8 @@ public class Search {
         private int offset = 0;
         private int count = 10;
         private boolean onlyCount;
-
+        private CountMode countMode = CountMode.EXACT;
+        private Cursor cursor;
 
         public Builder condition(@NotNull SearchCondition searchCondition) {
             this.searchConditions.add(searchCondition);
@@ -174,12 +224,26 @@ public class Search {
             return this;
         }
 
+        public Builder countMode(@NotNull CountMode countMode) {
+            this.countMode = countMode;
+            return this;
+        }
+
+        public Builder cursor(@NotNull Cursor cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
         public Search build() {
             if (orderBy != null && !getSupportedSortAttributes().contains(orderBy)) {
                 throw new InvalidSearchConditionException("Invalid sort attribute", orderBy);
             }
+            if (cursor != null && !cursor.isCompatible(orderBy, sortOrder)) {
+                LOGGER.error("Invalid cursor " + cursor + " for sort attribute " + orderBy + " and sort order " + sortOrder);
+                throw new InvalidSearchConditionException("Invalid cursor for sort attribute", orderBy);
+            }
             searchConditions.forEach(this::validateCondition);
-            return new Search(searchConditions, orderBy, sortOrder, offset, count, onlyCount);
+            return new Search(searchConditions, orderBy, sortOrder, offset, count, onlyCount, countMode, cursor);
         }
 
         private void validateCondition(SearchCondition searchCondition) {
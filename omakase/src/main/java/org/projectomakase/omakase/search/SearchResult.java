@@ -21,6 +21,9 @@ package org.projectomakase.omakase.search;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Search Result
@@ -31,9 +34,13 @@ public class SearchResult<X> {
 
     private List<X> records = new ArrayList<>();
     private long totalRecords;
+    private CountMode countMode;
+    private boolean moreRecords;
+    private boolean cursorPaged;
+    private Cursor nextCursor;
 
     /**
-     * Constructs a new {@link SearchResult} instance.
+     * Constructs a new {@link SearchResult} instance with an exact total.
      *
      * @param records
      *         the records returned by the search.
@@ -41,8 +48,44 @@ public class SearchResult<X> {
      *         the total number of records returned by the search.
      */
     public SearchResult(List<X> records, long totalRecords) {
+        this(records, totalRecords, CountMode.EXACT, false);
+    }
+
+    /**
+     * Constructs a new {@link SearchResult} instance.
+     *
+     * @param records
+     *         the records returned by the search.
+     * @param totalRecords
+     *         the total number of records returned by the search, or -1 if the total was not calculated.
+     * @param countMode
+     *         the {@link CountMode} used to calculate the total.
+     * @param moreRecords
+     *         true if the search found more records after the returned records, only used if the total is not exact.
+     */
+    public SearchResult(List<X> records, long totalRecords, CountMode countMode, boolean moreRecords) {
+        this(records, totalRecords, countMode, moreRecords, false, null);
+    }
+
+    /**
+     * Constructs a new {@link SearchResult} instance for a search that uses cursor pagination. The total is not calculated for cursor paginated searches.
+     *
+     * @param records
+     *         the records returned by the search.
+     * @param nextCursor
+     *         the cursor used to retrieve the next page, or null if there are no more records.
+     */
+    public SearchResult(List<X> records, Cursor nextCursor) {
+        this(records, -1, CountMode.NONE, nextCursor != null, true, nextCursor);
+    }
+
+    private SearchResult(List<X> records, long totalRecords, CountMode countMode, boolean moreRecords, boolean cursorPaged, Cursor nextCursor) {
         this.records = records;
         this.totalRecords = totalRecords;
+        this.countMode = countMode;
+        this.moreRecords = moreRecords;
+        this.cursorPaged = cursorPaged;
+        this.nextCursor = nextCursor;
     }
 
     /**
@@ -55,11 +98,60 @@ public class SearchResult<X> {
     }
 
     /**
-     * Returns the total number of records returned by the search.
+     * Returns the total number of records returned by the search. If the count mode is ESTIMATE this is a lower bound estimate, if it is NONE -1 is returned.
      *
      * @return the total number of records returned by the search.
      */
     public long getTotalRecords() {
         return totalRecords;
     }
+
+    /**
+     * Returns the {@link CountMode} used to calculate the total.
+     *
+     * @return the {@link CountMode} used to calculate the total.
+     */
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * Returns true if the search found more records after the returned records. Only used if the count mode is not EXACT.
+     *
+     * @return true if the search found more records after the returned records.
+     */
+    public boolean hasMoreRecords() {
+        return moreRecords;
+    }
+
+    /**
+     * Returns true if the search used cursor pagination, otherwise false.
+     *
+     * @return true if the search used cursor pagination, otherwise false.
+     */
+    public boolean isCursorPaged() {
+        return cursorPaged;
+    }
+
+    /**
+     * Returns the cursor used to retrieve the next page if the search used cursor pagination and there are more records, otherwise an empty optional.
+     *
+     * @return the cursor used to retrieve the next page.
+     */
+    public Optional<Cursor> getNextCursor() {
+        return Optional.ofNullable(nextCursor);
+    }
+
+    /**
+     * Returns a new {@link SearchResult} that contains the result of applying the given function to each of the records, the total and count information is retained.
+     *
+     * @param mapper
+     *         the function applied to each record
+     * @param <Y>
+     *         the mapped record type
+     * @return a new {@link SearchResult} that contains the result of applying the given function to each of the records.
+     */
+    public <Y> SearchResult<Y> map(Function<X, Y> mapper) {
+        return new SearchResult<>(records.stream().map(mapper).collect(Collectors.toList()), totalRecords, countMode, moreRecords, cursorPaged, nextCursor);
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.broker;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.apache.camel.ProducerTemplate;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectomakase.omakase.OmakaseCluster;
+import org.projectomakase.omakase.camel.CamelQueueEndpoint;
+import org.projectomakase.omakase.event.TasksQueued;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
+import java.util.Optional;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class TaskAvailabilityNotifierTest {
+
+    private TaskAvailabilityNotifier notifier;
+    private CamelQueueEndpoint mockCamelQueueEndpoint;
+    private ProducerTemplate mockProducerTemplate;
+
+    @Before
+    public void before() {
+        OmakaseCluster mockCluster = mock(OmakaseCluster.class);
+        doReturn("Omakase").when(mockCluster).getClusterName();
+        mockCamelQueueEndpoint = mock(CamelQueueEndpoint.class);
+        doReturn(Optional.empty()).when(mockCamelQueueEndpoint).getTopicEndpoint(anyString());
+        mockProducerTemplate = mock(ProducerTemplate.class);
+
+        notifier = new TaskAvailabilityNotifier();
+        notifier.omakaseCluster = mockCluster;
+        notifier.camelQueueEndpoint = mockCamelQueueEndpoint;
+        notifier.producerTemplate = mockProducerTemplate;
+    }
+
+    @Test
+    public void shouldWakeWaitingWorker() {
+        AsyncResponse asyncResponse = asyncResponse();
+        notifier.register(ImmutableList.of("TRANSFER"), asyncResponse).await();
+
+        notifier.onTasksAvailable("TRANSFER=1");
+        verify(asyncResponse).resume(any(Response.class));
+    }
+
+    @Test
+    public void shouldWakeWorkerWokenWhileCheckingQueueOnceItWaits() {
+        AsyncResponse asyncResponse = asyncResponse();
+        TaskAvailabilityNotifier.Waiter waiter = notifier.register(ImmutableList.of("TRANSFER"), asyncResponse);
+
+        notifier.onTasksAvailable("TRANSFER=1");
+        verify(asyncResponse, never()).resume(any(Response.class));
+
+        waiter.await();
+        verify(asyncResponse).resume(any(Response.class));
+    }
+
+    @Test
+    public void shouldNotWakeCancelledWorker() {
+        AsyncResponse asyncResponse = asyncResponse();
+        notifier.register(ImmutableList.of("TRANSFER"), asyncResponse).cancel();
+
+        notifier.onTasksAvailable("TRANSFER=1");
+        verify(asyncResponse, never()).resume(any(Response.class));
+    }
+
+    @Test
+    public void shouldOnlyWakeWorkersWaitingForQueuedTaskTypes() {
+        AsyncResponse transfer = asyncResponse();
+        AsyncResponse hash = asyncResponse();
+        notifier.register(ImmutableList.of("TRANSFER"), transfer).await();
+        notifier.register(ImmutableList.of("HASH"), hash).await();
+
+        notifier.onTasksAvailable("HASH=2,DELETE=1");
+        verify(transfer, never()).resume(any(Response.class));
+        verify(hash).resume(any(Response.class));
+    }
+
+    @Test
+    public void shouldPublishQueuedTasksToTopic() {
+        doReturn(Optional.of("topic")).when(mockCamelQueueEndpoint).getTopicEndpoint("omakase-task-availability-topic");
+        AsyncResponse asyncResponse = asyncResponse();
+        notifier.register(ImmutableList.of("TRANSFER"), asyncResponse).await();
+
+        notifier.onTasksQueued(new TasksQueued(ImmutableMap.of("TRANSFER", 2)));
+        verify(mockProducerTemplate).sendBody("topic", "TRANSFER=2");
+        // the worker is woken when this instance receives the published message
+        verify(asyncResponse, never()).resume(any(Response.class));
+    }
+
+    @Test
+    public void shouldWakeLocalWorkersIfTopicsAreNotSupported() {
+        AsyncResponse asyncResponse = asyncResponse();
+        notifier.register(ImmutableList.of("TRANSFER"), asyncResponse).await();
+
+        notifier.onTasksQueued(new TasksQueued(ImmutableMap.of("TRANSFER", 1)));
+        verify(mockProducerTemplate, never()).sendBody(anyString(), any());
+        verify(asyncResponse).resume(any(Response.class));
+    }
+
+    private static AsyncResponse asyncResponse() {
+        AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        doReturn(true).when(asyncResponse).resume(any(Response.class));
+        return asyncResponse;
+    }
+}
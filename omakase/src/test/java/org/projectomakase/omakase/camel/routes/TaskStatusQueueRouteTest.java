@@ -21,6 +21,7 @@ package org.projectomakase.omakase.camel.routes;
 
 import org.projectomakase.omakase.OmakaseCluster;
 import org.projectomakase.omakase.camel.CamelQueueEndpoint;
+import org.apache.camel.model.BeanDefinition;
 import org.apache.camel.model.RouteDefinition;
 import org.apache.camel.model.ThrottleDefinition;
 import org.junit.Before;
@@ -69,4 +70,43 @@ public class TaskStatusQueueRouteTest {
         assertThat(throttleDefinition.getExpression().getExpressionValue().toString()).isEqualTo("10");
         assertThat(throttleDefinition.getTimePeriodMillis()).isEqualTo(100);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldConfigureRouteWithoutBatching() throws Exception {
+        route.throttleMaxPerPeriod = -1;
+        route.batchSize = 1;
+        route.configure();
+        RouteDefinition routeDefinition = route.getRouteCollection().getRoutes().get(0);
+        assertThat(routeDefinition.getInputs().get(0).getUri()).isEqualTo("test");
+        assertThat(getBeanDefinition(routeDefinition).getMethod()).isEqualTo("processQueueMessage");
+    }
+
+    @Test
+    public void shouldConfigureRouteWithBatching() throws Exception {
+        route.throttleMaxPerPeriod = -1;
+        route.batchSize = 50;
+        route.batchTimeoutInMs = 200;
+        route.configure();
+        RouteDefinition routeDefinition = route.getRouteCollection().getRoutes().get(0);
+        assertThat(routeDefinition.getInputs().get(0).getUri()).isEqualTo("timer:task-status-queue?fixedRate=false&period=1");
+        assertThat(getBeanDefinition(routeDefinition).getMethod()).isEqualTo("processNextBatch(50, 200)");
+    }
+
+    @Test
+    public void shouldThrottleBatches() throws Exception {
+        route.throttleMaxPerPeriod = 1;
+        route.periodInMs = 250;
+        route.batchSize = 50;
+        route.batchTimeoutInMs = 200;
+        route.configure();
+        RouteDefinition routeDefinition = route.getRouteCollection().getRoutes().get(0);
+        ThrottleDefinition throttleDefinition =
+                (ThrottleDefinition) routeDefinition.getOutputs().stream().filter(processorDefinition -> processorDefinition instanceof ThrottleDefinition).findFirst().get();
+        assertThat(throttleDefinition.getExpression().getExpressionValue().toString()).isEqualTo("1");
+        assertThat(throttleDefinition.getOutputs().stream().filter(processorDefinition -> processorDefinition instanceof BeanDefinition).findFirst()).isPresent();
+    }
+
+    private static BeanDefinition getBeanDefinition(RouteDefinition routeDefinition) {
+        return (BeanDefinition) routeDefinition.getOutputs().stream().filter(processorDefinition -> processorDefinition instanceof BeanDefinition).findFirst().get();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.jcr;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Richard Lucas
+ */
+public class NodePathCacheTest {
+
+    private NodePathCache nodePathCache;
+
+    @Before
+    public void before() {
+        nodePathCache = new NodePathCache();
+        nodePathCache.maximumSize = 2;
+        nodePathCache.init();
+    }
+
+    @Test
+    public void shouldGetCachedNodePath() throws Exception {
+        nodePathCache.put("omakase:variant", "1", "/organizations/default/assets/1");
+        assertThat(nodePathCache.get("omakase:variant", "1")).isPresent().contains("/organizations/default/assets/1");
+    }
+
+    @Test
+    public void shouldNotGetNodePathForDifferentNodeType() throws Exception {
+        nodePathCache.put("omakase:variant", "1", "/organizations/default/assets/1");
+        assertThat(nodePathCache.get("omakase:pipeline", "1")).isEmpty();
+    }
+
+    @Test
+    public void shouldInvalidateNodePath() throws Exception {
+        nodePathCache.put("omakase:variant", "1", "/organizations/default/assets/1");
+        nodePathCache.invalidate("omakase:variant", "1");
+        assertThat(nodePathCache.get("omakase:variant", "1")).isEmpty();
+    }
+
+    @Test
+    public void shouldBoundCacheSize() throws Exception {
+        nodePathCache.put("omakase:variant", "1", "/1");
+        nodePathCache.put("omakase:variant", "2", "/2");
+        nodePathCache.put("omakase:variant", "3", "/3");
+        long cached = Stream.of("1", "2", "3").filter(id -> nodePathCache.get("omakase:variant", id).isPresent()).count();
+        assertThat(cached).isLessThanOrEqualTo(2);
+    }
+}
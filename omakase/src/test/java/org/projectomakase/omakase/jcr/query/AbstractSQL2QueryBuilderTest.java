@@ -20,6 +20,7 @@
 package org.projectomakase.omakase.jcr.query;
 
 import com.google.common.collect.ImmutableList;
+import org.projectomakase.omakase.search.Cursor;
 import org.projectomakase.omakase.search.Operator;
 import org.projectomakase.omakase.search.SearchCondition;
 import org.projectomakase.omakase.search.SearchException;
@@ -44,6 +45,39 @@ public class AbstractSQL2QueryBuilderTest {
         assertThat(AbstractSQL2QueryBuilder.getOrderBy("test", SortOrder.ASC)).isPresent().contains(" ORDER by node.[test] " + SortOrder.ASC.name());
     }
 
+    @Test
+    public void shouldGetKeysetOrderBy() throws Exception {
+        assertThat(AbstractSQL2QueryBuilder.getKeysetOrderBy("test", SortOrder.DESC)).isEqualTo(" ORDER by node.[test] DESC, node.[jcr:name] DESC");
+    }
+
+    @Test
+    public void shouldGetKeysetOrderByNoSortAttribute() throws Exception {
+        assertThat(AbstractSQL2QueryBuilder.getKeysetOrderBy(null, SortOrder.ASC)).isEqualTo(" ORDER by node.[jcr:name] ASC");
+    }
+
+    @Test
+    public void shouldGetKeysetConditionEmptyOptionalForStartCursor() throws Exception {
+        assertThat(AbstractSQL2QueryBuilder.getKeysetCondition("test", SortOrder.ASC, Cursor.start())).isEmpty();
+    }
+
+    @Test
+    public void shouldGetKeysetCondition() throws Exception {
+        assertThat(AbstractSQL2QueryBuilder.getKeysetCondition("test", SortOrder.ASC, Cursor.after("test", SortOrder.ASC, "it's", "name")))
+                .isPresent().contains(" AND (node.[test] > 'it''s' OR (node.[test] = 'it''s' AND node.[jcr:name] > 'name'))");
+    }
+
+    @Test
+    public void shouldGetKeysetConditionDescending() throws Exception {
+        assertThat(AbstractSQL2QueryBuilder.getKeysetCondition("test", SortOrder.DESC, Cursor.after("test", SortOrder.DESC, "value", "name")))
+                .isPresent().contains(" AND (node.[test] < 'value' OR (node.[test] = 'value' AND node.[jcr:name] < 'name') OR NOT node.[test] IS NOT NULL)");
+    }
+
+    @Test
+    public void shouldGetKeysetConditionNoSortAttribute() throws Exception {
+        assertThat(AbstractSQL2QueryBuilder.getKeysetCondition(null, SortOrder.ASC, Cursor.after(null, SortOrder.ASC, null, "name")))
+                .isPresent().contains(" AND (node.[jcr:name] > 'name')");
+    }
+
     @Test
     public void shouldGetLimitEmptyOptional() throws Exception {
         assertThat(AbstractSQL2QueryBuilder.getLimit(null, null)).isEmpty();
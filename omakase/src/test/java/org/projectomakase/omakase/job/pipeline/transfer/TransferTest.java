@@ -55,4 +55,14 @@ public class TransferTest {
 
         assertThat(transfer.toJson()).isEqualTo(TRANSFER_JSON);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldGetTransferFileGroupById() throws Exception {
+        TransferFileGroup transferFileGroup1 = TransferFileGroup.builder().id("1").description("test1").build();
+        TransferFileGroup transferFileGroup2 = TransferFileGroup.builder().id("2").description("test2").build();
+        Transfer transfer = new Transfer(ImmutableList.of(transferFileGroup1, transferFileGroup2));
+
+        assertThat(transfer.getTransferFileGroup("2")).isPresent().contains(transferFileGroup2);
+        assertThat(transfer.getTransferFileGroup("3")).isEmpty();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.projectomakase.omakase.IdGenerator;
+import org.projectomakase.omakase.exceptions.InvalidPropertyException;
+import org.projectomakase.omakase.job.task.jcr.TaskGroupNode;
+import org.projectomakase.omakase.job.task.jcr.TaskGroupNodeDAO;
+import org.projectomakase.omakase.job.task.jcr.TaskNode;
+import org.projectomakase.omakase.job.task.jcr.TaskNodeDAO;
+import org.projectomakase.omakase.job.task.queue.TaskQueue;
+import org.projectomakase.omakase.task.api.Task;
+import org.projectomakase.omakase.task.api.TaskStatus;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class TaskManagerTest {
+
+    private static final String TASK_GROUP_PATH = "/organizations/omakase/jobs/aa/bb/cc/job/taskgroup";
+    private static final String LOCK_TOKEN = "lock-token";
+
+    private TaskManager taskManager;
+    private TaskGroupNodeDAO mockTaskGroupDAO;
+    private TaskNodeDAO mockTaskDAO;
+    private TaskQueue mockTaskQueue;
+    private TransactionSynchronizationRegistry mockTransactionSynchronizationRegistry;
+    private TaskGroupNode taskGroupNode;
+
+    @Before
+    public void before() {
+        mockTaskGroupDAO = mock(TaskGroupNodeDAO.class);
+        mockTaskDAO = mock(TaskNodeDAO.class);
+        mockTaskQueue = mock(TaskQueue.class);
+        mockTransactionSynchronizationRegistry = mock(TransactionSynchronizationRegistry.class);
+        // emulate the resources of a single transaction
+        Map<Object, Object> transactionResources = new HashMap<>();
+        doAnswer(invocation -> transactionResources.get(invocation.getArguments()[0])).when(mockTransactionSynchronizationRegistry).getResource(any());
+        doAnswer(invocation -> transactionResources.put(invocation.getArguments()[0], invocation.getArguments()[1])).when(mockTransactionSynchronizationRegistry)
+                .putResource(any(), any());
+
+        Tasks mockTasks = mock(Tasks.class);
+        doAnswer(invocation -> new TaskNode()).when(mockTasks).fromTask(any(Task.class));
+        IdGenerator mockIdGenerator = mock(IdGenerator.class);
+        doReturn("task0").doReturn("task1").doReturn("task2").doReturn("task3").when(mockIdGenerator).getId();
+
+        taskGroupNode = new TaskGroupNode();
+        taskGroupNode.setTaskCount(TaskStatus.QUEUED, 2);
+        taskGroupNode.setTaskCount(TaskStatus.EXECUTING, 0);
+        taskGroupNode.setTaskCount(TaskStatus.COMPLETED, 1);
+        taskGroupNode.setTaskCount(TaskStatus.FAILED_DIRTY, 0);
+        taskGroupNode.setTaskCount(TaskStatus.FAILED_CLEAN, 0);
+        doReturn(TASK_GROUP_PATH).when(mockTaskDAO).getDistributedNodePath(anyString(), anyString());
+        doReturn(LOCK_TOKEN).when(mockTaskGroupDAO).lock(eq(TASK_GROUP_PATH), anyLong());
+        doReturn(taskGroupNode).when(mockTaskGroupDAO).get(TASK_GROUP_PATH);
+
+        taskManager = new TaskManager();
+        taskManager.organizationNodePath = "/organizations/omakase";
+        taskManager.tasks = mockTasks;
+        taskManager.taskGroupDAO = mockTaskGroupDAO;
+        taskManager.taskDAO = mockTaskDAO;
+        taskManager.idGenerator = mockIdGenerator;
+        taskManager.taskQueue = mockTaskQueue;
+        taskManager.taskGroupLockTimeoutInMs = 1000;
+        taskManager.transactionSynchronizationRegistry = mockTransactionSynchronizationRegistry;
+    }
+
+    @Test
+    public void shouldCreateTasksWithSingleSaveAndQueueThemAsOneBatch() {
+        ImmutableList<Task> createdTasks = taskManager.createTasks(taskGroup(), ImmutableList.of(newTask(1), newTask(5), newTask(10)));
+
+        assertThat(createdTasks).extracting(Task::getId).containsExactly("task0", "task1", "task2");
+        assertThat(createdTasks).extracting(Task::getPriority).containsExactly(1L, 5L, 10L);
+
+        ArgumentCaptor<TaskNode> taskNodeCaptor = ArgumentCaptor.forClass(TaskNode.class);
+        verify(mockTaskDAO, times(3)).createWithoutSave(eq(TASK_GROUP_PATH), taskNodeCaptor.capture());
+        assertThat(taskNodeCaptor.getAllValues()).extracting(TaskNode::getId).containsExactly("task0", "task1", "task2");
+        verify(mockTaskDAO, times(1)).save();
+
+        // the tasks are only queued once they have been written to the repository
+        InOrder inOrder = inOrder(mockTaskDAO, mockTaskQueue);
+        inOrder.verify(mockTaskDAO).save();
+        inOrder.verify(mockTaskQueue).addAll(createdTasks);
+        verify(mockTaskQueue, never()).add(any(Task.class));
+    }
+
+    @Test
+    public void shouldUpdateTaskGroupQueuedCountOnceForAllTasks() {
+        taskManager.createTasks(taskGroup(), ImmutableList.of(newTask(1), newTask(1), newTask(1)));
+
+        verify(mockTaskGroupDAO, times(1)).lock(eq(TASK_GROUP_PATH), anyLong());
+        verify(mockTaskGroupDAO, times(1)).updateWithoutSave(taskGroupNode);
+        assertThat(taskGroupNode.getTaskCount(TaskStatus.QUEUED)).isEqualTo(5);
+        assertThat(taskGroupNode.getTaskCount(TaskStatus.COMPLETED)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldUnlockTaskGroupOnceTransactionHasCompleted() {
+        taskManager.createTasks(taskGroup(), ImmutableList.of(newTask(1)));
+
+        ArgumentCaptor<Synchronization> synchronizationCaptor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(mockTransactionSynchronizationRegistry).registerInterposedSynchronization(synchronizationCaptor.capture());
+        verify(mockTaskGroupDAO, never()).unlock(anyString(), anyString());
+
+        synchronizationCaptor.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        verify(mockTaskGroupDAO).unlock(TASK_GROUP_PATH, LOCK_TOKEN);
+    }
+
+    @Test
+    public void shouldOnlyLockTaskGroupOncePerTransaction() {
+        taskManager.createTasks(taskGroup(), ImmutableList.of(newTask(1), newTask(1)));
+        taskManager.createTasks(taskGroup(), ImmutableList.of(newTask(1)));
+        doReturn(new TaskNode()).when(mockTaskDAO).create(anyString(), any(TaskNode.class));
+        doReturn(newTask(1)).when(taskManager.tasks).fromTaskNode(any(TaskNode.class));
+        taskManager.createTask(taskGroup(), newTask(1), false);
+
+        verify(mockTaskGroupDAO, times(1)).lock(eq(TASK_GROUP_PATH), anyLong());
+        verify(mockTaskGroupDAO, times(1)).get(TASK_GROUP_PATH);
+        verify(mockTransactionSynchronizationRegistry, times(1)).registerInterposedSynchronization(any(Synchronization.class));
+        // the re-used task group retains the counts staged by the earlier updates
+        assertThat(taskGroupNode.getTaskCount(TaskStatus.QUEUED)).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldNotCreateAnyTasksIfOneTaskIsInvalid() {
+        List<Task> newTasks = ImmutableList.of(newTask(1), newTask(11), newTask(1));
+
+        assertThatThrownBy(() -> taskManager.createTasks(taskGroup(), newTasks)).isInstanceOf(InvalidPropertyException.class)
+                .hasMessage("Invalid task priority value '11', the value must be between 1 and 10");
+
+        verify(mockTaskGroupDAO, never()).lock(anyString(), anyLong());
+        verify(mockTaskDAO, never()).createWithoutSave(anyString(), any(TaskNode.class));
+        verify(mockTaskDAO, never()).save();
+        verify(mockTaskQueue, never()).addAll(any());
+    }
+
+    private static TaskGroup taskGroup() {
+        return new TaskGroup("taskgroup", TaskStatus.QUEUED, null, "job", "pipeline", "callback", null);
+    }
+
+    private static Task newTask(long priority) {
+        return new Task("TRANSFER", "test", priority, null);
+    }
+}
@@ -19,11 +19,16 @@
  */
 package org.projectomakase.omakase.job.task;
 
+import org.projectomakase.omakase.job.task.jcr.TaskGroupNode;
 import org.projectomakase.omakase.task.api.TaskStatus;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Date;
+import java.util.Optional;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 /**
  * @author Richard Lucas
  */
@@ -79,4 +84,34 @@ public class TasksTest {
         assertThat(tasks.shouldRetryTask(TaskStatus.EXECUTING, 0, 1)).isFalse();
         assertThat(tasks.shouldRetryTask(TaskStatus.COMPLETED, 0, 1)).isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldGetTaskGroupStatusFromTaskCounts() throws Exception {
+        TaskGroupNode taskGroupNode = new TaskGroupNode("test", TaskStatus.QUEUED, new Date(), "job", "pipeline", "listener");
+        assertThat(tasks.getTaskGroupStatusFromTaskCounts(taskGroupNode)).isEmpty();
+
+        taskGroupNode.setTaskCount(TaskStatus.QUEUED, 2);
+        assertThat(tasks.getTaskGroupStatusFromTaskCounts(taskGroupNode)).isEqualTo(Optional.of(TaskStatus.QUEUED));
+
+        taskGroupNode.recordTaskTransition(TaskStatus.QUEUED, TaskStatus.EXECUTING);
+        assertThat(tasks.getTaskGroupStatusFromTaskCounts(taskGroupNode)).isEqualTo(Optional.of(TaskStatus.EXECUTING));
+
+        taskGroupNode.recordTaskTransition(TaskStatus.EXECUTING, TaskStatus.COMPLETED);
+        assertThat(tasks.getTaskGroupStatusFromTaskCounts(taskGroupNode)).isEqualTo(Optional.of(TaskStatus.QUEUED));
+
+        taskGroupNode.recordTaskTransition(TaskStatus.QUEUED, TaskStatus.FAILED_CLEAN);
+        assertThat(tasks.getTaskGroupStatusFromTaskCounts(taskGroupNode)).isEqualTo(Optional.of(TaskStatus.FAILED_CLEAN));
+        assertThat(taskGroupNode.getTaskCount(TaskStatus.QUEUED)).isEqualTo(0);
+        assertThat(taskGroupNode.getTaskCount(TaskStatus.COMPLETED)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFailToRecordTaskTransitionIfTaskCountsAreInconsistent() throws Exception {
+        TaskGroupNode taskGroupNode = new TaskGroupNode("test", TaskStatus.QUEUED, new Date(), "job", "pipeline", "listener");
+        taskGroupNode.setTaskCount(TaskStatus.QUEUED, 1);
+
+        assertThatThrownBy(() -> taskGroupNode.recordTaskTransition(TaskStatus.EXECUTING, TaskStatus.COMPLETED)).isExactlyInstanceOf(IllegalStateException.class);
+        assertThat(taskGroupNode.getTaskCount(TaskStatus.EXECUTING)).isEqualTo(0);
+        assertThat(taskGroupNode.getTaskCount(TaskStatus.COMPLETED)).isEqualTo(0);
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageConsumer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * @author Richard Lucas
+ */
+public class ActiveMqTaskQueueConsumersTest {
+
+    private ActiveMqTaskQueueConsumers consumers;
+    private ConnectionFactory mockConnectionFactory;
+    private TransactionSynchronizationRegistry mockTransactionSynchronizationRegistry;
+    private Connection mockConnection;
+    private Session mockSession;
+    private MessageConsumer mockMessageConsumer;
+
+    @Before
+    public void before() throws Exception {
+        mockConnectionFactory = mock(ConnectionFactory.class);
+        mockConnection = mock(Connection.class);
+        mockSession = mock(Session.class);
+        mockMessageConsumer = mock(MessageConsumer.class);
+        Queue mockQueue = mock(Queue.class);
+        doReturn(mockConnection).when(mockConnectionFactory).createConnection();
+        doReturn(mockSession).when(mockConnection).createSession(true, Session.SESSION_TRANSACTED);
+        doReturn(mockQueue).when(mockSession).createQueue("queue?consumer.prefetchSize=0");
+        doReturn(mockMessageConsumer).when(mockSession).createConsumer(mockQueue, "TaskType='TRANSFER'");
+
+        mockTransactionSynchronizationRegistry = mock(TransactionSynchronizationRegistry.class);
+        doReturn(Status.STATUS_NO_TRANSACTION).when(mockTransactionSynchronizationRegistry).getTransactionStatus();
+
+        consumers = new ActiveMqTaskQueueConsumers();
+        consumers.connectionFactory = mockConnectionFactory;
+        consumers.transactionSynchronizationRegistry = mockTransactionSynchronizationRegistry;
+    }
+
+    @Test
+    public void shouldReceiveUpToMaxMessages() throws Exception {
+        TextMessage a = textMessage("a");
+        TextMessage b = textMessage("b");
+        TextMessage c = textMessage("c");
+        doReturn(a).when(mockMessageConsumer).receive(100);
+        doReturn(b).doReturn(c).when(mockMessageConsumer).receive(50);
+
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 2, 100)).containsExactly("a", "b");
+        verify(mockMessageConsumer, never()).receiveNoWait();
+        verify(mockSession).commit();
+        verify(mockConnection).start();
+        verify(mockSession, never()).close();
+    }
+
+    @Test
+    public void shouldReceiveUntilQueueIsEmpty() throws Exception {
+        TextMessage a = textMessage("a");
+        doReturn(a).when(mockMessageConsumer).receive(100);
+
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 10, 100)).containsExactly("a");
+        verify(mockMessageConsumer).receive(50);
+    }
+
+    @Test
+    public void shouldReturnEmptyListIfQueueIsEmpty() throws Exception {
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 10, 100)).isEmpty();
+        verify(mockSession, never()).commit();
+    }
+
+    @Test
+    public void shouldReUseConsumer() throws Exception {
+        TextMessage a = textMessage("a");
+        TextMessage b = textMessage("b");
+        doReturn(a).doReturn(b).when(mockMessageConsumer).receive(100);
+
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 10, 100)).containsExactly("a");
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 10, 100)).containsExactly("b");
+        verify(mockConnectionFactory).createConnection();
+        verify(mockConnection).createSession(true, Session.SESSION_TRANSACTED);
+        verify(mockSession, times(2)).commit();
+    }
+
+    @Test
+    public void shouldCommitWhenJtaTransactionCommits() throws Exception {
+        doReturn(Status.STATUS_ACTIVE).when(mockTransactionSynchronizationRegistry).getTransactionStatus();
+        TextMessage a = textMessage("a");
+        doReturn(a).when(mockMessageConsumer).receive(100);
+
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 10, 100)).containsExactly("a");
+        verify(mockSession, never()).commit();
+
+        getSynchronization().afterCompletion(Status.STATUS_COMMITTED);
+        verify(mockSession).commit();
+        verify(mockSession, never()).rollback();
+    }
+
+    @Test
+    public void shouldRollbackWhenJtaTransactionRollsBack() throws Exception {
+        doReturn(Status.STATUS_ACTIVE).when(mockTransactionSynchronizationRegistry).getTransactionStatus();
+        TextMessage a = textMessage("a");
+        doReturn(a).when(mockMessageConsumer).receive(100);
+
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 10, 100)).containsExactly("a");
+
+        getSynchronization().afterCompletion(Status.STATUS_ROLLEDBACK);
+        verify(mockSession).rollback();
+        verify(mockSession, never()).commit();
+    }
+
+    @Test
+    public void shouldNotReturnConsumerToPoolUntilJtaTransactionCompletes() throws Exception {
+        doReturn(Status.STATUS_ACTIVE).when(mockTransactionSynchronizationRegistry).getTransactionStatus();
+        TextMessage a = textMessage("a");
+        doReturn(a).when(mockMessageConsumer).receive(100);
+
+        consumers.receive("queue", "TaskType='TRANSFER'", 10, 100);
+        consumers.receive("queue", "TaskType='TRANSFER'", 10, 100);
+        verify(mockConnection, times(2)).createSession(true, Session.SESSION_TRANSACTED);
+    }
+
+    @Test
+    public void shouldDiscardConsumerThatFails() throws Exception {
+        doThrow(new JMSException("test")).when(mockMessageConsumer).receive(100);
+
+        try {
+            consumers.receive("queue", "TaskType='TRANSFER'", 10, 100);
+            failBecauseExceptionWasNotThrown(OmakaseRuntimeException.class);
+        } catch (OmakaseRuntimeException e) {
+            assertThat(e).hasMessage("Failed to receive messages from queue");
+        }
+        verify(mockSession).rollback();
+        verify(mockMessageConsumer).close();
+        verify(mockSession).close();
+    }
+
+    @Test
+    public void shouldCloseConsumersOnDestroy() throws Exception {
+        consumers.receive("queue", "TaskType='TRANSFER'", 10, 100);
+        consumers.destroy();
+        verify(mockMessageConsumer).close();
+        verify(mockSession).close();
+        verify(mockConnection).close();
+    }
+
+    @Test
+    public void shouldOnlyCommitConsumedMessagesOnceProcessed() throws Exception {
+        TextMessage a = textMessage("a");
+        doReturn(a).when(mockMessageConsumer).receive(100);
+
+        consumers.consume("queue", "TaskType='TRANSFER'", 10, 100, messages -> {
+            assertThat(messages).containsExactly("a");
+            try {
+                verify(mockSession, never()).commit();
+            } catch (JMSException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        verify(mockSession).commit();
+    }
+
+    @Test
+    public void shouldCommitConsumedMessagesIfProcessingFails() throws Exception {
+        TextMessage a = textMessage("a");
+        doReturn(a).when(mockMessageConsumer).receive(100);
+
+        try {
+            consumers.consume("queue", "TaskType='TRANSFER'", 10, 100, messages -> {
+                throw new IllegalStateException("test");
+            });
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("test");
+        }
+        verify(mockSession).commit();
+        verify(mockSession, never()).close();
+    }
+
+    @Test
+    public void shouldNotProcessIfNoMessagesAreConsumed() throws Exception {
+        consumers.consume("queue", "TaskType='TRANSFER'", 10, 100, messages -> {
+            throw new IllegalStateException("test");
+        });
+    }
+
+    @Test
+    public void shouldNotConnectIfMaxIsLessThanOne() throws Exception {
+        assertThat(consumers.receive("queue", "TaskType='TRANSFER'", 0, 100)).isEmpty();
+        verifyZeroInteractions(mockConnectionFactory);
+    }
+
+    private Synchronization getSynchronization() {
+        ArgumentCaptor<Synchronization> captor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(mockTransactionSynchronizationRegistry).registerInterposedSynchronization(captor.capture());
+        return captor.getValue();
+    }
+
+    private static TextMessage textMessage(String text) throws Exception {
+        TextMessage message = mock(TextMessage.class);
+        doReturn(text).when(message).getText();
+        return message;
+    }
+}
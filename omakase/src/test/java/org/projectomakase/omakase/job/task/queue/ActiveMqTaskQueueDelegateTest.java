@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectomakase.omakase.OmakaseCluster;
+
+import javax.jms.ConnectionFactory;
+import javax.transaction.Status;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * @author Richard Lucas
+ */
+public class ActiveMqTaskQueueDelegateTest {
+
+    private static final String SHARED_QUEUE = "omakase-task-queue";
+    private static final String TASK_TYPE_QUEUE = "omakase-manifest-transfer-task-queue";
+
+    private ActiveMqTaskQueueDelegate delegate;
+    private ActiveMqTaskQueueConsumers mockConsumers;
+    private TransactionSynchronizationRegistry mockTransactionSynchronizationRegistry;
+    private ActiveMqTaskQueueMigration mockMigration;
+
+    @Before
+    public void before() throws Exception {
+        OmakaseCluster mockCluster = mock(OmakaseCluster.class);
+        doReturn("Omakase").when(mockCluster).getClusterName();
+        mockConsumers = mock(ActiveMqTaskQueueConsumers.class);
+        doReturn(ImmutableList.of()).when(mockConsumers).receive(anyString(), anyString(), anyInt(), anyLong());
+
+        ConnectionFactory mockConnectionFactory = mock(ConnectionFactory.class);
+        mockMigration = mock(ActiveMqTaskQueueMigration.class);
+
+        mockTransactionSynchronizationRegistry = mock(TransactionSynchronizationRegistry.class);
+        doReturn(Status.STATUS_NO_TRANSACTION).when(mockTransactionSynchronizationRegistry).getTransactionStatus();
+
+        delegate = new ActiveMqTaskQueueDelegate();
+        delegate.omakaseCluster = mockCluster;
+        delegate.activeMqTaskQueueConsumers = mockConsumers;
+        delegate.connectionFactory = mockConnectionFactory;
+        delegate.transactionSynchronizationRegistry = mockTransactionSynchronizationRegistry;
+        delegate.activeMqTaskQueueMigration = mockMigration;
+    }
+
+    @Test
+    public void shouldGetBatchFromSharedQueueUsingSelector() throws Exception {
+        doReturn(ImmutableList.of("a", "b")).when(mockConsumers).receive(SHARED_QUEUE, "TaskType='MANIFEST_TRANSFER'", 10, 100);
+        assertThat(delegate.getBatch("MANIFEST_TRANSFER", 10)).containsExactly("a", "b");
+    }
+
+    @Test
+    public void shouldGetBatchFromTaskTypeQueueWithoutSelector() throws Exception {
+        delegate.queuePerTaskType = true;
+        doReturn(ImmutableList.of("a")).when(mockConsumers).receive(TASK_TYPE_QUEUE, null, 10, 100);
+        assertThat(delegate.getBatch("MANIFEST_TRANSFER", 10)).containsExactly("a");
+    }
+
+    @Test
+    public void shouldMigrateSharedQueueTasksWhenMigrationIsDue() throws Exception {
+        delegate.queuePerTaskType = true;
+        doReturn(true).when(mockMigration).isDue("MANIFEST_TRANSFER");
+
+        delegate.getBatch("MANIFEST_TRANSFER", 10);
+        verify(mockMigration).migrate(SHARED_QUEUE, TASK_TYPE_QUEUE, "MANIFEST_TRANSFER");
+    }
+
+    @Test
+    public void shouldNotMigrateSharedQueueTasksWhenMigrationIsNotDue() throws Exception {
+        delegate.queuePerTaskType = true;
+        doReturn(false).when(mockMigration).isDue("MANIFEST_TRANSFER");
+
+        delegate.getBatch("MANIFEST_TRANSFER", 10);
+        verify(mockMigration, never()).migrate(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void shouldNotMigrateWhenUsingSharedQueue() throws Exception {
+        delegate.getBatch("MANIFEST_TRANSFER", 10);
+        verifyZeroInteractions(mockMigration);
+    }
+}
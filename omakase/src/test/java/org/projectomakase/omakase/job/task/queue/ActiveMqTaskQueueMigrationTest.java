@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class ActiveMqTaskQueueMigrationTest {
+
+    private static final String SHARED_QUEUE = "omakase-task-queue";
+    private static final String TASK_TYPE_QUEUE = "omakase-manifest-transfer-task-queue";
+
+    private ActiveMqTaskQueueMigration migration;
+    private Session mockSession;
+    private MessageConsumer mockSharedQueueConsumer;
+    private MessageProducer mockTaskTypeQueueProducer;
+
+    @Before
+    public void before() throws Exception {
+        ConnectionFactory mockConnectionFactory = mock(ConnectionFactory.class);
+        Connection mockConnection = mock(Connection.class);
+        mockSession = mock(Session.class);
+        mockSharedQueueConsumer = mock(MessageConsumer.class);
+        mockTaskTypeQueueProducer = mock(MessageProducer.class);
+        Queue mockSharedQueue = mock(Queue.class);
+        Queue mockTaskTypeQueue = mock(Queue.class);
+        doReturn(mockConnection).when(mockConnectionFactory).createConnection();
+        doReturn(mockSession).when(mockConnection).createSession(true, Session.SESSION_TRANSACTED);
+        doReturn(mockSharedQueue).when(mockSession).createQueue(SHARED_QUEUE + "?consumer.prefetchSize=0");
+        doReturn(mockTaskTypeQueue).when(mockSession).createQueue(TASK_TYPE_QUEUE);
+        doReturn(mockSharedQueueConsumer).when(mockSession).createConsumer(mockSharedQueue, "TaskType='MANIFEST_TRANSFER'");
+        doReturn(mockTaskTypeQueueProducer).when(mockSession).createProducer(mockTaskTypeQueue);
+        doReturn(mock(TextMessage.class)).when(mockSession).createTextMessage(anyString());
+
+        migration = new ActiveMqTaskQueueMigration();
+        migration.connectionFactory = mockConnectionFactory;
+        migration.migrationIntervalInMs = 60000;
+    }
+
+    @Test
+    public void shouldMigrateSharedQueueTasksPreservingPriority() throws Exception {
+        Message first = textMessage("a", 7);
+        Message second = textMessage("b", 2);
+        doReturn(first).when(mockSharedQueueConsumer).receive(100);
+        doReturn(second).doReturn(null).when(mockSharedQueueConsumer).receive(50);
+        TextMessage migratedFirst = mock(TextMessage.class);
+        TextMessage migratedSecond = mock(TextMessage.class);
+        doReturn(migratedFirst).when(mockSession).createTextMessage("a");
+        doReturn(migratedSecond).when(mockSession).createTextMessage("b");
+
+        assertThat(migration.migrate(SHARED_QUEUE, TASK_TYPE_QUEUE, "MANIFEST_TRANSFER")).isEqualTo(2);
+
+        verify(mockTaskTypeQueueProducer).send(migratedFirst, DeliveryMode.PERSISTENT, 7, Message.DEFAULT_TIME_TO_LIVE);
+        verify(mockTaskTypeQueueProducer).send(migratedSecond, DeliveryMode.PERSISTENT, 2, Message.DEFAULT_TIME_TO_LIVE);
+        verify(migratedFirst).setStringProperty("TaskType", "MANIFEST_TRANSFER");
+        // the session is enlisted in the migration transaction and is never committed directly
+        verify(mockSession, never()).commit();
+    }
+
+    @Test
+    public void shouldMigrateOnEveryRequestWhileSharedQueueHasTasks() throws Exception {
+        assertThat(migration.isDue("MANIFEST_TRANSFER")).isTrue();
+        doReturn(textMessage("a", 4)).when(mockSharedQueueConsumer).receive(100);
+
+        migration.migrate(SHARED_QUEUE, TASK_TYPE_QUEUE, "MANIFEST_TRANSFER");
+        assertThat(migration.isDue("MANIFEST_TRANSFER")).isTrue();
+    }
+
+    @Test
+    public void shouldNotMigrateUntilIntervalHasElapsedOnceSharedQueueIsEmpty() throws Exception {
+        assertThat(migration.migrate(SHARED_QUEUE, TASK_TYPE_QUEUE, "MANIFEST_TRANSFER")).isEqualTo(0);
+        assertThat(migration.isDue("MANIFEST_TRANSFER")).isFalse();
+        // the migration times are tracked per task type
+        assertThat(migration.isDue("TRANSFER")).isTrue();
+    }
+
+    private static Message textMessage(String text, int priority) throws Exception {
+        TextMessage message = mock(TextMessage.class);
+        doReturn(text).when(message).getText();
+        doReturn(priority).when(message).getJMSPriority();
+        return message;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import org.apache.camel.Processor;
+import org.apache.camel.ProducerTemplate;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.projectomakase.omakase.OmakaseCluster;
+import org.projectomakase.omakase.camel.CamelQueueEndpoint;
+import org.projectomakase.omakase.task.api.Task;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class SQSTaskQueueDelegateTest {
+
+    private static final String QUEUE_NAME = "omakase-transfer-task-queue";
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/1/" + QUEUE_NAME;
+
+    private SQSTaskQueueDelegate delegate;
+    private AmazonSQSClient mockSqsClient;
+
+    @Before
+    public void before() {
+        OmakaseCluster mockCluster = mock(OmakaseCluster.class);
+        doReturn("Omakase").when(mockCluster).getClusterName();
+        mockSqsClient = mock(AmazonSQSClient.class);
+        doReturn(new GetQueueUrlResult().withQueueUrl(QUEUE_URL)).when(mockSqsClient).getQueueUrl(QUEUE_NAME);
+        doReturn(new DeleteMessageBatchResult()).when(mockSqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+        doReturn(new SendMessageBatchResult()).when(mockSqsClient).sendMessageBatch(any(SendMessageBatchRequest.class));
+
+        delegate = new SQSTaskQueueDelegate();
+        delegate.omakaseCluster = mockCluster;
+        delegate.sqsClient = mockSqsClient;
+        delegate.receiveWaitTimeInSecs = 5;
+    }
+
+    @Test
+    public void shouldGetBatchUsingMultipleReceives() {
+        doReturn(receiveResult(0, 10)).doReturn(receiveResult(10, 5)).when(mockSqsClient).receiveMessage(any(ReceiveMessageRequest.class));
+
+        assertThat(delegate.getBatch("TRANSFER", 15)).containsExactlyElementsOf(IntStream.range(0, 15).mapToObj(i -> "task" + i).collect(Collectors.toList()));
+
+        ArgumentCaptor<ReceiveMessageRequest> receiveCaptor = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+        verify(mockSqsClient, times(2)).receiveMessage(receiveCaptor.capture());
+        List<ReceiveMessageRequest> receiveRequests = receiveCaptor.getAllValues();
+        assertThat(receiveRequests.get(0).getMaxNumberOfMessages()).isEqualTo(10);
+        // only the first receive long polls
+        assertThat(receiveRequests.get(0).getWaitTimeSeconds()).isEqualTo(5);
+        assertThat(receiveRequests.get(1).getMaxNumberOfMessages()).isEqualTo(5);
+        assertThat(receiveRequests.get(1).getWaitTimeSeconds()).isEqualTo(0);
+
+        ArgumentCaptor<DeleteMessageBatchRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(mockSqsClient, times(2)).deleteMessageBatch(deleteCaptor.capture());
+        assertThat(deleteCaptor.getAllValues().get(0).getEntries()).hasSize(10);
+        assertThat(deleteCaptor.getAllValues().get(1).getEntries()).hasSize(5);
+    }
+
+    @Test
+    public void shouldStopReceivingWhenQueueIsEmpty() {
+        doReturn(receiveResult(0, 3)).doReturn(receiveResult(0, 0)).when(mockSqsClient).receiveMessage(any(ReceiveMessageRequest.class));
+
+        assertThat(delegate.getBatch("TRANSFER", 20)).containsExactly("task0", "task1", "task2");
+        verify(mockSqsClient, times(2)).receiveMessage(any(ReceiveMessageRequest.class));
+        verify(mockSqsClient, times(1)).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    public void shouldReturnEmptyBatchIfQueueDoesNotExist() {
+        doThrow(new QueueDoesNotExistException("missing")).when(mockSqsClient).getQueueUrl(QUEUE_NAME);
+
+        assertThat(delegate.getBatch("TRANSFER", 10)).isEmpty();
+        verify(mockSqsClient, never()).receiveMessage(any(ReceiveMessageRequest.class));
+    }
+
+    @Test
+    public void shouldReDeleteMessagesThatFailToDeleteAsPartOfBatch() {
+        doReturn(receiveResult(0, 3)).doReturn(receiveResult(0, 0)).when(mockSqsClient).receiveMessage(any(ReceiveMessageRequest.class));
+        doReturn(new DeleteMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("1").withCode("InternalError").withMessage("failed")))
+                .when(mockSqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+
+        assertThat(delegate.getBatch("TRANSFER", 3)).containsExactly("task0", "task1", "task2");
+        verify(mockSqsClient).deleteMessage(QUEUE_URL, "receipt1");
+        verify(mockSqsClient, never()).deleteMessage(QUEUE_URL, "receipt0");
+        verify(mockSqsClient, never()).deleteMessage(QUEUE_URL, "receipt2");
+    }
+
+    @Test
+    public void shouldReturnBatchIfMessageCanNotBeReDeleted() {
+        doReturn(receiveResult(0, 2)).when(mockSqsClient).receiveMessage(any(ReceiveMessageRequest.class));
+        doReturn(new DeleteMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("0").withCode("InternalError").withMessage("failed")))
+                .when(mockSqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+        doThrow(new AmazonClientException("failed")).when(mockSqsClient).deleteMessage(anyString(), anyString());
+
+        assertThat(delegate.getBatch("TRANSFER", 2)).containsExactly("task0", "task1");
+        verify(mockSqsClient).deleteMessage(QUEUE_URL, "receipt0");
+    }
+
+    @Test
+    public void shouldAddAllUsingBatchesOfTen() {
+        delegate.addAll(tasks(25));
+
+        ArgumentCaptor<SendMessageBatchRequest> sendCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(mockSqsClient, times(3)).sendMessageBatch(sendCaptor.capture());
+        List<SendMessageBatchRequest> sendRequests = sendCaptor.getAllValues();
+        assertThat(sendRequests).extracting(SendMessageBatchRequest::getQueueUrl).containsOnly(QUEUE_URL);
+        assertThat(sendRequests.get(0).getEntries()).hasSize(10);
+        assertThat(sendRequests.get(1).getEntries()).hasSize(10);
+        assertThat(sendRequests.get(2).getEntries()).hasSize(5);
+        assertThat(sendRequests.stream().flatMap(request -> request.getEntries().stream()).map(SendMessageBatchRequestEntry::getMessageBody).collect(Collectors.toList()))
+                .containsExactlyElementsOf(IntStream.range(0, 25).mapToObj(i -> "task" + i).collect(Collectors.toList()));
+        verify(mockSqsClient, never()).sendMessage(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldReSendMessagesThatFailToSendAsPartOfBatch() {
+        doReturn(new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("2").withCode("InternalError").withMessage("failed")))
+                .doReturn(new SendMessageBatchResult())
+                .when(mockSqsClient).sendMessageBatch(any(SendMessageBatchRequest.class));
+
+        delegate.addAll(tasks(12));
+
+        verify(mockSqsClient, times(2)).sendMessageBatch(any(SendMessageBatchRequest.class));
+        verify(mockSqsClient).sendMessage(QUEUE_URL, "task2");
+        verify(mockSqsClient, times(1)).sendMessage(anyString(), anyString());
+    }
+
+    @Test
+    public void shouldAddFirstTaskIndividuallyIfQueueDoesNotExist() {
+        CamelQueueEndpoint mockCamelQueueEndpoint = mock(CamelQueueEndpoint.class);
+        doReturn("aws-sqs://" + QUEUE_NAME).when(mockCamelQueueEndpoint).getQueueEndpoint(QUEUE_NAME);
+        ProducerTemplate mockProducerTemplate = mock(ProducerTemplate.class);
+        delegate.camelQueueEndpoint = mockCamelQueueEndpoint;
+        delegate.producerTemplate = mockProducerTemplate;
+        doThrow(new QueueDoesNotExistException("missing")).doReturn(new GetQueueUrlResult().withQueueUrl(QUEUE_URL)).when(mockSqsClient).getQueueUrl(QUEUE_NAME);
+
+        delegate.addAll(tasks(11));
+
+        verify(mockProducerTemplate).send(eq("aws-sqs://" + QUEUE_NAME), any(Processor.class));
+        ArgumentCaptor<SendMessageBatchRequest> sendCaptor = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(mockSqsClient).sendMessageBatch(sendCaptor.capture());
+        assertThat(sendCaptor.getValue().getEntries()).extracting(SendMessageBatchRequestEntry::getMessageBody)
+                .containsExactlyElementsOf(IntStream.range(1, 11).mapToObj(i -> "task" + i).collect(Collectors.toList()));
+    }
+
+    private static List<Task> tasks(int count) {
+        return IntStream.range(0, count).mapToObj(i -> new Task("task" + i, "TRANSFER", "test", null)).collect(Collectors.toList());
+    }
+
+    private static ReceiveMessageResult receiveResult(int from, int count) {
+        return new ReceiveMessageResult().withMessages(
+                IntStream.range(from, from + count).mapToObj(i -> new Message().withBody("task" + i).withReceiptHandle("receipt" + i)).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.amazonaws.services.sqs.AmazonSQSClient;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.QueueDoesNotExistException;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.projectomakase.omakase.OmakaseCluster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class SQSTaskStatusQueueDelegateTest {
+
+    private static final String QUEUE_NAME = "omakase-task-status-queue";
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/1/" + QUEUE_NAME;
+
+    private SQSTaskStatusQueueDelegate delegate;
+    private AmazonSQSClient mockSqsClient;
+
+    @Before
+    public void before() {
+        OmakaseCluster mockCluster = mock(OmakaseCluster.class);
+        doReturn("Omakase").when(mockCluster).getClusterName();
+        mockSqsClient = mock(AmazonSQSClient.class);
+        doReturn(new GetQueueUrlResult().withQueueUrl(QUEUE_URL)).when(mockSqsClient).getQueueUrl(QUEUE_NAME);
+        doReturn(new DeleteMessageBatchResult()).when(mockSqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+
+        delegate = new SQSTaskStatusQueueDelegate();
+        delegate.omakaseCluster = mockCluster;
+        delegate.sqsClient = mockSqsClient;
+    }
+
+    @Test
+    public void shouldDeleteMessagesOnceProcessed() {
+        doReturn(receiveResult(0, 10)).doReturn(receiveResult(10, 5)).doReturn(receiveResult(0, 0)).when(mockSqsClient).receiveMessage(any(ReceiveMessageRequest.class));
+
+        List<String> processed = new ArrayList<>();
+        delegate.consume(25, 500, messages -> {
+            verify(mockSqsClient, never()).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+            processed.addAll(messages);
+        });
+        assertThat(processed).containsExactlyElementsOf(IntStream.range(0, 15).mapToObj(i -> "message" + i).collect(Collectors.toList()));
+
+        ArgumentCaptor<ReceiveMessageRequest> receiveCaptor = ArgumentCaptor.forClass(ReceiveMessageRequest.class);
+        verify(mockSqsClient, times(3)).receiveMessage(receiveCaptor.capture());
+        // the timeout is rounded up to the nearest second and only the first receive long polls
+        assertThat(receiveCaptor.getAllValues().get(0).getWaitTimeSeconds()).isEqualTo(1);
+        assertThat(receiveCaptor.getAllValues().get(1).getWaitTimeSeconds()).isEqualTo(0);
+
+        ArgumentCaptor<DeleteMessageBatchRequest> deleteCaptor = ArgumentCaptor.forClass(DeleteMessageBatchRequest.class);
+        verify(mockSqsClient, times(2)).deleteMessageBatch(deleteCaptor.capture());
+        assertThat(deleteCaptor.getAllValues().get(0).getEntries()).hasSize(10);
+        assertThat(deleteCaptor.getAllValues().get(1).getEntries()).hasSize(5);
+    }
+
+    @Test
+    public void shouldDeleteMessagesIfProcessingFails() {
+        doReturn(receiveResult(0, 3)).doReturn(receiveResult(0, 0)).when(mockSqsClient).receiveMessage(any(ReceiveMessageRequest.class));
+
+        try {
+            delegate.consume(25, 500, messages -> {
+                throw new IllegalStateException("test");
+            });
+            failBecauseExceptionWasNotThrown(IllegalStateException.class);
+        } catch (IllegalStateException e) {
+            assertThat(e).hasMessage("test");
+        }
+        verify(mockSqsClient).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    public void shouldNotProcessIfQueueIsEmpty() {
+        doReturn(receiveResult(0, 0)).when(mockSqsClient).receiveMessage(any(ReceiveMessageRequest.class));
+
+        delegate.consume(25, 500, messages -> {
+            throw new IllegalStateException("test");
+        });
+        verify(mockSqsClient, never()).deleteMessageBatch(any(DeleteMessageBatchRequest.class));
+    }
+
+    @Test
+    public void shouldGetQueueSizeFromApproximateNumberOfMessages() {
+        doReturn(new GetQueueAttributesResult().withAttributes(ImmutableMap.of("ApproximateNumberOfMessages", "42"))).when(mockSqsClient)
+                .getQueueAttributes(any(GetQueueAttributesRequest.class));
+
+        assertThat(delegate.getQueueSize()).isEqualTo(42);
+    }
+
+    @Test
+    public void shouldReturnZeroQueueSizeIfQueueDoesNotExist() {
+        doThrow(new QueueDoesNotExistException("test")).when(mockSqsClient).getQueueUrl(QUEUE_NAME);
+
+        assertThat(delegate.getQueueSize()).isEqualTo(0);
+    }
+
+    private static ReceiveMessageResult receiveResult(int start, int count) {
+        return new ReceiveMessageResult().withMessages(
+                IntStream.range(start, start + count).mapToObj(i -> new Message().withBody("message" + i).withReceiptHandle("receipt" + i)).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.job.task.queue;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectomakase.omakase.commons.compress.Compressors;
+import org.projectomakase.omakase.commons.exceptions.OmakaseRuntimeException;
+import org.projectomakase.omakase.exceptions.NotFoundException;
+import org.projectomakase.omakase.job.task.PendingTaskStatusUpdate;
+import org.projectomakase.omakase.job.task.TaskManager;
+import org.projectomakase.omakase.job.task.Tasks;
+import org.projectomakase.omakase.task.api.TaskStatus;
+import org.projectomakase.omakase.task.api.TaskStatusUpdate;
+
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.failBecauseExceptionWasNotThrown;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Richard Lucas
+ */
+public class TaskStatusQueueTest {
+
+    private static final TaskStatusUpdate EXECUTING = new TaskStatusUpdate(TaskStatus.EXECUTING, "executing", 50);
+
+    private TaskStatusQueue taskStatusQueue;
+    private TaskManager mockTaskManager;
+    private Tasks mockTasks;
+    private TaskStatusQueueDelegate mockTaskStatusQueueDelegate;
+
+    @Before
+    public void before() {
+        mockTaskManager = mock(TaskManager.class);
+        mockTasks = mock(Tasks.class);
+        doReturn(EXECUTING).when(mockTasks).taskStatusUpdateFromJson(anyString(), anyString());
+
+        taskStatusQueue = new TaskStatusQueue();
+        taskStatusQueue.taskManager = mockTaskManager;
+        taskStatusQueue.tasks = mockTasks;
+        taskStatusQueue.taskStatusQueueMetrics = new TaskStatusQueueMetrics();
+        mockTaskStatusQueueDelegate = mock(TaskStatusQueueDelegate.class);
+        taskStatusQueue.taskStatusQueueDelegate = mockTaskStatusQueueDelegate;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldProcessNextBatchWhileItIsConsumed() {
+        doAnswer(invocation -> {
+            // the batch must be processed before the delegate removes the messages from the queue
+            ((Consumer<ImmutableList<String>>) invocation.getArguments()[2]).accept(ImmutableList.of(queueMessage("a"), queueMessage("b")));
+            verify(mockTaskManager).updateTaskStatuses(anyListOf(PendingTaskStatusUpdate.class));
+            return null;
+        }).when(mockTaskStatusQueueDelegate).consume(eq(25), eq(500L), any(Consumer.class));
+
+        taskStatusQueue.processNextBatch(25, 500);
+        verify(mockTaskStatusQueueDelegate).consume(eq(25), eq(500L), any(Consumer.class));
+        assertThat(taskStatusQueue.taskStatusQueueMetrics.getReceivedCount()).isEqualTo(2);
+        assertThat(taskStatusQueue.taskStatusQueueMetrics.getProcessedCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldApplyUpdatesAsSingleBatch() {
+        taskStatusQueue.processQueueMessages(ImmutableList.of(queueMessage("a"), "[" + queueMessage("b") + "," + queueMessage("c") + "]"));
+        verify(mockTaskManager).updateTaskStatuses(anyListOf(PendingTaskStatusUpdate.class));
+        verify(mockTaskManager, never()).updateTaskStatus(anyString(), any(TaskStatusUpdate.class));
+    }
+
+    @Test
+    public void shouldApplyUpdatesIndividuallyIfBatchFails() {
+        doThrow(new NotFoundException("Unable to find task b")).when(mockTaskManager).updateTaskStatuses(anyListOf(PendingTaskStatusUpdate.class));
+        doThrow(new NotFoundException("Unable to find task b")).when(mockTaskManager).updateTaskStatus(eq("b"), any(TaskStatusUpdate.class));
+        try {
+            taskStatusQueue.processQueueMessages(ImmutableList.of(queueMessage("a"), queueMessage("b"), queueMessage("c")));
+            failBecauseExceptionWasNotThrown(OmakaseRuntimeException.class);
+        } catch (OmakaseRuntimeException e) {
+            assertThat(e).hasMessageStartingWith("Failed to apply task status update").hasCauseInstanceOf(NotFoundException.class);
+        }
+        verify(mockTaskManager).updateTaskStatus("a", EXECUTING);
+        verify(mockTaskManager).updateTaskStatus("b", EXECUTING);
+        verify(mockTaskManager).updateTaskStatus("c", EXECUTING);
+    }
+
+    @Test
+    public void shouldApplyRemainingUpdatesAndThrowIfAMessageCanNotBeRead() {
+        try {
+            taskStatusQueue.processQueueMessages(ImmutableList.of("bad", queueMessage("a")));
+            failBecauseExceptionWasNotThrown(OmakaseRuntimeException.class);
+        } catch (OmakaseRuntimeException e) {
+            assertThat(e).hasMessage("Failed to parse task status queue message bad");
+        }
+        verify(mockTaskManager, times(1)).updateTaskStatus("a", EXECUTING);
+    }
+
+    @Test
+    public void shouldThrowIfSingleUpdateFails() {
+        doThrow(new NotFoundException("Unable to find task a")).when(mockTaskManager).updateTaskStatus(eq("a"), any(TaskStatusUpdate.class));
+        try {
+            taskStatusQueue.processQueueMessage(queueMessage("a"));
+            failBecauseExceptionWasNotThrown(NotFoundException.class);
+        } catch (NotFoundException e) {
+            assertThat(e).hasMessage("Unable to find task a");
+        }
+    }
+
+    private static String queueMessage(String taskId) {
+        return "{\"taskId\":\"" + taskId + "\",\"status\":\"" + Compressors.compressString(EXECUTING.toJson()) + "\"}";
+    }
+}
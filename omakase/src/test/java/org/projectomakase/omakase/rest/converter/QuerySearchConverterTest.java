@@ -23,6 +23,8 @@ import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
+import org.projectomakase.omakase.search.CountMode;
+import org.projectomakase.omakase.search.Cursor;
 import org.projectomakase.omakase.search.InvalidSearchConditionException;
 import org.projectomakase.omakase.search.Operator;
 import org.projectomakase.omakase.search.Search;
@@ -139,6 +141,46 @@ public class QuerySearchConverterTest {
         assertThat(converter.from(multivaluedMap).isOnlyCount()).isFalse();
     }
 
+    @Test
+    public void shouldDefaultCountModeToExact() {
+        assertThat(converter.from(multivaluedMap).getCountMode()).isEqualTo(CountMode.EXACT);
+    }
+
+    @Test
+    public void shouldConvertCountMode() {
+        multivaluedMap.addFirst("count_mode", "estimate");
+        assertThat(converter.from(multivaluedMap).getCountMode()).isEqualTo(CountMode.ESTIMATE);
+    }
+
+    @Test
+    public void shouldThrowInvalidSearchConditionBadCountMode() {
+        multivaluedMap.addFirst("count_mode", "bad");
+        try {
+            converter.from(multivaluedMap);
+            failBecauseExceptionWasNotThrown(InvalidSearchConditionException.class);
+        } catch (InvalidSearchConditionException e) {
+            assertThat(e).hasMessage("Invalid count mode bad");
+        }
+    }
+
+    @Test
+    public void shouldConvertStartCursor() {
+        multivaluedMap.addFirst("cursor", "*");
+        assertThat(converter.from(multivaluedMap).getCursor()).contains(Cursor.start());
+    }
+
+    @Test
+    public void shouldThrowInvalidSearchConditionCursorForDifferentSort() {
+        multivaluedMap.addFirst("cursor", Cursor.after("test:test", SortOrder.DESC, "value", "name").encode());
+        multivaluedMap.addFirst("sort", "test");
+        try {
+            converter.from(multivaluedMap);
+            failBecauseExceptionWasNotThrown(InvalidSearchConditionException.class);
+        } catch (InvalidSearchConditionException e) {
+            assertThat(e).hasMessage("Invalid cursor for sort attribute test");
+        }
+    }
+
     @Test
     public void shouldConvertSearchCondition() {
         multivaluedMap.addFirst("test[eq]", "value");
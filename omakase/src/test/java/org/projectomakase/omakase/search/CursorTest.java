@@ -0,0 +1,68 @@
+/*
+ * #%L
+ * omakase
+ * %%
+ * Copyright (C) 2015 Project Omakase LLC
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.projectomakase.omakase.search;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Richard Lucas
+ */
+public class CursorTest {
+
+    @Test
+    public void shouldEncodeAndDecodeStartCursor() throws Exception {
+        assertThat(Cursor.start().encode()).isEqualTo("*");
+        assertThat(Cursor.decode("*").isStart()).isTrue();
+    }
+
+    @Test
+    public void shouldEncodeAndDecodeCursor() throws Exception {
+        Cursor cursor = Cursor.after("jcr:created", SortOrder.DESC, "2015-05-01T00:00:00.000Z", "eb751690-23cb-11e4-8c21-0800200c9a66");
+        String token = cursor.encode();
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(Cursor.decode(token)).isEqualTo(cursor);
+    }
+
+    @Test
+    public void shouldEncodeAndDecodeCursorWithoutSortValue() throws Exception {
+        Cursor cursor = Cursor.after(null, SortOrder.ASC, null, "eb751690-23cb-11e4-8c21-0800200c9a66");
+        Cursor decoded = Cursor.decode(cursor.encode());
+        assertThat(decoded.getOrderBy()).isEmpty();
+        assertThat(decoded.getSortValue()).isEmpty();
+        assertThat(decoded.getName()).isEqualTo("eb751690-23cb-11e4-8c21-0800200c9a66");
+    }
+
+    @Test
+    public void shouldThrowInvalidSearchConditionForBadCursor() throws Exception {
+        assertThatThrownBy(() -> Cursor.decode("bad")).isInstanceOf(InvalidSearchConditionException.class).hasMessage("Invalid cursor bad");
+    }
+
+    @Test
+    public void shouldOnlyBeCompatibleWithSameSort() throws Exception {
+        Cursor cursor = Cursor.after("jcr:created", SortOrder.DESC, "2015-05-01T00:00:00.000Z", "name");
+        assertThat(cursor.isCompatible("jcr:created", SortOrder.DESC)).isTrue();
+        assertThat(cursor.isCompatible("jcr:created", SortOrder.ASC)).isFalse();
+        assertThat(cursor.isCompatible("omakase:name", SortOrder.DESC)).isFalse();
+        assertThat(Cursor.start().isCompatible("omakase:name", SortOrder.ASC)).isTrue();
+    }
+}